@@ -0,0 +1,28 @@
+#!/bin/sh
+# Запуск с архивом AppCDS. jar распаковывается, при первом старте новой версии выполняется обучающий запуск
+# до окончания создания контекста, классы которого сохраняются в application.jsa для следующих стартов.
+# Профиль задается переменной SPRING_PROFILES_ACTIVE, по умолчанию он не выбран (fast-startup выключает Swagger).
+JAR=/root/tgb/auth.jar
+APP=/root/tgb/app
+ARCHIVE=$APP/application.jsa
+JAVA_VERSION=$(java -version 2>&1)
+
+if [ ! -f "$APP/auth.jar" ] || [ "$JAR" -nt "$APP/auth.jar" ]; then
+    rm -rf "$APP"
+    java -Djarmode=tools -jar "$JAR" extract --destination "$APP" || exit 1
+fi
+
+# архив действителен только для той же сборки JVM
+if [ "$JAVA_VERSION" != "$(cat "$APP/java.version" 2>/dev/null)" ]; then
+    rm -f "$ARCHIVE"
+    echo "$JAVA_VERSION" > "$APP/java.version"
+fi
+
+if [ ! -f "$ARCHIVE" ]; then
+    java -XX:ArchiveClassesAtExit="$ARCHIVE" -Dspring.context.exit=onRefresh \
+        -jar "$APP/auth.jar" || rm -f "$ARCHIVE"
+fi
+
+exec java -Xms1g -Xmx1g -XX:SharedArchiveFile="$ARCHIVE" \
+    -agentlib:jdwp=transport=dt_socket,server=y,suspend=n,address=*:5005 \
+    -jar "$APP/auth.jar"
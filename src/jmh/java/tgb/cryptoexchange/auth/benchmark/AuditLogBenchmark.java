@@ -0,0 +1,49 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import tgb.cryptoexchange.auth.audit.AuditEventType;
+import tgb.cryptoexchange.auth.audit.AuditLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Стоимость публикации события аудита из потока запроса при работающем фоновом писателе журнала.
+ * Запускается в несколько потоков (<code>-t</code>), чтобы учесть конкуренцию за хвост буфера.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuditLogBenchmark {
+
+    private Path directory;
+
+    private AuditLog auditLog;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("audit-benchmark");
+        auditLog = new AuditLog(new SimpleMeterRegistry(), directory.toString(), 65536, 64 * 1024 * 1024, 1024, false);
+        auditLog.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        auditLog.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        auditLog.record(AuditEventType.LOGIN_SUCCESS, "username");
+    }
+}
@@ -0,0 +1,33 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import tgb.cryptoexchange.auth.service.AuthMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость записи метрик одного входа: три таймера с гистограммой и счетчик исхода.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthMetricsBenchmark {
+
+    private AuthMetrics authMetrics;
+
+    @Setup
+    public void setUp() {
+        authMetrics = new AuthMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+    }
+
+    @Benchmark
+    public void recordLogin() {
+        long startedAt = System.nanoTime();
+        authMetrics.recordLoginLookup(System.nanoTime() - startedAt);
+        authMetrics.recordLoginPassword(System.nanoTime() - startedAt);
+        authMetrics.recordLoginToken(System.nanoTime() - startedAt);
+        authMetrics.countLogin(AuthMetrics.LoginOutcome.SUCCESS);
+    }
+}
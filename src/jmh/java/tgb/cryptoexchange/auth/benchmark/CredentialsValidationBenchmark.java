@@ -0,0 +1,28 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import tgb.cryptoexchange.auth.dto.UserCredentialsDTO;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Валидация {@link UserCredentialsDTO} для регистрации и для входа. Пароль при регистрации проверяется
+ * {@link tgb.cryptoexchange.auth.policy.PasswordPolicy}, см. {@link PasswordPolicyBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CredentialsValidationBenchmark {
+
+    private final UserCredentialsDTO valid = new UserCredentialsDTO("benchmark-user", "Benchmark1!");
+
+    @Benchmark
+    public boolean validUsernameForRegistration() {
+        return valid.hasValidUsername();
+    }
+
+    @Benchmark
+    public boolean validForLogin() {
+        return valid.isValidForLogin();
+    }
+}
@@ -0,0 +1,65 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import tgb.cryptoexchange.auth.service.HmacTokenMinter;
+import tgb.cryptoexchange.auth.service.JwtService;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выпуск токена через jjwt-билдер, через {@link HmacTokenMinter} и через {@link JwtService}.
+ * Аллокации на токен показывает запуск с профилировщиком: <code>-prof gc</code> (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtMintingBenchmark {
+
+    private static final long EXPIRATION = 3600000L;
+
+    private static final String ID = "q83vEjRWeJCrze8SNFZ4kA";
+
+    private SecretKey key;
+
+    private HmacTokenMinter minter;
+
+    private JwtService jwtService;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor("test-secret-test-secret-test-secret-test-secret-test-secret-test-secret-"
+                .getBytes(StandardCharsets.UTF_8));
+        minter = new HmacTokenMinter(key);
+        jwtService = new JwtService(
+                "test-secret-test-secret-test-secret-test-secret-test-secret-test-secret-", EXPIRATION
+        );
+    }
+
+    @Benchmark
+    public String jjwt() {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject("benchmark-user")
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + EXPIRATION))
+                .setId(ID)
+                .signWith(key)
+                .compact();
+    }
+
+    @Benchmark
+    public String minter() {
+        long now = System.currentTimeMillis();
+        return minter.mint("benchmark-user", now, now + EXPIRATION, ID, 0);
+    }
+
+    @Benchmark
+    public String jwtService() {
+        return jwtService.generateToken("benchmark-user", 0);
+    }
+}
@@ -0,0 +1,58 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tgb.cryptoexchange.auth.AuthApplication;
+import tgb.cryptoexchange.auth.service.AuthService;
+import tgb.cryptoexchange.auth.service.UserCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вход через {@link AuthService#login} с поднятым контекстом приложения и БД H2 (настройки в benchmark.yml).
+ * Стоимость BCrypt задается параметром <code>strength</code>: <code>-p strength=12</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoginBenchmark {
+
+    private static final String USERNAME = "benchmark-user";
+
+    private static final String PASSWORD = "Benchmark1!";
+
+    @Param("10")
+    private int strength;
+
+    private ConfigurableApplicationContext context;
+
+    private AuthService authService;
+
+    private UserCache userCache;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(AuthApplication.class)
+                .run("--spring.config.name=benchmark", "--server.port=0", "--auth.password.strength=" + strength);
+        authService = context.getBean(AuthService.class);
+        userCache = context.getBean(UserCache.class);
+        authService.register(USERNAME, PASSWORD);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String login() {
+        return authService.login(USERNAME, PASSWORD);
+    }
+
+    @Benchmark
+    public String loginWithColdCache() {
+        userCache.invalidate(USERNAME);
+        return authService.login(USERNAME, PASSWORD);
+    }
+}
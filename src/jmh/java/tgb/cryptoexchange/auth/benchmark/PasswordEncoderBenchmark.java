@@ -0,0 +1,42 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import tgb.cryptoexchange.auth.config.SecurityConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Хеширование и сверка пароля кодировщиком приложения. Стоимость BCrypt задается параметром
+ * <code>strength</code>, например <code>-p strength=12</code> для значения из конфигурации.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "Benchmark1!";
+
+    @Param("10")
+    private int strength;
+
+    private PasswordEncoder passwordEncoder;
+
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = new SecurityConfig(null).passwordEncoder(strength, 0);
+        hash = passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(PASSWORD, hash);
+    }
+}
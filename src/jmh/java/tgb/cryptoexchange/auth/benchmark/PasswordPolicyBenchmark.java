@@ -0,0 +1,69 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import tgb.cryptoexchange.auth.bloom.BloomFilterWriter;
+import tgb.cryptoexchange.auth.policy.BreachedPasswordRule;
+import tgb.cryptoexchange.auth.policy.PasswordPolicy;
+import tgb.cryptoexchange.auth.policy.PasswordRule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость проверки пароля парольной политикой с фильтром утекших паролей на {@link #entries} значений.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PasswordPolicyBenchmark {
+
+    @Param("10000000")
+    private long entries;
+
+    private Path file;
+
+    private BreachedPasswordRule breachedPasswordRule;
+
+    private PasswordPolicy basicPolicy;
+
+    private PasswordPolicy policy;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("breached", ".bloom");
+        try (BloomFilterWriter writer = BloomFilterWriter.create(file, entries, 0.001)) {
+            for (long i = 0; i < entries; i++) {
+                writer.put("Breached" + i + "!");
+            }
+        }
+        breachedPasswordRule = new BreachedPasswordRule(file);
+        basicPolicy = new PasswordPolicy(new StaticListableBeanFactory().getBeanProvider(PasswordRule.class));
+        policy = new PasswordPolicy(new StaticListableBeanFactory(Map.of("breached", breachedPasswordRule))
+                .getBeanProvider(PasswordRule.class));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        breachedPasswordRule.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public boolean basicRules() {
+        return basicPolicy.isAcceptable("Str0ng&Unique");
+    }
+
+    @Benchmark
+    public boolean acceptedPassword() {
+        return policy.isAcceptable("Str0ng&Unique");
+    }
+
+    @Benchmark
+    public boolean breachedPassword() {
+        return policy.isAcceptable("Breached12345!");
+    }
+}
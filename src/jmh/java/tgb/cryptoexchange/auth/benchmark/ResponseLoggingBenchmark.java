@@ -0,0 +1,98 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tgb.cryptoexchange.auth.controller.advice.ResponseBodyLoggingAdvice;
+import tgb.cryptoexchange.auth.logging.DebugDiscardingAsyncAppender;
+import tgb.cryptoexchange.web.ApiResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость логирования одного входа в потоке запроса: строка DEBUG из сервиса и тело ответа с токеном.
+ * <code>appender=sync</code> - запись в файл в потоке запроса, как было до асинхронных аппендеров,
+ * <code>sampleRate=1.0</code> - логирование каждого ответа, как делал <code>@LogResponseBody</code>.
+ * Запускается в несколько потоков: <code>-t 4</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResponseLoggingBenchmark {
+
+    private static final String TOKEN = "eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJiZW5jaG1hcmstdXNlciIsImlhdCI6MTcwMDAwMDAwMCwi"
+            + "ZXhwIjoxNzAwMDAzNjAwLCJqdGkiOiJBQUFBQUFBQUFBQUFBQUFBQUFBQUFBIn0.c2lnbmF0dXJlLXNpZ25hdHVyZS1zaWduYXR1cmU";
+
+    private static final Logger SERVICE_LOG = LoggerFactory.getLogger("tgb.cryptoexchange.auth.service.AuthService");
+
+    @Param({"sync", "async"})
+    private String appender;
+
+    @Param({"1.0", "0.01"})
+    private double sampleRate;
+
+    @Param("DEBUG")
+    private String level;
+
+    private Path directory;
+
+    private ResponseBodyLoggingAdvice advice;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("logging-benchmark");
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.start();
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(directory.resolve("application.log").toString());
+        file.setEncoder(encoder);
+        file.start();
+        Appender<ILoggingEvent> root = file;
+        if ("async".equals(appender)) {
+            DebugDiscardingAsyncAppender async = new DebugDiscardingAsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(1638);
+            async.addAppender(file);
+            async.start();
+            root = async;
+        }
+        ch.qos.logback.classic.Logger rootLogger = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(Level.toLevel(level));
+        rootLogger.addAppender(root);
+        advice = new ResponseBodyLoggingAdvice(new ObjectMapper(), sampleRate, Set.of("password", "token"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void login() {
+        SERVICE_LOG.debug("Была осуществлена аутентификация пользователя {} с идентификатором {}", "benchmark-user", 1L);
+        advice.log("POST", "/auth/login", ApiResponse.success(TOKEN));
+    }
+}
@@ -0,0 +1,60 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import tgb.cryptoexchange.auth.service.RevocationTable;
+import tgb.cryptoexchange.auth.service.TokenId;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка jti по списку отозванных токенов: попадание и промах при заданном количестве отозванных токенов.
+ * Запускать с <code>-prof gc</code>, чтобы убедиться, что проверка не выделяет память.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RevocationTableBenchmark {
+
+    @Param({"1000", "1000000"})
+    private int revoked;
+
+    private RevocationTable table;
+
+    private TokenId[] revokedIds;
+
+    private TokenId[] otherIds;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        table = new RevocationTable();
+        revokedIds = new TokenId[1024];
+        otherIds = new TokenId[1024];
+        for (int i = 0; i < revoked; i++) {
+            TokenId id = TokenId.random();
+            table.add(id.high(), id.low(), Long.MAX_VALUE);
+            if (i < revokedIds.length) {
+                revokedIds[i] = id;
+            }
+        }
+        for (int i = 0; i < otherIds.length; i++) {
+            otherIds[i] = TokenId.random();
+            if (revokedIds[i] == null) {
+                revokedIds[i] = revokedIds[i % revoked];
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean hit() {
+        TokenId id = revokedIds[next++ & 1023];
+        return table.contains(id.high(), id.low());
+    }
+
+    @Benchmark
+    public boolean miss() {
+        TokenId id = otherIds[next++ & 1023];
+        return table.contains(id.high(), id.low());
+    }
+}
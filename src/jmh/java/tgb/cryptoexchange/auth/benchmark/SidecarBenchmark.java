@@ -0,0 +1,107 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tgb.cryptoexchange.auth.AuthApplication;
+import tgb.cryptoexchange.auth.dto.TokenVerificationDTO;
+import tgb.cryptoexchange.auth.entity.User;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+import tgb.cryptoexchange.auth.service.JwtService;
+import tgb.cryptoexchange.auth.sidecar.SidecarClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка и выпуск токена сайдкаром через Unix domain socket ({@link tgb.cryptoexchange.auth.sidecar.SidecarServer})
+ * в сравнении с <code>POST /auth/verify</code> по HTTP/JSON. Оба варианта работают в одном запущенном сервисе,
+ * токен закэширован, поэтому измеряется транспорт. Каждый поток JMH - отдельный клиент со своим соединением;
+ * запросы в секунду на ядро - результат Throughput при <code>-t</code>, равном числу ядер.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class SidecarBenchmark {
+
+    private ConfigurableApplicationContext context;
+
+    private Path directory;
+
+    private Path socketPath;
+
+    private HttpClient httpClient;
+
+    private HttpRequest verifyRequest;
+
+    private String token;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("auth-sidecar");
+        socketPath = directory.resolve("auth.sock");
+        context = new SpringApplicationBuilder(AuthApplication.class)
+                .run("--spring.config.name=benchmark", "--server.port=0",
+                        "--auth.sidecar.socket-path=" + socketPath, "--auth.sidecar.mint-enabled=true",
+                        "--logging.level.root=WARN");
+        context.getBean(UserRepository.class).save(User.builder().username("benchmark-user").password("-").build());
+        token = context.getBean(JwtService.class).generateToken("benchmark-user", 0);
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        verifyRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/verify"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"token\":\"" + token + "\"}"))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        httpClient.close();
+        context.close();
+        Files.deleteIfExists(socketPath);
+        Files.deleteIfExists(directory);
+    }
+
+    @State(Scope.Thread)
+    public static class Connection {
+
+        private SidecarClient client;
+
+        @Setup
+        public void setUp(SidecarBenchmark benchmark) throws IOException {
+            client = SidecarClient.connect(benchmark.socketPath);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+
+    @Benchmark
+    public String httpVerify() throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(verifyRequest, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Verification failed with status " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    @Benchmark
+    public TokenVerificationDTO socketVerify(Connection connection) throws IOException {
+        return connection.client.verify(token);
+    }
+
+    @Benchmark
+    public String socketMint(Connection connection) throws IOException {
+        return connection.client.mint("benchmark-user");
+    }
+}
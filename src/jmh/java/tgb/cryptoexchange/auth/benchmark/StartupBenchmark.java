@@ -0,0 +1,67 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tgb.cryptoexchange.auth.AuthApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время от запуска приложения до первого успешного входа по HTTP (регистрация и вход) с БД H2 (настройки
+ * в benchmark.yml, файл профиля <code>application-{profile}.yml</code> подключается явно). Каждое измерение
+ * выполняется в новой JVM, поэтому в него входят загрузка классов и JIT.
+ * Сравнение профилей: <code>-p profile=default,fast-startup</code>, с архивом AppCDS -
+ * <code>-jvmArgsAppend -XX:SharedArchiveFile=...</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(5)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class StartupBenchmark {
+
+    private static final String CREDENTIALS = "{\"username\":\"startup-user\",\"password\":\"Startup-Login1!\"}";
+
+    @Param({"default", "fast-startup"})
+    private String profile;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public int firstLogin() throws IOException, InterruptedException {
+        context = new SpringApplicationBuilder(AuthApplication.class)
+                .run("--spring.config.name=benchmark", "--server.port=0", "--auth.password.strength=10",
+                        "--spring.profiles.active=" + profile,
+                        "--spring.config.additional-location=optional:classpath:/application-" + profile + ".yml",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            post(client, baseUrl + "/auth/register");
+            int status = post(client, baseUrl + "/auth/login");
+            if (status != 201) {
+                throw new IllegalStateException("Login failed with status " + status);
+            }
+            return status;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        context.close();
+    }
+
+    private static int post(HttpClient client, String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(CREDENTIALS))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
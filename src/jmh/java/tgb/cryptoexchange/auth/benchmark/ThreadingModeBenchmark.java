@@ -0,0 +1,155 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import tgb.cryptoexchange.auth.AuthApplication;
+import tgb.cryptoexchange.auth.service.JwtService;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузка на эндпоинты {@link tgb.cryptoexchange.auth.controller.AuthController} по HTTP в обычном режиме
+ * (пул потоков Tomcat, 200 потоков) и в профиле virtual-threads. Каждый поток JMH - отдельный клиент, поэтому
+ * одновременных запросов столько, сколько потоков: <code>-t 400</code>. Режимы Throughput и SampleTime дают
+ * пропускную способность и перцентили (p0.99) одного запуска.
+ * <p>
+ * H2 отвечает без задержки, поэтому задержка MySQL имитируется: каждое получение соединения из пула занимает
+ * его на <code>dbLatency</code> мс. Размер пула HikariCP в обоих режимах одинаковый (<code>poolSize</code>),
+ * чтобы сравнивались только потоки обработки запросов.
+ * <ul>
+ *     <li><code>available</code> - проверка занятого юзернейма, всегда идет в БД;</li>
+ *     <li><code>login</code> - вход по закэшированному пользователю, ограничен пулом BCrypt;</li>
+ *     <li><code>verify</code> - проверка уже проверенного токена: SHA-256 токена и кэш без обращения к БД.</li>
+ * </ul>
+ * В профиле virtual-threads каждый запрос выполняется в новом потоке, поэтому объекты, закэшированные
+ * в {@link ThreadLocal}, создавались бы на каждый запрос. Запуск с <code>-prof gc</code> показывает выделение
+ * памяти на операцию (<code>gc.alloc.rate.norm</code>): у <code>login</code> (выпуск токена с {@link javax.crypto.Mac}),
+ * <code>verify</code> ({@link java.security.MessageDigest}) и <code>available</code> (SHA-1 фильтра Блума) оно
+ * не должно заметно превышать значение режима default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class ThreadingModeBenchmark {
+
+    private static final String USERNAME = "load-user";
+
+    private static final String CREDENTIALS = "{\"username\":\"" + USERNAME + "\",\"password\":\"Load-Test1!\"}";
+
+    @Param({"default", "virtual-threads"})
+    private String profile;
+
+    @Param("20")
+    private long dbLatency;
+
+    @Param("400")
+    private int poolSize;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient client;
+
+    private HttpRequest availableRequest;
+
+    private HttpRequest loginRequest;
+
+    private HttpRequest verifyRequest;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        context = new SpringApplicationBuilder(AuthApplication.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .addBeanPostProcessor(new DatabaseLatency(dbLatency)))
+                .run("--spring.config.name=benchmark", "--server.port=0", "--auth.password.strength=4",
+                        "--spring.profiles.active=" + profile,
+                        "--spring.config.additional-location=optional:classpath:/application-" + profile + ".yml",
+                        "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "--spring.datasource.hikari.connection-timeout=30000",
+                        "--auth.login-throttle.enabled=false",
+                        "--auth.hashing.queue-capacity=4096", "--auth.hashing.max-wait=30000");
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        availableRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/available/" + USERNAME)).GET().build();
+        loginRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(CREDENTIALS))
+                .build();
+        HttpRequest registerRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(CREDENTIALS))
+                .build();
+        send(registerRequest);
+        String token = context.getBean(JwtService.class).generateToken(USERNAME, 0);
+        verifyRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/verify"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"token\":\"" + token + "\"}"))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int available() throws IOException, InterruptedException {
+        return send(availableRequest);
+    }
+
+    @Benchmark
+    public int login() throws IOException, InterruptedException {
+        return send(loginRequest);
+    }
+
+    @Benchmark
+    public int verify() throws IOException, InterruptedException {
+        return send(verifyRequest);
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status >= 300) {
+            throw new IllegalStateException(request.uri() + " failed with status " + status);
+        }
+        return status;
+    }
+
+    /**
+     * Задерживает каждое получение соединения, удерживая его, как запрос к удаленной БД.
+     */
+    private record DatabaseLatency(long millis) implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource)) {
+                return bean;
+            }
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    Connection connection = super.getConnection();
+                    try {
+                        Thread.sleep(millis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return connection;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package tgb.cryptoexchange.auth.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import tgb.cryptoexchange.auth.service.JwtService;
+import tgb.cryptoexchange.auth.service.TokenRevocationService;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
+import tgb.cryptoexchange.auth.service.TokenVersionCache;
+import tgb.cryptoexchange.auth.service.VerifiedToken;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Сравнение проверки токена с кэшем проверенных токенов и без него, а также пакетной проверки
+ * {@link TokenVerificationService#verifyAll(List)} закэшированных токенов с проверкой по одному.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenVerificationBenchmark {
+
+    private static final int BATCH_SIZE = 20;
+
+    private JwtService jwtService;
+
+    private TokenVerificationService tokenVerificationService;
+
+    private String token;
+
+    private List<String> batch;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService("benchmark-secret-benchmark-secret-benchmark-secret-", 3600000L);
+        tokenVerificationService = new TokenVerificationService(
+                jwtService, new TokenRevocationService(null, jwtService, 10_000),
+                new TokenVersionCache(username -> Optional.of(0L), 100_000, 3600000L), 100_000, 0, 1000
+        );
+        token = jwtService.generateToken("benchmark-user", 0);
+        tokenVerificationService.verify(token);
+        batch = IntStream.range(0, BATCH_SIZE).mapToObj(i -> jwtService.generateToken("benchmark-user-" + i, 0)).toList();
+        batch.forEach(tokenVerificationService::verify);
+    }
+
+    @TearDown
+    public void tearDown() {
+        tokenVerificationService.shutdown();
+    }
+
+    @Benchmark
+    public VerifiedToken uncached() {
+        return jwtService.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken cached() {
+        return tokenVerificationService.verify(token);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void cachedOneByOne(Blackhole blackhole) {
+        for (String batchToken : batch) {
+            blackhole.consume(tokenVerificationService.verify(batchToken));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void cachedBatch(Blackhole blackhole) {
+        for (CompletableFuture<VerifiedToken> result : tokenVerificationService.verifyAll(batch)) {
+            blackhole.consume(result.join());
+        }
+    }
+}
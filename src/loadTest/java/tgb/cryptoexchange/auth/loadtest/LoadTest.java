@@ -0,0 +1,304 @@
+package tgb.cryptoexchange.auth.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import tgb.cryptoexchange.auth.AuthApplication;
+import tgb.cryptoexchange.auth.dto.ImportReportDTO;
+import tgb.cryptoexchange.auth.service.UserImportService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сквозной нагрузочный тест: поднимает {@link AuthApplication} на H2 в памяти, загружает
+ * <code>loadtest.users</code> пользователей и подает нагрузку по открытой модели ({@link OpenLoadGenerator})
+ * смесью входов, регистраций, запросов страницы юзернеймов и смен пароля по HTTP. По каждой операции
+ * печатает пропускную способность и перцентили задержки HdrHistogram и завершается с кодом 1, если
+ * перцентиль превышает порог SLO или доля ошибок больше <code>loadtest.slo.error-rate</code>.
+ * <p>
+ * Параметры - системные свойства <code>loadtest.*</code>, в Gradle передаются как
+ * <code>./gradlew loadTest -Ploadtest.rate=100</code>:
+ * <ul>
+ *     <li><code>users</code> - количество загружаемых пользователей, по умолчанию 1000;</li>
+ *     <li><code>rate</code> - запросов в секунду, по умолчанию 10: при BCrypt 10 на одно ядро больше не выдерживает;</li>
+ *     <li><code>duration</code>, <code>warmup</code> - длительность измерения и прогрева в секундах,
+ *     по умолчанию 30 и 10; запросы прогрева в статистику не попадают;</li>
+ *     <li><code>mix.login</code>, <code>mix.register</code>, <code>mix.list</code>, <code>mix.patch</code> -
+ *     веса операций, по умолчанию 60, 10, 20, 10;</li>
+ *     <li><code>password-strength</code> - стоимость BCrypt, по умолчанию 10;</li>
+ *     <li><code>seed</code> - seed генератора, по умолчанию 42;</li>
+ *     <li><code>slo.p50</code>, <code>slo.p99</code>, <code>slo.p999</code> - пороги в миллисекундах для всех
+ *     операций, <code>slo.p99.login</code> и т.п. - для одной операции; без порога перцентиль не проверяется;</li>
+ *     <li><code>slo.error-rate</code> - допустимая доля ответов с ошибкой, по умолчанию 0.001;</li>
+ *     <li><code>report</code> - файл, куда дополнительно пишется отчет.</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    private static final String PASSWORD = "Load-Test1!";
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final int PAGE_SIZE = 50;
+
+    private final int users;
+
+    private final long seed;
+
+    private final HttpClient client;
+
+    private final String baseUrl;
+
+    private final AtomicLong registered = new AtomicLong();
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    private LoadTest(int users, long seed, String baseUrl) {
+        this.users = users;
+        this.seed = seed;
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = intProperty("users", 1000);
+        double rate = doubleProperty("rate", 10);
+        long duration = TimeUnit.SECONDS.toNanos(intProperty("duration", 30));
+        long warmup = TimeUnit.SECONDS.toNanos(intProperty("warmup", 10));
+        long seed = intProperty("seed", 42);
+        Mix mix = new Mix(new double[]{
+                doubleProperty("mix.login", 60), doubleProperty("mix.register", 10),
+                doubleProperty("mix.list", 20), doubleProperty("mix.patch", 10)
+        });
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AuthApplication.class)
+                .run("--spring.config.name=loadtest", "--server.port=0",
+                        "--auth.password.strength=" + intProperty("password-strength", 10));
+        List<String> report;
+        boolean passed;
+        try {
+            seed(context, users);
+            LoadTest loadTest = new LoadTest(
+                    users, seed, "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+            );
+            long sent = loadTest.run(rate, warmup, duration, mix);
+            report = new ArrayList<>();
+            report.add(String.format("Open model: %.1f req/s for %d s after %d s warmup, %d users, %d requests sent",
+                    rate, TimeUnit.NANOSECONDS.toSeconds(duration), TimeUnit.NANOSECONDS.toSeconds(warmup), users, sent));
+            passed = loadTest.report(duration, report);
+        } finally {
+            context.close();
+        }
+        report.forEach(System.out::println);
+        String reportFile = System.getProperty("loadtest.report");
+        if (reportFile != null) {
+            Path path = Path.of(reportFile);
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Files.write(path, report);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Загружает пользователей импортом с одним заранее посчитанным хешем пароля, чтобы не хешировать каждого.
+     */
+    private static void seed(ConfigurableApplicationContext context, int users) throws IOException {
+        String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < users; i++) {
+            lines.append("{\"username\":\"").append(seededUsername(i)).append("\",\"passwordHash\":\"")
+                    .append(hash).append("\"}\n");
+        }
+        ImportReportDTO imported = context.getBean(UserImportService.class)
+                .importUsers(new ByteArrayInputStream(lines.toString().getBytes(StandardCharsets.UTF_8)));
+        if (imported.getImported() != users) {
+            throw new IllegalStateException("Seeded " + imported.getImported() + " of " + users + " users");
+        }
+    }
+
+    private static String seededUsername(int index) {
+        return String.format("load-user-%07d", index);
+    }
+
+    private long run(double rate, long warmup, long duration, Mix mix) throws InterruptedException {
+        OpenLoadGenerator generator = new OpenLoadGenerator(rate, seed);
+        long measurementStart = System.nanoTime() + warmup;
+        return generator.run(warmup + duration, TimeUnit.SECONDS.toNanos(60), (sequence, choice, intendedStart) -> {
+            Operation operation = mix.pick(choice);
+            boolean measured = intendedStart >= measurementStart;
+            boolean success;
+            try {
+                HttpResponse<Void> response = client.send(
+                        request(operation, new SplittableRandom(seed ^ sequence)),
+                        HttpResponse.BodyHandlers.discarding()
+                );
+                success = response.statusCode() == operation.expectedStatus;
+            } catch (IOException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (measured) {
+                stats.get(operation).record(System.nanoTime() - intendedStart, success);
+            }
+        });
+    }
+
+    private HttpRequest request(Operation operation, SplittableRandom random) {
+        String username = seededUsername(random.nextInt(users));
+        HttpRequest.Builder builder = switch (operation) {
+            case LOGIN -> post("/auth/login", credentials(username));
+            case REGISTER -> post("/auth/register", credentials("load-new-" + seed + "-" + registered.incrementAndGet()));
+            case LIST -> HttpRequest.newBuilder(URI.create(baseUrl + "/auth?limit=" + PAGE_SIZE + "&after="
+                    + URLEncoder.encode(username, StandardCharsets.UTF_8))).GET();
+            case PATCH -> HttpRequest.newBuilder(URI.create(baseUrl + "/auth/" + username + "?password="
+                    + URLEncoder.encode(PASSWORD, StandardCharsets.UTF_8))).method("PATCH", HttpRequest.BodyPublishers.noBody());
+        };
+        return builder.timeout(REQUEST_TIMEOUT).build();
+    }
+
+    private HttpRequest.Builder post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private static String credentials(String username) {
+        return "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}";
+    }
+
+    /**
+     * @return true, если все пороги SLO соблюдены
+     */
+    private boolean report(long duration, List<String> lines) {
+        double errorRateLimit = doubleProperty("slo.error-rate", 0.001);
+        List<String> breaches = new ArrayList<>();
+        lines.add(String.format("%-10s %8s %7s %9s %9s %9s %9s %9s",
+                "operation", "count", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Operation operation : Operation.values()) {
+            Stats operationStats = stats.get(operation);
+            Histogram histogram = operationStats.latencies;
+            long count = histogram.getTotalCount();
+            long errors = operationStats.errors.sum();
+            lines.add(String.format("%-10s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f",
+                    operation.label, count, errors, count / (duration / 1e9),
+                    millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9),
+                    histogram.getMaxValue() / 1000.0));
+            if (count == 0) {
+                continue;
+            }
+            if ((double) errors / count > errorRateLimit) {
+                breaches.add(String.format("%s error rate %.4f > %.4f", operation.label, (double) errors / count,
+                        errorRateLimit));
+            }
+            checkPercentile(operation, "p50", 50, histogram, breaches);
+            checkPercentile(operation, "p99", 99, histogram, breaches);
+            checkPercentile(operation, "p999", 99.9, histogram, breaches);
+        }
+        if (breaches.isEmpty()) {
+            lines.add("SLO passed");
+            return true;
+        }
+        breaches.forEach(breach -> lines.add("SLO breached: " + breach));
+        return false;
+    }
+
+    private static void checkPercentile(Operation operation, String name, double percentile, Histogram histogram,
+                                        List<String> breaches) {
+        String threshold = System.getProperty("loadtest.slo." + name + "." + operation.label,
+                System.getProperty("loadtest.slo." + name));
+        if (threshold == null) {
+            return;
+        }
+        double actual = millis(histogram, percentile);
+        if (actual > Double.parseDouble(threshold)) {
+            breaches.add(String.format("%s %s %.2f ms > %s ms", operation.label, name, actual, threshold));
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        return Double.parseDouble(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+
+    private enum Operation {
+
+        LOGIN("login", 201),
+        REGISTER("register", 201),
+        LIST("list", 200),
+        PATCH("patch", 204);
+
+        private final String label;
+
+        private final int expectedStatus;
+
+        Operation(String label, int expectedStatus) {
+            this.label = label;
+            this.expectedStatus = expectedStatus;
+        }
+    }
+
+    /**
+     * Выбор операции по весам: равномерное число из [0, 1) попадает в отрезок операции.
+     */
+    private record Mix(double[] weights) {
+
+        Operation pick(double choice) {
+            double total = Arrays.stream(weights).sum();
+            double point = choice * total;
+            for (int i = 0; i < weights.length; i++) {
+                point -= weights[i];
+                if (point < 0) {
+                    return Operation.values()[i];
+                }
+            }
+            return Operation.values()[weights.length - 1];
+        }
+    }
+
+    private static class Stats {
+
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+        private final LongAdder errors = new LongAdder();
+
+        void record(long nanos, boolean success) {
+            latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+            if (!success) {
+                errors.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package tgb.cryptoexchange.auth.loadtest;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки по открытой модели: запросы приходят пуассоновским потоком с заданной интенсивностью
+ * независимо от того, успел ли сервис ответить на предыдущие. Каждый запрос выполняется в своем виртуальном
+ * потоке, поэтому медленные ответы не задерживают отправку следующих, а задержка считается от запланированного
+ * момента прихода запроса и включает ожидание на стороне клиента (без coordinated omission).
+ * <p>
+ * Моменты прихода и выбор операций задаются seed, поэтому запуски с одинаковыми параметрами отправляют
+ * одну и ту же последовательность запросов.
+ */
+public class OpenLoadGenerator {
+
+    private final double ratePerSecond;
+
+    private final long seed;
+
+    public OpenLoadGenerator(double ratePerSecond, long seed) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.seed = seed;
+    }
+
+    /**
+     * Отправляет запросы в течение <code>durationNanos</code> и ждет завершения отправленных
+     * не дольше <code>drainNanos</code>.
+     *
+     * @return количество отправленных запросов
+     */
+    public long run(long durationNanos, long drainNanos, Arrival arrival) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(seed);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        long start = System.nanoTime();
+        long offset = 0;
+        long sent = 0;
+        try {
+            while (true) {
+                offset += (long) (-Math.log(1 - random.nextDouble()) / ratePerSecond * TimeUnit.SECONDS.toNanos(1));
+                if (offset >= durationNanos) {
+                    break;
+                }
+                long intendedStart = start + offset;
+                long delay;
+                while ((delay = intendedStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                long sequence = sent++;
+                double choice = random.nextDouble();
+                executor.execute(() -> arrival.handle(sequence, choice, intendedStart));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        if (!executor.awaitTermination(drainNanos, TimeUnit.NANOSECONDS)) {
+            executor.shutdownNow();
+        }
+        return sent;
+    }
+
+    @FunctionalInterface
+    public interface Arrival {
+
+        /**
+         * @param sequence      порядковый номер запроса
+         * @param choice        равномерное случайное число из [0, 1) для выбора операции
+         * @param intendedStart запланированный момент прихода запроса по {@link System#nanoTime()}
+         */
+        void handle(long sequence, double choice, long intendedStart);
+    }
+}
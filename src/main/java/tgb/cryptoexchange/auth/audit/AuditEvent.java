@@ -0,0 +1,13 @@
+package tgb.cryptoexchange.auth.audit;
+
+import java.time.Instant;
+
+/**
+ * Событие, прочитанное из журнала аудита
+ *
+ * @param timestamp момент события
+ * @param type      тип события
+ * @param username  юзернейм, к которому относится событие
+ */
+public record AuditEvent(Instant timestamp, AuditEventType type, String username) {
+}
@@ -0,0 +1,14 @@
+package tgb.cryptoexchange.auth.audit;
+
+/**
+ * Тип события журнала аудита. В журнал пишется порядковый номер, поэтому новые типы добавляются только в конец.
+ */
+public enum AuditEventType {
+    REGISTER, LOGIN_SUCCESS, LOGIN_FAILURE, DELETE, PASSWORD_CHANGE;
+
+    private static final AuditEventType[] VALUES = values();
+
+    static AuditEventType of(int code) {
+        return code >= 0 && code < VALUES.length ? VALUES[code] : null;
+    }
+}
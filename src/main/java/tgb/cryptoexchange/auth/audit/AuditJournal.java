@@ -0,0 +1,151 @@
+package tgb.cryptoexchange.auth.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал аудита только для добавления: каталог с сегментами <code>audit-{номер}.log</code> фиксированного размера,
+ * каждый отображается в память целиком. Когда запись не помещается в текущий сегмент, создается следующий.
+ * <p>
+ * Формат сегмента: заголовок {@value #HEADER_SIZE} байт (magic, версия, момент создания сегмента в миллисекундах),
+ * затем записи подряд: длина тела (int), CRC32C тела (int), тело - момент события (long), тип (byte),
+ * длина юзернейма (unsigned short) и юзернейм в UTF-8. Незаписанная часть сегмента заполнена нулями,
+ * нулевая длина означает конец данных. Запись с неверной контрольной суммой считается недописанной
+ * и тоже завершает сегмент.
+ * <p>
+ * Класс не потокобезопасен: в журнал пишет один поток.
+ */
+public class AuditJournal implements Closeable {
+
+    static final int MAGIC = 0x41554454;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 16;
+
+    static final int RECORD_HEADER_SIZE = 8;
+
+    static final int MAX_USERNAME_BYTES = 0xFFFF;
+
+    private static final int BODY_FIXED_SIZE = Long.BYTES + 1 + Short.BYTES;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final boolean force;
+
+    private final ByteBuffer body = ByteBuffer.allocate(BODY_FIXED_SIZE + MAX_USERNAME_BYTES);
+
+    private final CRC32C crc = new CRC32C();
+
+    private long segmentNumber;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer segment;
+
+    private int flushedPosition;
+
+    private AuditJournal(Path directory, int segmentSize, boolean force) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.force = force;
+    }
+
+    /**
+     * Открывает журнал в каталоге и продолжает запись после последней целой записи последнего сегмента.
+     *
+     * @param segmentSize размер сегмента в байтах
+     * @param force       сбрасывать ли изменения на диск при каждом {@link #flush()}
+     */
+    public static AuditJournal open(Path directory, int segmentSize, boolean force) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_HEADER_SIZE + BODY_FIXED_SIZE + MAX_USERNAME_BYTES) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        Files.createDirectories(directory);
+        AuditJournal journal = new AuditJournal(directory, segmentSize, force);
+        List<Path> segments = AuditJournalReader.segments(directory);
+        if (segments.isEmpty()) {
+            journal.roll(System.currentTimeMillis());
+        } else {
+            Path last = segments.getLast();
+            journal.segmentNumber = AuditJournalReader.segmentNumber(last);
+            journal.map(last);
+            int end = AuditJournalReader.endOfRecords(journal.segment);
+            if (end < 0) {
+                journal.roll(System.currentTimeMillis());
+            } else {
+                journal.segment.position(end);
+                journal.flushedPosition = end;
+            }
+        }
+        return journal;
+    }
+
+    public void append(long timestamp, AuditEventType type, String username) throws IOException {
+        byte[] usernameBytes = username.getBytes(StandardCharsets.UTF_8);
+        int usernameLength = Math.min(usernameBytes.length, MAX_USERNAME_BYTES);
+        body.clear();
+        body.putLong(timestamp).put((byte) type.ordinal()).putShort((short) usernameLength)
+                .put(usernameBytes, 0, usernameLength);
+        int bodyLength = body.position();
+        if (segment.remaining() < RECORD_HEADER_SIZE + bodyLength) {
+            flush();
+            roll(timestamp);
+        }
+        crc.reset();
+        crc.update(body.array(), 0, bodyLength);
+        segment.putInt(bodyLength).putInt((int) crc.getValue()).put(body.array(), 0, bodyLength);
+    }
+
+    /**
+     * Завершает группу записей: при включенном <code>force</code> записанное с прошлого вызова сбрасывается на диск.
+     */
+    public void flush() {
+        int position = segment.position();
+        if (force && position > flushedPosition) {
+            segment.force(flushedPosition, position - flushedPosition);
+        }
+        flushedPosition = position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private void roll(long createdAt) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        segmentNumber++;
+        Path path = directory.resolve(AuditJournalReader.segmentName(segmentNumber));
+        map(path);
+        segment.putInt(MAGIC).putInt(VERSION).putLong(createdAt);
+        if (force) {
+            segment.force(0, HEADER_SIZE);
+        }
+        flushedPosition = HEADER_SIZE;
+    }
+
+    private void map(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package tgb.cryptoexchange.auth.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Чтение журнала {@link AuditJournal}. Сегменты читаются через отображение в память по порядку номеров,
+ * сегменты, закрытые раньше начала запрошенного интервала, пропускаются по моменту создания следующего сегмента.
+ * <p>
+ * Запуск из командной строки (события выводятся в NDJSON):
+ * <pre>
+ * java -cp auth.jar -Dloader.main=tgb.cryptoexchange.auth.audit.AuditJournalReader \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher audit 2030-01-01T00:00:00Z 2030-01-02T00:00:00Z
+ * </pre>
+ */
+public final class AuditJournalReader {
+
+    private static final Pattern SEGMENT = Pattern.compile("audit-(\\d{20})\\.log");
+
+    /**
+     * Запас на события, опубликованные до создания следующего сегмента, но записанные уже после.
+     */
+    private static final long SEGMENT_OVERLAP_MILLIS = 60_000;
+
+    private AuditJournalReader() {
+    }
+
+    /**
+     * Передает в <code>consumer</code> события из интервала <code>[from, to)</code> в порядке записи,
+     * пока он возвращает true.
+     */
+    public static void scan(Path directory, Instant from, Instant to, Predicate<AuditEvent> consumer)
+            throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> segments = segments(directory);
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        MappedByteBuffer next = null;
+        for (int i = 0; i < segments.size(); i++) {
+            MappedByteBuffer segment = next != null ? next : map(segments.get(i));
+            next = i + 1 < segments.size() ? map(segments.get(i + 1)) : null;
+            if (next != null && createdAt(next) + SEGMENT_OVERLAP_MILLIS < fromMillis) {
+                continue;
+            }
+            if (createdAt(segment) - SEGMENT_OVERLAP_MILLIS >= toMillis) {
+                return;
+            }
+            if (!scanSegment(segment, fromMillis, toMillis, consumer)) {
+                return;
+            }
+        }
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> SEGMENT.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static String segmentName(long number) {
+        return String.format("audit-%020d.log", number);
+    }
+
+    static long segmentNumber(Path segment) {
+        Matcher matcher = SEGMENT.matcher(segment.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not an audit segment: " + segment);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * @return позиция после последней целой записи или -1, если у сегмента неверный заголовок
+     */
+    static int endOfRecords(ByteBuffer segment) {
+        if (!hasValidHeader(segment)) {
+            return -1;
+        }
+        CRC32C crc = new CRC32C();
+        int position = AuditJournal.HEADER_SIZE;
+        while (true) {
+            int length = readRecord(segment, position, crc);
+            if (length < 0) {
+                return position;
+            }
+            position += AuditJournal.RECORD_HEADER_SIZE + length;
+        }
+    }
+
+    private static boolean scanSegment(ByteBuffer segment, long fromMillis, long toMillis,
+                                       Predicate<AuditEvent> consumer) {
+        if (!hasValidHeader(segment)) {
+            return true;
+        }
+        CRC32C crc = new CRC32C();
+        int position = AuditJournal.HEADER_SIZE;
+        while (true) {
+            int length = readRecord(segment, position, crc);
+            if (length < 0) {
+                return true;
+            }
+            int body = position + AuditJournal.RECORD_HEADER_SIZE;
+            long timestamp = segment.getLong(body);
+            AuditEventType type = AuditEventType.of(segment.get(body + Long.BYTES));
+            if (type != null && timestamp >= fromMillis && timestamp < toMillis) {
+                int usernameLength = Short.toUnsignedInt(segment.getShort(body + Long.BYTES + 1));
+                byte[] username = new byte[usernameLength];
+                segment.get(body + Long.BYTES + 1 + Short.BYTES, username);
+                AuditEvent event = new AuditEvent(
+                        Instant.ofEpochMilli(timestamp), type, new String(username, StandardCharsets.UTF_8)
+                );
+                if (!consumer.test(event)) {
+                    return false;
+                }
+            }
+            position = body + length;
+        }
+    }
+
+    /**
+     * @return длина тела записи или -1, если записи нет, она не помещается в сегмент или не сходится CRC
+     */
+    private static int readRecord(ByteBuffer segment, int position, CRC32C crc) {
+        if (segment.limit() - position < AuditJournal.RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int length = segment.getInt(position);
+        int body = position + AuditJournal.RECORD_HEADER_SIZE;
+        if (length < Long.BYTES + 1 + Short.BYTES || length > segment.limit() - body) {
+            return -1;
+        }
+        int usernameLength = Short.toUnsignedInt(segment.getShort(body + Long.BYTES + 1));
+        if (length != Long.BYTES + 1 + Short.BYTES + usernameLength) {
+            return -1;
+        }
+        crc.reset();
+        crc.update(segment.slice(body, length));
+        return (int) crc.getValue() == segment.getInt(position + Integer.BYTES) ? length : -1;
+    }
+
+    private static boolean hasValidHeader(ByteBuffer segment) {
+        return segment.limit() >= AuditJournal.HEADER_SIZE
+                && segment.getInt(0) == AuditJournal.MAGIC
+                && segment.getInt(Integer.BYTES) == AuditJournal.VERSION;
+    }
+
+    private static long createdAt(ByteBuffer segment) {
+        return hasValidHeader(segment) ? segment.getLong(2 * Integer.BYTES) : 0;
+    }
+
+    private static MappedByteBuffer map(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: AuditJournalReader <directory> [from] [to]");
+            System.exit(1);
+        }
+        Instant from = args.length > 1 ? Instant.parse(args[1]) : Instant.EPOCH;
+        Instant to = args.length > 2 ? Instant.parse(args[2]) : Instant.now().plusSeconds(60);
+        StringBuilder line = new StringBuilder();
+        scan(Path.of(args[0]), from, to, event -> {
+            line.setLength(0);
+            line.append("{\"timestamp\":\"").append(event.timestamp())
+                    .append("\",\"type\":\"").append(event.type())
+                    .append("\",\"username\":\"");
+            event.username().chars().forEach(c -> {
+                if (c == '"' || c == '\\') {
+                    line.append('\\').append((char) c);
+                } else if (c < 0x20) {
+                    line.append(String.format("\\u%04x", c));
+                } else {
+                    line.append((char) c);
+                }
+            });
+            System.out.println(line.append("\"}"));
+            return true;
+        });
+    }
+}
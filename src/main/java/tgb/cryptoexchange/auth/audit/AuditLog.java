@@ -0,0 +1,182 @@
+package tgb.cryptoexchange.auth.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * Журнал аудита регистраций, входов, удалений и смен пароля. Обработчик запроса только публикует событие
+ * в {@link AuditRingBuffer} и никогда не ждет ввода-вывода: если буфер заполнен, событие отбрасывается
+ * и учитывается в метрике <code>auth.audit.events{outcome=dropped}</code>.
+ * <p>
+ * Фоновый поток забирает события группами до <code>auth.audit.batch-size</code>, дописывает их
+ * в {@link AuditJournal} и сбрасывает группу на диск одним вызовом. Когда буфер пуст, поток спит, пока его не разбудит
+ * первое опубликованное событие. Если <code>auth.audit.directory</code>
+ * не задан, журнал выключен и события не публикуются.
+ */
+@Slf4j
+@Component
+public class AuditLog {
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int batchSize;
+
+    private final boolean force;
+
+    private final AuditRingBuffer buffer;
+
+    private final Counter written;
+
+    private final Counter dropped;
+
+    private final Counter failed;
+
+    private volatile boolean running;
+
+    /**
+     * Фоновый поток собирается уснуть: публикация события должна его разбудить
+     */
+    private volatile boolean idle;
+
+    private AuditJournal journal;
+
+    private volatile Thread writer;
+
+    public AuditLog(MeterRegistry registry,
+                    @Value("${auth.audit.directory:}") String directory,
+                    @Value("${auth.audit.buffer-size:65536}") int bufferSize,
+                    @Value("${auth.audit.segment-size:67108864}") int segmentSize,
+                    @Value("${auth.audit.batch-size:1024}") int batchSize,
+                    @Value("${auth.audit.force:true}") boolean force) {
+        this.directory = directory.isBlank() ? null : Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.batchSize = batchSize;
+        this.force = force;
+        this.buffer = this.directory == null ? null : new AuditRingBuffer(bufferSize);
+        this.written = eventCounter(registry, "written");
+        this.dropped = eventCounter(registry, "dropped");
+        this.failed = eventCounter(registry, "failed");
+        if (buffer != null) {
+            Gauge.builder("auth.audit.queue.size", buffer, AuditRingBuffer::size).register(registry);
+        }
+    }
+
+    private static Counter eventCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("auth.audit.events").tag("outcome", outcome).register(registry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (directory == null) {
+            log.info("Журнал аудита выключен: не задан auth.audit.directory");
+            return;
+        }
+        journal = AuditJournal.open(directory, segmentSize, force);
+        running = true;
+        writer = Thread.ofPlatform().name("audit-writer").daemon(true).start(this::writeLoop);
+        log.info("Журнал аудита пишется в {}", directory.toAbsolutePath());
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Публикует событие для записи в журнал. Не блокируется и не выбрасывает исключений ввода-вывода.
+     */
+    public void record(AuditEventType type, String username) {
+        if (buffer == null) {
+            return;
+        }
+        if (!buffer.offer(System.currentTimeMillis(), type, username)) {
+            dropped.increment();
+        } else if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Передает в <code>consumer</code> записанные события из интервала <code>[from, to)</code>, пока он возвращает true.
+     * События, еще не забранные из буфера фоновым потоком, не попадают в выборку.
+     */
+    public void scan(Instant from, Instant to, Predicate<AuditEvent> consumer) throws IOException {
+        if (directory != null) {
+            AuditJournalReader.scan(directory, from, to, consumer);
+        }
+    }
+
+    private void writeLoop() {
+        AuditRingBuffer.Handler handler = this::append;
+        while (running || buffer.size() > 0) {
+            int count = buffer.drain(handler, batchSize);
+            if (count == 0) {
+                awaitEvents();
+                continue;
+            }
+            try {
+                journal.flush();
+            } catch (RuntimeException e) {
+                log.error("Не удалось сбросить журнал аудита на диск", e);
+            }
+        }
+    }
+
+    /**
+     * Флаг взводится до проверки буфера, а публикация читает его после захвата ячейки, поэтому хотя бы одна
+     * из сторон видит другую: либо поток не уснет, либо публикация его разбудит. Занятая, но еще не опубликованная
+     * ячейка тоже считается событием, и поток дожидается ее публикации без сна.
+     */
+    private void awaitEvents() {
+        idle = true;
+        if (running && buffer.size() == 0) {
+            LockSupport.park(this);
+        } else {
+            Thread.onSpinWait();
+        }
+        idle = false;
+    }
+
+    private void append(long timestamp, AuditEventType type, String username) {
+        try {
+            journal.append(timestamp, type, username);
+            written.increment();
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.error("Не удалось записать событие аудита {} пользователя {}", type, username, e);
+        }
+    }
+
+    /**
+     * Дописывает оставшиеся в буфере события и закрывает журнал.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+        writer = null;
+    }
+}
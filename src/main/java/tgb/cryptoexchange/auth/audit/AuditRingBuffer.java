@@ -0,0 +1,91 @@
+package tgb.cryptoexchange.auth.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Кольцевой буфер событий аудита для многих писателей и одного читателя. Поля событий лежат в заранее
+ * выделенных массивах, поэтому публикация не выделяет память. Писатель занимает ячейку CAS-операцией над
+ * хвостом и публикует ее записью номера последовательности; при заполненном буфере событие отбрасывается,
+ * публикация никогда не ждет читателя.
+ */
+class AuditRingBuffer {
+
+    interface Handler {
+        void onEvent(long timestamp, AuditEventType type, String username);
+    }
+
+    private final int mask;
+
+    private final long[] timestamps;
+
+    private final AuditEventType[] types;
+
+    private final String[] usernames;
+
+    private final AtomicLongArray published;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong head = new AtomicLong();
+
+    AuditRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.mask = capacity - 1;
+        this.timestamps = new long[capacity];
+        this.types = new AuditEventType[capacity];
+        this.usernames = new String[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, i - capacity);
+        }
+    }
+
+    /**
+     * @return false, если буфер заполнен и событие отброшено
+     */
+    boolean offer(long timestamp, AuditEventType type, String username) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        int index = (int) sequence & mask;
+        timestamps[index] = timestamp;
+        types[index] = type;
+        usernames[index] = username;
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    /**
+     * Передает обработчику опубликованные события по порядку, не больше <code>limit</code>.
+     * Вызывается только из потока читателя.
+     *
+     * @return количество обработанных событий
+     */
+    int drain(Handler handler, int limit) {
+        long sequence = head.get();
+        int count = 0;
+        while (count < limit) {
+            int index = (int) sequence & mask;
+            if (published.get(index) != sequence) {
+                break;
+            }
+            handler.onEvent(timestamps[index], types[index], usernames[index]);
+            usernames[index] = null;
+            sequence++;
+            count++;
+            head.lazySet(sequence);
+        }
+        return count;
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+}
@@ -0,0 +1,134 @@
+package tgb.cryptoexchange.auth.bloom;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.channels.FileChannel;
+
+/**
+ * Построение файла {@link MappedBloomFilter}. Битовый массив пишется напрямую в отображенный в память файл,
+ * поэтому построение фильтра на сотни миллионов значений не требует соответствующего heap.
+ * <p>
+ * Запуск из командной строки:
+ * <pre>
+ * java -cp auth.jar -Dloader.main=tgb.cryptoexchange.auth.bloom.BloomFilterWriter \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher input.txt breached.bloom 500000000 0.001
+ * </pre>
+ * Строки входного файла - либо пароли в открытом виде, либо SHA-1 в шестнадцатеричной записи
+ * в формате выгрузки Have I Been Pwned (<code>SHA1:количество</code>), если передан флаг <code>--sha1</code>.
+ */
+public class BloomFilterWriter implements Closeable {
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] segments;
+
+    private final int hashCount;
+
+    private final long numBits;
+
+    private BloomFilterWriter(FileChannel channel, MappedByteBuffer[] segments, int hashCount, long numBits) {
+        this.channel = channel;
+        this.segments = segments;
+        this.hashCount = hashCount;
+        this.numBits = numBits;
+    }
+
+    /**
+     * Создает файл фильтра, рассчитанный на заданное количество значений и вероятность ложноположительного ответа.
+     */
+    public static BloomFilterWriter create(Path path, long expectedEntries, double falsePositiveProbability)
+            throws IOException {
+        long numBits = optimalNumBits(expectedEntries, falsePositiveProbability);
+        int hashCount = optimalHashCount(numBits, expectedEntries);
+        long dataSize = (numBits + 7) / 8;
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(MappedBloomFilter.HEADER_SIZE)
+                    .putInt(MappedBloomFilter.MAGIC)
+                    .putInt(MappedBloomFilter.VERSION)
+                    .putInt(hashCount)
+                    .putInt(0)
+                    .putLong(numBits)
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            int segmentCount = (int) ((dataSize + MappedBloomFilter.SEGMENT_SIZE - 1) / MappedBloomFilter.SEGMENT_SIZE);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long offset = i * MappedBloomFilter.SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, MappedBloomFilter.HEADER_SIZE + offset,
+                        Math.min(MappedBloomFilter.SEGMENT_SIZE, dataSize - offset));
+            }
+            return new BloomFilterWriter(channel, segments, hashCount, numBits);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static long optimalNumBits(long expectedEntries, double falsePositiveProbability) {
+        return Math.max(64, (long) Math.ceil(
+                -expectedEntries * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2))
+        ));
+    }
+
+    static int optimalHashCount(long numBits, long expectedEntries) {
+        return Math.max(1, (int) Math.round((double) numBits / Math.max(1, expectedEntries) * Math.log(2)));
+    }
+
+    public void put(String value) {
+        put(BloomHash.of(value));
+    }
+
+    public void put(BloomHash hash) {
+        for (int i = 0; i < hashCount; i++) {
+            long index = hash.index(i, numBits);
+            long byteIndex = index >>> 3;
+            MappedByteBuffer segment = segments[(int) (byteIndex / MappedBloomFilter.SEGMENT_SIZE)];
+            int position = (int) (byteIndex % MappedBloomFilter.SEGMENT_SIZE);
+            segment.put(position, (byte) (segment.get(position) | (1 << (index & 7))));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: BloomFilterWriter <input> <output> <expectedEntries> [falsePositiveProbability] [--sha1]");
+            System.exit(1);
+        }
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        long expectedEntries = Long.parseLong(args[2]);
+        double falsePositiveProbability = args.length > 3 && !args[3].startsWith("--") ? Double.parseDouble(args[3]) : 0.001;
+        boolean sha1 = args[args.length - 1].equals("--sha1");
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BloomFilterWriter writer = create(output, expectedEntries, falsePositiveProbability)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                writer.put(sha1 ? BloomHash.ofSha1Hex(line) : BloomHash.of(line));
+                count++;
+            }
+        }
+        System.out.println("Bloom filter written: " + count + " entries -> " + output);
+    }
+}
@@ -0,0 +1,81 @@
+package tgb.cryptoexchange.auth.bloom;
+
+import tgb.cryptoexchange.auth.pool.InstancePool;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Пара 64-битных хешей значения для вычисления позиций в фильтре Блума двойным хешированием:
+ * позиция i-й хеш-функции равна <code>(h1 + i * h2) mod m</code>.
+ * Хеши берутся из SHA-1 значения, поэтому фильтр можно построить как по открытым значениям,
+ * так и по уже посчитанным SHA-1 (например, из выгрузок утекших паролей).
+ */
+public final class BloomHash {
+
+    private static final InstancePool<MessageDigest> SHA_1 = new InstancePool<>(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final long h1;
+
+    private final long h2;
+
+    private BloomHash(long h1, long h2) {
+        this.h1 = h1;
+        this.h2 = h2;
+    }
+
+    public static BloomHash of(String value) {
+        MessageDigest sha1 = SHA_1.acquire();
+        byte[] digest = sha1.digest(value.getBytes(StandardCharsets.UTF_8));
+        SHA_1.release(sha1);
+        return ofSha1(digest);
+    }
+
+    /**
+     * @param sha1 SHA-1 значения, не менее 16 байт
+     */
+    public static BloomHash ofSha1(byte[] sha1) {
+        return new BloomHash(readLong(sha1, 0), readLong(sha1, 8));
+    }
+
+    /**
+     * @param hex SHA-1 значения в шестнадцатеричной записи
+     */
+    public static BloomHash ofSha1Hex(CharSequence hex) {
+        if (hex.length() < 32) {
+            throw new IllegalArgumentException("SHA-1 hex is too short");
+        }
+        return new BloomHash(parseHexLong(hex, 0), parseHexLong(hex, 16));
+    }
+
+    public long index(int i, long numBits) {
+        return Math.floorMod(h1 + i * h2, numBits);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static long parseHexLong(CharSequence hex, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 16; i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid SHA-1 hex");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
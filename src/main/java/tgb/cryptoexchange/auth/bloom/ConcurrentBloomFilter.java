@@ -0,0 +1,61 @@
+package tgb.cryptoexchange.auth.bloom;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума в heap, допускающий одновременные добавления и проверки без блокировок.
+ * Биты хранятся в {@link AtomicLongArray}, установка бита - атомарное ИЛИ над словом.
+ * Удаление значений не поддерживается.
+ */
+public class ConcurrentBloomFilter {
+
+    private final AtomicLongArray words;
+
+    private final int hashCount;
+
+    private final long numBits;
+
+    private final long expectedEntries;
+
+    public ConcurrentBloomFilter(long expectedEntries, double falsePositiveProbability) {
+        long bits = BloomFilterWriter.optimalNumBits(expectedEntries, falsePositiveProbability);
+        if ((bits + 63) / 64 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter is too large for heap: " + bits + " bits");
+        }
+        this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+        this.numBits = (long) words.length() * 64;
+        this.hashCount = BloomFilterWriter.optimalHashCount(numBits, expectedEntries);
+        this.expectedEntries = expectedEntries;
+    }
+
+    public void put(String value) {
+        BloomHash hash = BloomHash.of(value);
+        for (int i = 0; i < hashCount; i++) {
+            long index = hash.index(i, numBits);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            if ((words.get(word) & mask) == 0) {
+                words.accumulateAndGet(word, mask, (current, bit) -> current | bit);
+            }
+        }
+    }
+
+    public boolean mightContain(String value) {
+        BloomHash hash = BloomHash.of(value);
+        for (int i = 0; i < hashCount; i++) {
+            long index = hash.index(i, numBits);
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getExpectedEntries() {
+        return expectedEntries;
+    }
+
+    public long getSizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+}
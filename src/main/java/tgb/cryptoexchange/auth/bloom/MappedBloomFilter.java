@@ -0,0 +1,121 @@
+package tgb.cryptoexchange.auth.bloom;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Фильтр Блума, отображенный в память из файла. Файл не читается в heap: страницы подгружаются
+ * операционной системой по мере обращения, поэтому открытие занимает доли миллисекунды при любом размере.
+ * <p>
+ * Формат файла: заголовок {@value #HEADER_SIZE} байт (magic, версия, количество хеш-функций,
+ * количество бит), затем битовый массив, где бит i хранится в байте <code>i / 8</code> под маской <code>1 << (i % 8)</code>.
+ * Файл создается через {@link BloomFilterWriter}. Заголовок проверяется при открытии: файл с нулевым количеством
+ * хеш-функций считал бы утекшим любой пароль, а с нулевым количеством бит ломал бы вычисление индексов.
+ * <p>
+ * {@link #close()} закрывает файл, а отображение освобождает сборщик мусора вместе с буферами: явное снятие
+ * отображения, пока его может читать другой поток, привело бы к падению JVM. После закрытия фильтр не читается.
+ */
+public class MappedBloomFilter implements Closeable {
+
+    static final int MAGIC = 0x424C4D46;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 24;
+
+    static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] segments;
+
+    private final int hashCount;
+
+    private final long numBits;
+
+    private volatile boolean closed;
+
+    private MappedBloomFilter(FileChannel channel, MappedByteBuffer[] segments, int hashCount, long numBits) {
+        this.channel = channel;
+        this.segments = segments;
+        this.hashCount = hashCount;
+        this.numBits = numBits;
+    }
+
+    public static MappedBloomFilter open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // читаем заголовок целиком
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a bloom filter file: " + path);
+            }
+            int hashCount = header.getInt();
+            header.getInt();
+            long numBits = header.getLong();
+            if (hashCount <= 0) {
+                throw new IOException("Bloom filter file has invalid hash count " + hashCount + ": " + path);
+            }
+            if (numBits <= 0) {
+                throw new IOException("Bloom filter file has invalid bit count " + numBits + ": " + path);
+            }
+            long dataSize = (numBits + 7) / 8;
+            if (channel.size() < HEADER_SIZE + dataSize) {
+                throw new IOException("Bloom filter file is truncated: " + path);
+            }
+            int segmentCount = (int) ((dataSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long offset = i * SEGMENT_SIZE;
+                segments[i] = channel.map(
+                        FileChannel.MapMode.READ_ONLY, HEADER_SIZE + offset, Math.min(SEGMENT_SIZE, dataSize - offset)
+                );
+            }
+            return new MappedBloomFilter(channel, segments, hashCount, numBits);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        return mightContain(BloomHash.of(value));
+    }
+
+    public boolean mightContain(BloomHash hash) {
+        if (closed) {
+            throw new IllegalStateException("Bloom filter is closed");
+        }
+        for (int i = 0; i < hashCount; i++) {
+            long index = hash.index(i, numBits);
+            long byteIndex = index >>> 3;
+            byte b = segments[(int) (byteIndex / SEGMENT_SIZE)].get((int) (byteIndex % SEGMENT_SIZE));
+            if ((b & (1 << (index & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getNumBits() {
+        return numBits;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+}
@@ -2,8 +2,10 @@ package tgb.cryptoexchange.auth.config;
 
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableScheduling
 @ComponentScan(basePackages = "tgb.cryptoexchange")
 public class AuthConfiguration {
 }
@@ -0,0 +1,39 @@
+package tgb.cryptoexchange.auth.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Подбор стоимости BCrypt под целевое время хеширования на текущем железе.
+ * Время измеряется на минимальной допустимой стоимости, каждая следующая стоимость удваивает время.
+ */
+@Slf4j
+final class BCryptCalibration {
+
+    static final int MIN_STRENGTH = 10;
+
+    static final int MAX_STRENGTH = 16;
+
+    private static final int MEASUREMENTS = 3;
+
+    private BCryptCalibration() {
+    }
+
+    static int calibrate(long targetHashMillis) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_STRENGTH);
+        encoder.encode("calibration");
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < MEASUREMENTS; i++) {
+            long startedAt = System.nanoTime();
+            encoder.encode("calibration");
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startedAt);
+        }
+        double measuredMillis = bestNanos / 1_000_000d;
+        int strength = MIN_STRENGTH + (int) Math.max(0, Math.floor(Math.log(targetHashMillis / measuredMillis) / Math.log(2)));
+        strength = Math.min(strength, MAX_STRENGTH);
+        log.info("Калибровка BCrypt: стоимость {} - {} мс, выбрана стоимость {} (~{} мс при цели {} мс)",
+                MIN_STRENGTH, String.format("%.1f", measuredMillis), strength,
+                Math.round(measuredMillis * (1L << (strength - MIN_STRENGTH))), targetHashMillis);
+        return strength;
+    }
+}
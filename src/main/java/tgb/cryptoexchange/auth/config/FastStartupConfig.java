@@ -0,0 +1,28 @@
+package tgb.cryptoexchange.auth.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import tgb.cryptoexchange.auth.controller.AuthController;
+import tgb.cryptoexchange.auth.service.AuthService;
+import tgb.cryptoexchange.auth.service.JwtService;
+import tgb.cryptoexchange.auth.service.PasswordHashingService;
+import tgb.cryptoexchange.auth.service.UserCache;
+
+/**
+ * Профиль <code>fast-startup</code>: при ленивой инициализации бинов путь входа и регистрации
+ * все равно создается при старте, чтобы первый вход не ждал создания сервисов и калибровки BCrypt.
+ * Swagger, проверка и отзыв токенов, импорт и статистика создаются при первом обращении.
+ */
+@Configuration
+@Profile("fast-startup")
+public class FastStartupConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter loginPathExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                AuthController.class, AuthService.class, JwtService.class, PasswordHashingService.class, UserCache.class
+        );
+    }
+}
@@ -0,0 +1,52 @@
+package tgb.cryptoexchange.auth.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import tgb.cryptoexchange.auth.filter.LoginThrottleFilter;
+import tgb.cryptoexchange.auth.service.AuthMetrics;
+import tgb.cryptoexchange.auth.service.LoginThrottle;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Ограничение частоты попыток входа. Фильтр регистрируется только на <code>/auth/login</code>
+ * и выполняется раньше цепочки Spring Security.
+ */
+@Configuration
+@ConditionalOnProperty(name = "auth.login-throttle.enabled", havingValue = "true", matchIfMissing = true)
+public class LoginThrottleConfig {
+
+    @Bean
+    public LoginThrottle loginThrottle(@Value("${auth.login-throttle.username.capacity:5}") int usernameCapacity,
+                                       @Value("${auth.login-throttle.username.refill-interval:60000}") long usernameRefill,
+                                       @Value("${auth.login-throttle.address.capacity:50}") int addressCapacity,
+                                       @Value("${auth.login-throttle.address.refill-interval:1000}") long addressRefill,
+                                       @Value("${auth.login-throttle.max-keys:100000}") long maxKeys) {
+        return new LoginThrottle(
+                new LoginThrottle.Limit(usernameCapacity, Duration.ofMillis(usernameRefill)),
+                new LoginThrottle.Limit(addressCapacity, Duration.ofMillis(addressRefill)),
+                maxKeys
+        );
+    }
+
+    @Bean
+    public FilterRegistrationBean<LoginThrottleFilter> loginThrottleFilter(
+            LoginThrottle loginThrottle, AuthMetrics authMetrics, ObjectMapper objectMapper,
+            @Value("${auth.login-throttle.max-body-peek:4096}") int maxBodyPeek,
+            @Value("${auth.login-throttle.release-on-success:true}") boolean releaseOnSuccess,
+            @Value("${auth.login-throttle.trusted-proxies:}") List<String> trustedProxies) {
+        FilterRegistrationBean<LoginThrottleFilter> registration = new FilterRegistrationBean<>(
+                new LoginThrottleFilter(loginThrottle, authMetrics, objectMapper, maxBodyPeek, releaseOnSuccess,
+                        trustedProxies.stream().map(String::trim).filter(proxy -> !proxy.isEmpty()).toList())
+        );
+        registration.addUrlPatterns("/auth/login");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -0,0 +1,75 @@
+package tgb.cryptoexchange.auth.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import tgb.cryptoexchange.auth.datasource.ReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разделение чтения и записи между основной БД (<code>spring.datasource</code>) и репликами
+ * (<code>auth.replica.urls</code> через запятую). Транзакции только для чтения получают соединение реплики,
+ * остальные запросы и транзакции - основной БД. Соединение берется при первом запросе в транзакции,
+ * когда признак только для чтения уже известен.
+ * <p>
+ * Реплика может отставать, поэтому пользователь, измененный в этом экземпляре сервиса, еще
+ * <code>auth.replica.read-your-writes-window</code> мс читается из основной БД
+ * (см. {@link tgb.cryptoexchange.auth.service.UserCache#invalidate(String)}).
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "auth.replica.urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(
+            DataSourceProperties properties,
+            @Value("${auth.replica.urls}") List<String> urls,
+            @Value("${auth.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${auth.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${auth.replica.maximum-pool-size:10}") int maximumPoolSize) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            if (properties.getDriverClassName() != null) {
+                replica.setDriverClassName(properties.getDriverClassName());
+            }
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        log.info("Чтение разделено между основной БД и репликами: {}", replicas.size());
+        return new ReplicaRoutingDataSource(replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
@@ -1,52 +1,96 @@
 package tgb.cryptoexchange.auth.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import tgb.cryptoexchange.auth.filter.BearerTokenFilter;
+import tgb.cryptoexchange.auth.service.AdminUsernames;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
 import tgb.cryptoexchange.auth.service.UserService;
 
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 public class SecurityConfig {
 
+    public static final String BCRYPT_ID = "bcrypt";
+
     private final UserService userDetailsService;
 
     public SecurityConfig(UserService userDetailsService) {
         this.userDetailsService = userDetailsService;
     }
 
+    /**
+     * Хеши сохраняются с префиксом версии <code>{bcrypt}</code>. Хеши без префикса, созданные до его появления,
+     * сверяются BCrypt со стоимостью по умолчанию и считаются требующими обновления.
+     * Если стоимость не задана явно, она подбирается при старте под <code>auth.password.target-hash-millis</code>.
+     */
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.password.strength:0}") int strength,
+                                           @Value("${auth.password.target-hash-millis:250}") long targetHashMillis) {
+        int bcryptStrength = strength > 0 ? strength : BCryptCalibration.calibrate(targetHashMillis);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(
+                BCRYPT_ID, Map.of(BCRYPT_ID, new BCryptPasswordEncoder(bcryptStrength))
+        );
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return encoder;
     }
 
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider(userDetailsService);
-        provider.setPasswordEncoder(passwordEncoder());
+        provider.setPasswordEncoder(passwordEncoder);
         return provider;
     }
 
     @Bean
-    public AuthenticationManager authManager(HttpSecurity http) throws Exception {
+    public AuthenticationManager authManager(HttpSecurity http, DaoAuthenticationProvider authenticationProvider)
+            throws Exception {
         return http.getSharedObject(AuthenticationManagerBuilder.class)
-                .authenticationProvider(authenticationProvider())
+                .authenticationProvider(authenticationProvider)
                 .build();
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public AdminUsernames adminUsernames(@Value("${auth.admins:}") List<String> admins) {
+        return new AdminUsernames(admins);
+    }
+
+    /**
+     * Импорт пользователей и журнал аудита доступны только администраторам <code>auth.admins</code>, которые передают свой JWT
+     * в заголовке <code>Authorization: Bearer</code>. Запрос без действительного токена получает 401, токен другого
+     * пользователя - 403.
+     */
+    @Bean
+    public SecurityFilterChain filterChain(HttpSecurity http, TokenVerificationService tokenVerificationService,
+                                           AdminUsernames adminUsernames) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
+                .addFilterBefore(new BearerTokenFilter(tokenVerificationService, adminUsernames),
+                        AnonymousAuthenticationFilter.class)
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/auth/import", "/auth/import/**", "/auth/audit", "/auth/audit/**")
+                        .hasRole(BearerTokenFilter.ADMIN_ROLE)
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/swagger/**").permitAll()
                         .requestMatchers("/swagger/api-docs/**").permitAll()
                         .requestMatchers("/swagger-ui/**").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
                 );
         return http.build();
@@ -0,0 +1,94 @@
+package tgb.cryptoexchange.auth.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import tgb.cryptoexchange.auth.datasource.ShardKeyInterceptor;
+import tgb.cryptoexchange.auth.datasource.ShardRoutingDataSource;
+import tgb.cryptoexchange.auth.datasource.UserShards;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Горизонтальное шардирование таблицы пользователей по БД из <code>auth.shards.urls</code> (через запятую).
+ * Шард пользователя определяется хешем юзернейма ({@link tgb.cryptoexchange.auth.datasource.ShardHash}),
+ * запросы {@link UserRepository} уходят на шард по юзернейму из аргументов ({@link ShardKeyInterceptor}),
+ * списки юзернеймов собираются со всех шардов. Остальные таблицы и схема Hibernate - на первом шарде,
+ * <code>spring.datasource.url</code> не используется.
+ * <p>
+ * Соединение берется при первом запросе, поэтому транзакция, начатая в сервисе, работает с шардом первого
+ * запроса к репозиторию. Список шардов меняется только вместе с переносом пользователей
+ * {@link tgb.cryptoexchange.auth.datasource.Resharder} на остановленном сервисе. С репликами
+ * (<code>auth.replica.urls</code>) не совместимо.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "auth.shards.urls")
+public class ShardingConfig {
+
+    @Bean
+    public ShardRoutingDataSource shardDataSource(
+            DataSourceProperties properties,
+            @Value("${auth.shards.urls}") List<String> urls,
+            @Value("${auth.shards.username:${spring.datasource.username:}}") String username,
+            @Value("${auth.shards.password:${spring.datasource.password:}}") String password,
+            @Value("${auth.shards.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${auth.replica.urls:}") String replicaUrls) {
+        if (!replicaUrls.isBlank()) {
+            throw new IllegalStateException("auth.shards.urls and auth.replica.urls cannot be used together");
+        }
+        List<HikariDataSource> shards = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("shard-" + shards.size());
+            shard.setJdbcUrl(url.trim());
+            shard.setUsername(username);
+            shard.setPassword(password);
+            if (properties.getDriverClassName() != null) {
+                shard.setDriverClassName(properties.getDriverClassName());
+            }
+            shard.setMaximumPoolSize(maximumPoolSize);
+            shards.add(shard);
+        }
+        log.info("Пользователи шардированы по БД: {}", shards.size());
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardDataSource) {
+        return new LazyConnectionDataSourceProxy(shardDataSource);
+    }
+
+    @Bean
+    public static BeanPostProcessor shardKeyRepositoryPostProcessor(ObjectProvider<UserShards> userShards) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof JpaRepositoryFactoryBean<?, ?, ?> factoryBean
+                        && UserRepository.class.equals(factoryBean.getObjectType())) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, information) ->
+                                    proxyFactory.addAdvice(0, new ShardKeyInterceptor(userShards.getObject()))
+                    ));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package tgb.cryptoexchange.auth.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tgb.cryptoexchange.auth.audit.AuditEventType;
+import tgb.cryptoexchange.auth.audit.AuditLog;
+import tgb.cryptoexchange.auth.exception.InvalidAuditQueryException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/auth/audit")
+public class AuditController {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private static final int MAX_LIMIT = 100_000;
+
+    private final AuditLog auditLog;
+
+    public AuditController(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    @Operation(summary = "Выгрузка событий журнала аудита.",
+            description = "Возвращает записанные события из интервала [from, to) в формате NDJSON в порядке записи. "
+                    + "События последних миллисекунд, еще не записанные фоновым потоком, могут не попасть в выгрузку. "
+                    + "Если журнал выключен, выгрузка пустая.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", description = "Выгрузка начата."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Невалидный лимит или интервал."
+            )
+    })
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> scan(
+            @Parameter(description = "Начало интервала, ISO-8601.")
+            @RequestParam(required = false) Instant from,
+            @Parameter(description = "Конец интервала (не включительно), ISO-8601.")
+            @RequestParam(required = false) Instant to,
+            @Parameter(description = "Только события пользователя.")
+            @RequestParam(required = false) String username,
+            @Parameter(description = "Только события типа.")
+            @RequestParam(required = false) AuditEventType type,
+            @Parameter(description = "Максимальное количество событий.")
+            @RequestParam(defaultValue = "1000") int limit) {
+        Instant start = from == null ? Instant.EPOCH : from;
+        Instant end = to == null ? Instant.now() : to;
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidAuditQueryException("Invalid limit");
+        }
+        if (!start.isBefore(end)) {
+            throw new InvalidAuditQueryException("Invalid interval");
+        }
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                int[] remaining = {limit};
+                auditLog.scan(start, end, event -> {
+                    if (username != null && !username.equals(event.username())
+                            || type != null && type != event.type()) {
+                        return true;
+                    }
+                    try {
+                        generator.writeStartObject();
+                        generator.writeStringField("timestamp", event.timestamp().toString());
+                        generator.writeStringField("type", event.type().name());
+                        generator.writeStringField("username", event.username());
+                        generator.writeEndObject();
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return --remaining[0] > 0;
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -1,38 +1,61 @@
 package tgb.cryptoexchange.auth.controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import tgb.cryptoexchange.auth.dto.UserCredentialsDTO;
+import tgb.cryptoexchange.auth.policy.PasswordPolicy;
 import tgb.cryptoexchange.auth.service.AuthService;
+import tgb.cryptoexchange.auth.service.PasswordHashingService;
 import tgb.cryptoexchange.auth.service.UserService;
+import tgb.cryptoexchange.auth.service.UsernameAvailabilityService;
 import tgb.cryptoexchange.web.ApiResponse;
-import tgb.cryptoexchange.web.LogResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/auth")
-@LogResponseBody
 @Slf4j
 public class AuthController {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
     private final AuthService authService;
 
     private final UserService userService;
 
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+
+    private final PasswordPolicy passwordPolicy;
+
+    private final UsernameAvailabilityService usernameAvailabilityService;
 
-    public AuthController(AuthService authService, UserService userService, BCryptPasswordEncoder passwordEncoder) {
+    private final int maxPageSize;
+
+    public AuthController(AuthService authService, UserService userService,
+                          PasswordHashingService passwordHashingService, PasswordPolicy passwordPolicy,
+                          UsernameAvailabilityService usernameAvailabilityService,
+                          @Value("${auth.users.max-page-size:1000}") int maxPageSize) {
         this.authService = authService;
         this.userService = userService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.passwordPolicy = passwordPolicy;
+        this.usernameAvailabilityService = usernameAvailabilityService;
+        this.maxPageSize = maxPageSize;
     }
 
     @Operation(summary = "Регистрация нового пользователя.", description = "Возвращает JWT в случае успешной регистрации.")
@@ -42,6 +65,9 @@ public class AuthController {
             ),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(
                     responseCode = "400", description = "Данные невалидны."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "409", description = "Юзернейм занят."
             )
     })
     @PostMapping("/register")
@@ -50,15 +76,17 @@ public class AuthController {
                     description = "Данные нового пользователя", required = true,
                     content = @Content(schema = @Schema(implementation = UserCredentialsDTO.class))
             )
-            @RequestBody UserCredentialsDTO credentials) {
-        log.debug("Запрос на регистрацию нового пользователя: {}", credentials.toString());
-        if (!credentials.isValidForRegistration()) {
+            @RequestBody UserCredentialsDTO credentials,
+            @Parameter(description = "Ключ идемпотентности. Повторный запрос с тем же ключом возвращает исходный токен.")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        log.debug("Запрос на регистрацию нового пользователя {}", credentials.getUsername());
+        if (!credentials.hasValidUsername() || !passwordPolicy.isAcceptable(credentials.getPassword())) {
             return new ResponseEntity<>(
                     ApiResponse.error(ApiResponse.Error.builder().message("Invalid data").build()),
                     HttpStatus.BAD_REQUEST
             );
         }
-        String token = authService.register(credentials.getUsername(), credentials.getPassword());
+        String token = authService.register(credentials.getUsername(), credentials.getPassword(), idempotencyKey);
         return new ResponseEntity<>(
                 ApiResponse.success(token),
                 HttpStatus.CREATED
@@ -95,16 +123,87 @@ public class AuthController {
         );
     }
 
-    @Operation(summary = "Получение всех юзернеймов.",
-            description = "Возвращает список всех юзернеймов зарегистрированных пользователей.")
+    @Operation(summary = "Проверка, свободен ли юзернейм.",
+            description = "Возвращает true, если юзернейм валиден и не занят. "
+                    + "Большинство свободных юзернеймов проверяется без обращения к БД.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", description = "Проверка выполнена."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Юзернейм невалиден."
+            )
+    })
+    @GetMapping("/available/{username}")
+    public ResponseEntity<ApiResponse<Boolean>> isAvailable(@PathVariable String username) {
+        if (!new UserCredentialsDTO(username, null).hasValidUsername()) {
+            return new ResponseEntity<>(
+                    ApiResponse.error(ApiResponse.Error.builder().message("Invalid username").build()),
+                    HttpStatus.BAD_REQUEST
+            );
+        }
+        return new ResponseEntity<>(
+                ApiResponse.success(usernameAvailabilityService.isAvailable(username)), HttpStatus.OK
+        );
+    }
+
+    @Operation(summary = "Получение юзернеймов.",
+            description = "Возвращает список юзернеймов зарегистрированных пользователей в алфавитном порядке. "
+                    + "Если передан after или limit, возвращается страница юзернеймов, следующих за after. "
+                    + "Для получения следующей страницы в after передается последний юзернейм текущей.")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(
                     responseCode = "200", description = "Список юзернеймов сформирован."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Невалидный размер страницы."
             )
     })
     @GetMapping
-    public ResponseEntity<ApiResponse<List<String>>> getUsers() {
-         return new ResponseEntity<>(ApiResponse.success(userService.getUsernames()), HttpStatus.OK);
+    public ResponseEntity<ApiResponse<List<String>>> getUsers(
+            @Parameter(description = "Юзернейм, после которого начинается страница.")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Размер страницы.")
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return new ResponseEntity<>(ApiResponse.success(userService.getUsernames()), HttpStatus.OK);
+        }
+        if (limit != null && limit < 1) {
+            return new ResponseEntity<>(
+                    ApiResponse.error(ApiResponse.Error.builder().message("Invalid limit").build()),
+                    HttpStatus.BAD_REQUEST
+            );
+        }
+        int pageSize = limit == null ? maxPageSize : Math.min(limit, maxPageSize);
+        return new ResponseEntity<>(ApiResponse.success(userService.getUsernames(after, pageSize)), HttpStatus.OK);
+    }
+
+    @Operation(summary = "Потоковая выгрузка всех юзернеймов.",
+            description = "Возвращает юзернеймы в формате NDJSON, по одному объекту на строку, "
+                    + "читая их из БД курсором без формирования полного списка.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", description = "Выгрузка начата."
+            )
+    })
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                userService.forEachUsername(username -> {
+                    try {
+                        generator.writeStartObject();
+                        generator.writeStringField("username", username);
+                        generator.writeEndObject();
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @Operation(summary = "Удаление пользователя по username.")
@@ -134,14 +233,13 @@ public class AuthController {
     @PatchMapping("/{username}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public ResponseEntity<ApiResponse<Object>> patch(@PathVariable String username, @RequestParam String password) {
-        UserCredentialsDTO userCredentialsDTO = new UserCredentialsDTO(username, password);
-        if (!userCredentialsDTO.isValidForRegistration()) {
+        if (!new UserCredentialsDTO(username, password).hasValidUsername() || !passwordPolicy.isAcceptable(password)) {
             return new ResponseEntity<>(
                     ApiResponse.error(ApiResponse.Error.builder().message("Invalid password").build()),
                     HttpStatus.BAD_REQUEST
             );
         }
-        userService.updatePassword(username, passwordEncoder.encode(password));
+        userService.updatePassword(username, passwordHashingService.encode(password));
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 }
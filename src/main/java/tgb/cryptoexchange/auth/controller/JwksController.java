@@ -0,0 +1,65 @@
+package tgb.cryptoexchange.auth.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import tgb.cryptoexchange.auth.service.SigningKeyRing;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Публичные ключи проверки токенов в стандартном формате JWKS (RFC 7517), поэтому ответ не оборачивается
+ * в ApiResponse. JSON собирается заранее при изменении набора ключей.
+ */
+@RestController
+@RequestMapping("/auth/.well-known")
+public class JwksController {
+
+    private final SigningKeyRing keyRing;
+
+    private final CacheControl cacheControl;
+
+    public JwksController(ObjectProvider<SigningKeyRing> keyRing,
+                          @Value("${jwt.key-ring.jwks-max-age:300000}") long maxAgeMillis) {
+        this.keyRing = keyRing.getIfAvailable();
+        this.cacheControl = CacheControl.maxAge(maxAgeMillis, TimeUnit.MILLISECONDS).cachePublic();
+    }
+
+    @Operation(summary = "Публичные ключи проверки JWT (JWKS).",
+            description = "Доступно только при подписи токенов ES256.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", description = "Набор публичных ключей."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "304", description = "Набор ключей не изменился с указанного ETag."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "404", description = "Токены подписываются симметричным ключом."
+            )
+    })
+    @GetMapping(value = "/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> jwks(WebRequest request) {
+        if (keyRing == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        SigningKeyRing.Jwks jwks = keyRing.getJwks();
+        if (request.checkNotModified(jwks.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(jwks.etag()).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(jwks.etag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jwks.json());
+    }
+}
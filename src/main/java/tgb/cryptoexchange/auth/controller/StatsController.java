@@ -0,0 +1,52 @@
+package tgb.cryptoexchange.auth.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tgb.cryptoexchange.auth.dto.CacheStatsDTO;
+import tgb.cryptoexchange.auth.dto.HashingStatsDTO;
+import tgb.cryptoexchange.auth.service.PasswordHashingService;
+import tgb.cryptoexchange.auth.service.UserCache;
+import tgb.cryptoexchange.web.ApiResponse;
+
+@RestController
+@RequestMapping("/auth/stats")
+public class StatsController {
+
+    private final PasswordHashingService passwordHashingService;
+
+    private final UserCache userCache;
+
+    public StatsController(PasswordHashingService passwordHashingService, UserCache userCache) {
+        this.passwordHashingService = passwordHashingService;
+        this.userCache = userCache;
+    }
+
+    @Operation(summary = "Статистика пула хеширования паролей.",
+            description = "Возвращает длину очереди, количество отклоненных операций и время ожидания.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", description = "Статистика сформирована."
+            )
+    })
+    @GetMapping("/hashing")
+    public ResponseEntity<ApiResponse<HashingStatsDTO>> getHashingStats() {
+        return new ResponseEntity<>(ApiResponse.success(passwordHashingService.getStats()), HttpStatus.OK);
+    }
+
+    @Operation(summary = "Статистика кэша пользователей.",
+            description = "Возвращает количество попаданий, промахов и вытесненных записей.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", description = "Статистика сформирована."
+            )
+    })
+    @GetMapping("/user-cache")
+    public ResponseEntity<ApiResponse<CacheStatsDTO>> getUserCacheStats() {
+        return new ResponseEntity<>(ApiResponse.success(userCache.getStats()), HttpStatus.OK);
+    }
+}
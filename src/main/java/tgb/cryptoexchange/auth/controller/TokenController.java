@@ -0,0 +1,140 @@
+package tgb.cryptoexchange.auth.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tgb.cryptoexchange.auth.dto.TokenBatchDTO;
+import tgb.cryptoexchange.auth.dto.TokenDTO;
+import tgb.cryptoexchange.auth.dto.TokenVerificationDTO;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
+import tgb.cryptoexchange.auth.service.TokenRevocationService;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
+import tgb.cryptoexchange.auth.service.VerifiedToken;
+import tgb.cryptoexchange.web.ApiResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Slf4j
+@RestController
+@RequestMapping("/auth")
+public class TokenController {
+
+    private final TokenVerificationService tokenVerificationService;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final int maxBatchSize;
+
+    public TokenController(TokenVerificationService tokenVerificationService,
+                           TokenRevocationService tokenRevocationService,
+                           @Value("${auth.verification.max-batch-size:100}") int maxBatchSize) {
+        this.tokenVerificationService = tokenVerificationService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Operation(summary = "Проверка токена.", description = "Возвращает юзернейм владельца и срок действия токена.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", description = "Токен валиден."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "401", description = "Токен невалиден или истек."
+            )
+    })
+    @PostMapping("/verify")
+    public ResponseEntity<ApiResponse<TokenVerificationDTO>> verify(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Токен для проверки.", required = true,
+                    content = @Content(schema = @Schema(implementation = TokenDTO.class))
+            )
+            @RequestBody TokenDTO tokenDTO) {
+        return new ResponseEntity<>(
+                ApiResponse.success(TokenVerificationDTO.valid(tokenVerificationService.verify(tokenDTO.getToken()))),
+                HttpStatus.OK
+        );
+    }
+
+    @Operation(summary = "Пакетная проверка токенов.",
+            description = "Проверяет токены параллельно и возвращает результаты в порядке переданных токенов.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", description = "Токены проверены."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Список токенов пуст или превышает допустимый размер."
+            )
+    })
+    @PostMapping("/verify/batch")
+    public ResponseEntity<ApiResponse<Iterable<TokenVerificationDTO>>> verifyBatch(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Токены для проверки.", required = true,
+                    content = @Content(schema = @Schema(implementation = TokenBatchDTO.class))
+            )
+            @RequestBody TokenBatchDTO tokenBatchDTO) {
+        List<String> tokens = tokenBatchDTO.getTokens();
+        if (tokens == null || tokens.isEmpty() || tokens.size() > maxBatchSize) {
+            return new ResponseEntity<>(
+                    ApiResponse.error(ApiResponse.Error.builder().message("Invalid batch size").build()),
+                    HttpStatus.BAD_REQUEST
+            );
+        }
+        List<CompletableFuture<VerifiedToken>> results = tokenVerificationService.verifyAll(tokens);
+        return new ResponseEntity<>(ApiResponse.success(inOrder(results)), HttpStatus.OK);
+    }
+
+    @Operation(summary = "Отзыв токена.",
+            description = "Токен перестает проходить проверку до истечения срока действия.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "204", description = "Токен отозван."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "401", description = "Токен невалиден, истек или выпущен без идентификатора."
+            )
+    })
+    @PostMapping("/revoke")
+    public ResponseEntity<ApiResponse<Object>> revoke(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Токен для отзыва.", required = true,
+                    content = @Content(schema = @Schema(implementation = TokenDTO.class))
+            )
+            @RequestBody TokenDTO tokenDTO) {
+        tokenRevocationService.revoke(tokenDTO.getToken());
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Результаты в порядке токенов для сериализации по мере готовности: Jackson пишет каждый результат в ответ,
+     * как только завершится его проверка, не собирая промежуточный список. Статус 200 к этому моменту уже отправлен,
+     * поэтому любая ошибка проверки токена превращается в его результат, а не обрывает JSON.
+     */
+    private static Iterable<TokenVerificationDTO> inOrder(List<CompletableFuture<VerifiedToken>> results) {
+        return () -> results.stream().map(TokenController::toVerification).iterator();
+    }
+
+    private static TokenVerificationDTO toVerification(CompletableFuture<VerifiedToken> result) {
+        try {
+            return TokenVerificationDTO.valid(result.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof InvalidTokenException invalidTokenException) {
+                return TokenVerificationDTO.invalid(invalidTokenException.getMessage());
+            }
+            log.error("Ошибка при проверке токена из пакета", e.getCause());
+        } catch (RuntimeException e) {
+            log.error("Ошибка при проверке токена из пакета", e);
+        }
+        return TokenVerificationDTO.invalid("Verification failed");
+    }
+}
@@ -0,0 +1,86 @@
+package tgb.cryptoexchange.auth.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import tgb.cryptoexchange.auth.dto.ImportReportDTO;
+import tgb.cryptoexchange.auth.exception.ImportTooLargeException;
+import tgb.cryptoexchange.auth.service.UserImportService;
+import tgb.cryptoexchange.web.ApiResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/auth/import")
+public class UserImportController {
+
+    private final UserImportService userImportService;
+
+    private final long maxBodySize;
+
+    public UserImportController(UserImportService userImportService,
+                                @Value("${auth.import.max-body-size:16777216}") long maxBodySize) {
+        this.userImportService = userImportService;
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Operation(summary = "Импорт пользователей из тела запроса.",
+            description = "Принимает NDJSON, по одному объекту {username, password} или {username, passwordHash} "
+                    + "на строку. Возвращает отчет с незагруженными строками и скоростью загрузки. "
+                    + "Доступен администраторам.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", description = "Импорт завершен."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "413", description = "Тело запроса больше auth.import.max-body-size."
+            )
+    })
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ApiResponse<ImportReportDTO>> importStream(HttpServletRequest request) throws IOException {
+        checkSize(request.getContentLengthLong());
+        return new ResponseEntity<>(
+                ApiResponse.success(userImportService.importUsers(request.getInputStream())),
+                HttpStatus.OK
+        );
+    }
+
+    @Operation(summary = "Импорт пользователей из файла.",
+            description = "Принимает NDJSON-файл в части file. Формат строк такой же, как при импорте из тела запроса. "
+                    + "Доступен администраторам.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200", description = "Импорт завершен."
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "413", description = "Файл больше auth.import.max-body-size."
+            )
+    })
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<ImportReportDTO>> importFile(@RequestPart("file") MultipartFile file)
+            throws IOException {
+        checkSize(file.getSize());
+        try (InputStream inputStream = file.getInputStream()) {
+            return new ResponseEntity<>(ApiResponse.success(userImportService.importUsers(inputStream)), HttpStatus.OK);
+        }
+    }
+
+    /**
+     * Тело без Content-Length (chunked) не проверяется здесь, его ограничивает <code>auth.import.max-rows</code>.
+     */
+    private void checkSize(long size) {
+        if (size > maxBodySize) {
+            throw new ImportTooLargeException("Import is too large");
+        }
+    }
+}
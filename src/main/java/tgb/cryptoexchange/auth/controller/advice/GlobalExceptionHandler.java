@@ -1,10 +1,18 @@
 package tgb.cryptoexchange.auth.controller.advice;
 
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import tgb.cryptoexchange.auth.exception.HashingOverloadedException;
+import tgb.cryptoexchange.auth.exception.IdempotencyKeyReusedException;
+import tgb.cryptoexchange.auth.exception.ImportTooLargeException;
+import tgb.cryptoexchange.auth.exception.InvalidAuditQueryException;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
 import tgb.cryptoexchange.auth.exception.LoginException;
 import tgb.cryptoexchange.auth.exception.UsernameAlreadyTakenException;
 import tgb.cryptoexchange.web.ApiResponse;
@@ -12,6 +20,8 @@ import tgb.cryptoexchange.web.ApiResponse;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final String DATABASE_RETRY_AFTER_SECONDS = "1";
+
     @ExceptionHandler(LoginException.class)
     public ResponseEntity<ApiResponse<Void>> handlerLoginException(LoginException e) {
         return new ResponseEntity<>(
@@ -28,6 +38,22 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ApiResponse<Void>> handlerIdempotencyKeyReusedException(IdempotencyKeyReusedException e) {
+        return new ResponseEntity<>(
+                ApiResponse.error(ApiResponse.Error.builder().message(e.getMessage()).build()),
+                HttpStatus.UNPROCESSABLE_ENTITY
+        );
+    }
+
+    @ExceptionHandler(ImportTooLargeException.class)
+    public ResponseEntity<ApiResponse<Void>> handlerImportTooLargeException(ImportTooLargeException e) {
+        return new ResponseEntity<>(
+                ApiResponse.error(ApiResponse.Error.builder().message(e.getMessage()).build()),
+                HttpStatus.PAYLOAD_TOO_LARGE
+        );
+    }
+
     @ExceptionHandler(UsernameNotFoundException.class)
     public ResponseEntity<ApiResponse<Void>> handlerUsernameNotFoundException(UsernameNotFoundException e) {
         return new ResponseEntity<>(
@@ -35,4 +61,38 @@ public class GlobalExceptionHandler {
                 HttpStatus.BAD_REQUEST
         );
     }
+
+    @ExceptionHandler(HashingOverloadedException.class)
+    public ResponseEntity<ApiResponse<Void>> handlerHashingOverloadedException(HashingOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.error(ApiResponse.Error.builder().message(e.getMessage()).build()));
+    }
+
+    /**
+     * Соединение с БД не получено за <code>spring.datasource.hikari.connection-timeout</code>: пул занят
+     * или БД недоступна. В профиле virtual-threads это основной признак перегрузки.
+     */
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ApiResponse<Void>> handlerDatabaseUnavailableException(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, DATABASE_RETRY_AFTER_SECONDS)
+                .body(ApiResponse.error(ApiResponse.Error.builder().message("Database is unavailable").build()));
+    }
+
+    @ExceptionHandler(InvalidTokenException.class)
+    public ResponseEntity<ApiResponse<Void>> handlerInvalidTokenException(InvalidTokenException e) {
+        return new ResponseEntity<>(
+                ApiResponse.error(ApiResponse.Error.builder().message(e.getMessage()).build()),
+                HttpStatus.UNAUTHORIZED
+        );
+    }
+
+    @ExceptionHandler(InvalidAuditQueryException.class)
+    public ResponseEntity<ApiResponse<Void>> handlerInvalidAuditQueryException(InvalidAuditQueryException e) {
+        return new ResponseEntity<>(
+                ApiResponse.error(ApiResponse.Error.builder().message(e.getMessage()).build()),
+                HttpStatus.BAD_REQUEST
+        );
+    }
 }
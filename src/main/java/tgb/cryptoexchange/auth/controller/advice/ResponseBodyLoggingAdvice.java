@@ -0,0 +1,96 @@
+package tgb.cryptoexchange.auth.controller.advice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import tgb.cryptoexchange.auth.controller.AuthController;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Выборочное логирование тел ответов {@link AuthController}. Логируется доля ответов
+ * <code>auth.response-logging.sample-rate</code>, решение принимается до сериализации тела, поэтому
+ * непопавшие в выборку ответы ничего не стоят. Значения полей из <code>auth.response-logging.redacted-fields</code>
+ * и строки, похожие на JWT, заменяются на {@value #REDACTED}.
+ */
+@Slf4j
+@ControllerAdvice(assignableTypes = AuthController.class)
+public class ResponseBodyLoggingAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String REDACTED = "***";
+
+    private static final Pattern JWT = Pattern.compile("eyJ[\\w-]*\\.[\\w-]+\\.[\\w-]*");
+
+    private final ObjectMapper objectMapper;
+
+    private final double sampleRate;
+
+    private final Set<String> redactedFields;
+
+    public ResponseBodyLoggingAdvice(ObjectMapper objectMapper,
+                                     @Value("${auth.response-logging.sample-rate:0.01}") double sampleRate,
+                                     @Value("${auth.response-logging.redacted-fields:password,passwordHash,token,secret}")
+                                     Set<String> redactedFields) {
+        this.objectMapper = objectMapper;
+        this.sampleRate = sampleRate;
+        this.redactedFields = redactedFields;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return sampleRate > 0;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        log(request.getMethod().name(), request.getURI().getPath(), body);
+        return body;
+    }
+
+    /**
+     * Логирует тело ответа, если ответ попал в выборку.
+     */
+    public void log(String method, String path, Object body) {
+        if (!log.isInfoEnabled() || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        try {
+            log.info("Ответ {} {}: {}", method, path, redact(objectMapper.valueToTree(body)));
+        } catch (IllegalArgumentException e) {
+            log.debug("Не удалось сериализовать тело ответа {} {}", method, path, e);
+        }
+    }
+
+    JsonNode redact(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            for (Map.Entry<String, JsonNode> field : object.properties()) {
+                field.setValue(redactedFields.contains(field.getKey()) && !field.getValue().isNull()
+                        ? TextNode.valueOf(REDACTED)
+                        : redact(field.getValue()));
+            }
+        } else if (node instanceof ArrayNode array) {
+            for (int i = 0; i < array.size(); i++) {
+                array.set(i, redact(array.get(i)));
+            }
+        } else if (node != null && node.isTextual() && JWT.matcher(node.textValue()).matches()) {
+            return TextNode.valueOf(REDACTED);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,56 @@
+package tgb.cryptoexchange.auth.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пулы соединений реплик для чтения. Соединения выдаются по кругу; если реплика не отдала соединение,
+ * пробуются остальные, и только после отказа всех выбрасывается исключение первой.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final List<HikariDataSource> replicas;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(List<HikariDataSource> replicas) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required");
+        }
+        this.replicas = List.copyOf(replicas);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        SQLException failure = null;
+        for (int i = 0; i < replicas.size(); i++) {
+            HikariDataSource replica = replicas.get((start + i) % replicas.size());
+            try {
+                return username == null ? replica.getConnection() : replica.getConnection(username, password);
+            } catch (SQLException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,206 @@
+package tgb.cryptoexchange.auth.datasource;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Офлайн-перенос пользователей при изменении списка шардов. Сервис на время переноса останавливается.
+ * Каждый шард старого списка читается страницами по юзернейму; пользователи, чей шард в новом списке -
+ * другая БД, вставляются в нее и после коммита удаляются из исходной. Идентификатор не переносится:
+ * он уникален только в пределах шарда. Пользователь, уже вставленный в целевую БД прерванным запуском,
+ * не вставляется повторно, а только удаляется из исходной, поэтому перенос можно перезапускать.
+ * Таблица пользователей в новых БД создается заранее.
+ * <p>
+ * Запуск из командной строки:
+ * <pre>
+ * java -cp auth.jar -Dloader.main=tgb.cryptoexchange.auth.datasource.Resharder \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     jdbc:mysql://db1/auth,jdbc:mysql://db2/auth jdbc:mysql://db1/auth,jdbc:mysql://db2/auth,jdbc:mysql://db3/auth \
+ *     user password --dry-run
+ * </pre>
+ * С <code>--dry-run</code> только считает, сколько пользователей переедет.
+ */
+public class Resharder {
+
+    private static final String ID_COLUMN = "id";
+
+    private final List<String> from;
+
+    private final List<String> to;
+
+    private final String username;
+
+    private final String password;
+
+    private final int batchSize;
+
+    public Resharder(List<String> from, List<String> to, String username, String password, int batchSize) {
+        if (from.isEmpty() || to.isEmpty()) {
+            throw new IllegalArgumentException("Both shard lists must be non-empty");
+        }
+        this.from = List.copyOf(from);
+        this.to = List.copyOf(to);
+        this.username = username;
+        this.password = password;
+        this.batchSize = batchSize;
+    }
+
+    public Result run(boolean dryRun) throws SQLException {
+        long scanned = 0;
+        long moved = 0;
+        Map<String, Connection> targets = new HashMap<>();
+        try {
+            for (String source : from) {
+                try (Connection connection = DriverManager.getConnection(source, username, password)) {
+                    connection.setAutoCommit(false);
+                    String after = "";
+                    while (true) {
+                        Page page = readPage(connection, after);
+                        if (page.rows().isEmpty()) {
+                            break;
+                        }
+                        scanned += page.rows().size();
+                        after = (String) page.rows().getLast().get(page.usernameIndex());
+                        Map<String, List<List<Object>>> moving = new LinkedHashMap<>();
+                        for (List<Object> row : page.rows()) {
+                            String target = to.get(ShardHash.shardOf((String) row.get(page.usernameIndex()), to.size()));
+                            if (!target.equals(source)) {
+                                moving.computeIfAbsent(target, url -> new ArrayList<>()).add(row);
+                            }
+                        }
+                        for (Map.Entry<String, List<List<Object>>> entry : moving.entrySet()) {
+                            moved += entry.getValue().size();
+                            if (!dryRun) {
+                                Connection target = targets.get(entry.getKey());
+                                if (target == null) {
+                                    target = DriverManager.getConnection(entry.getKey(), username, password);
+                                    target.setAutoCommit(false);
+                                    targets.put(entry.getKey(), target);
+                                }
+                                copy(page, entry.getValue(), target);
+                                delete(page, entry.getValue(), connection);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (Connection target : targets.values()) {
+                target.close();
+            }
+        }
+        return new Result(scanned, moved);
+    }
+
+    private Page readPage(Connection connection, String after) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select * from user where username > ? order by username")) {
+            statement.setMaxRows(batchSize);
+            statement.setString(1, after);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                List<String> columns = new ArrayList<>();
+                List<Integer> indexes = new ArrayList<>();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    if (!metaData.getColumnLabel(i).equalsIgnoreCase(ID_COLUMN)) {
+                        columns.add(metaData.getColumnLabel(i));
+                        indexes.add(i);
+                    }
+                }
+                List<List<Object>> rows = new ArrayList<>();
+                while (resultSet.next()) {
+                    List<Object> row = new ArrayList<>(indexes.size());
+                    for (int index : indexes) {
+                        row.add(resultSet.getObject(index));
+                    }
+                    rows.add(row);
+                }
+                connection.commit();
+                return new Page(columns, usernameIndex(columns), rows);
+            }
+        }
+    }
+
+    private static int usernameIndex(List<String> columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase("username")) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("User table has no username column");
+    }
+
+    private void copy(Page page, List<List<Object>> rows, Connection target) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        String placeholders = String.join(", ", Collections.nCopies(rows.size(), "?"));
+        try (PreparedStatement statement = target.prepareStatement(
+                "select username from user where username in (" + placeholders + ")")) {
+            for (int i = 0; i < rows.size(); i++) {
+                statement.setObject(i + 1, rows.get(i).get(page.usernameIndex()));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    existing.add(resultSet.getString(1));
+                }
+            }
+        }
+        String insert = "insert into user (" + String.join(", ", page.columns()) + ") values ("
+                + String.join(", ", Collections.nCopies(page.columns().size(), "?")) + ")";
+        try (PreparedStatement statement = target.prepareStatement(insert)) {
+            for (List<Object> row : rows) {
+                if (existing.contains((String) row.get(page.usernameIndex()))) {
+                    continue;
+                }
+                for (int i = 0; i < row.size(); i++) {
+                    statement.setObject(i + 1, row.get(i));
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        target.commit();
+    }
+
+    private void delete(Page page, List<List<Object>> rows, Connection source) throws SQLException {
+        try (PreparedStatement statement = source.prepareStatement("delete from user where username = ?")) {
+            for (List<Object> row : rows) {
+                statement.setObject(1, row.get(page.usernameIndex()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        source.commit();
+    }
+
+    private record Page(List<String> columns, int usernameIndex, List<List<Object>> rows) {
+    }
+
+    /**
+     * @param scanned пользователей прочитано со всех шардов старого списка
+     * @param moved   пользователей перенесено (при <code>--dry-run</code> - переехало бы)
+     */
+    public record Result(long scanned, long moved) {
+    }
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 2) {
+            System.err.println("Usage: Resharder <currentShardUrls> <newShardUrls> [username] [password] [--dry-run]");
+            System.exit(1);
+        }
+        List<String> positional = Arrays.stream(args).filter(arg -> !arg.startsWith("--")).toList();
+        boolean dryRun = Arrays.asList(args).contains("--dry-run");
+        Resharder resharder = new Resharder(
+                urls(positional.get(0)), urls(positional.get(1)),
+                positional.size() > 2 ? positional.get(2) : "",
+                positional.size() > 3 ? positional.get(3) : "",
+                1000
+        );
+        Result result = resharder.run(dryRun);
+        System.out.println((dryRun ? "Dry run: " : "Resharded: ") + result.moved() + " of " + result.scanned()
+                + " users moved");
+    }
+
+    private static List<String> urls(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+    }
+}
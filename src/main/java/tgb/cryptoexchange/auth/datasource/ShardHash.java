@@ -0,0 +1,59 @@
+package tgb.cryptoexchange.auth.datasource;
+
+import tgb.cryptoexchange.auth.service.Usernames;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Номер шарда пользователя по юзернейму. Юзернейм в таблице пользователей сравнивается без учета регистра
+ * и диакритики, поэтому шард считается по {@link Usernames#key(String)}: иначе варианты написания одного юзернейма попадали бы
+ * на разные шарды и уникальный индекс не мешал бы зарегистрировать их оба.
+ * <p>
+ * Хеш - FNV-1a над UTF-8 байтами с финальным перемешиванием из
+ * MurmurHash3 (fmix64): он не зависит от JVM и {@link String#hashCode()}, поэтому сервис и
+ * {@link Resharder} всегда получают один и тот же шард.
+ * <p>
+ * Номер шарда считается jump consistent hash (Lamping, Veach): при увеличении числа шардов с N до N + 1
+ * на новый шард переезжает примерно 1/(N + 1) пользователей, остальные остаются на месте.
+ */
+public final class ShardHash {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ShardHash() {
+    }
+
+    public static int shardOf(String username, int shards) {
+        return jump(hash(Usernames.key(username)), shards);
+    }
+
+    public static long hash(String username) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : username.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public static int jump(long key, int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("Buckets count must be positive");
+        }
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+}
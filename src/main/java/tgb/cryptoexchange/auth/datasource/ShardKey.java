@@ -0,0 +1,14 @@
+package tgb.cryptoexchange.auth.datasource;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Юзернейм, по которому метод репозитория пользователей выбирает шард (см. {@link ShardKeyInterceptor}).
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+}
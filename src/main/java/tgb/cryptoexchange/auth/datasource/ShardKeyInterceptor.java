@@ -0,0 +1,79 @@
+package tgb.cryptoexchange.auth.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import tgb.cryptoexchange.auth.entity.User;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Выбирает шард для вызова метода {@link tgb.cryptoexchange.auth.repository.UserRepository} по параметру
+ * с {@link ShardKey} или по юзернейму переданного {@link User}. Стоит перед транзакционным интерсептором
+ * репозитория, поэтому шард выбран до начала транзакции. Методы без юзернейма (списки, подсчеты)
+ * выполняются на шарде, выбранном вызывающим кодом, например {@link UserShards#onEachShard}.
+ */
+public class ShardKeyInterceptor implements MethodInterceptor {
+
+    private static final int NO_KEY = -1;
+
+    private final UserShards userShards;
+
+    private final Map<Method, Integer> keyIndexes = new ConcurrentHashMap<>();
+
+    public ShardKeyInterceptor(UserShards userShards) {
+        this.userShards = userShards;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String username = username(invocation);
+        if (username == null) {
+            return invocation.proceed();
+        }
+        try {
+            return userShards.onShardOf(username, () -> {
+                try {
+                    return invocation.proceed();
+                } catch (Throwable e) {
+                    throw new ProceedException(e);
+                }
+            });
+        } catch (ProceedException e) {
+            throw e.getCause();
+        }
+    }
+
+    private String username(MethodInvocation invocation) {
+        Object[] arguments = invocation.getArguments();
+        int index = keyIndexes.computeIfAbsent(invocation.getMethod(), ShardKeyInterceptor::keyIndex);
+        if (index != NO_KEY) {
+            return (String) arguments[index];
+        }
+        if (arguments.length == 1 && arguments[0] instanceof User user) {
+            return user.getUsername();
+        }
+        return null;
+    }
+
+    private static int keyIndex(Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof ShardKey) {
+                    return i;
+                }
+            }
+        }
+        return NO_KEY;
+    }
+
+    private static class ProceedException extends RuntimeException {
+
+        ProceedException(Throwable cause) {
+            super(null, cause, false, false);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package tgb.cryptoexchange.auth.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Шарды таблицы пользователей (<code>auth.shards.urls</code>, см. {@link tgb.cryptoexchange.auth.config.ShardingConfig}).
+ * Шард, на который уходят запросы текущего потока, хранится в {@link ThreadLocal} и читается
+ * {@link ShardRoutingDataSource} при получении соединения. Без настроенных шардов шард один, и все методы
+ * выполняют действие в вызывающем потоке без переключений.
+ */
+@Component
+public class UserShards {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Порядок юзернеймов по кодовым точкам - порядок БД при сортировке по индексу UTF-8 байтов юзернейма
+     * ({@link tgb.cryptoexchange.auth.entity.User#getUsernameBin()}). Сортировка по сопоставлению
+     * столбца не подходит: оно по умолчанию не учитывает регистр, и слияние с ним в одной странице меняло бы
+     * порядок юзернеймов между страницами, а курсор следующей страницы пропускал бы пользователей.
+     */
+    public static final Comparator<String> BINARY_ORDER = UserShards::compareCodePoints;
+
+    private final int count;
+
+    public UserShards(@Value("${auth.shards.urls:}") List<String> urls) {
+        this.count = Math.max(1, (int) urls.stream().filter(url -> !url.isBlank()).count());
+    }
+
+    static Integer current() {
+        return CURRENT.get();
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int shardOf(String username) {
+        return count == 1 ? 0 : ShardHash.shardOf(username, count);
+    }
+
+    /**
+     * Выполняет действие на шарде. Внутри транзакции шард нужно выбрать до первого запроса: дальше транзакция
+     * продолжает работать с уже полученным соединением.
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        if (count == 1) {
+            return action.get();
+        }
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public <T> T onShardOf(String username, Supplier<T> action) {
+        return onShard(shardOf(username), action);
+    }
+
+    /**
+     * Выполняет действие на всех шардах параллельно, каждый шард в своем виртуальном потоке.
+     *
+     * @return результаты по порядку шардов
+     */
+    public <T> List<T> onEachShard(Supplier<T> action) {
+        if (count == 1) {
+            return List.of(action.get());
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<T>> futures = new ArrayList<>(count);
+            for (int shard = 0; shard < count; shard++) {
+                int target = shard;
+                futures.add(executor.submit(() -> onShard(target, action)));
+            }
+            List<T> results = new ArrayList<>(count);
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        }
+    }
+
+    /**
+     * Группирует элементы по шардам их юзернеймов с сохранением порядка внутри шарда.
+     */
+    public <T> Map<Integer, List<T>> groupByShard(Collection<T> items, Function<T, String> username) {
+        if (count == 1) {
+            return items.isEmpty() ? Map.of() : Map.of(0, new ArrayList<>(items));
+        }
+        Map<Integer, List<T>> groups = new TreeMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardOf(username.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Слияние отсортированных в {@link #BINARY_ORDER} списков юзернеймов с шардов в один отсортированный список.
+     */
+    public static List<String> merge(List<List<String>> sorted, int limit) {
+        if (sorted.size() == 1) {
+            List<String> single = sorted.getFirst();
+            return single.size() > limit ? single.subList(0, limit) : single;
+        }
+        PriorityQueue<Head> heads = new PriorityQueue<>();
+        int total = 0;
+        for (List<String> usernames : sorted) {
+            total += usernames.size();
+            if (!usernames.isEmpty()) {
+                heads.add(new Head(usernames.getFirst(), usernames, 0));
+            }
+        }
+        List<String> merged = new ArrayList<>(Math.min(total, limit));
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Head head = heads.poll();
+            merged.add(head.username());
+            int next = head.index() + 1;
+            if (next < head.usernames().size()) {
+                heads.add(new Head(head.usernames().get(next), head.usernames(), next));
+            }
+        }
+        return merged;
+    }
+
+    private record Head(String username, List<String> usernames, int index) implements Comparable<Head> {
+
+        @Override
+        public int compareTo(Head other) {
+            return BINARY_ORDER.compare(username, other.username);
+        }
+    }
+
+    private static int compareCodePoints(String left, String right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.length() && j < right.length()) {
+            int a = left.codePointAt(i);
+            int b = right.codePointAt(j);
+            if (a != b) {
+                return Integer.compare(a, b);
+            }
+            i += Character.charCount(a);
+            j += Character.charCount(b);
+        }
+        return Integer.compare(left.length() - i, right.length() - j);
+    }
+}
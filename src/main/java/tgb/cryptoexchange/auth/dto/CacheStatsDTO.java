@@ -0,0 +1,33 @@
+package tgb.cryptoexchange.auth.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@Schema(description = "Статистика кэша")
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatsDTO {
+
+    @Schema(description = "Текущее количество записей.")
+    private long size;
+
+    @Schema(description = "Максимальное количество записей.")
+    private long maxSize;
+
+    @Schema(description = "Количество попаданий.")
+    private long hits;
+
+    @Schema(description = "Количество промахов.")
+    private long misses;
+
+    @Schema(description = "Количество вытесненных записей.")
+    private long evictions;
+
+    @Schema(description = "Доля попаданий.")
+    private double hitRate;
+}
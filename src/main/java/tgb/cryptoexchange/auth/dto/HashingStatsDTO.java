@@ -0,0 +1,42 @@
+package tgb.cryptoexchange.auth.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@Schema(description = "Статистика пула хеширования паролей")
+@AllArgsConstructor
+@NoArgsConstructor
+public class HashingStatsDTO {
+
+    @Schema(description = "Количество потоков хеширования.")
+    private int poolSize;
+
+    @Schema(description = "Количество потоков, занятых хешированием в данный момент.")
+    private int activeThreads;
+
+    @Schema(description = "Текущая длина очереди.")
+    private int queueDepth;
+
+    @Schema(description = "Максимальная длина очереди.")
+    private int queueCapacity;
+
+    @Schema(description = "Количество выполненных операций.")
+    private long completed;
+
+    @Schema(description = "Количество операций, отклоненных из-за переполнения очереди.")
+    private long rejected;
+
+    @Schema(description = "Количество операций, не дождавшихся выполнения.")
+    private long timedOut;
+
+    @Schema(description = "Среднее время ожидания в очереди в миллисекундах.")
+    private double averageWaitMillis;
+
+    @Schema(description = "Максимальное время ожидания в очереди в миллисекундах.")
+    private double maxWaitMillis;
+}
@@ -0,0 +1,22 @@
+package tgb.cryptoexchange.auth.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Schema(description = "Строка импорта, которая не была загружена")
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportConflictDTO {
+
+    @Schema(description = "Номер строки, начиная с 1.")
+    private long line;
+
+    @Schema(description = "Юзернейм из строки, если удалось его прочитать.")
+    private String username;
+
+    @Schema(description = "Причина отказа.")
+    private String reason;
+}
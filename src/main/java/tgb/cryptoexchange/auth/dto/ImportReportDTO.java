@@ -0,0 +1,38 @@
+package tgb.cryptoexchange.auth.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@Schema(description = "Итог импорта пользователей")
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportReportDTO {
+
+    @Schema(description = "Количество прочитанных строк.")
+    private long total;
+
+    @Schema(description = "Количество загруженных пользователей.")
+    private long imported;
+
+    @Schema(description = "Количество незагруженных строк.")
+    private long failed;
+
+    @Schema(description = "Незагруженные строки. Ограничено настройкой auth.import.max-reported-conflicts.")
+    private List<ImportConflictDTO> conflicts;
+
+    @Schema(description = "Строки сверх auth.import.max-rows не прочитаны.")
+    private boolean truncated;
+
+    @Schema(description = "Длительность импорта в миллисекундах.")
+    private long durationMillis;
+
+    @Schema(description = "Скорость загрузки, пользователей в секунду.")
+    private double usersPerSecond;
+}
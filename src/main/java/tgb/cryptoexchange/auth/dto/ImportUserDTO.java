@@ -0,0 +1,25 @@
+package tgb.cryptoexchange.auth.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@Schema(description = "Строка файла импорта пользователей")
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportUserDTO {
+
+    @Schema(description = "Юзернейм пользователя.", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String username;
+
+    @ToString.Exclude
+    @Schema(description = "Пароль пользователя. Не указывается, если передан passwordHash.")
+    private String password;
+
+    @ToString.Exclude
+    @Schema(description = "BCrypt-хеш пароля. Не указывается, если передан password.")
+    private String passwordHash;
+}
@@ -0,0 +1,18 @@
+package tgb.cryptoexchange.auth.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Schema(description = "Набор токенов для проверки")
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenBatchDTO {
+
+    @Schema(description = "JWT в порядке, в котором нужно вернуть результаты.", requiredMode = Schema.RequiredMode.REQUIRED)
+    private List<String> tokens;
+}
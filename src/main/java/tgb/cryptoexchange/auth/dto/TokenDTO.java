@@ -0,0 +1,16 @@
+package tgb.cryptoexchange.auth.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Schema(description = "Токен для проверки")
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenDTO {
+
+    @Schema(description = "JWT.", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String token;
+}
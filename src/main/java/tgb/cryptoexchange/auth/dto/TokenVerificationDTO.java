@@ -0,0 +1,36 @@
+package tgb.cryptoexchange.auth.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tgb.cryptoexchange.auth.service.VerifiedToken;
+
+import java.time.Instant;
+
+@Data
+@Schema(description = "Результат проверки токена")
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenVerificationDTO {
+
+    @Schema(description = "Валиден ли токен.")
+    private boolean valid;
+
+    @Schema(description = "Юзернейм владельца токена.")
+    private String subject;
+
+    @Schema(description = "Момент истечения срока действия токена.")
+    private Instant expiration;
+
+    @Schema(description = "Причина, по которой токен не прошел проверку.")
+    private String error;
+
+    public static TokenVerificationDTO valid(VerifiedToken verifiedToken) {
+        return new TokenVerificationDTO(true, verifiedToken.subject(), verifiedToken.expiration(), null);
+    }
+
+    public static TokenVerificationDTO invalid(String error) {
+        return new TokenVerificationDTO(false, null, null, error);
+    }
+}
@@ -4,6 +4,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Data
 @Schema(description = "Модель данных создаваемого/существующего пользователя")
@@ -11,17 +12,22 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class UserCredentialsDTO {
 
+    /**
+     * Длина столбца username: более длинный юзернейм БД не сохранит.
+     */
+    public static final int MAX_USERNAME_LENGTH = 255;
+
     @Schema(description = "Юзернейм пользователя.", requiredMode = Schema.RequiredMode.REQUIRED)
     private String username;
 
+    @ToString.Exclude
     @Schema(description = "Пароль пользователя.", requiredMode = Schema.RequiredMode.REQUIRED)
     private String password;
 
     @Schema(hidden = true)
-    public boolean isValidForRegistration() {
-        return username != null && password != null && !username.isBlank() && !password.isBlank()
-                && password.length() >= 8 && username.length() >= 3
-                && password.matches("^(?=.*\\d)(?=.*[a-z])(?=.*[A-Z])(?=.*[!@#$%^&*]).+$");
+    public boolean hasValidUsername() {
+        return username != null && !username.isBlank() && username.length() >= 3
+                && username.length() <= MAX_USERNAME_LENGTH;
     }
 
     @Schema(hidden = true)
@@ -5,12 +5,17 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.nio.charset.StandardCharsets;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity
+@Table(indexes = @Index(name = "idx_user_username_bin", columnList = "usernameBin"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -19,5 +24,35 @@ public class User {
     @Column(unique = true)
     private String username;
 
+    @ToString.Exclude
     private String password;
+
+    /**
+     * Версия выданных токенов: увеличивается при смене пароля, токены с меньшей версией перестают приниматься
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long tokenVersion;
+
+    /**
+     * UTF-8 байты юзернейма для списков по индексу: сопоставление столбца username не учитывает регистр,
+     * а слияние списков с шардов требует порядка по кодовым точкам. Заполняется при сохранении.
+     */
+    @ToString.Exclude
+    @Column(length = 1020)
+    private byte[] usernameBin;
+
+    public User(Long id, String username, String password, long tokenVersion) {
+        this(id, username, password, tokenVersion, usernameBin(username));
+    }
+
+    public static byte[] usernameBin(String username) {
+        return username == null ? null : username.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void fillUsernameBin() {
+        usernameBin = usernameBin(username);
+    }
 }
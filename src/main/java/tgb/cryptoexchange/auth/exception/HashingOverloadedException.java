@@ -0,0 +1,18 @@
+package tgb.cryptoexchange.auth.exception;
+
+import lombok.Getter;
+
+/**
+ * Исключение, пробрасываемое при переполнении очереди хеширования паролей
+ */
+@Getter
+public class HashingOverloadedException extends AuthException {
+
+    private final long retryAfterSeconds;
+
+    public HashingOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+}
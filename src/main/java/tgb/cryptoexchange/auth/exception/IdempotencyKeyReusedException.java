@@ -0,0 +1,9 @@
+package tgb.cryptoexchange.auth.exception;
+
+public class IdempotencyKeyReusedException extends AuthException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+
+}
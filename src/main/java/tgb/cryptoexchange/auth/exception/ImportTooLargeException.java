@@ -0,0 +1,9 @@
+package tgb.cryptoexchange.auth.exception;
+
+public class ImportTooLargeException extends AuthException {
+
+    public ImportTooLargeException(String message) {
+        super(message);
+    }
+
+}
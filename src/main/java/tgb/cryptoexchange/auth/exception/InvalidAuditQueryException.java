@@ -0,0 +1,9 @@
+package tgb.cryptoexchange.auth.exception;
+
+public class InvalidAuditQueryException extends AuthException {
+
+    public InvalidAuditQueryException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package tgb.cryptoexchange.auth.exception;
+
+public class InvalidTokenException extends AuthException {
+
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,71 @@
+package tgb.cryptoexchange.auth.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
+import tgb.cryptoexchange.auth.service.AdminUsernames;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
+import tgb.cryptoexchange.auth.service.VerifiedToken;
+
+import java.io.IOException;
+
+/**
+ * Аутентифицирует запрос по JWT из заголовка <code>Authorization: Bearer</code>, выпущенному этим сервисом.
+ * Токен проверяется так же, как в <code>/auth/verify</code>, с учетом отзыва и версии токенов пользователя.
+ * Пользователи из списка администраторов получают роль <code>ADMIN</code>.
+ * Запрос без токена или с недействительным токеном проходит дальше анонимным.
+ */
+public class BearerTokenFilter extends OncePerRequestFilter {
+
+    public static final String ADMIN_ROLE = "ADMIN";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenVerificationService tokenVerificationService;
+
+    private final AdminUsernames admins;
+
+    public BearerTokenFilter(TokenVerificationService tokenVerificationService, AdminUsernames admins) {
+        this.tokenVerificationService = tokenVerificationService;
+        this.admins = admins;
+    }
+
+    /**
+     * Потоковые ответы (например, журнал аудита) завершаются асинхронной диспетчеризацией, которая снова проходит
+     * авторизацию, поэтому токен проверяется и в ней. Проверка берется из кэша {@link TokenVerificationService}.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            try {
+                VerifiedToken token = tokenVerificationService.verify(header.substring(BEARER_PREFIX.length()).trim());
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                        token.subject(), null,
+                        admins.contains(token.subject())
+                                ? AuthorityUtils.createAuthorityList("ROLE_" + ADMIN_ROLE)
+                                : AuthorityUtils.NO_AUTHORITIES
+                ));
+                SecurityContextHolder.setContext(context);
+            } catch (InvalidTokenException e) {
+                SecurityContextHolder.clearContext();
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,277 @@
+package tgb.cryptoexchange.auth.filter;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tgb.cryptoexchange.auth.service.AuthMetrics;
+import tgb.cryptoexchange.auth.service.LoginThrottle;
+import tgb.cryptoexchange.web.ApiResponse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверяет {@link LoginThrottle} до того, как запрос на вход дойдет до контроллера, поэтому отклоненная попытка
+ * не стоит ни обращения к БД, ни BCrypt. Юзернейм читается из тела запроса, прочитанные байты
+ * отдаются дальше по цепочке. После успешного входа токены возвращаются в корзины,
+ * чтобы ограничивались только неудачные попытки.
+ * <p>
+ * Чтобы попытку нельзя было списать на чужую корзину, тела длиннее <code>maxBodyPeek</code> отклоняются с 413,
+ * а тела с несколькими полями username - с 400: Jackson взял бы последнее из них, а фильтр - первое.
+ * Адрес клиента - адрес соединения, а если соединение пришло от доверенного прокси - последний адрес
+ * в <code>X-Forwarded-For</code>, не принадлежащий доверенным прокси.
+ */
+public class LoginThrottleFilter extends OncePerRequestFilter {
+
+    private final LoginThrottle loginThrottle;
+
+    private final AuthMetrics authMetrics;
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxBodyPeek;
+
+    private final boolean releaseOnSuccess;
+
+    private final List<IpAddressMatcher> trustedProxies;
+
+    /**
+     * @param trustedProxies адреса или подсети (CIDR) прокси, которым доверяется заголовок X-Forwarded-For
+     */
+    public LoginThrottleFilter(LoginThrottle loginThrottle, AuthMetrics authMetrics, ObjectMapper objectMapper,
+                               int maxBodyPeek, boolean releaseOnSuccess, List<String> trustedProxies) {
+        this.loginThrottle = loginThrottle;
+        this.authMetrics = authMetrics;
+        this.objectMapper = objectMapper;
+        this.maxBodyPeek = maxBodyPeek;
+        this.releaseOnSuccess = releaseOnSuccess;
+        this.trustedProxies = trustedProxies.stream().map(IpAddressMatcher::new).toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        byte[] head = request.getInputStream().readNBytes(maxBodyPeek + 1);
+        if (head.length > maxBodyPeek) {
+            error(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body is too large");
+            return;
+        }
+        String username;
+        try {
+            username = readUsername(head);
+        } catch (DuplicateUsernameException e) {
+            error(response, HttpStatus.BAD_REQUEST, "Duplicate username field");
+            return;
+        }
+        String address = clientAddress(request);
+        long waitNanos = loginThrottle.tryAcquire(username, address);
+        if (waitNanos > 0) {
+            authMetrics.countLogin(AuthMetrics.LoginOutcome.THROTTLED);
+            reject(response, waitNanos);
+            return;
+        }
+        chain.doFilter(new PeekedBodyRequest(request, head), response);
+        if (releaseOnSuccess && HttpStatus.valueOf(response.getStatus()).is2xxSuccessful()) {
+            loginThrottle.release(username, address);
+        }
+    }
+
+    /**
+     * @return значение поля username верхнего уровня или null, если тело не JSON-объект или поля нет;
+     * такой запрос отклонит контроллер
+     * @throws DuplicateUsernameException если поле username встречается больше одного раза
+     */
+    private String readUsername(byte[] body) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String username = null;
+            boolean found = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("username".equals(field)) {
+                    if (found) {
+                        throw new DuplicateUsernameException();
+                    }
+                    found = true;
+                    username = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return username;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String clientAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor == null || !isTrustedProxy(address)) {
+            return address;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            address = hop;
+            if (!isTrustedProxy(hop)) {
+                break;
+            }
+        }
+        return address;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (IpAddressMatcher proxy : trustedProxies) {
+            try {
+                if (proxy.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        error(response, HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts");
+    }
+
+    private void error(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                ApiResponse.error(ApiResponse.Error.builder().message(message).build()));
+    }
+
+    private static final class DuplicateUsernameException extends RuntimeException {
+
+        private DuplicateUsernameException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class PeekedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] head;
+
+        private ServletInputStream inputStream;
+
+        private PeekedBodyRequest(HttpServletRequest request, byte[] head) {
+            super(request);
+            this.head = head;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new PeekedInputStream(head, super.getInputStream());
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? encoding : StandardCharsets.UTF_8.name()));
+        }
+    }
+
+    private static final class PeekedInputStream extends ServletInputStream {
+
+        private final byte[] head;
+
+        private final ServletInputStream rest;
+
+        private int position;
+
+        private PeekedInputStream(byte[] head, ServletInputStream rest) {
+            this.head = head;
+            this.rest = rest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return position < head.length ? head[position++] & 0xFF : rest.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position < head.length) {
+                int count = Math.min(length, head.length - position);
+                System.arraycopy(head, position, buffer, offset, count);
+                position += count;
+                return count;
+            }
+            return rest.read(buffer, offset, length);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return position >= head.length && rest.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return position < head.length || rest.isReady();
+        }
+
+        /**
+         * Контейнер сообщает о данных только исходного потока, поэтому непрочитанное начало тела отдается слушателю
+         * до вызова onAllDataRead.
+         */
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            rest.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    readListener.onDataAvailable();
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    if (position < head.length) {
+                        readListener.onDataAvailable();
+                    }
+                    readListener.onAllDataRead();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    readListener.onError(throwable);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package tgb.cryptoexchange.auth.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Асинхронный аппендер, который при заполнении очереди отбрасывает только события уровня DEBUG и ниже.
+ * Стандартный {@link AsyncAppender} отбрасывает и INFO, а события INFO и выше здесь ждут места в очереди,
+ * чтобы не терять сообщения о регистрации и ошибках.
+ */
+public class DebugDiscardingAsyncAppender extends AsyncAppender {
+
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+        return event.getLevel().toInt() <= Level.DEBUG_INT;
+    }
+}
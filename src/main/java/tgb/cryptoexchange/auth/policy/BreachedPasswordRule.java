@@ -0,0 +1,42 @@
+package tgb.cryptoexchange.auth.policy;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import tgb.cryptoexchange.auth.bloom.MappedBloomFilter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Отклоняет пароли из базы утекших паролей. База хранится в файле фильтра Блума, отображенном в память,
+ * поэтому не занимает heap и открывается мгновенно. Ложноположительные срабатывания фильтра приводят
+ * лишь к отказу в редком надежном пароле, утекший пароль фильтр не пропускает никогда.
+ */
+@Slf4j
+@Component
+@Order(100)
+@ConditionalOnProperty(name = "auth.password-policy.breached-filter")
+public class BreachedPasswordRule implements PasswordRule {
+
+    private final MappedBloomFilter filter;
+
+    public BreachedPasswordRule(@Value("${auth.password-policy.breached-filter}") Path filterPath) throws IOException {
+        this.filter = MappedBloomFilter.open(filterPath);
+        log.info("Фильтр утекших паролей {} открыт: бит {}, хеш-функций {}",
+                filterPath, filter.getNumBits(), filter.getHashCount());
+    }
+
+    @Override
+    public boolean isSatisfiedBy(String password) {
+        return !filter.mightContain(password);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        filter.close();
+    }
+}
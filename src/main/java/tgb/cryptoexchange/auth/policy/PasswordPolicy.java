@@ -0,0 +1,36 @@
+package tgb.cryptoexchange.auth.policy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Парольная политика, общая для регистрации и смены пароля. Сначала проверяются базовые правила
+ * {@link PasswordRules#BASIC}, затем все бины {@link PasswordRule} в порядке их {@code @Order}.
+ */
+@Slf4j
+@Component
+public class PasswordPolicy {
+
+    private final PasswordRule[] rules;
+
+    public PasswordPolicy(ObjectProvider<PasswordRule> additionalRules) {
+        List<PasswordRule> additional = additionalRules.orderedStream().toList();
+        this.rules = additional.toArray(PasswordRule[]::new);
+        log.info("Парольная политика: подключено дополнительных правил {}", rules.length);
+    }
+
+    public boolean isAcceptable(String password) {
+        if (!PasswordRules.BASIC.isSatisfiedBy(password)) {
+            return false;
+        }
+        for (PasswordRule rule : rules) {
+            if (!rule.isSatisfiedBy(password)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,15 @@
+package tgb.cryptoexchange.auth.policy;
+
+/**
+ * Правило парольной политики. Реализации, объявленные бинами, автоматически подключаются к {@link PasswordPolicy}.
+ * Правило должно быть потокобезопасным и не выполнять блокирующих операций: оно вызывается на каждой
+ * регистрации и смене пароля.
+ */
+@FunctionalInterface
+public interface PasswordRule {
+
+    /**
+     * @param password непустой пароль, уже прошедший базовые правила {@link PasswordRules#BASIC}
+     */
+    boolean isSatisfiedBy(String password);
+}
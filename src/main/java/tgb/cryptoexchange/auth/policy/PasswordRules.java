@@ -0,0 +1,34 @@
+package tgb.cryptoexchange.auth.policy;
+
+import java.util.regex.Pattern;
+
+/**
+ * Встроенные правила парольной политики. Регулярные выражения компилируются один раз при загрузке класса.
+ */
+public final class PasswordRules {
+
+    public static final int MIN_LENGTH = 8;
+
+    private static final Pattern COMPOSITION_PATTERN =
+            Pattern.compile("^(?=.*\\d)(?=.*[a-z])(?=.*[A-Z])(?=.*[!@#$%^&*]).+$");
+
+    /**
+     * Пароль не пустой и имеет длину не меньше {@value #MIN_LENGTH} символов.
+     */
+    public static final PasswordRule LENGTH = password -> password != null && !password.isBlank()
+            && password.length() >= MIN_LENGTH;
+
+    /**
+     * Пароль содержит цифру, строчную и заглавную латинские буквы и спецсимвол.
+     */
+    public static final PasswordRule COMPOSITION = password -> COMPOSITION_PATTERN.matcher(password).matches();
+
+    /**
+     * Базовые правила, которые проверяются всегда и до подключаемых правил.
+     */
+    public static final PasswordRule BASIC = password -> LENGTH.isSatisfiedBy(password)
+            && COMPOSITION.isSatisfiedBy(password);
+
+    private PasswordRules() {
+    }
+}
@@ -0,0 +1,63 @@
+package tgb.cryptoexchange.auth.pool;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный пул дорогих в создании объектов без состояния между вызовами ({@link javax.crypto.Mac},
+ * {@link java.security.MessageDigest}, буферы). В отличие от {@link ThreadLocal} не привязан к потоку: при
+ * виртуальных потоках каждый запрос выполняется в новом потоке, и {@link ThreadLocal} создавал бы объект заново
+ * на каждый запрос.
+ * <p>
+ * Объекты лежат в ячейках массива и забираются и возвращаются CAS-операцией без блокировок, поиск начинается
+ * со случайной ячейки. Если свободного объекта нет, создается новый; если при возврате все ячейки заняты,
+ * объект отбрасывается. Объект, выданный {@link #acquire()}, нужно вернуть в состоянии, пригодном для
+ * следующего использования, или не возвращать вовсе.
+ */
+public final class InstancePool<T> {
+
+    private final AtomicReferenceArray<T> slots;
+
+    private final Supplier<T> factory;
+
+    public InstancePool(int size, Supplier<T> factory) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.factory = factory;
+    }
+
+    /**
+     * Размер по умолчанию - удвоенное число ядер: больше объектов одновременно заняты только на время
+     * вытеснения потоков.
+     */
+    public InstancePool(Supplier<T> factory) {
+        this(Runtime.getRuntime().availableProcessors() * 2, factory);
+    }
+
+    public T acquire() {
+        int size = slots.length();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            T instance = slots.get(slot);
+            if (instance != null && slots.compareAndSet(slot, instance, null)) {
+                return instance;
+            }
+        }
+        return factory.get();
+    }
+
+    public void release(T instance) {
+        int size = slots.length();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, instance)) {
+                return;
+            }
+        }
+    }
+}
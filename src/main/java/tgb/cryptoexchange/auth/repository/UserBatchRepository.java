@@ -0,0 +1,108 @@
+package tgb.cryptoexchange.auth.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import tgb.cryptoexchange.auth.datasource.UserShards;
+import tgb.cryptoexchange.auth.entity.User;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Пакетные операции над таблицей пользователей через JDBC в обход Hibernate, который не может
+ * группировать вставки при IDENTITY-генерации идентификатора.
+ * Для MySQL пакеты отправляются одним запросом только при <code>rewriteBatchedStatements=true</code>
+ * в юрле подключения.
+ * <p>
+ * При шардировании проверка и одиночная вставка сами выбирают шард по юзернейму, а пакетная вставка
+ * выполняется на шарде, выбранном вызывающим кодом через {@link UserShards}.
+ */
+@Repository
+public class UserBatchRepository {
+
+    private static final String INSERT_USER =
+            "insert into user (username, password, token_version, username_bin) values (?, ?, 0, ?)";
+
+    private static final String SELECT_MISSING_USERNAME_BIN =
+            "select id, username from user where username_bin is null and username is not null order by id limit ?";
+
+    private static final String UPDATE_USERNAME_BIN = "update user set username_bin = ? where id = ?";
+
+    private static final String SELECT_EXISTING = "select username from user where username in (:usernames)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final UserShards userShards;
+
+    public UserBatchRepository(JdbcTemplate jdbcTemplate, UserShards userShards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.userShards = userShards;
+    }
+
+    public Set<String> findExistingUsernames(Collection<String> usernames) {
+        Set<String> existing = new HashSet<>();
+        userShards.groupByShard(usernames, username -> username).forEach((shard, group) ->
+                existing.addAll(userShards.onShard(shard, () -> namedParameterJdbcTemplate.queryForList(
+                        SELECT_EXISTING, Map.of("usernames", group), String.class
+                )))
+        );
+        return existing;
+    }
+
+    /**
+     * Вставляет пакет на текущий шард: при шардировании все пользователи пакета должны быть с одного шарда.
+     */
+    public void insertAll(List<NewUser> users) {
+        jdbcTemplate.batchUpdate(INSERT_USER, users, users.size(), (statement, user) -> {
+            statement.setString(1, user.username());
+            statement.setString(2, user.password());
+            statement.setBytes(3, User.usernameBin(user.username()));
+        });
+    }
+
+    public void insert(String username, String password) {
+        userShards.onShardOf(username,
+                () -> jdbcTemplate.update(INSERT_USER, username, password, User.usernameBin(username)));
+    }
+
+    /**
+     * Заполняет {@link User#getUsernameBin()} у пользователей, сохраненных до появления столбца, пакетами
+     * по <code>batchSize</code> на каждом шарде. Без него такие пользователи не попадают в списки юзернеймов.
+     *
+     * @return количество обновленных пользователей
+     */
+    public long fillMissingUsernameBin(int batchSize) {
+        long filled = 0;
+        for (int shard = 0; shard < userShards.count(); shard++) {
+            filled += userShards.onShard(shard, () -> {
+                long updated = 0;
+                List<Object[]> rows;
+                do {
+                    rows = jdbcTemplate.query(SELECT_MISSING_USERNAME_BIN, (resultSet, rowNum) -> new Object[]{
+                            User.usernameBin(resultSet.getString(2)), resultSet.getLong(1)
+                    }, batchSize);
+                    if (!rows.isEmpty()) {
+                        jdbcTemplate.batchUpdate(UPDATE_USERNAME_BIN, rows);
+                        updated += rows.size();
+                    }
+                } while (rows.size() == batchSize);
+                return updated;
+            });
+        }
+        return filled;
+    }
+
+    /**
+     * @param username юзернейм
+     * @param password хеш пароля
+     */
+    public record NewUser(String username, String password) {
+    }
+}
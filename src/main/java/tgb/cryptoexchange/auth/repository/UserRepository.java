@@ -1,11 +1,80 @@
 package tgb.cryptoexchange.auth.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import tgb.cryptoexchange.auth.datasource.ShardKey;
 import tgb.cryptoexchange.auth.entity.User;
 
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * Методы с <code>@Transactional(readOnly = true)</code> при настроенных репликах читают с реплики
+ * (см. {@link tgb.cryptoexchange.auth.config.ReadReplicaConfig}), остальные - с основной БД.
+ * <p>
+ * При шардировании ({@link tgb.cryptoexchange.auth.config.ShardingConfig}) методы выполняются на шарде
+ * юзернейма из параметра с {@link ShardKey} или переданного пользователя, списки - на шарде, выбранном
+ * через {@link tgb.cryptoexchange.auth.datasource.UserShards}.
+ */
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    Optional<User> findByUsername(String username);
+    @Transactional(readOnly = true)
+    Optional<User> findByUsername(@ShardKey String username);
+
+    /**
+     * Поиск пользователя в основной БД, минуя реплики, например сразу после изменения пользователя.
+     */
+    @Transactional
+    @Query("select u from User u where u.username = :username")
+    Optional<User> findByUsernameOnPrimary(@ShardKey @Param("username") String username);
+
+    /**
+     * Версия токенов пользователя из основной БД, минуя реплики: версия только что сменившего пароль пользователя
+     * не должна читаться с отстающей реплики.
+     */
+    @Transactional
+    @Query("select u.tokenVersion from User u where u.username = :username")
+    Optional<Long> findTokenVersion(@ShardKey @Param("username") String username);
+
+    boolean existsByUsername(@ShardKey String username);
+
+    /**
+     * Списки сортируются по {@link User#getUsernameBin()}: порядок по индексу совпадает с порядком слияния
+     * страниц с шардов ({@link tgb.cryptoexchange.auth.datasource.UserShards#merge(List, int)}).
+     */
+    @Transactional(readOnly = true)
+    @Query("select u.username from User u order by u.usernameBin")
+    List<String> findAllUsernames();
+
+    /**
+     * @param after UTF-8 байты последнего юзернейма предыдущей страницы
+     */
+    @Transactional(readOnly = true)
+    @Query("select u.username from User u where u.usernameBin > :after order by u.usernameBin")
+    List<String> findUsernamesAfter(@Param("after") byte[] after, Limit limit);
+
+    /**
+     * Заменяет хеш пароля и увеличивает версию токенов одним запросом.
+     *
+     * @return количество обновленных строк: 0, если пользователя нет
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.password = :password, u.tokenVersion = u.tokenVersion + 1 where u.username = :username")
+    int updatePasswordAndTokenVersion(@ShardKey @Param("username") String username, @Param("password") String password);
+
+    /**
+     * Заменяет хеш пароля, только если он не изменился с момента чтения.
+     *
+     * @return количество обновленных строк: 0, если пароль уже сменили
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.password = :newPassword where u.username = :username and u.password = :oldPassword")
+    int updatePasswordIfUnchanged(@ShardKey @Param("username") String username, @Param("oldPassword") String oldPassword,
+                                  @Param("newPassword") String newPassword);
 }
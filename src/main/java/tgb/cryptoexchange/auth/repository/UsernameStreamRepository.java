@@ -0,0 +1,149 @@
+package tgb.cryptoexchange.auth.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+import tgb.cryptoexchange.auth.datasource.UserShards;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Построчное чтение юзернеймов через JDBC-курсор без загрузки сущностей и всего списка в память.
+ * Для MySQL курсор работает только при <code>useCursorFetch=true</code> в юрле подключения.
+ * <p>
+ * Юзернеймы идут в порядке {@link UserShards#BINARY_ORDER}.
+ * При шардировании курсоры открываются на всех шардах сразу и сливаются в один поток:
+ * в памяти держится по одной текущей строке и буферу <code>fetchSize</code> на шард.
+ * <p>
+ * Для догрузки новых пользователей юзернеймы читаются по возрастанию id отдельно на каждом шарде,
+ * id на разных шардах независимы.
+ */
+@Repository
+public class UsernameStreamRepository {
+
+    private static final String SELECT_USERNAMES = "select username from user order by username_bin";
+
+    private static final String SELECT_USERNAMES_AFTER = "select id, username from user where id > ? order by id";
+
+    private static final String SELECT_MAX_ID = "select coalesce(max(id), 0) from user";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final UserShards userShards;
+
+    private final int fetchSize;
+
+    public UsernameStreamRepository(JdbcTemplate jdbcTemplate, UserShards userShards,
+                                    @Value("${auth.users.stream-fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userShards = userShards;
+        this.fetchSize = fetchSize;
+    }
+
+    public void forEachUsername(Consumer<String> consumer) {
+        if (userShards.count() > 1) {
+            forEachShardedUsername(consumer);
+            return;
+        }
+        jdbcTemplate.query(
+                this::prepareSelect,
+                (RowCallbackHandler) resultSet -> consumer.accept(resultSet.getString(1))
+        );
+    }
+
+    /**
+     * @return наибольший id пользователя по шардам, 0 для пустого шарда
+     */
+    public long[] maxIds() {
+        long[] maxIds = new long[userShards.count()];
+        for (int shard = 0; shard < maxIds.length; shard++) {
+            Long maxId = userShards.onShard(shard, () -> jdbcTemplate.queryForObject(SELECT_MAX_ID, Long.class));
+            maxIds[shard] = maxId == null ? 0 : maxId;
+        }
+        return maxIds;
+    }
+
+    /**
+     * Передает в consumer пользователей каждого шарда с id больше <code>afterIds[shard]</code> по возрастанию id.
+     */
+    public void forEachUsernameAfter(long[] afterIds, UsernameRowConsumer consumer) {
+        for (int shard = 0; shard < userShards.count(); shard++) {
+            int target = shard;
+            userShards.onShard(shard, () -> {
+                jdbcTemplate.query(
+                        SELECT_USERNAMES_AFTER,
+                        (RowCallbackHandler) resultSet ->
+                                consumer.accept(target, resultSet.getLong(1), resultSet.getString(2)),
+                        afterIds[target]
+                );
+                return null;
+            });
+        }
+    }
+
+    private void forEachShardedUsername(Consumer<String> consumer) {
+        List<Connection> connections = new ArrayList<>(userShards.count());
+        try {
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>(
+                    Comparator.comparing(Cursor::username, UserShards.BINARY_ORDER)
+            );
+            for (int shard = 0; shard < userShards.count(); shard++) {
+                ResultSet resultSet = userShards.onShard(shard, () -> openCursor(connections));
+                if (resultSet.next()) {
+                    cursors.add(new Cursor(resultSet, resultSet.getString(1)));
+                }
+            }
+            while (!cursors.isEmpty()) {
+                Cursor cursor = cursors.poll();
+                consumer.accept(cursor.username());
+                if (cursor.resultSet().next()) {
+                    cursors.add(new Cursor(cursor.resultSet(), cursor.resultSet().getString(1)));
+                }
+            }
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("Stream usernames", SELECT_USERNAMES, e);
+        } finally {
+            connections.forEach(JdbcUtils::closeConnection);
+        }
+    }
+
+    /**
+     * Соединение с шардом берется при первом запросе, поэтому запрос выполняется здесь, пока шард выбран.
+     */
+    private ResultSet openCursor(List<Connection> connections) {
+        try {
+            Connection connection = jdbcTemplate.getDataSource().getConnection();
+            connections.add(connection);
+            return prepareSelect(connection).executeQuery();
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("Stream usernames", SELECT_USERNAMES, e);
+        }
+    }
+
+    private PreparedStatement prepareSelect(Connection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                SELECT_USERNAMES, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY
+        );
+        statement.setFetchSize(fetchSize);
+        return statement;
+    }
+
+    @FunctionalInterface
+    public interface UsernameRowConsumer {
+
+        void accept(int shard, long id, String username);
+    }
+
+    private record Cursor(ResultSet resultSet, String username) {
+    }
+}
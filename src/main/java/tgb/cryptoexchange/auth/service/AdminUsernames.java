@@ -0,0 +1,25 @@
+package tgb.cryptoexchange.auth.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Юзернеймы администраторов из <code>auth.admins</code>. Роль администратора выдается по юзернейму из токена,
+ * поэтому эти юзернеймы нельзя занять публичной регистрацией: иначе еще не зарегистрированное имя администратора
+ * мог бы зарегистрировать кто угодно. Учетные записи администраторов заводятся напрямую в БД или импортом.
+ * <p>
+ * Юзернеймы сравниваются по {@link Usernames#key(String)}, как в таблице пользователей.
+ */
+public class AdminUsernames {
+
+    private final Set<String> keys = new HashSet<>();
+
+    public AdminUsernames(List<String> admins) {
+        admins.stream().map(String::trim).filter(admin -> !admin.isEmpty()).map(Usernames::key).forEach(keys::add);
+    }
+
+    public boolean contains(String username) {
+        return username != null && keys.contains(Usernames.key(username));
+    }
+}
@@ -0,0 +1,106 @@
+package tgb.cryptoexchange.auth.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики этапов входа и регистрации. Все таймеры и счетчики создаются заранее, поэтому запись метрики
+ * на горячем пути - это только обновление уже зарегистрированного метра без поиска по тегам.
+ * <ul>
+ *     <li><code>auth.login.phase{phase=lookup|password|token}</code> - время этапов входа;</li>
+ *     <li><code>auth.register.phase{phase=hash|save|token}</code> - время этапов регистрации;</li>
+ *     <li><code>auth.login.attempts{outcome=...}</code>, <code>auth.register.attempts{outcome=...}</code> - исходы.</li>
+ * </ul>
+ */
+@Component
+public class AuthMetrics {
+
+    public enum LoginOutcome {
+        SUCCESS, UNKNOWN_USER, BAD_PASSWORD, OVERLOADED, THROTTLED
+    }
+
+    public enum RegistrationOutcome {
+        SUCCESS, USERNAME_TAKEN, OVERLOADED
+    }
+
+    private final Timer loginLookup;
+
+    private final Timer loginPassword;
+
+    private final Timer loginToken;
+
+    private final Timer registerHash;
+
+    private final Timer registerSave;
+
+    private final Timer registerToken;
+
+    private final Counter[] loginOutcomes;
+
+    private final Counter[] registrationOutcomes;
+
+    public AuthMetrics(MeterRegistry registry) {
+        this.loginLookup = phaseTimer(registry, "auth.login.phase", "lookup");
+        this.loginPassword = phaseTimer(registry, "auth.login.phase", "password");
+        this.loginToken = phaseTimer(registry, "auth.login.phase", "token");
+        this.registerHash = phaseTimer(registry, "auth.register.phase", "hash");
+        this.registerSave = phaseTimer(registry, "auth.register.phase", "save");
+        this.registerToken = phaseTimer(registry, "auth.register.phase", "token");
+        this.loginOutcomes = outcomeCounters(registry, "auth.login.attempts", LoginOutcome.values());
+        this.registrationOutcomes = outcomeCounters(registry, "auth.register.attempts", RegistrationOutcome.values());
+    }
+
+    private static Timer phaseTimer(MeterRegistry registry, String name, String phase) {
+        return Timer.builder(name)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Counter[] outcomeCounters(MeterRegistry registry, String name, Enum<?>[] outcomes) {
+        Counter[] counters = new Counter[outcomes.length];
+        for (Enum<?> outcome : outcomes) {
+            counters[outcome.ordinal()] = Counter.builder(name)
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        return counters;
+    }
+
+    public void recordLoginLookup(long nanos) {
+        loginLookup.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLoginPassword(long nanos) {
+        loginPassword.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLoginToken(long nanos) {
+        loginToken.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRegisterHash(long nanos) {
+        registerHash.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRegisterSave(long nanos) {
+        registerSave.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRegisterToken(long nanos) {
+        registerToken.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countLogin(LoginOutcome outcome) {
+        loginOutcomes[outcome.ordinal()].increment();
+    }
+
+    public void countRegistration(RegistrationOutcome outcome) {
+        registrationOutcomes[outcome.ordinal()].increment();
+    }
+}
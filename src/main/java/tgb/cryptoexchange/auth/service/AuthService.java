@@ -1,46 +1,170 @@
 package tgb.cryptoexchange.auth.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import tgb.cryptoexchange.auth.audit.AuditEventType;
+import tgb.cryptoexchange.auth.audit.AuditLog;
 import tgb.cryptoexchange.auth.entity.User;
+import tgb.cryptoexchange.auth.exception.HashingOverloadedException;
 import tgb.cryptoexchange.auth.exception.LoginException;
 import tgb.cryptoexchange.auth.exception.UsernameAlreadyTakenException;
 import tgb.cryptoexchange.auth.repository.UserRepository;
 
+import java.sql.SQLException;
+
 @Slf4j
 @Service
 public class AuthService {
 
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtService jwtService;
+    private final UserCache userCache;
+    private final IdempotencyStore idempotencyStore;
+    private final PasswordUpgradeService passwordUpgradeService;
+    private final AuthMetrics authMetrics;
+    private final UsernameAvailabilityService usernameAvailabilityService;
+    private final AuditLog auditLog;
+    private final TokenVersionCache tokenVersionCache;
+    private final AdminUsernames adminUsernames;
 
-    public AuthService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder, JwtService jwtService) {
+    public AuthService(UserRepository userRepository, PasswordHashingService passwordHashingService,
+                       JwtService jwtService, UserCache userCache, IdempotencyStore idempotencyStore,
+                       PasswordUpgradeService passwordUpgradeService, AuthMetrics authMetrics,
+                       UsernameAvailabilityService usernameAvailabilityService, AuditLog auditLog,
+                       TokenVersionCache tokenVersionCache, AdminUsernames adminUsernames) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.jwtService = jwtService;
+        this.userCache = userCache;
+        this.idempotencyStore = idempotencyStore;
+        this.passwordUpgradeService = passwordUpgradeService;
+        this.authMetrics = authMetrics;
+        this.usernameAvailabilityService = usernameAvailabilityService;
+        this.auditLog = auditLog;
+        this.tokenVersionCache = tokenVersionCache;
+        this.adminUsernames = adminUsernames;
     }
 
+    /**
+     * Юзернеймы администраторов ({@link AdminUsernames}) считаются занятыми: роль выдается по юзернейму.
+     */
     public String register(String username, String rawPassword) {
-        if (userRepository.findByUsername(username).isPresent()) {
+        if (adminUsernames.contains(username)) {
+            authMetrics.countRegistration(AuthMetrics.RegistrationOutcome.USERNAME_TAKEN);
             throw new UsernameAlreadyTakenException("Username is taken by another user");
         }
         User user = new User();
         user.setUsername(username);
-        user.setPassword(passwordEncoder.encode(rawPassword));
-        userRepository.save(user);
+        long startedAt = System.nanoTime();
+        try {
+            user.setPassword(passwordHashingService.encode(rawPassword));
+        } catch (HashingOverloadedException e) {
+            authMetrics.countRegistration(AuthMetrics.RegistrationOutcome.OVERLOADED);
+            throw e;
+        }
+        long hashedAt = System.nanoTime();
+        authMetrics.recordRegisterHash(hashedAt - startedAt);
+        try {
+            userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            if (!isDuplicateKey(e)) {
+                throw e;
+            }
+            authMetrics.countRegistration(AuthMetrics.RegistrationOutcome.USERNAME_TAKEN);
+            throw new UsernameAlreadyTakenException("Username is taken by another user");
+        }
+        long savedAt = System.nanoTime();
+        userCache.invalidate(username);
+        tokenVersionCache.invalidateAfterCommit(username);
+        usernameAvailabilityService.add(username);
+        auditLog.record(AuditEventType.REGISTER, username);
+        authMetrics.recordRegisterSave(savedAt - hashedAt);
         log.info("Зарегистрирован новый пользователь {} под идентификатором {}", username, user.getId());
-        return jwtService.generateToken(username);
+        String token = jwtService.generateToken(username, user.getTokenVersion());
+        authMetrics.recordRegisterToken(System.nanoTime() - savedAt);
+        authMetrics.countRegistration(AuthMetrics.RegistrationOutcome.SUCCESS);
+        return token;
+    }
+
+    /**
+     * Регистрирует пользователя с ключом идемпотентности. Повторный запрос с тем же ключом и юзернеймом
+     * возвращает токен первой регистрации без повторного хеширования пароля, только если совпадает и пароль.
+     *
+     * @throws tgb.cryptoexchange.auth.exception.IdempotencyKeyReusedException если ключ уже использован
+     * для этого юзернейма с другим паролем
+     */
+    public String register(String username, String rawPassword, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return register(username, rawPassword);
+        }
+        return idempotencyStore.computeIfAbsent(
+                username + '\n' + idempotencyKey, rawPassword, () -> register(username, rawPassword)
+        );
     }
 
     public String login(String username, String rawPassword) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new LoginException("Invalid credentials"));
-        if (!passwordEncoder.matches(rawPassword, user.getPassword())) {
+        long startedAt = System.nanoTime();
+        CachedUser user = userCache.findByUsername(username).orElse(null);
+        long foundAt = System.nanoTime();
+        authMetrics.recordLoginLookup(foundAt - startedAt);
+        if (user == null) {
+            authMetrics.countLogin(AuthMetrics.LoginOutcome.UNKNOWN_USER);
+            auditLog.record(AuditEventType.LOGIN_FAILURE, username);
             throw new LoginException("Invalid credentials");
         }
-        log.debug("Была осуществлена аутентификация пользователя {} с идентификатором {}", username, user.getId());
-        return jwtService.generateToken(username);
+        boolean matches;
+        try {
+            matches = passwordHashingService.matches(rawPassword, user.password());
+        } catch (HashingOverloadedException e) {
+            authMetrics.countLogin(AuthMetrics.LoginOutcome.OVERLOADED);
+            throw e;
+        }
+        long matchedAt = System.nanoTime();
+        authMetrics.recordLoginPassword(matchedAt - foundAt);
+        if (!matches) {
+            authMetrics.countLogin(AuthMetrics.LoginOutcome.BAD_PASSWORD);
+            auditLog.record(AuditEventType.LOGIN_FAILURE, username);
+            throw new LoginException("Invalid credentials");
+        }
+        if (passwordHashingService.upgradeEncoding(user.password())) {
+            passwordUpgradeService.upgradeAsync(username, rawPassword, user.password());
+        }
+        log.debug("Была осуществлена аутентификация пользователя {} с идентификатором {}", username, user.id());
+        long tokenVersion = tokenVersionCache.current(username);
+        if (tokenVersion == TokenVersionCache.NO_USER) {
+            // пользователь удален после проверки пароля
+            authMetrics.countLogin(AuthMetrics.LoginOutcome.UNKNOWN_USER);
+            auditLog.record(AuditEventType.LOGIN_FAILURE, username);
+            throw new LoginException("Invalid credentials");
+        }
+        String token = jwtService.generateToken(username, tokenVersion);
+        authMetrics.recordLoginToken(System.nanoTime() - matchedAt);
+        authMetrics.countLogin(AuthMetrics.LoginOutcome.SUCCESS);
+        auditLog.record(AuditEventType.LOGIN_SUCCESS, username);
+        return token;
+    }
+
+    /**
+     * Нарушение уникального индекса: SQLState 23505 по стандарту (H2, PostgreSQL) или код ошибки 1062 в MySQL.
+     * Остальные нарушения целостности, например слишком длинный юзернейм, не означают, что юзернейм занят.
+     */
+    private static boolean isDuplicateKey(DataIntegrityViolationException e) {
+        if (e instanceof DuplicateKeyException) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                return UNIQUE_VIOLATION_SQL_STATE.equals(sqlException.getSQLState())
+                        || sqlException.getErrorCode() == MYSQL_DUPLICATE_ENTRY;
+            }
+        }
+        return false;
     }
 }
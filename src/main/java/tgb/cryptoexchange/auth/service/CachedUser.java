@@ -0,0 +1,10 @@
+package tgb.cryptoexchange.auth.service;
+
+/**
+ * Данные пользователя, необходимые для аутентификации
+ *
+ * @param id       идентификатор пользователя
+ * @param password хеш пароля
+ */
+public record CachedUser(Long id, String password) {
+}
@@ -0,0 +1,212 @@
+package tgb.cryptoexchange.auth.service;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import tgb.cryptoexchange.auth.pool.InstancePool;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Выпуск HMAC-токенов с фиксированным набором claims (sub, iat, exp, jti, ver) без jjwt-билдера и Jackson.
+ * Заголовок кодируется один раз, claims пишутся напрямую в переиспользуемые буферы, которые вместе с
+ * инициализированным {@link Mac} берутся из {@link InstancePool}: привязка к потоку через {@link ThreadLocal}
+ * при виртуальных потоках создавала бы их заново на каждый токен. Результат побайтно совпадает с токеном, который выпускает
+ * jjwt для тех же значений: <code>{"alg":"HS512"}</code> и <code>{"sub":...,"iat":...,"exp":...,"jti":...,"ver":...}</code>
+ * в Base64URL без дополнения.
+ * <p>
+ * Юзернеймы, которые Jackson экранирует (кавычки, обратная косая черта, управляющие символы),
+ * этим способом не выпускаются, см. {@link #canMint(String)}.
+ */
+public class HmacTokenMinter {
+
+    private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SUB = "{\"sub\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] IAT = "\",\"iat\":".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] EXP = ",\"exp\":".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] JTI = ",\"jti\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] VER = "\",\"ver\":".getBytes(StandardCharsets.US_ASCII);
+
+    private final SecretKey key;
+
+    private final String macAlgorithm;
+
+    private final byte[] encodedHeader;
+
+    private final InstancePool<Buffers> buffers;
+
+    public HmacTokenMinter(SecretKey key) {
+        SignatureAlgorithm algorithm = SignatureAlgorithm.forSigningKey(key);
+        this.key = key;
+        this.macAlgorithm = algorithm.getJcaName();
+        this.encodedHeader = (Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ("{\"alg\":\"" + algorithm.getValue() + "\"}").getBytes(StandardCharsets.UTF_8)
+        ) + '.').getBytes(StandardCharsets.US_ASCII);
+        this.buffers = new InstancePool<>(this::newBuffers);
+    }
+
+    /**
+     * @return true, если Jackson записывает юзернейм в JSON без экранирования
+     */
+    public static boolean canMint(String username) {
+        for (int i = 0; i < username.length(); i++) {
+            char c = username.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\' || Character.isSurrogate(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param issuedAtMillis  время выпуска, в токен попадает с точностью до секунды
+     * @param expirationMillis время истечения, в токен попадает с точностью до секунды
+     * @param id               идентификатор токена в формате {@link TokenId}
+     * @param version          версия токенов пользователя, неотрицательная
+     */
+    public String mint(String username, long issuedAtMillis, long expirationMillis, String id, long version) {
+        Buffers buffers = this.buffers.acquire();
+        byte[] claims = buffers.claims(username.length() * 3 + id.length() + 110);
+        int claimsLength = writeClaims(claims, username, issuedAtMillis / 1000, expirationMillis / 1000, id, version);
+        int signatureLength = buffers.mac.getMacLength();
+        byte[] token = buffers.token(encodedHeader.length + base64Length(claimsLength) + 1 + base64Length(signatureLength));
+        System.arraycopy(encodedHeader, 0, token, 0, encodedHeader.length);
+        int position = encodeBase64(claims, claimsLength, token, encodedHeader.length);
+        buffers.mac.update(token, 0, position);
+        try {
+            buffers.mac.doFinal(buffers.signature, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        token[position++] = '.';
+        position = encodeBase64(buffers.signature, signatureLength, token, position);
+        String result = new String(token, 0, position, StandardCharsets.ISO_8859_1);
+        this.buffers.release(buffers);
+        return result;
+    }
+
+    private static int writeClaims(byte[] target, String username, long issuedAt, long expiration, String id,
+                                   long version) {
+        int position = copy(SUB, target, 0);
+        for (int i = 0; i < username.length(); i++) {
+            char c = username.charAt(i);
+            if (c < 0x80) {
+                target[position++] = (byte) c;
+            } else if (c < 0x800) {
+                target[position++] = (byte) (0xC0 | (c >> 6));
+                target[position++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                target[position++] = (byte) (0xE0 | (c >> 12));
+                target[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                target[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        position = copy(IAT, target, position);
+        position = writeLong(issuedAt, target, position);
+        position = copy(EXP, target, position);
+        position = writeLong(expiration, target, position);
+        position = copy(JTI, target, position);
+        for (int i = 0; i < id.length(); i++) {
+            target[position++] = (byte) id.charAt(i);
+        }
+        position = copy(VER, target, position);
+        position = writeLong(version, target, position);
+        target[position++] = '}';
+        return position;
+    }
+
+    private static int copy(byte[] source, byte[] target, int position) {
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+
+    private static int writeLong(long value, byte[] target, int position) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative claim value: " + value);
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            target[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+
+    private static int base64Length(int length) {
+        return (length * 4 + 2) / 3;
+    }
+
+    private static int encodeBase64(byte[] source, int length, byte[] target, int position) {
+        int i = 0;
+        for (; i + 3 <= length; i += 3) {
+            int bits = (source[i] & 0xFF) << 16 | (source[i + 1] & 0xFF) << 8 | (source[i + 2] & 0xFF);
+            target[position++] = BASE64URL[bits >>> 18];
+            target[position++] = BASE64URL[(bits >>> 12) & 0x3F];
+            target[position++] = BASE64URL[(bits >>> 6) & 0x3F];
+            target[position++] = BASE64URL[bits & 0x3F];
+        }
+        if (length - i == 1) {
+            int bits = (source[i] & 0xFF) << 16;
+            target[position++] = BASE64URL[bits >>> 18];
+            target[position++] = BASE64URL[(bits >>> 12) & 0x3F];
+        } else if (length - i == 2) {
+            int bits = (source[i] & 0xFF) << 16 | (source[i + 1] & 0xFF) << 8;
+            target[position++] = BASE64URL[bits >>> 18];
+            target[position++] = BASE64URL[(bits >>> 12) & 0x3F];
+            target[position++] = BASE64URL[(bits >>> 6) & 0x3F];
+        }
+        return position;
+    }
+
+    private Buffers newBuffers() {
+        try {
+            Mac mac = Mac.getInstance(macAlgorithm);
+            mac.init(key);
+            return new Buffers(mac);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize " + macAlgorithm, e);
+        }
+    }
+
+    private static final class Buffers {
+
+        private final Mac mac;
+
+        private final byte[] signature;
+
+        private byte[] claims = new byte[256];
+
+        private byte[] token = new byte[512];
+
+        private Buffers(Mac mac) {
+            this.mac = mac;
+            this.signature = new byte[mac.getMacLength()];
+        }
+
+        private byte[] claims(int capacity) {
+            if (claims.length < capacity) {
+                claims = Arrays.copyOf(claims, capacity);
+            }
+            return claims;
+        }
+
+        private byte[] token(int capacity) {
+            if (token.length < capacity) {
+                token = Arrays.copyOf(token, capacity);
+            }
+            return token;
+        }
+    }
+}
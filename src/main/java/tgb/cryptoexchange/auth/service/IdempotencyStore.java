@@ -0,0 +1,107 @@
+package tgb.cryptoexchange.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tgb.cryptoexchange.auth.exception.IdempotencyKeyReusedException;
+import tgb.cryptoexchange.auth.pool.InstancePool;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Кратковременное хранилище результатов операций по ключу идемпотентности. Повторный вызов с тем же ключом
+ * возвращает сохраненный результат, а одновременные вызовы ждут завершения первого. Неуспешные операции
+ * не сохраняются, поэтому их можно повторить с тем же ключом.
+ * <p>
+ * Вместе с результатом хранится отпечаток запроса - HMAC-SHA256 от его данных на ключе, который случайно
+ * создается при запуске и хранится только в памяти: без ключа отпечаток не позволяет подбирать пароль.
+ * Отпечатки сравниваются за постоянное время и удаляются вместе с результатом по истечении срока хранения.
+ * Повтор ключа с другими данными, например с другим паролем, отклоняется {@link IdempotencyKeyReusedException}:
+ * иначе знающий ключ получил бы чужой результат. Проверка повтора не требует BCrypt и не занимает пул хеширования.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final int SECRET_LENGTH = 32;
+
+    private final Cache<String, Entry> results;
+
+    private final InstancePool<Mac> macs;
+
+    public IdempotencyStore(@Value("${auth.idempotency.max-size:100000}") long maxSize,
+                            @Value("${auth.idempotency.ttl:600000}") long ttl) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .build();
+        byte[] secret = new byte[SECRET_LENGTH];
+        new SecureRandom().nextBytes(secret);
+        SecretKeySpec key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+        this.macs = new InstancePool<>(() -> newMac(key));
+    }
+
+    /**
+     * Выполняет операцию в вызывающем потоке, если по ключу еще нет результата.
+     *
+     * @param request данные запроса, которые должны совпадать при повторе ключа; в памяти хранится только отпечаток
+     * @throws IdempotencyKeyReusedException если ключ уже использован с другими данными запроса
+     */
+    public String computeIfAbsent(String key, String request, Supplier<String> operation) {
+        Entry created = new Entry(fingerprint(request), new CompletableFuture<>());
+        Entry existing = results.asMap().putIfAbsent(key, created);
+        if (existing != null) {
+            if (!MessageDigest.isEqual(existing.fingerprint(), created.fingerprint())) {
+                throw new IdempotencyKeyReusedException("Idempotency key was used with a different request");
+            }
+            try {
+                return existing.result().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+        try {
+            String result = operation.get();
+            created.result().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            results.asMap().remove(key, created);
+            created.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private byte[] fingerprint(String request) {
+        Mac mac = macs.acquire();
+        byte[] fingerprint = mac.doFinal((request == null ? "" : request).getBytes(StandardCharsets.UTF_8));
+        macs.release(mac);
+        return fingerprint;
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(byte[] fingerprint, CompletableFuture<String> result) {
+    }
+}
@@ -1,33 +1,116 @@
 package tgb.cryptoexchange.auth.service;
 
-import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
 
+import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
 
+/**
+ * Выпуск и проверка JWT. По умолчанию токены подписываются HMAC-ключом из <code>jwt.secret</code>.
+ * При <code>jwt.algorithm: ES256</code> токены подписываются текущим ключом {@link SigningKeyRing} с заголовком kid,
+ * а проверяются публичным ключом, найденным по kid.
+ * <p>
+ * В claim <code>ver</code> записывается версия токенов пользователя: при смене пароля она увеличивается,
+ * и {@link TokenVerificationService} отклоняет токены с устаревшей версией.
+ */
 @Service
 public class JwtService {
 
-    private final Key key;
+    static final String VERSION_CLAIM = "ver";
+
+    private final SecretKey key;
+
+    private final HmacTokenMinter minter;
+
+    private final SigningKeyRing keyRing;
 
     private final long expiration;
 
-    public JwtService(@Value("${jwt.secret}") String secret,
-                      @Value("${jwt.expiration}") long expiration) {
-        this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    private final JwtParser parser;
+
+    public JwtService(String secret, long expiration) {
+        this(secret, expiration, (SigningKeyRing) null);
+    }
+
+    @Autowired
+    public JwtService(@Value("${jwt.secret:}") String secret,
+                      @Value("${jwt.expiration}") long expiration,
+                      ObjectProvider<SigningKeyRing> keyRing) {
+        this(secret, expiration, keyRing.getIfAvailable());
+    }
+
+    JwtService(String secret, long expiration, SigningKeyRing keyRing) {
+        this.keyRing = keyRing;
         this.expiration = expiration;
+        if (keyRing == null) {
+            this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+            this.minter = new HmacTokenMinter(key);
+            this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        } else {
+            this.key = null;
+            this.minter = null;
+            this.parser = Jwts.parserBuilder().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                @Override
+                public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                    return keyRing.getPublicKey(header.getKeyId());
+                }
+            }).build();
+        }
     }
 
-    public String generateToken(String username) {
-        return Jwts.builder()
+    /**
+     * @param tokenVersion текущая версия токенов пользователя, см. {@link TokenVersionCache}
+     */
+    public String generateToken(String username, long tokenVersion) {
+        if (tokenVersion < 0) {
+            throw new IllegalArgumentException("Negative token version: " + tokenVersion);
+        }
+        long now = System.currentTimeMillis();
+        String id = TokenId.random().toString();
+        if (minter != null && HmacTokenMinter.canMint(username)) {
+            return minter.mint(username, now, now + expiration, id, tokenVersion);
+        }
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(key)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
+                .setId(id)
+                .claim(VERSION_CLAIM, tokenVersion);
+        if (keyRing == null) {
+            return builder.signWith(key).compact();
+        }
+        SigningKeyRing.SigningKey signingKey = keyRing.getSigningKey();
+        return builder.setHeaderParam(JwsHeader.KEY_ID, signingKey.kid())
+                .signWith(signingKey.privateKey(), SignatureAlgorithm.ES256)
                 .compact();
     }
+
+    /**
+     * Проверяет подпись и срок действия токена без использования кэша.
+     *
+     * @throws InvalidTokenException если токен поврежден, подписан другим ключом или истек
+     */
+    public VerifiedToken verify(String token) {
+        Claims claims;
+        Long version;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+            version = claims.get(VERSION_CLAIM, Long.class);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Invalid token");
+        }
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            throw new InvalidTokenException("Invalid token");
+        }
+        return new VerifiedToken(claims.getSubject(), TokenId.parse(claims.getId()), claims.getExpiration().toInstant(),
+                version == null ? 0 : version);
+    }
 }
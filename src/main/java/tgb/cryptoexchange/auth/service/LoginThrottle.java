@@ -0,0 +1,125 @@
+package tgb.cryptoexchange.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничение частоты попыток входа по юзернейму и по адресу клиента. Для каждого ключа хранится
+ * корзина токенов вместимостью <code>capacity</code>, один токен восстанавливается за <code>refill-interval</code>.
+ * <p>
+ * Корзина хранит одно число - момент, когда она снова будет полной (алгоритм GCRA), и обновляется одной
+ * CAS-операцией без блокировок. Корзины лежат в Caffeine, ограниченном по количеству ключей; корзина, к которой
+ * не обращались дольше времени полного восстановления, вытесняется - новая корзина для ключа будет в том же
+ * состоянии. Если ключей больше, чем помещается, вытесненные корзины сбрасываются, и от перебора множества
+ * юзернеймов защищает ограничение по адресу.
+ * <p>
+ * Ключ корзины юзернейма строится {@link Usernames#key(String)}: иначе варианты написания одного юзернейма
+ * получали бы отдельные корзины.
+ */
+public class LoginThrottle {
+
+    private final Buckets username;
+
+    private final Buckets address;
+
+    private final Ticker ticker;
+
+    public LoginThrottle(Limit username, Limit address, long maxKeys) {
+        this(username, address, maxKeys, Ticker.systemTicker());
+    }
+
+    LoginThrottle(Limit username, Limit address, long maxKeys, Ticker ticker) {
+        this.username = new Buckets(username, maxKeys, ticker);
+        this.address = new Buckets(address, maxKeys, ticker);
+        this.ticker = ticker;
+    }
+
+    /**
+     * Забирает по токену из корзин адреса и юзернейма. Если хотя бы в одной корзине токенов нет,
+     * ничего не забирается.
+     *
+     * @param username юзернейм из запроса или null, если его не удалось определить
+     * @return 0, если попытка разрешена, иначе время в наносекундах до появления токена
+     */
+    public long tryAcquire(String username, String address) {
+        long now = ticker.read();
+        long wait = this.address.tryAcquire(address, now);
+        if (wait > 0 || username == null) {
+            return wait;
+        }
+        wait = this.username.tryAcquire(Usernames.key(username), now);
+        if (wait > 0) {
+            this.address.release(address);
+        }
+        return wait;
+    }
+
+    /**
+     * Возвращает токены, забранные {@link #tryAcquire(String, String)}, например после успешного входа.
+     */
+    public void release(String username, String address) {
+        this.address.release(address);
+        if (username != null) {
+            this.username.release(Usernames.key(username));
+        }
+    }
+
+    /**
+     * @param capacity       максимальное количество попыток подряд
+     * @param refillInterval время восстановления одной попытки
+     */
+    public record Limit(int capacity, Duration refillInterval) {
+
+        public Limit {
+            if (capacity < 1 || refillInterval.isNegative() || refillInterval.isZero()) {
+                throw new IllegalArgumentException("Capacity and refill interval must be positive");
+            }
+        }
+    }
+
+    private static final class Buckets {
+
+        private final long intervalNanos;
+
+        private final long burstNanos;
+
+        private final Cache<String, AtomicLong> fullAt;
+
+        private Buckets(Limit limit, long maxKeys, Ticker ticker) {
+            this.intervalNanos = limit.refillInterval().toNanos();
+            this.burstNanos = intervalNanos * limit.capacity();
+            this.fullAt = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(burstNanos, TimeUnit.NANOSECONDS)
+                    .ticker(ticker)
+                    .build();
+        }
+
+        private long tryAcquire(String key, long now) {
+            AtomicLong bucket = fullAt.get(key, ignored -> new AtomicLong(now));
+            while (true) {
+                long current = bucket.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long wait = next - now - burstNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (bucket.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        private void release(String key) {
+            AtomicLong bucket = fullAt.getIfPresent(key);
+            if (bucket != null) {
+                bucket.addAndGet(-intervalNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package tgb.cryptoexchange.auth.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import tgb.cryptoexchange.auth.dto.HashingStatsDTO;
+import tgb.cryptoexchange.auth.exception.HashingOverloadedException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Выполняет хеширование и сверку паролей в отдельном ограниченном пуле потоков, чтобы BCrypt
+ * не занимал потоки обработки запросов. При переполнении очереди операция сразу отклоняется.
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int queueCapacity;
+
+    private final long maxWaitMillis;
+
+    private final long retryAfterSeconds;
+
+    private final Clock clock;
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder timedOut = new LongAdder();
+
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0L);
+
+    @Autowired
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Value("${auth.hashing.threads:0}") int threads,
+                                  @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${auth.hashing.max-wait:2000}") long maxWaitMillis,
+                                  @Value("${auth.hashing.retry-after:1}") long retryAfterSeconds) {
+        this(passwordEncoder, threads, queueCapacity, maxWaitMillis, retryAfterSeconds, Clock.systemUTC());
+    }
+
+    PasswordHashingService(PasswordEncoder passwordEncoder, int threads, int queueCapacity, long maxWaitMillis,
+                           long retryAfterSeconds, Clock clock) {
+        this.passwordEncoder = passwordEncoder;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hashing-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.queueCapacity = queueCapacity;
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.clock = clock;
+        log.info("Пул хеширования паролей: потоков {}, размер очереди {}, максимальное ожидание {} мс",
+                poolSize, queueCapacity, maxWaitMillis);
+    }
+
+    public String encode(String rawPassword) {
+        return execute(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return execute(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Проверяет, нужно ли перехешировать пароль: хеш без префикса версии или со стоимостью ниже текущей.
+     * Не требует вычисления хеша и выполняется в вызывающем потоке.
+     */
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    public HashingStatsDTO getStats() {
+        long completedCount = completed.sum();
+        return HashingStatsDTO.builder()
+                .poolSize(executor.getPoolSize())
+                .activeThreads(executor.getActiveCount())
+                .queueDepth(executor.getQueue().size())
+                .queueCapacity(queueCapacity)
+                .completed(completedCount)
+                .rejected(rejected.sum())
+                .timedOut(timedOut.sum())
+                .averageWaitMillis(completedCount == 0 ? 0 : totalWaitNanos.sum() / 1_000_000d / completedCount)
+                .maxWaitMillis(maxWaitNanos.get() / 1_000_000d)
+                .build();
+    }
+
+    /**
+     * Ждет результат не дольше <code>auth.hashing.max-wait</code>. Операция, дождавшаяся потока пула уже после
+     * этого срока, не выполняется: ее результат никто не ждет. Начатое хеширование не прерывается - BCrypt
+     * не реагирует на прерывание потока и досчитывается, хотя ответ уже отклонен. Операция, которую
+     * не дождались, сразу удаляется из очереди, чтобы не занимать место новых запросов.
+     */
+    private <T> T execute(Callable<T> task) {
+        Instant submittedAt = clock.instant();
+        FutureTask<T> future = new FutureTask<>(() -> {
+            long waitNanos = Duration.between(submittedAt, clock.instant()).toNanos();
+            if (waitNanos >= TimeUnit.MILLISECONDS.toNanos(maxWaitMillis)) {
+                timedOut.increment();
+                throw new HashingOverloadedException("Password hashing timed out", retryAfterSeconds);
+            }
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulate(waitNanos);
+            try {
+                return task.call();
+            } finally {
+                completed.increment();
+            }
+        });
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HashingOverloadedException("Password hashing queue is full", retryAfterSeconds);
+        }
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(future);
+            timedOut.increment();
+            throw new HashingOverloadedException("Password hashing timed out", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            abandon(future);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private void abandon(FutureTask<?> future) {
+        future.cancel(true);
+        executor.remove(future);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
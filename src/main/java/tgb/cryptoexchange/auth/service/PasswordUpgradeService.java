@@ -0,0 +1,93 @@
+package tgb.cryptoexchange.auth.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Перехеширование паролей с устаревшей стоимостью или без префикса версии после успешного входа.
+ * Выполняется в отдельном небольшом пуле вне обработки запроса. При переполнении очереди обновление
+ * пропускается и будет выполнено при одном из следующих входов.
+ * <p>
+ * В очереди пароль хранится копией в <code>char[]</code>, которая затирается сразу после хеширования
+ * или отказа в постановке в очередь, а не строкой, живущей до сборки мусора. Кодировщик BCrypt на время
+ * вычисления хеша все равно создает свою строку из пароля.
+ */
+@Slf4j
+@Service
+public class PasswordUpgradeService {
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final UserRepository userRepository;
+
+    private final UserCache userCache;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    public PasswordUpgradeService(PasswordEncoder passwordEncoder, UserRepository userRepository, UserCache userCache,
+                                  @Value("${auth.password.upgrade.threads:1}") int threads,
+                                  @Value("${auth.password.upgrade.queue-capacity:1000}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-upgrade-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Ставит перехеширование в очередь и сразу возвращает управление. Повторные вызовы для пользователя,
+     * обновление которого еще не завершено, игнорируются.
+     *
+     * @param currentHash хеш, с которым был выполнен вход; если к моменту записи он изменился, обновление не выполняется
+     */
+    public void upgradeAsync(String username, String rawPassword, String currentHash) {
+        if (!inProgress.add(username)) {
+            return;
+        }
+        char[] password = rawPassword.toCharArray();
+        try {
+            executor.execute(() -> {
+                try {
+                    upgrade(username, password, currentHash);
+                } catch (RuntimeException e) {
+                    log.warn("Не удалось обновить хеш пароля пользователя {}", username, e);
+                } finally {
+                    Arrays.fill(password, '\0');
+                    inProgress.remove(username);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Arrays.fill(password, '\0');
+            inProgress.remove(username);
+            log.debug("Очередь обновления хешей переполнена, обновление хеша пользователя {} пропущено", username);
+        }
+    }
+
+    private void upgrade(String username, char[] password, String currentHash) {
+        String newHash = passwordEncoder.encode(CharBuffer.wrap(password));
+        if (userRepository.updatePasswordIfUnchanged(username, currentHash, newHash) > 0) {
+            userCache.invalidate(username);
+            log.debug("Хеш пароля пользователя {} обновлен", username);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
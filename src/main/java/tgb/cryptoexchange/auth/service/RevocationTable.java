@@ -0,0 +1,181 @@
+package tgb.cryptoexchange.auth.service;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Множество идентификаторов отозванных токенов в виде хеш-таблицы с открытой адресацией и линейным пробированием
+ * по трем массивам long: старшая и младшая половины jti и момент истечения токена в секундах (0 - пустая ячейка).
+ * <p>
+ * Проверка выполняется оптимистичным чтением {@link StampedLock} без блокировки и без выделения памяти,
+ * добавление и очистка - под блокировкой записи. Очистка удаляет записи истекших токенов и сдвигает следующие
+ * за ними записи цепочки назад, поэтому таблица не засоряется удаленными ячейками.
+ */
+public class RevocationTable {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+
+    private Slots slots = new Slots(MIN_CAPACITY);
+
+    private int size;
+
+    public boolean contains(long high, long low) {
+        long stamp = lock.tryOptimisticRead();
+        boolean found = slots.find(high, low);
+        if (lock.validate(stamp)) {
+            return found;
+        }
+        stamp = lock.readLock();
+        try {
+            return slots.find(high, low);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @param expiresAt момент истечения токена в секундах эпохи, после которого запись можно удалить
+     */
+    public void add(long high, long low, long expiresAt) {
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > slots.capacity()) {
+                slots = slots.copy(slots.capacity() * 2);
+            }
+            if (slots.insert(high, low, Math.max(expiresAt, 1))) {
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаляет записи токенов, истекших к моменту <code>now</code>.
+     *
+     * @return количество удаленных записей
+     */
+    public int purge(long now) {
+        long stamp = lock.writeLock();
+        try {
+            int removed = slots.purge(now);
+            size -= removed;
+            if (size * 8 < slots.capacity() && slots.capacity() > MIN_CAPACITY) {
+                slots = slots.copy(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, size) * 4)));
+            }
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Массивы одной таблицы. При изменении емкости заменяются целиком, поэтому оптимистичное чтение
+     * всегда видит массивы одинаковой длины.
+     */
+    private static final class Slots {
+
+        private final long[] highs;
+
+        private final long[] lows;
+
+        private final long[] expirations;
+
+        private final int mask;
+
+        private Slots(int capacity) {
+            this.highs = new long[capacity];
+            this.lows = new long[capacity];
+            this.expirations = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        private int capacity() {
+            return highs.length;
+        }
+
+        private boolean find(long high, long low) {
+            int i = index(high, low);
+            for (int probes = 0; probes <= mask && expirations[i] != 0; probes++) {
+                if (highs[i] == high && lows[i] == low) {
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+
+        /**
+         * @return true, если добавлена новая запись, false - если продлена существующая
+         */
+        private boolean insert(long high, long low, long expiresAt) {
+            for (int i = index(high, low); ; i = (i + 1) & mask) {
+                if (expirations[i] == 0) {
+                    highs[i] = high;
+                    lows[i] = low;
+                    expirations[i] = expiresAt;
+                    return true;
+                }
+                if (highs[i] == high && lows[i] == low) {
+                    expirations[i] = Math.max(expirations[i], expiresAt);
+                    return false;
+                }
+            }
+        }
+
+        private int purge(long now) {
+            int removed = 0;
+            for (int i = 0; i <= mask; i++) {
+                while (expirations[i] != 0 && expirations[i] <= now) {
+                    delete(i);
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        /**
+         * Удаление с обратным сдвигом: записи, которые стоят в цепочке после удаленной и могут занять ее место,
+         * переносятся назад, чтобы поиск не прерывался на пустой ячейке. После вызова в ячейке <code>slot</code>
+         * может оказаться перенесенная запись, поэтому ее проверяют повторно.
+         */
+        private void delete(int slot) {
+            int empty = slot;
+            for (int i = (slot + 1) & mask; expirations[i] != 0; i = (i + 1) & mask) {
+                int home = index(highs[i], lows[i]);
+                if (((i - home) & mask) >= ((i - empty) & mask)) {
+                    highs[empty] = highs[i];
+                    lows[empty] = lows[i];
+                    expirations[empty] = expirations[i];
+                    empty = i;
+                }
+            }
+            expirations[empty] = 0;
+        }
+
+        private Slots copy(int capacity) {
+            Slots copy = new Slots(capacity);
+            for (int i = 0; i <= mask; i++) {
+                if (expirations[i] != 0) {
+                    copy.insert(highs[i], lows[i], expirations[i]);
+                }
+            }
+            return copy;
+        }
+
+        private int index(long high, long low) {
+            long hash = (high ^ low) * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package tgb.cryptoexchange.auth.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.*;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Набор ключей ES256 для подписи JWT, хранящийся в каталоге <code>jwt.key-ring.directory</code>.
+ * Каждый ключ - пара файлов <code>{kid}.key</code> (PKCS#8) и <code>{kid}.pub</code> (X.509), время создания
+ * закодировано в kid. Каталог может быть общим для нескольких экземпляров сервиса.
+ * <p>
+ * Каталог периодически перечитывается: при устаревании текущего ключа создается новый, который начинает
+ * использоваться для подписи только через <code>publish-delay</code> после создания, чтобы потребители успели
+ * получить его из JWKS. Выведенные из оборота ключи удаляются, когда истекли все подписанные ими токены.
+ * Снимок с публичными ключами и готовым JWKS пересобирается только при изменении набора ключей.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jwt.algorithm", havingValue = "ES256")
+public class SigningKeyRing {
+
+    private static final Pattern KEY_FILE = Pattern.compile("((\\d+)-[0-9a-f]{8})\\.key");
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Path directory;
+
+    private final Duration rotationPeriod;
+
+    private final Duration publishDelay;
+
+    private final Duration tokenExpiration;
+
+    private final Clock clock;
+
+    /**
+     * Обновление читает и пишет файлы ключей, поэтому блокировка, а не <code>synchronized</code>:
+     * виртуальный поток на файловом вводе-выводе не закрепляется за потоком-носителем.
+     */
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public SigningKeyRing(@Value("${jwt.key-ring.directory}") Path directory,
+                          @Value("${jwt.key-ring.rotation-period:604800000}") long rotationPeriodMillis,
+                          @Value("${jwt.key-ring.publish-delay:600000}") long publishDelayMillis,
+                          @Value("${jwt.expiration}") long tokenExpirationMillis) {
+        this(directory, Duration.ofMillis(rotationPeriodMillis), Duration.ofMillis(publishDelayMillis),
+                Duration.ofMillis(tokenExpirationMillis), Clock.systemUTC());
+    }
+
+    SigningKeyRing(Path directory, Duration rotationPeriod, Duration publishDelay, Duration tokenExpiration,
+                   Clock clock) {
+        this.directory = directory;
+        this.rotationPeriod = rotationPeriod;
+        this.publishDelay = publishDelay;
+        this.tokenExpiration = tokenExpiration;
+        this.clock = clock;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        refresh();
+    }
+
+    /**
+     * Ключ, которым подписываются новые токены.
+     */
+    public SigningKey getSigningKey() {
+        return snapshot.signingKey();
+    }
+
+    /**
+     * @return публичный ключ по kid или null, если такого ключа нет
+     */
+    public PublicKey getPublicKey(String kid) {
+        return kid == null ? null : snapshot.publicKeys().get(kid);
+    }
+
+    /**
+     * Готовый JSON набора публичных ключей в формате JWKS и его ETag.
+     */
+    public Jwks getJwks() {
+        return snapshot.jwks();
+    }
+
+    /**
+     * Перечитывает каталог, при необходимости создает новый ключ и удаляет ключи, токены которых уже истекли.
+     */
+    @Scheduled(fixedDelayString = "${jwt.key-ring.rescan-interval:60000}",
+            initialDelayString = "${jwt.key-ring.rescan-interval:60000}")
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            Instant now = clock.instant();
+            List<SigningKey> keys = load();
+            if (keys.isEmpty() || !keys.getLast().createdAt().plus(rotationPeriod).isAfter(now)) {
+                keys.add(generate(now));
+            }
+            SigningKey signingKey = selectSigningKey(keys, now);
+            prune(keys, now);
+            Snapshot current = snapshot;
+            if (current == null || !current.signingKey().kid().equals(signingKey.kid())
+                    || !current.publicKeys().keySet().equals(kids(keys))) {
+                snapshot = Snapshot.of(signingKey, keys);
+                log.info("Набор ключей подписи обновлен: ключ подписи {}, ключей для проверки {}",
+                        signingKey.kid(), keys.size());
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            if (snapshot == null) {
+                throw new IllegalStateException("Unable to load signing keys from " + directory, e);
+            }
+            log.error("Не удалось обновить набор ключей подписи из {}, используется предыдущий набор", directory, e);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private SigningKey selectSigningKey(List<SigningKey> keys, Instant now) {
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            if (!keys.get(i).createdAt().plus(publishDelay).isAfter(now)) {
+                return keys.get(i);
+            }
+        }
+        return keys.getFirst();
+    }
+
+    /**
+     * Ключ выводится из оборота, когда начинает использоваться следующий за ним ключ, и удаляется,
+     * когда истекают все подписанные им токены.
+     */
+    private void prune(List<SigningKey> keys, Instant now) throws IOException {
+        while (keys.size() > 1) {
+            SigningKey oldest = keys.getFirst();
+            Instant retiredAt = keys.get(1).createdAt().plus(publishDelay);
+            if (retiredAt.plus(tokenExpiration).isAfter(now)) {
+                return;
+            }
+            Files.deleteIfExists(directory.resolve(oldest.kid() + ".key"));
+            Files.deleteIfExists(directory.resolve(oldest.kid() + ".pub"));
+            keys.removeFirst();
+            log.info("Удален выведенный из оборота ключ подписи {}", oldest.kid());
+        }
+    }
+
+    private List<SigningKey> load() throws IOException, GeneralSecurityException {
+        KeyFactory keyFactory = KeyFactory.getInstance("EC");
+        List<SigningKey> keys = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = KEY_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                Path publicKeyFile = directory.resolve(matcher.group(1) + ".pub");
+                try {
+                    keys.add(new SigningKey(
+                            matcher.group(1),
+                            Instant.ofEpochSecond(Long.parseLong(matcher.group(2))),
+                            keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Files.readAllBytes(file))),
+                            keyFactory.generatePublic(new X509EncodedKeySpec(Files.readAllBytes(publicKeyFile)))
+                    ));
+                } catch (NoSuchFileException e) {
+                    // ключ еще записывается или уже удален другим экземпляром
+                }
+            }
+        }
+        keys.sort(Comparator.comparing(SigningKey::createdAt).thenComparing(SigningKey::kid));
+        return keys;
+    }
+
+    private SigningKey generate(Instant now) throws IOException, GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+        String kid = now.getEpochSecond() + "-" + HexFormat.of().toHexDigits(RANDOM.nextInt());
+        write(directory.resolve(kid + ".pub"), keyPair.getPublic().getEncoded(), false);
+        write(directory.resolve(kid + ".key"), keyPair.getPrivate().getEncoded(), true);
+        log.info("Создан новый ключ подписи {}", kid);
+        return new SigningKey(kid, Instant.ofEpochSecond(now.getEpochSecond()), keyPair.getPrivate(), keyPair.getPublic());
+    }
+
+    private void write(Path target, byte[] content, boolean secret) throws IOException {
+        Path temp = Files.createTempFile(directory, ".tmp-", null);
+        try {
+            Files.write(temp, content);
+            if (secret && FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Set<String> kids(List<SigningKey> keys) {
+        Set<String> kids = new HashSet<>();
+        keys.forEach(key -> kids.add(key.kid()));
+        return kids;
+    }
+
+    public record SigningKey(String kid, Instant createdAt, PrivateKey privateKey, PublicKey publicKey) {
+    }
+
+    public record Jwks(byte[] json, String etag) {
+    }
+
+    private record Snapshot(SigningKey signingKey, Map<String, PublicKey> publicKeys, Jwks jwks) {
+
+        static Snapshot of(SigningKey signingKey, List<SigningKey> keys) {
+            Map<String, PublicKey> publicKeys = new HashMap<>();
+            StringBuilder jwks = new StringBuilder("{\"keys\":[");
+            for (SigningKey key : keys) {
+                publicKeys.put(key.kid(), key.publicKey());
+                ECPublicKey publicKey = (ECPublicKey) key.publicKey();
+                if (jwks.charAt(jwks.length() - 1) == '}') {
+                    jwks.append(',');
+                }
+                jwks.append("{\"kty\":\"EC\",\"crv\":\"P-256\",\"use\":\"sig\",\"alg\":\"ES256\",\"kid\":\"")
+                        .append(key.kid())
+                        .append("\",\"x\":\"").append(coordinate(publicKey.getW().getAffineX()))
+                        .append("\",\"y\":\"").append(coordinate(publicKey.getW().getAffineY()))
+                        .append("\"}");
+            }
+            byte[] json = jwks.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+            return new Snapshot(signingKey, Map.copyOf(publicKeys), new Jwks(json, '"' + sha256(json) + '"'));
+        }
+
+        private static String coordinate(BigInteger value) {
+            byte[] bytes = value.toByteArray();
+            byte[] fixed = new byte[32];
+            int length = Math.min(bytes.length, 32);
+            System.arraycopy(bytes, bytes.length - length, fixed, 32 - length, length);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+        }
+
+        private static String sha256(byte[] content) {
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content), 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package tgb.cryptoexchange.auth.service;
+
+import tgb.cryptoexchange.auth.pool.InstancePool;
+
+import java.security.SecureRandom;
+
+/**
+ * Идентификатор токена (claim jti) - 128 случайных бит, в токене записывается 22 символами Base64URL.
+ * Хранится как два long, чтобы проверка по списку отозванных токенов не требовала строк и выделения памяти.
+ */
+public record TokenId(long high, long low) {
+
+    public static final int LENGTH = 22;
+
+    private static final char[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .toCharArray();
+
+    private static final InstancePool<SecureRandom> RANDOM = new InstancePool<>(SecureRandom::new);
+
+    public static TokenId random() {
+        SecureRandom random = RANDOM.acquire();
+        TokenId id = new TokenId(random.nextLong(), random.nextLong());
+        RANDOM.release(random);
+        return id;
+    }
+
+    /**
+     * @return идентификатор или null, если строка не является jti, выпущенным {@link #random()}
+     */
+    public static TokenId parse(String value) {
+        if (value == null || value.length() != LENGTH) {
+            return null;
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int digit = digit(value.charAt(i));
+            if (digit < 0) {
+                return null;
+            }
+            if (i < LENGTH - 1) {
+                high = (high << 6) | (low >>> 58);
+                low = (low << 6) | digit;
+            } else if ((digit & 0x0F) != 0) {
+                return null;
+            } else {
+                high = (high << 2) | (low >>> 62);
+                low = (low << 2) | (digit >>> 4);
+            }
+        }
+        return new TokenId(high, low);
+    }
+
+    private static int digit(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        }
+        if (c == '-') {
+            return 62;
+        }
+        return c == '_' ? 63 : -1;
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[LENGTH];
+        long high = this.high;
+        long low = this.low;
+        chars[LENGTH - 1] = BASE64URL[(int) (low & 0x03) << 4];
+        low = (low >>> 2) | (high << 62);
+        high >>>= 2;
+        for (int i = LENGTH - 2; i >= 0; i--) {
+            chars[i] = BASE64URL[(int) (low & 0x3F)];
+            low = (low >>> 6) | (high << 58);
+            high >>>= 6;
+        }
+        return new String(chars);
+    }
+}
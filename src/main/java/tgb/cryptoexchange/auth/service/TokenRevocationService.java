@@ -0,0 +1,124 @@
+package tgb.cryptoexchange.auth.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tgb.cryptoexchange.auth.entity.RevokedToken;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
+import tgb.cryptoexchange.auth.repository.RevokedTokenRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отзыв токенов по jti. Отозванные идентификаторы хранятся в таблице <code>revoked_token</code> и в памяти
+ * в {@link RevocationTable}, по которой проверяется каждый токен. При старте таблица загружается из БД,
+ * затем периодически догружаются отзывы, сделанные другими экземплярами сервиса, и удаляются записи
+ * токенов, срок действия которых уже истек: такие токены отклоняются и без списка.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    private final JwtService jwtService;
+
+    private final Duration syncInterval;
+
+    private final Clock clock;
+
+    private final RevocationTable revoked = new RevocationTable();
+
+    /**
+     * Синхронизация ходит в БД, поэтому вместо <code>synchronized</code> используется блокировка,
+     * не закрепляющая виртуальный поток за потоком-носителем.
+     */
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private Instant syncedAt = Instant.EPOCH;
+
+    @Autowired
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, JwtService jwtService,
+                                  @Value("${auth.revocation.sync-interval:10000}") long syncIntervalMillis) {
+        this(revokedTokenRepository, jwtService, Duration.ofMillis(syncIntervalMillis), Clock.systemUTC());
+    }
+
+    TokenRevocationService(RevokedTokenRepository revokedTokenRepository, JwtService jwtService,
+                           Duration syncInterval, Clock clock) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.jwtService = jwtService;
+        this.syncInterval = syncInterval;
+        this.clock = clock;
+    }
+
+    public boolean isRevoked(TokenId id) {
+        return id != null && revoked.contains(id.high(), id.low());
+    }
+
+    /**
+     * Отзывает переданный токен. Повторный отзыв уже отозванного токена ничего не меняет.
+     *
+     * @throws InvalidTokenException если токен невалиден, истек или выпущен без jti
+     */
+    public void revoke(String token) {
+        VerifiedToken verifiedToken = jwtService.verify(token);
+        if (verifiedToken.id() == null) {
+            throw new InvalidTokenException("Token has no id");
+        }
+        TokenId id = verifiedToken.id();
+        if (!isRevoked(id)) {
+            try {
+                revokedTokenRepository.save(new RevokedToken(
+                        id.toString(), verifiedToken.subject(), verifiedToken.expiration(), clock.instant()
+                ));
+            } catch (DataIntegrityViolationException e) {
+                // токен уже отозван другим экземпляром
+            }
+        }
+        revoked.add(id.high(), id.low(), verifiedToken.expiration().getEpochSecond());
+        log.debug("Отозван токен {} пользователя {}", id, verifiedToken.subject());
+    }
+
+    @PostConstruct
+    public void load() {
+        sync();
+    }
+
+    /**
+     * Догружает новые отзывы из БД и удаляет истекшие записи. Отзывы ищутся с запасом в один интервал,
+     * чтобы не пропустить записи, сохраненные с небольшим расхождением часов.
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.sync-interval:10000}",
+            initialDelayString = "${auth.revocation.sync-interval:10000}")
+    public void sync() {
+        syncLock.lock();
+        try {
+            Instant now = clock.instant();
+            Instant since = syncedAt.equals(Instant.EPOCH) ? Instant.EPOCH : syncedAt.minus(syncInterval);
+            int loaded = 0;
+            for (RevokedToken revokedToken : revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(since, now)) {
+                TokenId id = TokenId.parse(revokedToken.getId());
+                if (id != null) {
+                    revoked.add(id.high(), id.low(), revokedToken.getExpiresAt().getEpochSecond());
+                    loaded++;
+                }
+            }
+            syncedAt = now;
+            int purged = revoked.purge(now.getEpochSecond());
+            int deleted = revokedTokenRepository.deleteExpired(now);
+            if (loaded > 0 || purged > 0 || deleted > 0) {
+                log.debug("Список отозванных токенов синхронизирован: загружено {}, удалено из памяти {}, из БД {}, всего {}",
+                        loaded, purged, deleted, revoked.size());
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+}
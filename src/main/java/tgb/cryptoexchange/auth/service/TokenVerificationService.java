@@ -0,0 +1,210 @@
+package tgb.cryptoexchange.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
+import tgb.cryptoexchange.auth.pool.InstancePool;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка JWT с кэшированием уже проверенных токенов. Ключом кэша служит SHA-256 от всего токена,
+ * поэтому попадание в кэш возможно только для токена, совпадающего с ранее проверенным побайтно.
+ * Запись удаляется из кэша в момент истечения срока действия токена. Отзыв токена и его версия
+ * (см. {@link TokenVersionCache}) проверяются при каждом вызове, в том числе при попадании в кэш: токены,
+ * выпущенные до смены пароля или удаления пользователя, отклоняются сразу.
+ * <p>
+ * Пакет токенов ({@link #verifyAll(List)}) проверяется параллельно в пуле <code>auth.verification.threads</code>:
+ * найденные в кэше токены возвращаются сразу, одинаковые токены пакета проверяются один раз.
+ * Очередь пула ограничена <code>auth.verification.queue-capacity</code>: когда она заполнена, токен проверяется
+ * в потоке вызывающего, так что пакеты замедляются, а не копятся в памяти.
+ */
+@Service
+public class TokenVerificationService {
+
+    private static final InstancePool<MessageDigest> SHA_256 = new InstancePool<>(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final JwtService jwtService;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final TokenVersionCache tokenVersionCache;
+
+    private final Cache<TokenDigest, VerifiedToken> verifiedTokens;
+
+    private final ThreadPoolExecutor executor;
+
+    public TokenVerificationService(JwtService jwtService, TokenRevocationService tokenRevocationService,
+                                    TokenVersionCache tokenVersionCache,
+                                    @Value("${auth.verification.cache-size:100000}") long cacheSize,
+                                    @Value("${auth.verification.threads:0}") int threads,
+                                    @Value("${auth.verification.queue-capacity:1000}") int queueCapacity) {
+        this.jwtService = jwtService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.tokenVersionCache = tokenVersionCache;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new UntilTokenExpiration())
+                .build();
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("token-verification-", 0).daemon(true).factory(),
+                TokenVerificationService::runInCaller
+        );
+    }
+
+    public VerifiedToken verify(String token) {
+        return check(lookup(token));
+    }
+
+    /**
+     * Проверяет токен, не блокируя вызывающий поток запросом к БД: подпись и отзыв проверяются сразу,
+     * а версия токенов при промахе {@link TokenVersionCache} загружается в <code>executor</code>.
+     *
+     * @return future, завершающаяся проверенным токеном или с {@link InvalidTokenException}
+     */
+    public CompletableFuture<VerifiedToken> verifyAsync(String token, Executor executor) {
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = checkNotRevoked(lookup(token));
+        } catch (InvalidTokenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return tokenVersionCache.currentAsync(verifiedToken.subject(), executor)
+                .thenApply(version -> checkVersion(verifiedToken, version));
+    }
+
+    /**
+     * Запускает проверку пакета токенов и сразу возвращает управление.
+     *
+     * @return результаты по порядку токенов: future завершается проверенным токеном
+     * или с {@link InvalidTokenException}
+     */
+    public List<CompletableFuture<VerifiedToken>> verifyAll(List<String> tokens) {
+        Map<TokenDigest, CompletableFuture<VerifiedToken>> verifications = new HashMap<>();
+        List<CompletableFuture<VerifiedToken>> results = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            if (token == null || token.isBlank()) {
+                results.add(CompletableFuture.failedFuture(new InvalidTokenException("Invalid token")));
+                continue;
+            }
+            CompletableFuture<VerifiedToken> verification = verifications.computeIfAbsent(
+                    TokenDigest.of(token), digest -> {
+                        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(digest);
+                        return verifiedToken != null
+                                ? CompletableFuture.completedFuture(verifiedToken)
+                                : CompletableFuture.supplyAsync(() -> verifyAndCache(digest, token), executor);
+                    }
+            );
+            results.add(verification.thenApply(this::check));
+        }
+        return results;
+    }
+
+    /**
+     * В отличие от {@link ThreadPoolExecutor.CallerRunsPolicy} не отбрасывает задачу после остановки пула молча:
+     * future такой задачи никогда бы не завершилась.
+     */
+    private static void runInCaller(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Token verification pool is shut down");
+        }
+        task.run();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private VerifiedToken verifyAndCache(TokenDigest digest, String token) {
+        VerifiedToken verifiedToken = jwtService.verify(token);
+        verifiedTokens.put(digest, verifiedToken);
+        return verifiedToken;
+    }
+
+    private VerifiedToken lookup(String token) {
+        if (token == null || token.isBlank()) {
+            throw new InvalidTokenException("Invalid token");
+        }
+        TokenDigest digest = TokenDigest.of(token);
+        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(digest);
+        return verifiedToken != null ? verifiedToken : verifyAndCache(digest, token);
+    }
+
+    private VerifiedToken check(VerifiedToken verifiedToken) {
+        checkNotRevoked(verifiedToken);
+        return checkVersion(verifiedToken, tokenVersionCache.current(verifiedToken.subject()));
+    }
+
+    private VerifiedToken checkNotRevoked(VerifiedToken verifiedToken) {
+        if (tokenRevocationService.isRevoked(verifiedToken.id())) {
+            throw new InvalidTokenException("Token revoked");
+        }
+        return verifiedToken;
+    }
+
+    private static VerifiedToken checkVersion(VerifiedToken verifiedToken, long version) {
+        if (verifiedToken.version() != version) {
+            throw new InvalidTokenException("Token invalidated");
+        }
+        return verifiedToken;
+    }
+
+    record TokenDigest(long h0, long h1, long h2, long h3) {
+
+        static TokenDigest of(String token) {
+            MessageDigest sha256 = SHA_256.acquire();
+            ByteBuffer digest = ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            SHA_256.release(sha256);
+            return new TokenDigest(digest.getLong(), digest.getLong(), digest.getLong(), digest.getLong());
+        }
+    }
+
+    private static class UntilTokenExpiration implements Expiry<TokenDigest, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, VerifiedToken value, long currentTime) {
+            long millis = value.expiration().toEpochMilli() - Instant.now().toEpochMilli();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(millis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, VerifiedToken value, long currentTime,
+                                      long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, VerifiedToken value, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
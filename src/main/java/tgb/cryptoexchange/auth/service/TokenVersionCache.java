@@ -0,0 +1,138 @@
+package tgb.cryptoexchange.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Текущие версии токенов пользователей (claim <code>ver</code>, см. {@link JwtService}) для проверки
+ * при каждой верификации токена. Версия загружается из основной БД при первом обращении и дальше читается из памяти.
+ * Отсутствие пользователя тоже кэшируется как {@link #NO_USER}, чтобы токены на несуществующие имена
+ * не обращались к БД при каждой проверке. Поэтому после регистрации, импорта, смены пароля и удаления
+ * пользователя нужно вызвать {@link #invalidateAfterCommit(String)}. Ключ кэша - {@link Usernames#key(String)}:
+ * токен, выпущенный на другое написание юзернейма, проверяется по той же записи и отклоняется после инвалидации.
+ * <p>
+ * В кэше лежит future загрузки, которая кладется в него до обращения к БД: параллельные запросы того же юзернейма
+ * ждут одну загрузку, а сама загрузка идет вне блокировок кэша. Инвалидация удаляет future только своего
+ * юзернейма, поэтому загрузка, прочитавшая старую версию, завершает уже не лежащую в кэше future и устаревшее
+ * значение не остается в кэше, а загрузки других пользователей не затрагиваются.
+ * <p>
+ * Инвалидация мгновенна только на экземпляре, который изменил пользователя. Другие экземпляры сервиса
+ * продолжают принимать старые токены, пока не истечет закэшированная у них версия, то есть до
+ * <code>auth.token-version.ttl</code> мс.
+ */
+@Component
+public class TokenVersionCache {
+
+    /**
+     * Версия для юзернейма, которого нет в БД: токены удаленных пользователей не принимаются.
+     */
+    public static final long NO_USER = -1;
+
+    private final Function<String, Optional<Long>> loader;
+
+    private final Cache<String, CompletableFuture<Long>> versions;
+
+    @Autowired
+    public TokenVersionCache(UserRepository userRepository,
+                             @Value("${auth.token-version.cache-size:100000}") long maxSize,
+                             @Value("${auth.token-version.ttl:60000}") long ttl) {
+        this(userRepository::findTokenVersion, maxSize, ttl);
+    }
+
+    public TokenVersionCache(Function<String, Optional<Long>> loader, long maxSize, long ttl) {
+        this.loader = loader;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .build();
+    }
+
+    /**
+     * @return текущая версия токенов пользователя или {@link #NO_USER}
+     */
+    public long current(String username) {
+        String key = Usernames.key(username);
+        CompletableFuture<Long> loading = new CompletableFuture<>();
+        CompletableFuture<Long> cached = versions.asMap().putIfAbsent(key, loading);
+        if (cached == null) {
+            load(key, username, loading);
+            cached = loading;
+        }
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * То же, что {@link #current(String)}, но без ожидания в вызывающем потоке: при промахе версия загружается
+     * в <code>executor</code>, а если ее уже загружает другой поток - возвращается future этой загрузки.
+     * Для потоков, которые нельзя блокировать запросом к БД.
+     */
+    public CompletableFuture<Long> currentAsync(String username, Executor executor) {
+        String key = Usernames.key(username);
+        CompletableFuture<Long> loading = new CompletableFuture<>();
+        CompletableFuture<Long> cached = versions.asMap().putIfAbsent(key, loading);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            executor.execute(() -> load(key, username, loading));
+        } catch (RejectedExecutionException e) {
+            versions.asMap().remove(key, loading);
+            loading.completeExceptionally(e);
+        }
+        return loading;
+    }
+
+    /**
+     * Ошибка загрузки не кэшируется: future удаляется из кэша и завершается с ошибкой.
+     */
+    private void load(String key, String username, CompletableFuture<Long> loading) {
+        long loaded;
+        try {
+            loaded = loader.apply(username).orElse(NO_USER);
+        } catch (RuntimeException e) {
+            versions.asMap().remove(key, loading);
+            loading.completeExceptionally(e);
+            return;
+        }
+        loading.complete(loaded);
+    }
+
+    public void invalidate(String username) {
+        versions.invalidate(Usernames.key(username));
+    }
+
+    /**
+     * Удаляет версию из кэша после завершения текущей транзакции, а вне транзакции - сразу.
+     * Инвалидация до коммита позволила бы параллельной проверке токена загрузить и закэшировать старую версию.
+     */
+    public void invalidateAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidate(username);
+            }
+        });
+    }
+}
@@ -0,0 +1,127 @@
+package tgb.cryptoexchange.auth.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tgb.cryptoexchange.auth.dto.CacheStatsDTO;
+import tgb.cryptoexchange.auth.entity.User;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Кэш пользователей по юзернейму, ограниченный по количеству записей и времени жизни.
+ * Отсутствующие пользователи не кэшируются. Ключ кэша - юзернейм в нижнем регистре без диакритики ({@link Usernames#key(String)}),
+ * чтобы инвалидация по одному написанию юзернейма удаляла и запись, загруженную по другому. После регистрации нужно вызвать {@link #invalidate(String)},
+ * а после изменения или удаления пользователя в транзакции - {@link #invalidateAfterCommit(String)}:
+ * запись удаляется из кэша, и еще
+ * <code>auth.replica.read-your-writes-window</code> мс пользователь читается из основной БД,
+ * а не с реплики, которая может еще не получить изменение.
+ * <p>
+ * Пользователь загружается из БД в вызывающем потоке вне блокировок кэша: в кэш сначала кладется незавершенный
+ * future, а одновременные запросы того же юзернейма ждут его завершения. Загрузка внутри вычисления Caffeine
+ * держала бы монитор {@link java.util.concurrent.ConcurrentHashMap} на время запроса к БД и закрепляла бы
+ * виртуальный поток за потоком-носителем.
+ */
+@Component
+public class UserCache {
+
+    private final UserRepository userRepository;
+
+    private final AsyncCache<String, CachedUser> users;
+
+    private final Cache<String, Boolean> recentlyWritten;
+
+    private final long maxSize;
+
+    public UserCache(UserRepository userRepository,
+                     @Value("${auth.user-cache.max-size:100000}") long maxSize,
+                     @Value("${auth.user-cache.ttl:300000}") long ttl,
+                     @Value("${auth.replica.read-your-writes-window:5000}") long readYourWritesWindow) {
+        this.userRepository = userRepository;
+        this.maxSize = maxSize;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .recordStats()
+                .buildAsync();
+        this.recentlyWritten = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(readYourWritesWindow))
+                .build();
+    }
+
+    public Optional<CachedUser> findByUsername(String username) {
+        CompletableFuture<CachedUser> created = new CompletableFuture<>();
+        String key = Usernames.key(username);
+        CompletableFuture<CachedUser> future = users.get(key, (ignored, executor) -> created);
+        if (future == created) {
+            try {
+                created.complete(load(key, username));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return Optional.ofNullable(future.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    public void invalidate(String username) {
+        String key = Usernames.key(username);
+        recentlyWritten.put(key, Boolean.TRUE);
+        users.synchronous().invalidate(key);
+    }
+
+    /**
+     * Удаляет пользователя из кэша после завершения текущей транзакции, а вне транзакции - сразу.
+     * До коммита основная БД еще отдает старую строку, и вход между инвалидацией и коммитом закэшировал бы ее
+     * на все время жизни записи.
+     */
+    public void invalidateAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidate(username);
+            }
+        });
+    }
+
+    public CacheStatsDTO getStats() {
+        CacheStats stats = users.synchronous().stats();
+        return CacheStatsDTO.builder()
+                .size(users.synchronous().estimatedSize())
+                .maxSize(maxSize)
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .evictions(stats.evictionCount())
+                .hitRate(stats.hitRate())
+                .build();
+    }
+
+    private CachedUser load(String key, String username) {
+        Optional<User> user = recentlyWritten.getIfPresent(key) != null
+                ? userRepository.findByUsernameOnPrimary(username)
+                : userRepository.findByUsername(username);
+        return user.map(found -> new CachedUser(found.getId(), found.getPassword()))
+                .orElse(null);
+    }
+}
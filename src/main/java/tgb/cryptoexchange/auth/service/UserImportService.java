@@ -0,0 +1,310 @@
+package tgb.cryptoexchange.auth.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tgb.cryptoexchange.auth.datasource.UserShards;
+import tgb.cryptoexchange.auth.dto.ImportConflictDTO;
+import tgb.cryptoexchange.auth.dto.ImportReportDTO;
+import tgb.cryptoexchange.auth.dto.ImportUserDTO;
+import tgb.cryptoexchange.auth.dto.UserCredentialsDTO;
+import tgb.cryptoexchange.auth.exception.HashingOverloadedException;
+import tgb.cryptoexchange.auth.policy.PasswordPolicy;
+import tgb.cryptoexchange.auth.repository.UserBatchRepository;
+import tgb.cryptoexchange.auth.repository.UserBatchRepository.NewUser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Импорт пользователей из NDJSON: одна строка - один объект {@link ImportUserDTO}.
+ * Строки обрабатываются пакетами: пароли хешируются параллельно через общий {@link PasswordHashingService},
+ * после чего пакет вставляется одним JDBC batch-запросом. Юзернеймы и пароли проверяются так же, как при регистрации,
+ * включая {@link PasswordPolicy}. Невалидные строки, занятые юзернеймы и строки, отклоненные БД, попадают в отчет
+ * и не прерывают загрузку: если БД отклоняет пакет, его строки вставляются по одной, и принятые из них остаются
+ * в БД. Пакеты коммитятся независимо, поэтому при ошибке импорта загруженные до нее пакеты не откатываются. Читается не больше <code>auth.import.max-rows</code> строк, остальные пропускаются,
+ * а отчет помечается как неполный.
+ * <p>
+ * Импорт занимает не больше <code>auth.import.threads</code> мест в пуле хеширования, остальные остаются входу
+ * и регистрации. Если пул перегружен, хеширование строки повторяется после паузы из
+ * {@link HashingOverloadedException#getRetryAfterSeconds()}.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private static final long MIN_RETRY_DELAY_MILLIS = 100;
+
+    private static final Pattern BCRYPT_HASH =
+            Pattern.compile("\\A(\\{bcrypt})?\\$2([ayb])?\\$(0[4-9]|[12]\\d|3[01])\\$[./0-9A-Za-z]{53}");
+
+    private final UserBatchRepository userBatchRepository;
+
+    private final UsernameAvailabilityService usernameAvailabilityService;
+
+    private final TokenVersionCache tokenVersionCache;
+
+    private final PasswordHashingService passwordHashingService;
+
+    private final PasswordPolicy passwordPolicy;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final UserShards userShards;
+
+    private final ObjectReader reader;
+
+    private final int batchSize;
+
+    private final int threads;
+
+    private final int maxReportedConflicts;
+
+    private final long maxRows;
+
+    public UserImportService(UserBatchRepository userBatchRepository,
+                             UsernameAvailabilityService usernameAvailabilityService,
+                             TokenVersionCache tokenVersionCache, PasswordHashingService passwordHashingService,
+                             PasswordPolicy passwordPolicy, PlatformTransactionManager transactionManager, UserShards userShards,
+                             ObjectMapper objectMapper,
+                             @Value("${auth.import.batch-size:500}") int batchSize,
+                             @Value("${auth.import.threads:0}") int threads,
+                             @Value("${auth.import.max-reported-conflicts:1000}") int maxReportedConflicts,
+                             @Value("${auth.import.max-rows:100000}") long maxRows) {
+        this.userBatchRepository = userBatchRepository;
+        this.usernameAvailabilityService = usernameAvailabilityService;
+        this.tokenVersionCache = tokenVersionCache;
+        this.passwordHashingService = passwordHashingService;
+        this.passwordPolicy = passwordPolicy;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userShards = userShards;
+        this.reader = objectMapper.readerFor(ImportUserDTO.class);
+        this.batchSize = batchSize;
+        this.threads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.maxReportedConflicts = maxReportedConflicts;
+        this.maxRows = maxRows;
+    }
+
+    public ImportReportDTO importUsers(InputStream inputStream) throws IOException {
+        long startedAt = System.nanoTime();
+        Report report = new Report();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                threads, Thread.ofPlatform().name("user-import-", 0).daemon(true).factory()
+        );
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            List<Row> batch = new ArrayList<>(batchSize);
+            String line;
+            long lineNumber = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (report.total == maxRows) {
+                    report.truncated = true;
+                    break;
+                }
+                report.total++;
+                Row row = parse(lineNumber, line, report);
+                if (row != null) {
+                    batch.add(row);
+                }
+                if (batch.size() == batchSize) {
+                    importBatch(batch, executor, report);
+                    batch.clear();
+                }
+            }
+            importBatch(batch, executor, report);
+        } finally {
+            executor.shutdownNow();
+        }
+        long durationNanos = System.nanoTime() - startedAt;
+        double usersPerSecond = report.imported * 1_000_000_000d / Math.max(durationNanos, 1);
+        log.info("Импорт пользователей завершен: прочитано {}, загружено {}, отклонено {}, {} пользователей/с{}",
+                report.total, report.imported, report.failed, String.format("%.1f", usersPerSecond),
+                report.truncated ? ", строки сверх лимита пропущены" : "");
+        return ImportReportDTO.builder()
+                .total(report.total)
+                .imported(report.imported)
+                .failed(report.failed)
+                .conflicts(report.conflicts)
+                .truncated(report.truncated)
+                .durationMillis(durationNanos / 1_000_000)
+                .usersPerSecond(usersPerSecond)
+                .build();
+    }
+
+    private Row parse(long lineNumber, String line, Report report) {
+        ImportUserDTO user;
+        try {
+            user = reader.readValue(line);
+        } catch (JsonProcessingException e) {
+            report.reject(lineNumber, null, "Malformed line");
+            return null;
+        }
+        String username = user.getUsername();
+        if (!new UserCredentialsDTO(username, null).hasValidUsername()) {
+            report.reject(lineNumber, username, "Invalid username");
+            return null;
+        }
+        boolean hasPassword = user.getPassword() != null && !user.getPassword().isBlank();
+        boolean hasHash = user.getPasswordHash() != null;
+        if (hasPassword == hasHash) {
+            report.reject(lineNumber, username, "Exactly one of password and passwordHash is required");
+            return null;
+        }
+        if (hasPassword && !passwordPolicy.isAcceptable(user.getPassword())) {
+            report.reject(lineNumber, username, "Invalid password");
+            return null;
+        }
+        if (hasHash && !BCRYPT_HASH.matcher(user.getPasswordHash()).matches()) {
+            report.reject(lineNumber, username, "Invalid password hash");
+            return null;
+        }
+        return new Row(lineNumber, username, user.getPassword(), user.getPasswordHash());
+    }
+
+    private void importBatch(List<Row> batch, ExecutorService executor, Report report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Столбец сравнивает юзернеймы без учета регистра и диакритики, поэтому и здесь они сравниваются по ключу:
+        // иначе "Alice" и "alice" пройдут проверку и уронят пакетную вставку на уникальном индексе.
+        Set<String> existing = new HashSet<>();
+        userBatchRepository.findExistingUsernames(batch.stream().map(Row::username).toList())
+                .forEach(username -> existing.add(Usernames.key(username)));
+        Set<String> seen = new HashSet<>();
+        List<Row> accepted = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            String key = Usernames.key(row.username());
+            if (existing.contains(key) || !seen.add(key)) {
+                report.reject(row.line(), row.username(), "Username is taken by another user");
+            } else {
+                accepted.add(row);
+            }
+        }
+        userShards.groupByShard(accepted, Row::username)
+                .forEach((shard, rows) -> insertOnShard(shard, rows, executor, report));
+    }
+
+    /**
+     * Пакет вставляется отдельной транзакцией на каждый шард, в который попали его пользователи.
+     */
+    private void insertOnShard(int shard, List<Row> rows, ExecutorService executor, Report report) {
+        List<NewUser> users = hash(rows, executor);
+        try {
+            userShards.onShard(shard, () -> transactionTemplate.execute(status -> {
+                userBatchRepository.insertAll(users);
+                return null;
+            }));
+            users.forEach(user -> added(user.username()));
+            report.imported += users.size();
+        } catch (DataIntegrityViolationException e) {
+            insertOneByOne(shard, rows, users, report);
+        }
+    }
+
+    private List<NewUser> hash(List<Row> rows, ExecutorService executor) {
+        List<Future<String>> hashes = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            hashes.add(row.passwordHash() != null
+                    ? CompletableFuture.completedFuture(row.passwordHash())
+                    : executor.submit(() -> encode(row.password())));
+        }
+        List<NewUser> users = new ArrayList<>(rows.size());
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                users.add(new NewUser(rows.get(i).username(), hashes.get(i).get()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing imported passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+        return users;
+    }
+
+    private String encode(String password) throws InterruptedException {
+        while (true) {
+            try {
+                return passwordHashingService.encode(password);
+            } catch (HashingOverloadedException e) {
+                Thread.sleep(Math.max(TimeUnit.SECONDS.toMillis(e.getRetryAfterSeconds()), MIN_RETRY_DELAY_MILLIS));
+            }
+        }
+    }
+
+    /**
+     * Вызывается, если БД отклонила пакет, например из-за юзернейма, занятого после проверки, чтобы определить
+     * конкретные строки с ошибкой. Каждая строка вставляется в своей транзакции.
+     */
+    private void insertOneByOne(int shard, List<Row> rows, List<NewUser> users, Report report) {
+        for (int i = 0; i < rows.size(); i++) {
+            NewUser user = users.get(i);
+            try {
+                userShards.onShard(shard, () -> {
+                    userBatchRepository.insert(user.username(), user.password());
+                    return null;
+                });
+                added(user.username());
+                report.imported++;
+            } catch (DuplicateKeyException e) {
+                report.reject(rows.get(i).line(), user.username(), "Username is taken by another user");
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Строка {} импорта отклонена БД: {}", rows.get(i).line(), e.getMessage());
+                report.reject(rows.get(i).line(), user.username(), "Rejected by the database");
+            }
+        }
+    }
+
+    /**
+     * Вызывается после коммита вставки: до него версия токенов нового пользователя могла быть закэширована
+     * как {@link TokenVersionCache#NO_USER}.
+     */
+    private void added(String username) {
+        usernameAvailabilityService.add(username);
+        tokenVersionCache.invalidate(username);
+    }
+
+    private record Row(long line, String username, String password, String passwordHash) {
+    }
+
+    private class Report {
+
+        private long total;
+
+        private long imported;
+
+        private long failed;
+
+        private boolean truncated;
+
+        private final List<ImportConflictDTO> conflicts = new ArrayList<>();
+
+        void reject(long line, String username, String reason) {
+            failed++;
+            if (conflicts.size() < maxReportedConflicts) {
+                conflicts.add(new ImportConflictDTO(line, username, reason));
+            }
+        }
+    }
+}
@@ -1,49 +1,130 @@
 package tgb.cryptoexchange.auth.service;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tgb.cryptoexchange.auth.audit.AuditEventType;
+import tgb.cryptoexchange.auth.audit.AuditLog;
+import tgb.cryptoexchange.auth.datasource.UserShards;
 import tgb.cryptoexchange.auth.entity.User;
+import tgb.cryptoexchange.auth.repository.UserBatchRepository;
 import tgb.cryptoexchange.auth.repository.UserRepository;
+import tgb.cryptoexchange.auth.repository.UsernameStreamRepository;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
 public class UserService implements UserDetailsService {
 
+    private static final int USERNAME_BIN_BATCH_SIZE = 1000;
+
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final UserCache userCache;
+
+    private final UsernameStreamRepository usernameStreamRepository;
+
+    private final UsernameAvailabilityService usernameAvailabilityService;
+
+    private final AuditLog auditLog;
+
+    private final UserShards userShards;
+
+    private final TokenVersionCache tokenVersionCache;
+
+    private final UserBatchRepository userBatchRepository;
+
+    public UserService(UserRepository userRepository, UserCache userCache,
+                       UsernameStreamRepository usernameStreamRepository,
+                       UsernameAvailabilityService usernameAvailabilityService, AuditLog auditLog,
+                       UserShards userShards, TokenVersionCache tokenVersionCache,
+                       UserBatchRepository userBatchRepository) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.usernameStreamRepository = usernameStreamRepository;
+        this.usernameAvailabilityService = usernameAvailabilityService;
+        this.auditLog = auditLog;
+        this.userShards = userShards;
+        this.tokenVersionCache = tokenVersionCache;
+        this.userBatchRepository = userBatchRepository;
+    }
+
+    /**
+     * Заполняет UTF-8 байты юзернейма у пользователей, сохраненных до появления столбца <code>username_bin</code>:
+     * списки юзернеймов сортируются и листаются по нему.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillMissingUsernameBin() {
+        long filled = userBatchRepository.fillMissingUsernameBin(USERNAME_BIN_BATCH_SIZE);
+        if (filled > 0) {
+            log.info("Заполнены байты юзернейма у {} пользователей", filled);
+        }
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        CachedUser user = userCache.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
+                username,
+                user.password(),
                 Collections.emptyList()
         );
     }
 
     public List<String> getUsernames() {
-        return userRepository.findAll().stream().map(User::getUsername).toList();
+        return UserShards.merge(userShards.onEachShard(userRepository::findAllUsernames), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Возвращает страницу юзернеймов в порядке {@link UserShards#BINARY_ORDER}, следующих за <code>after</code>.
+     * Для получения следующей страницы в <code>after</code> передается последний юзернейм текущей.
+     * При шардировании страница запрашивается с каждого шарда, и из слияния берутся первые <code>limit</code>.
+     */
+    public List<String> getUsernames(String after, int limit) {
+        byte[] from = User.usernameBin(after == null ? "" : after);
+        return UserShards.merge(
+                userShards.onEachShard(() -> userRepository.findUsernamesAfter(from, Limit.of(limit))), limit
+        );
+    }
+
+    public void forEachUsername(Consumer<String> consumer) {
+        usernameStreamRepository.forEachUsername(consumer);
     }
 
+    @Transactional
     public void delete(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         userRepository.delete(user);
+        userCache.invalidateAfterCommit(username);
+        tokenVersionCache.invalidateAfterCommit(username);
+        usernameAvailabilityService.remove(username);
+        auditLog.record(AuditEventType.DELETE, username);
     }
 
+    /**
+     * Меняет пароль и увеличивает версию токенов пользователя, поэтому выданные ранее токены перестают приниматься.
+     */
+    @Transactional
     public void updatePassword(String username, String newPassword) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("Invalid credentials"));
-        user.setPassword(newPassword);
-        userRepository.save(user);
+        if (userRepository.updatePasswordAndTokenVersion(username, newPassword) == 0) {
+            throw new UsernameNotFoundException("Invalid credentials");
+        }
+        userCache.invalidateAfterCommit(username);
+        tokenVersionCache.invalidateAfterCommit(username);
+        auditLog.record(AuditEventType.PASSWORD_CHANGE, username);
     }
 }
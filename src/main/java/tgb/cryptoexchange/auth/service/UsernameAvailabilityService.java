@@ -0,0 +1,189 @@
+package tgb.cryptoexchange.auth.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tgb.cryptoexchange.auth.bloom.ConcurrentBloomFilter;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+import tgb.cryptoexchange.auth.repository.UsernameStreamRepository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Проверка свободности юзернейма по фильтру Блума существующих юзернеймов. Ответ "свободен" по фильтру
+ * дается без обращения к БД, в БД проверяются только возможные совпадения.
+ * <p>
+ * Фильтр строится после старта приложения потоковым чтением таблицы пользователей, до этого все проверки
+ * идут в БД. Новые юзернеймы добавляются в фильтр сразу после сохранения, а юзернеймы, зарегистрированные
+ * другими экземплярами сервиса, периодически догружаются из БД по возрастанию id. Между догрузками юзернейм
+ * с другого экземпляра может ошибочно считаться свободным, регистрацию при этом отклоняет уникальный индекс.
+ * В фильтре хранятся юзернеймы в нижнем регистре без диакритики ({@link Usernames#key(String)}), как они сравниваются
+ * в таблице пользователей: иначе юзернейм, занятый в другом регистре, считался бы свободным без проверки в БД.
+ * Удалить значение из фильтра нельзя, поэтому после удалений или при заполнении сверх расчетного размера
+ * фильтр периодически перестраивается заново.
+ */
+@Slf4j
+@Service
+public class UsernameAvailabilityService {
+
+    private final UserRepository userRepository;
+
+    private final UsernameStreamRepository usernameStreamRepository;
+
+    private final long minExpectedUsers;
+
+    private final double falsePositiveProbability;
+
+    private final AtomicLong entries = new AtomicLong();
+
+    private final AtomicLong deletions = new AtomicLong();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile ConcurrentBloomFilter filter;
+
+    private volatile ConcurrentBloomFilter building;
+
+    /**
+     * Наибольшие прочитанные id по шардам на момент последней и предпоследней догрузки
+     */
+    private long[] syncedIds;
+
+    private long[] previousSyncedIds;
+
+    public UsernameAvailabilityService(UserRepository userRepository,
+                                       UsernameStreamRepository usernameStreamRepository,
+                                       @Value("${auth.username-filter.expected-users:1000000}") long minExpectedUsers,
+                                       @Value("${auth.username-filter.fpp:0.01}") double falsePositiveProbability) {
+        this.userRepository = userRepository;
+        this.usernameStreamRepository = usernameStreamRepository;
+        this.minExpectedUsers = minExpectedUsers;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    public boolean isAvailable(String username) {
+        ConcurrentBloomFilter current = filter;
+        if (current != null && !current.mightContain(Usernames.key(username))) {
+            return true;
+        }
+        return !userRepository.existsByUsername(username);
+    }
+
+    /**
+     * Вызывается после сохранения нового пользователя.
+     */
+    public void add(String username) {
+        String key = Usernames.key(username);
+        ConcurrentBloomFilter pending = building;
+        ConcurrentBloomFilter current = filter;
+        if (pending != null) {
+            pending.put(key);
+        }
+        if (current != null) {
+            current.put(key);
+        }
+        entries.incrementAndGet();
+    }
+
+    /**
+     * Вызывается после удаления пользователя. Юзернейм остается в фильтре до следующего перестроения.
+     */
+    public void remove(String username) {
+        deletions.incrementAndGet();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${auth.username-filter.rebuild-interval:3600000}",
+            initialDelayString = "${auth.username-filter.rebuild-interval:3600000}")
+    public void rebuildIfStale() {
+        ConcurrentBloomFilter current = filter;
+        if (current == null || deletions.get() > 0 || entries.get() > current.getExpectedEntries()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Догружает в фильтр юзернеймы, сохраненные после прошлой догрузки, в том числе другими экземплярами.
+     * Чтение начинается с отметки предпоследней догрузки, чтобы не пропустить транзакции, которые получили id
+     * раньше, а закоммитились позже соседних. Повторное добавление юзернейма в фильтр ничего не меняет.
+     */
+    @Scheduled(fixedDelayString = "${auth.username-filter.sync-interval:5000}",
+            initialDelayString = "${auth.username-filter.sync-interval:5000}")
+    public void sync() {
+        rebuildLock.lock();
+        try {
+            ConcurrentBloomFilter current = filter;
+            if (current == null || syncedIds == null) {
+                return;
+            }
+            long[] known = syncedIds;
+            long[] next = known.clone();
+            AtomicLong loaded = new AtomicLong();
+            usernameStreamRepository.forEachUsernameAfter(previousSyncedIds, (shard, id, username) -> {
+                current.put(Usernames.key(username));
+                if (id > known[shard]) {
+                    next[shard] = Math.max(next[shard], id);
+                    loaded.incrementAndGet();
+                }
+            });
+            previousSyncedIds = known;
+            syncedIds = next;
+            entries.addAndGet(loaded.get());
+            if (loaded.get() > 0) {
+                log.debug("В фильтр юзернеймов догружено {} юзернеймов", loaded.get());
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось догрузить юзернеймы в фильтр", e);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Строит новый фильтр по таблице пользователей. Юзернеймы, сохраненные во время чтения таблицы,
+     * попадают в новый фильтр через {@link #add(String)} и догрузку, а их количество, учтенное в
+     * {@link #add(String)} за время чтения, сохраняется.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long startedAt = System.nanoTime();
+            long entriesBefore = entries.get();
+            ConcurrentBloomFilter next = new ConcurrentBloomFilter(
+                    Math.max(minExpectedUsers, entries.get() * 2), falsePositiveProbability
+            );
+            building = next;
+            deletions.set(0);
+            try {
+                if (syncedIds == null) {
+                    syncedIds = usernameStreamRepository.maxIds();
+                    previousSyncedIds = syncedIds;
+                }
+                AtomicLong count = new AtomicLong();
+                usernameStreamRepository.forEachUsername(username -> {
+                    next.put(Usernames.key(username));
+                    count.incrementAndGet();
+                });
+                filter = next;
+                entries.addAndGet(count.get() - entriesBefore);
+                log.info("Фильтр юзернеймов построен: юзернеймов {}, размер {} КБ, за {} мс", count.get(),
+                        next.getSizeInBytes() / 1024, (System.nanoTime() - startedAt) / 1_000_000);
+            } catch (RuntimeException e) {
+                deletions.incrementAndGet();
+                log.error("Не удалось построить фильтр юзернеймов, проверки идут в БД", e);
+            } finally {
+                building = null;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+}
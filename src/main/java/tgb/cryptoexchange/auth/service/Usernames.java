@@ -0,0 +1,39 @@
+package tgb.cryptoexchange.auth.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Юзернейм в таблице пользователей сравнивается по сопоставлению без учета регистра и диакритики
+ * (<code>utf8mb4_0900_ai_ci</code> в MySQL), поэтому ключи шардов, кэшей, корзин и фильтров по юзернейму строятся
+ * так же: диакритические знаки после канонической декомпозиции отбрасываются, а буквы приводятся к нижнему регистру.
+ * Иначе варианты написания одного юзернейма, например "José" и "jose", получали бы отдельные записи и разные шарды.
+ * <p>
+ * Ключ не грубее сопоставления: юзернеймы, различные для БД, не получают общий ключ, иначе кэш отдавал бы
+ * одного пользователя вместо другого. Обратное возможно для редких символов вроде "ß" и "ss".
+ */
+public final class Usernames {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{Mn}+");
+
+    private Usernames() {
+    }
+
+    public static String key(String username) {
+        if (isAscii(username)) {
+            return username.toLowerCase(Locale.ROOT);
+        }
+        String decomposed = Normalizer.normalize(username, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isAscii(String username) {
+        for (int i = 0; i < username.length(); i++) {
+            if (username.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,14 @@
+package tgb.cryptoexchange.auth.service;
+
+import java.time.Instant;
+
+/**
+ * Результат успешной проверки подписи и срока действия JWT
+ *
+ * @param subject    юзернейм владельца токена
+ * @param id         идентификатор токена (jti) или null для токенов, выпущенных без него
+ * @param expiration момент истечения срока действия токена
+ * @param version    версия токенов пользователя на момент выпуска (claim ver), 0 для токенов, выпущенных без нее
+ */
+public record VerifiedToken(String subject, TokenId id, Instant expiration, long version) {
+}
@@ -0,0 +1,100 @@
+package tgb.cryptoexchange.auth.sidecar;
+
+import tgb.cryptoexchange.auth.dto.TokenVerificationDTO;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Блокирующий клиент {@link SidecarServer}: один запрос за раз по одному соединению. Не потокобезопасен,
+ * каждому потоку нужен свой клиент.
+ */
+public class SidecarClient implements Closeable {
+
+    private final SocketChannel channel;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    private SidecarClient(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    public static SidecarClient connect(Path socketPath) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(UnixDomainSocketAddress.of(socketPath));
+        return new SidecarClient(channel);
+    }
+
+    public TokenVerificationDTO verify(String token) throws IOException {
+        ByteBuffer response = call(SidecarProtocol.VERIFY, token.getBytes(StandardCharsets.US_ASCII));
+        byte status = response.get();
+        if (status == SidecarProtocol.OK) {
+            Instant expiration = Instant.ofEpochMilli(response.getLong());
+            return new TokenVerificationDTO(true, string(response), expiration, null);
+        }
+        if (status == SidecarProtocol.INVALID) {
+            return TokenVerificationDTO.invalid(string(response));
+        }
+        throw new IOException("Verification failed with status " + status + ": " + string(response));
+    }
+
+    public String mint(String username) throws IOException {
+        ByteBuffer response = call(SidecarProtocol.MINT, username.getBytes(StandardCharsets.UTF_8));
+        byte status = response.get();
+        if (status != SidecarProtocol.OK) {
+            throw new IOException("Minting failed with status " + status + ": " + string(response));
+        }
+        return new String(response.array(), response.position(), response.remaining(), StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return тело ответа, начиная со статуса
+     */
+    private ByteBuffer call(byte operation, byte[] argument) throws IOException {
+        int size = SidecarProtocol.HEADER_SIZE + 1 + argument.length;
+        ensureCapacity(size);
+        buffer.clear();
+        buffer.putInt(1 + argument.length).put(operation).put(argument).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear().limit(SidecarProtocol.HEADER_SIZE);
+        readFully();
+        int length = buffer.getInt(0);
+        ensureCapacity(length);
+        buffer.clear().limit(length);
+        readFully();
+        return buffer.flip();
+    }
+
+    private void readFully() throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Connection closed by server");
+            }
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, size));
+        }
+    }
+
+    private static String string(ByteBuffer response) {
+        return new String(response.array(), response.position(), response.remaining(), StandardCharsets.UTF_8);
+    }
+}
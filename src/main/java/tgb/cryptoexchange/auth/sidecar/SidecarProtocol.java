@@ -0,0 +1,36 @@
+package tgb.cryptoexchange.auth.sidecar;
+
+/**
+ * Двоичный протокол {@link SidecarServer}. Запрос и ответ - кадр из длины (int32, big-endian, без учета
+ * самих 4 байт) и тела. Тело запроса - код операции (1 байт) и аргумент, тело ответа - статус (1 байт)
+ * и результат. По одному соединению можно отправлять несколько запросов подряд, не дожидаясь ответов:
+ * ответы приходят в порядке запросов.
+ * <ul>
+ *     <li>{@link #VERIFY}: аргумент - токен в ASCII; при {@link #OK} результат - срок действия
+ *     (int64, мс от эпохи) и юзернейм в UTF-8, при {@link #INVALID} - причина в UTF-8;</li>
+ *     <li>{@link #MINT}: аргумент - юзернейм в UTF-8; при {@link #OK} результат - токен в ASCII.</li>
+ * </ul>
+ * При остальных статусах результат - сообщение об ошибке в UTF-8. После {@link #BAD_REQUEST} из-за
+ * некорректной длины кадра сервер закрывает соединение.
+ */
+public final class SidecarProtocol {
+
+    public static final byte VERIFY = 1;
+
+    public static final byte MINT = 2;
+
+    public static final byte OK = 0;
+
+    public static final byte INVALID = 1;
+
+    public static final byte FORBIDDEN = 2;
+
+    public static final byte BAD_REQUEST = 3;
+
+    public static final byte ERROR = 4;
+
+    public static final int HEADER_SIZE = Integer.BYTES;
+
+    private SidecarProtocol() {
+    }
+}
@@ -0,0 +1,490 @@
+package tgb.cryptoexchange.auth.sidecar;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
+import tgb.cryptoexchange.auth.service.JwtService;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
+import tgb.cryptoexchange.auth.service.TokenVersionCache;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка и выпуск токенов для сайдкаров на том же хосте через Unix domain socket
+ * <code>auth.sidecar.socket-path</code> по протоколу {@link SidecarProtocol}, минуя Tomcat, Spring MVC и JSON.
+ * Проверка идет через {@link TokenVerificationService} (кэш, отзыв и версия токенов - как у <code>/auth/verify</code>),
+ * выпуск - через {@link JwtService} с текущей версией токенов из {@link TokenVersionCache}.
+ * <p>
+ * Соединения обслуживают <code>auth.sidecar.threads</code> потоков, у каждого свой {@link Selector};
+ * первый поток также принимает новые соединения и раздает их по кругу. Запросы выполняются в потоке
+ * селектора, кроме загрузки версии токенов из БД при промахе {@link TokenVersionCache}: она уходит в пул
+ * <code>auth.sidecar.worker-threads</code>, и медленный запрос к БД не задерживает остальные соединения селектора.
+ * Ответ такого запроса дописывается потоком селектора после загрузки, а ответы следующих запросов соединения
+ * ждут его, чтобы сохранить порядок. Пока клиент не забирает ответы или у соединения
+ * {@link #MAX_PENDING_REQUESTS} запросов ждут загрузки, чтение из его соединения приостанавливается.
+ * <p>
+ * Выпуск токена не требует пароля, поэтому он выключен, пока не задан <code>auth.sidecar.mint-enabled</code>,
+ * а доступ к сокету ограничивается правами файла (владелец и группа). Сокет создается во временной директории
+ * с правами <code>rwxrwx---</code> рядом с <code>auth.sidecar.socket-path</code>, получает права <code>rw-rw----</code>
+ * и только после этого переименовывается в итоговый путь, поэтому ни в какой момент не доступен остальным
+ * пользователям. Если путь не задан, сервер не запускается.
+ */
+@Slf4j
+@Component
+public class SidecarServer {
+
+    private static final long STOP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private static final int MAX_PENDING_REQUESTS = 256;
+
+    private static final Set<PosixFilePermission> STAGING_DIRECTORY_PERMISSIONS =
+            PosixFilePermissions.fromString("rwxrwx---");
+
+    private static final Set<PosixFilePermission> SOCKET_PERMISSIONS = PosixFilePermissions.fromString("rw-rw----");
+
+    private final TokenVerificationService tokenVerificationService;
+
+    private final JwtService jwtService;
+
+    private final TokenVersionCache tokenVersionCache;
+
+    private final Path socketPath;
+
+    private final int threads;
+
+    private final int workerThreads;
+
+    private final int maxFrameSize;
+
+    private final boolean mintEnabled;
+
+    private final List<EventLoop> loops = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private ServerSocketChannel server;
+
+    private ExecutorService workers;
+
+    public SidecarServer(TokenVerificationService tokenVerificationService, JwtService jwtService,
+                         TokenVersionCache tokenVersionCache,
+                         @Value("${auth.sidecar.socket-path:}") String socketPath,
+                         @Value("${auth.sidecar.threads:0}") int threads,
+                         @Value("${auth.sidecar.worker-threads:8}") int workerThreads,
+                         @Value("${auth.sidecar.max-frame-size:16384}") int maxFrameSize,
+                         @Value("${auth.sidecar.mint-enabled:false}") boolean mintEnabled) {
+        this.tokenVerificationService = tokenVerificationService;
+        this.jwtService = jwtService;
+        this.tokenVersionCache = tokenVersionCache;
+        this.socketPath = socketPath.isBlank() ? null : Path.of(socketPath);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.workerThreads = workerThreads;
+        this.maxFrameSize = maxFrameSize;
+        this.mintEnabled = mintEnabled;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (socketPath == null) {
+            log.info("Сокет для сайдкаров выключен: не задан auth.sidecar.socket-path");
+            return;
+        }
+        Files.deleteIfExists(socketPath);
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        bind();
+        server.configureBlocking(false);
+        workers = Executors.newFixedThreadPool(
+                workerThreads, Thread.ofPlatform().name("sidecar-worker-", 0).daemon(true).factory()
+        );
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            loops.add(new EventLoop(Selector.open()));
+        }
+        server.register(loops.getFirst().selector, SelectionKey.OP_ACCEPT);
+        for (int i = 0; i < loops.size(); i++) {
+            EventLoop loop = loops.get(i);
+            loop.thread = Thread.ofPlatform().name("sidecar-" + i).daemon(true).start(loop);
+        }
+        log.info("Сокет для сайдкаров слушает {}, потоков: {}", socketPath.toAbsolutePath(), threads);
+    }
+
+    /**
+     * Права директории задаются при ее создании и могут быть только сужены umask. Короткое имя сокета внутри нее
+     * не дает превысить ограничение длины пути Unix domain socket.
+     */
+    private void bind() throws IOException {
+        Path staging;
+        try {
+            staging = Files.createTempDirectory(socketPath.toAbsolutePath().getParent(), ".sidecar-",
+                    PosixFilePermissions.asFileAttribute(STAGING_DIRECTORY_PERMISSIONS));
+        } catch (UnsupportedOperationException e) {
+            log.warn("Не удалось ограничить права на сокет {}", socketPath);
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            return;
+        }
+        Path staged = staging.resolve("s");
+        try {
+            server.bind(UnixDomainSocketAddress.of(staged));
+            Files.setPosixFilePermissions(staged, SOCKET_PERMISSIONS);
+            Files.move(staged, socketPath, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(staged);
+            Files.delete(staging);
+        }
+    }
+
+    /**
+     * Закрывает все соединения и удаляет файл сокета.
+     */
+    @PreDestroy
+    public void stop() throws IOException {
+        if (server == null) {
+            return;
+        }
+        running = false;
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        for (EventLoop loop : loops) {
+            try {
+                loop.thread.join(STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.shutdownNow();
+        server.close();
+        Files.deleteIfExists(socketPath);
+        loops.clear();
+        server = null;
+    }
+
+    private class EventLoop implements Runnable {
+
+        private final Selector selector;
+
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+
+        private final Queue<Connection> resumed = new ConcurrentLinkedQueue<>();
+
+        private Thread thread;
+
+        private int next;
+
+        EventLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerAccepted();
+                    resumeConnections();
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        handle(key);
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                log.error("Поток сокета для сайдкаров остановлен", e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection connection) {
+                        connection.close();
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    log.warn("Не удалось закрыть селектор сокета для сайдкаров", e);
+                }
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    connection.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.write();
+                }
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+
+        private void accept() {
+            try {
+                SocketChannel channel;
+                while ((channel = server.accept()) != null) {
+                    EventLoop loop = loops.get(next++ % loops.size());
+                    loop.accepted.add(channel);
+                    if (loop != this) {
+                        loop.selector.wakeup();
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Не удалось принять соединение сайдкара", e);
+            }
+            registerAccepted();
+        }
+
+        /**
+         * Вызывается из пула загрузки версий, когда завершился отложенный запрос соединения.
+         */
+        void resume(Connection connection) {
+            resumed.add(connection);
+            selector.wakeup();
+        }
+
+        private void resumeConnections() {
+            Connection connection;
+            while ((connection = resumed.poll()) != null) {
+                try {
+                    connection.resume();
+                } catch (IOException e) {
+                    connection.close();
+                }
+            }
+        }
+
+        private void registerAccepted() {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                try {
+                    channel.configureBlocking(false);
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new Connection(this, channel, key));
+                } catch (IOException e) {
+                    log.warn("Не удалось зарегистрировать соединение сайдкара", e);
+                }
+            }
+        }
+    }
+
+    private class Connection {
+
+        private final EventLoop loop;
+
+        private final SocketChannel channel;
+
+        private final SelectionKey key;
+
+        private final ByteBuffer in = ByteBuffer.allocate(SidecarProtocol.HEADER_SIZE + maxFrameSize);
+
+        private ByteBuffer out = ByteBuffer.allocate(4096);
+
+        /**
+         * Ответы в порядке запросов; ответ - запись кадра в буфер ответа, выполняемая потоком селектора
+         */
+        private final Queue<CompletableFuture<Runnable>> pending = new ArrayDeque<>();
+
+        private boolean closing;
+
+        Connection(EventLoop loop, SocketChannel channel, SelectionKey key) {
+            this.loop = loop;
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            processFrames();
+            write();
+        }
+
+        void resume() throws IOException {
+            if (!key.isValid()) {
+                return;
+            }
+            drain();
+            processFrames();
+            write();
+        }
+
+        void write() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (out.position() > 0) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (closing && pending.isEmpty()) {
+                close();
+            } else {
+                key.interestOps(closing || pending.size() >= MAX_PENDING_REQUESTS ? 0 : SelectionKey.OP_READ);
+            }
+        }
+
+        private void processFrames() {
+            in.flip();
+            while (!closing && pending.size() < MAX_PENDING_REQUESTS
+                    && in.remaining() >= SidecarProtocol.HEADER_SIZE) {
+                int length = in.getInt(in.position());
+                if (length < 1 || length > maxFrameSize) {
+                    enqueue(reply(SidecarProtocol.BAD_REQUEST, "Invalid frame length"));
+                    closing = true;
+                    break;
+                }
+                if (in.remaining() < SidecarProtocol.HEADER_SIZE + length) {
+                    break;
+                }
+                in.position(in.position() + SidecarProtocol.HEADER_SIZE);
+                byte operation = in.get();
+                byte[] argument = new byte[length - 1];
+                in.get(argument);
+                enqueue(process(operation, argument));
+            }
+            if (closing) {
+                in.clear();
+            } else {
+                in.compact();
+            }
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Не удалось закрыть соединение сайдкара", e);
+            }
+        }
+
+        private CompletableFuture<Runnable> process(byte operation, byte[] argument) {
+            try {
+                return switch (operation) {
+                    case SidecarProtocol.VERIFY -> verify(new String(argument, StandardCharsets.US_ASCII));
+                    case SidecarProtocol.MINT -> mint(new String(argument, StandardCharsets.UTF_8));
+                    default -> reply(SidecarProtocol.BAD_REQUEST, "Unknown operation");
+                };
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        /**
+         * Готовый ответ записывается сразу, если перед ним нет ожидающих, иначе встает в очередь за ними.
+         */
+        private void enqueue(CompletableFuture<Runnable> response) {
+            if (pending.isEmpty() && response.isDone()) {
+                emit(response);
+                return;
+            }
+            pending.add(response);
+            if (!response.isDone()) {
+                response.whenComplete((writer, error) -> loop.resume(this));
+            }
+        }
+
+        private void drain() {
+            while (!pending.isEmpty() && pending.peek().isDone()) {
+                emit(pending.poll());
+            }
+        }
+
+        private void emit(CompletableFuture<Runnable> response) {
+            Runnable writer;
+            try {
+                writer = response.join();
+            } catch (RuntimeException e) {
+                log.error("Ошибка обработки запроса сайдкара", e instanceof CompletionException ? e.getCause() : e);
+                respond(SidecarProtocol.ERROR, "Internal error");
+                return;
+            }
+            writer.run();
+        }
+
+        private CompletableFuture<Runnable> verify(String token) {
+            return tokenVerificationService.verifyAsync(token, workers).<Runnable>handle((verifiedToken, error) -> {
+                if (error == null) {
+                    byte[] subject = verifiedToken.subject().getBytes(StandardCharsets.UTF_8);
+                    return () -> frame(SidecarProtocol.OK, Long.BYTES + subject.length)
+                            .putLong(verifiedToken.expiration().toEpochMilli())
+                            .put(subject);
+                }
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof InvalidTokenException e) {
+                    return () -> respond(SidecarProtocol.INVALID, e.getMessage());
+                }
+                throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+            });
+        }
+
+        private CompletableFuture<Runnable> mint(String username) {
+            if (!mintEnabled) {
+                return reply(SidecarProtocol.FORBIDDEN, "Minting is disabled");
+            }
+            if (username.isBlank()) {
+                return reply(SidecarProtocol.BAD_REQUEST, "Invalid username");
+            }
+            return tokenVersionCache.currentAsync(username, workers).<Runnable>thenApply(version -> {
+                if (version == TokenVersionCache.NO_USER) {
+                    return () -> respond(SidecarProtocol.BAD_REQUEST, "Unknown user");
+                }
+                byte[] token = jwtService.generateToken(username, version).getBytes(StandardCharsets.US_ASCII);
+                return () -> frame(SidecarProtocol.OK, token.length).put(token);
+            });
+        }
+
+        private CompletableFuture<Runnable> reply(byte status, String message) {
+            return CompletableFuture.<Runnable>completedFuture(() -> respond(status, message));
+        }
+
+        private void respond(byte status, String message) {
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            frame(status, bytes.length).put(bytes);
+        }
+
+        /**
+         * Резервирует в буфере ответа кадр с результатом длиной <code>length</code> и записывает заголовок.
+         */
+        private ByteBuffer frame(byte status, int length) {
+            int size = SidecarProtocol.HEADER_SIZE + 1 + length;
+            if (out.remaining() < size) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + size));
+                out.flip();
+                grown.put(out);
+                out = grown;
+            }
+            return out.putInt(1 + length).put(status);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package tgb.cryptoexchange.auth;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@AutoConfigureMockMvc
+@ActiveProfiles("fast-startup")
+class FastStartupProfileTest {
+
+    private static final String CREDENTIALS = "{\"username\":\"fast-startup\",\"password\":\"Fast-Startup1!\"}";
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("Профиль fast-startup - сервисы входа созданы при старте, Swagger - нет")
+    void shouldCreateOnlyLoginPathEagerly() {
+        assertTrue(context.getBeanFactory().containsSingleton("authService"));
+        assertTrue(context.getBeanFactory().containsSingleton("jwtService"));
+        assertFalse(context.getBeanFactory().containsSingleton("customOpenAPI"));
+        assertFalse(context.getBeanFactory().containsSingleton("openApiResource"));
+    }
+
+    @Test
+    @DisplayName("Профиль fast-startup - регистрация и вход работают")
+    void shouldRegisterAndLogin() throws Exception {
+        mockMvc.perform(post("/auth/register").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS))
+                .andExpect(status().isCreated());
+    }
+}
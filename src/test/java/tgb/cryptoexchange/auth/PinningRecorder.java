@@ -0,0 +1,58 @@
+package tgb.cryptoexchange.auth;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Записывает события JFR <code>jdk.VirtualThreadPinned</code>: виртуальный поток заблокировался, оставаясь
+ * закрепленным за потоком-носителем (внутри <code>synchronized</code> или нативного кадра). Порог нулевой,
+ * поэтому учитывается любая такая блокировка, а не только дольше 20 мс по умолчанию.
+ */
+class PinningRecorder implements AutoCloseable {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final RecordingStream stream = new RecordingStream();
+
+    private final List<String> pinnedStacks = new CopyOnWriteArrayList<>();
+
+    private boolean stopped;
+
+    PinningRecorder() {
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+        stream.onEvent(PINNED_EVENT, event -> pinnedStacks.add(stackOf(event)));
+        stream.startAsync();
+    }
+
+    /**
+     * Останавливает запись и возвращает стеки всех закреплений, случившихся с момента создания.
+     */
+    List<String> stop() {
+        if (!stopped) {
+            stream.stop();
+            stopped = true;
+        }
+        return List.copyOf(pinnedStacks);
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    private static String stackOf(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .map(RecordedFrame::getMethod)
+                .map(method -> method.getType().getName() + '.' + method.getName())
+                .collect(Collectors.joining("\n\tat ", "\tat ", ""));
+    }
+}
@@ -0,0 +1,107 @@
+package tgb.cryptoexchange.auth;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import tgb.cryptoexchange.auth.entity.User;
+import tgb.cryptoexchange.auth.service.AuthService;
+import tgb.cryptoexchange.auth.service.UserCache;
+import tgb.cryptoexchange.auth.service.UserService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Основная БД и реплика - две независимые БД H2 в памяти, репликация не настроена, поэтому по наличию
+ * пользователя видно, из какой БД он прочитан.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTest.PRIMARY_URL,
+        "auth.replica.urls=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "auth.replica.read-your-writes-window=60000"
+})
+class ReadReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER";
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;"
+            + "INIT=RUNSCRIPT FROM 'classpath:h2-schema.sql'";
+
+    private static final String INSERT_USER = "insert into user (username, password) values (?, ?)";
+
+    private static final String INSERT_LISTED_USER =
+            "insert into user (username, password, username_bin) values (?, 'hash', ?)";
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    @DisplayName("Поиск пользователя для входа - читается с реплики")
+    void shouldLookupUserOnReplica() {
+        primary.update(INSERT_USER, "primary-lookup", passwordEncoder.encode("Replica-Test1!"));
+        // версия токенов читается из основной БД, поэтому пользователь есть в обеих, но пароль подходит только с реплики
+        primary.update(INSERT_USER, "replica-lookup", passwordEncoder.encode("Primary-Test1!"));
+        replica.update(INSERT_USER, "replica-lookup", passwordEncoder.encode("Replica-Test1!"));
+
+        assertTrue(userCache.findByUsername("primary-lookup").isEmpty());
+        assertNotNull(authService.login("replica-lookup", "Replica-Test1!"));
+        assertNotNull(userService.loadUserByUsername("replica-lookup"));
+    }
+
+    @Test
+    @DisplayName("Список юзернеймов - читается с реплики")
+    void shouldListUsernamesFromReplica() {
+        primary.update(INSERT_LISTED_USER, "primary-listed", User.usernameBin("primary-listed"));
+        replica.update(INSERT_LISTED_USER, "replica-listed", User.usernameBin("replica-listed"));
+
+        assertTrue(userService.getUsernames().contains("replica-listed"));
+        assertFalse(userService.getUsernames().contains("primary-listed"));
+        assertEquals("replica-listed", userService.getUsernames("replica-list", 1).getFirst());
+    }
+
+    @Test
+    @DisplayName("Регистрация - пишет в основную БД, вход сразу после нее читает основную БД")
+    void shouldReadOwnWritesFromPrimary() {
+        authService.register("fresh-user", "Replica-Test1!");
+
+        assertEquals(1, primary.queryForObject("select count(*) from user where username = 'fresh-user'", Integer.class));
+        assertEquals(0, replica.queryForObject("select count(*) from user where username = 'fresh-user'", Integer.class));
+        assertNotNull(authService.login("fresh-user", "Replica-Test1!"));
+    }
+
+    @Test
+    @DisplayName("Удаление и смена пароля - выполняются в основной БД")
+    void shouldMutateOnPrimary() {
+        primary.update(INSERT_USER, "primary-mutated", "hash");
+        replica.update(INSERT_USER, "replica-mutated", "hash");
+
+        assertThrows(UsernameNotFoundException.class, () -> userService.updatePassword("replica-mutated", "new"));
+        assertThrows(UsernameNotFoundException.class, () -> userService.delete("replica-mutated"));
+
+        userService.updatePassword("primary-mutated", "new");
+        assertEquals("new", primary.queryForObject(
+                "select password from user where username = 'primary-mutated'", String.class
+        ));
+        userService.delete("primary-mutated");
+        assertEquals(0, primary.queryForObject(
+                "select count(*) from user where username = 'primary-mutated'", Integer.class
+        ));
+    }
+}
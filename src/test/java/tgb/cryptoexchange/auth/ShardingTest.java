@@ -0,0 +1,183 @@
+package tgb.cryptoexchange.auth;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import tgb.cryptoexchange.auth.datasource.ShardHash;
+import tgb.cryptoexchange.auth.dto.ImportReportDTO;
+import tgb.cryptoexchange.auth.exception.UsernameAlreadyTakenException;
+import tgb.cryptoexchange.auth.service.AuthService;
+import tgb.cryptoexchange.auth.service.UserImportService;
+import tgb.cryptoexchange.auth.service.UserService;
+import tgb.cryptoexchange.auth.service.UsernameAvailabilityService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Три шарда - независимые БД H2 в памяти: по наличию пользователя в БД видно, на какой шард он попал.
+ * Строки в них, как в MySQL по умолчанию, сравниваются без учета регистра.
+ */
+@SpringBootTest(properties = "auth.shards.urls=" + ShardingTest.SHARD_0 + "," + ShardingTest.SHARD_1 + "," + ShardingTest.SHARD_2)
+class ShardingTest {
+
+    static final String SHARD_0 = "jdbc:h2:mem:shard-0;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;IGNORECASE=TRUE";
+
+    static final String SHARD_1 = "jdbc:h2:mem:shard-1;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;IGNORECASE=TRUE;"
+            + "INIT=RUNSCRIPT FROM 'classpath:h2-schema.sql'";
+
+    static final String SHARD_2 = "jdbc:h2:mem:shard-2;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;IGNORECASE=TRUE;"
+            + "INIT=RUNSCRIPT FROM 'classpath:h2-schema.sql'";
+
+    private static final String PASSWORD = "Shard-Test1!";
+
+    private final List<JdbcTemplate> shards = List.of(SHARD_0, SHARD_1, SHARD_2).stream()
+            .map(url -> new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")))
+            .toList();
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UsernameAvailabilityService usernameAvailabilityService;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @AfterEach
+    void tearDown() {
+        shards.forEach(shard -> shard.update("delete from user"));
+    }
+
+    @Test
+    @DisplayName("Регистрация - пользователь сохраняется на шард своего юзернейма, вход и проверка юзернейма читают его оттуда")
+    void shouldRegisterOnHashedShard() {
+        List<String> usernames = IntStream.range(0, 12).mapToObj(i -> "sharded-" + i).toList();
+        usernames.forEach(username -> authService.register(username, PASSWORD));
+
+        for (String username : usernames) {
+            int shard = ShardHash.shardOf(username, 3);
+            for (int i = 0; i < shards.size(); i++) {
+                assertEquals(i == shard ? 1 : 0, count(shards.get(i), username), username + " on shard " + i);
+            }
+            assertNotNull(authService.login(username, PASSWORD));
+            assertFalse(usernameAvailabilityService.isAvailable(username));
+        }
+        assertEquals(3, usernames.stream().map(username -> ShardHash.shardOf(username, 3)).distinct().count());
+    }
+
+    @Test
+    @DisplayName("Список юзернеймов - собирается со всех шардов в алфавитном порядке, страницы не теряют пользователей")
+    void shouldMergeUsernamesFromAllShards() {
+        List<String> usernames = IntStream.range(0, 30).mapToObj(i -> String.format("listed-%02d", i)).toList();
+        usernames.forEach(username -> shards.get(ShardHash.shardOf(username, 3))
+                .update("insert into user (username, password) values (?, 'hash')", username));
+        userService.fillMissingUsernameBin();
+
+        assertEquals(usernames, userService.getUsernames());
+        List<String> paged = new ArrayList<>();
+        List<String> page = userService.getUsernames(null, 7);
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 7);
+            paged.addAll(page);
+            page = userService.getUsernames(page.getLast(), 7);
+        }
+        assertEquals(usernames, paged);
+        List<String> streamed = new ArrayList<>();
+        userService.forEachUsername(streamed::add);
+        assertEquals(usernames, streamed);
+    }
+
+    @Test
+    @DisplayName("Список юзернеймов - юзернеймы в разном регистре на разных шардах, сохраненные без байтов юзернейма - "
+            + "байты заполняются, страницы не теряют пользователей")
+    void shouldMergeMixedCaseUsernamesInBinaryOrder() {
+        shards.get(0).update("insert into user (username, password) values ('alice', 'hash'), ('Carl', 'hash')");
+        shards.get(1).update("insert into user (username, password) values ('Bob', 'hash')");
+        userService.fillMissingUsernameBin();
+        List<String> expected = List.of("Bob", "Carl", "alice");
+
+        assertEquals(expected, userService.getUsernames());
+        List<String> paged = new ArrayList<>();
+        List<String> page = userService.getUsernames(null, 1);
+        while (!page.isEmpty()) {
+            paged.addAll(page);
+            page = userService.getUsernames(page.getLast(), 1);
+        }
+        assertEquals(expected, paged);
+        List<String> streamed = new ArrayList<>();
+        userService.forEachUsername(streamed::add);
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    @DisplayName("Регистрация - юзернейм в другом регистре попадает на тот же шард и отклоняется")
+    void shouldRejectUsernameInAnotherCase() {
+        String username = IntStream.range(0, 100).mapToObj(i -> "Mixed-Case-" + i)
+                .filter(candidate -> ShardHash.jump(ShardHash.hash(candidate), 3)
+                        != ShardHash.jump(ShardHash.hash(candidate.toLowerCase()), 3))
+                .findFirst()
+                .orElseThrow();
+        authService.register(username, PASSWORD);
+
+        assertThrows(UsernameAlreadyTakenException.class,
+                () -> authService.register(username.toLowerCase(), PASSWORD));
+        assertEquals(1, shards.stream().mapToInt(shard -> count(shard, username)).sum());
+        assertNotNull(authService.login(username.toLowerCase(), PASSWORD));
+    }
+
+    @Test
+    @DisplayName("Удаление и смена пароля - выполняются на шарде пользователя")
+    void shouldMutateOnUserShard() {
+        String username = IntStream.range(0, 100).mapToObj(i -> "mutated-" + i)
+                .filter(candidate -> ShardHash.shardOf(candidate, 3) != 0)
+                .findFirst()
+                .orElseThrow();
+        JdbcTemplate shard = shards.get(ShardHash.shardOf(username, 3));
+        shard.update("insert into user (username, password) values (?, 'hash')", username);
+
+        userService.updatePassword(username, "new");
+        assertEquals("new", shard.queryForObject("select password from user where username = ?", String.class, username));
+        userService.delete(username);
+        assertEquals(0, count(shard, username));
+        assertThrows(UsernameNotFoundException.class, () -> userService.delete(username));
+    }
+
+    @Test
+    @DisplayName("Импорт - пакет раскладывается по шардам, занятые на любом шарде юзернеймы отклоняются")
+    void shouldImportAcrossShards() throws Exception {
+        authService.register("imported-0", PASSWORD);
+        String lines = IntStream.range(0, 20)
+                .mapToObj(i -> "{\"username\":\"imported-" + i + "\",\"password\":\"" + PASSWORD + "\"}")
+                .collect(Collectors.joining("\n"));
+
+        ImportReportDTO report = userImportService.importUsers(
+                new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8))
+        );
+
+        assertEquals(19, report.getImported());
+        assertEquals(1, report.getFailed());
+        for (int i = 0; i < 20; i++) {
+            String username = "imported-" + i;
+            assertEquals(1, count(shards.get(ShardHash.shardOf(username, 3)), username), username);
+        }
+    }
+
+    private static int count(JdbcTemplate shard, String username) {
+        return shard.queryForObject("select count(*) from user where username = ?", Integer.class, username);
+    }
+}
@@ -0,0 +1,84 @@
+package tgb.cryptoexchange.auth;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tgb.cryptoexchange.auth.entity.User;
+import tgb.cryptoexchange.auth.exception.LoginException;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+import tgb.cryptoexchange.auth.service.AuthService;
+import tgb.cryptoexchange.auth.service.UserService;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Вход из другого потока, пока транзакция смены пароля или удаления не закоммичена, читает старую строку
+ * и кладет ее в кэш пользователей. После коммита эта запись не должна оставаться в кэше.
+ */
+@SpringBootTest
+class UserCacheInvalidationTest {
+
+    private static final String OLD_PASSWORD = "Cache-Test1!";
+
+    private static final String NEW_PASSWORD = "Cache-Test2!";
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("updatePassword(username, password) - вход до коммита - после коммита старый пароль не принимается")
+    void shouldNotKeepStaleUserAfterPasswordChange() throws Exception {
+        String username = "cache-password-change";
+        save(username);
+        assertNotNull(authService.login(username, OLD_PASSWORD));
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                userService.updatePassword(username, passwordEncoder.encode(NEW_PASSWORD));
+                assertDoesNotThrow(() -> executor.submit(() -> authService.login(username, OLD_PASSWORD)).get());
+            });
+        }
+
+        assertThrows(LoginException.class, () -> authService.login(username, OLD_PASSWORD));
+        assertNotNull(authService.login(username, NEW_PASSWORD));
+    }
+
+    @Test
+    @DisplayName("delete(username) - вход до коммита - после коммита удаленный пользователь не входит")
+    void shouldNotKeepStaleUserAfterDelete() throws Exception {
+        String username = "cache-delete";
+        save(username);
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                userService.delete(username);
+                assertDoesNotThrow(() -> executor.submit(() -> authService.login(username, OLD_PASSWORD)).get());
+            });
+        }
+
+        assertThrows(LoginException.class, () -> authService.login(username, OLD_PASSWORD));
+    }
+
+    private void save(String username) {
+        userRepository.save(User.builder().username(username).password(passwordEncoder.encode(OLD_PASSWORD)).build());
+    }
+}
@@ -0,0 +1,103 @@
+package tgb.cryptoexchange.auth;
+
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "auth.login-throttle.enabled=false")
+@ActiveProfiles("virtual-threads")
+class VirtualThreadsProfileTest {
+
+    private static final int CLIENTS = 64;
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    @DisplayName("Профиль virtual-threads - Tomcat обрабатывает запросы в виртуальных потоках")
+    void shouldUseVirtualThreadExecutor() {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        assertInstanceOf(VirtualThreadExecutor.class,
+                webServer.getTomcat().getConnector().getProtocolHandler().getExecutor());
+    }
+
+    @Test
+    @DisplayName("Профиль virtual-threads - одновременные регистрация, вход и проверка юзернейма без закреплений потоков")
+    void shouldServeConcurrentRequestsWithoutPinning() throws Exception {
+        List<String> pinned;
+        try (PinningRecorder recorder = new PinningRecorder();
+             HttpClient client = HttpClient.newHttpClient();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                String username = "virtual-" + i;
+                results.add(clients.submit(() -> List.of(
+                        post(client, "/auth/register", username),
+                        post(client, "/auth/login", username),
+                        post(client, "/auth/login", username),
+                        get(client, "/auth/available/" + username)
+                )));
+            }
+            for (Future<List<Integer>> result : results) {
+                assertEquals(List.of(201, 201, 201, 200), result.get());
+            }
+            pinned = recorder.stop();
+        }
+        assertTrue(pinned.isEmpty(), () -> "Виртуальные потоки закреплены:\n" + String.join("\n\n", pinned));
+    }
+
+    @Test
+    @DisplayName("PinningRecorder - блокировка внутри synchronized - закрепление обнаружено")
+    void shouldDetectPinning() throws Exception {
+        Object monitor = new Object();
+        try (PinningRecorder recorder = new PinningRecorder()) {
+            Thread.ofVirtual().start(() -> {
+                synchronized (monitor) {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }).join();
+            assertFalse(recorder.stop().isEmpty());
+        }
+    }
+
+    private int post(HttpClient client, String path, String username) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"Virtual-Thread1!\"}"
+                ))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int get(HttpClient client, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,140 @@
+package tgb.cryptoexchange.auth.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditJournalTest {
+
+    private static final int SEGMENT_SIZE = 70_000;
+
+    private static final long NOW = System.currentTimeMillis();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("scan(...) - записанные события читаются в порядке записи")
+    void shouldReadWrittenEvents() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(directory, SEGMENT_SIZE, true)) {
+            journal.append(NOW + 1_000, AuditEventType.REGISTER, "alice");
+            journal.append(NOW + 2_000, AuditEventType.LOGIN_SUCCESS, "alice");
+            journal.append(NOW + 3_000, AuditEventType.LOGIN_FAILURE, "пользователь");
+            journal.flush();
+        }
+
+        assertEquals(List.of(
+                new AuditEvent(Instant.ofEpochMilli(NOW + 1_000), AuditEventType.REGISTER, "alice"),
+                new AuditEvent(Instant.ofEpochMilli(NOW + 2_000), AuditEventType.LOGIN_SUCCESS, "alice"),
+                new AuditEvent(Instant.ofEpochMilli(NOW + 3_000), AuditEventType.LOGIN_FAILURE, "пользователь")
+        ), scan(Instant.ofEpochMilli(NOW), Instant.ofEpochMilli(NOW + 10_000)));
+        assertEquals(1, scan(Instant.ofEpochMilli(NOW + 2_000), Instant.ofEpochMilli(NOW + 3_000)).size());
+    }
+
+    @Test
+    @DisplayName("append(...) - сегмент заполнен - запись продолжается в следующем сегменте")
+    void shouldRollSegments() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(directory, SEGMENT_SIZE, false)) {
+            for (int i = 0; i < 5_000; i++) {
+                journal.append(NOW + i, AuditEventType.LOGIN_SUCCESS, "user" + i);
+            }
+        }
+
+        assertTrue(AuditJournalReader.segments(directory).size() > 1);
+        List<AuditEvent> events = scan(Instant.ofEpochMilli(NOW), Instant.ofEpochMilli(NOW + 5_000));
+        assertEquals(5_000, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals("user" + i, events.get(i).username());
+        }
+    }
+
+    @Test
+    @DisplayName("open(...) - существующий журнал - запись продолжается после последней записи")
+    void shouldAppendAfterReopen() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(directory, SEGMENT_SIZE, true)) {
+            journal.append(NOW + 1_000, AuditEventType.REGISTER, "alice");
+        }
+        try (AuditJournal journal = AuditJournal.open(directory, SEGMENT_SIZE, true)) {
+            journal.append(NOW + 2_000, AuditEventType.DELETE, "alice");
+        }
+
+        assertEquals(1, AuditJournalReader.segments(directory).size());
+        assertEquals(List.of(AuditEventType.REGISTER, AuditEventType.DELETE),
+                scan(Instant.ofEpochMilli(NOW), Instant.ofEpochMilli(NOW + 10_000)).stream().map(AuditEvent::type).toList());
+    }
+
+    @Test
+    @DisplayName("open(...) - недописанная последняя запись - отбрасывается и перезаписывается")
+    void shouldRecoverFromTornRecord() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(directory, SEGMENT_SIZE, true)) {
+            journal.append(NOW + 1_000, AuditEventType.REGISTER, "alice");
+            journal.append(NOW + 2_000, AuditEventType.PASSWORD_CHANGE, "alice");
+        }
+        Path segment = AuditJournalReader.segments(directory).getFirst();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int second = AuditJournal.HEADER_SIZE + AuditJournal.RECORD_HEADER_SIZE + 16;
+            buffer.put(second + AuditJournal.RECORD_HEADER_SIZE + 10, (byte) 'X');
+        }
+
+        assertEquals(1, scan(Instant.ofEpochMilli(NOW), Instant.ofEpochMilli(NOW + 10_000)).size());
+        try (AuditJournal journal = AuditJournal.open(directory, SEGMENT_SIZE, true)) {
+            journal.append(NOW + 3_000, AuditEventType.LOGIN_SUCCESS, "bob");
+        }
+        assertEquals(List.of("alice", "bob"),
+                scan(Instant.ofEpochMilli(NOW), Instant.ofEpochMilli(NOW + 10_000)).stream().map(AuditEvent::username).toList());
+    }
+
+    @Test
+    @DisplayName("open(...) - поврежден заголовок последнего сегмента - создается новый сегмент")
+    void shouldRollWhenHeaderIsCorrupted() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(directory, SEGMENT_SIZE, true)) {
+            journal.append(NOW + 1_000, AuditEventType.REGISTER, "alice");
+        }
+        Path segment = AuditJournalReader.segments(directory).getFirst();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), 0);
+        }
+        try (AuditJournal journal = AuditJournal.open(directory, SEGMENT_SIZE, true)) {
+            journal.append(NOW + 2_000, AuditEventType.REGISTER, "bob");
+        }
+
+        assertEquals(2, AuditJournalReader.segments(directory).size());
+        assertEquals(List.of("bob"),
+                scan(Instant.ofEpochMilli(NOW), Instant.ofEpochMilli(NOW + 10_000)).stream().map(AuditEvent::username).toList());
+    }
+
+    @Test
+    @DisplayName("scan(...) - consumer вернул false - чтение прекращается")
+    void shouldStopWhenConsumerReturnsFalse() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(directory, SEGMENT_SIZE, false)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(NOW + i, AuditEventType.LOGIN_SUCCESS, "user" + i);
+            }
+        }
+        List<AuditEvent> events = new ArrayList<>();
+
+        AuditJournalReader.scan(directory, Instant.ofEpochMilli(NOW), Instant.ofEpochMilli(NOW + 100), event -> {
+            events.add(event);
+            return events.size() < 3;
+        });
+        assertEquals(3, events.size());
+    }
+
+    private List<AuditEvent> scan(Instant from, Instant to) throws IOException {
+        List<AuditEvent> events = new ArrayList<>();
+        AuditJournalReader.scan(directory, from, to, events::add);
+        return events;
+    }
+}
@@ -0,0 +1,91 @@
+package tgb.cryptoexchange.auth.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("record(type, username) - после close() все опубликованные события записаны в журнал")
+    void shouldWriteRecordedEvents() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuditLog auditLog = new AuditLog(registry, directory.toString(), 1024, 70_000, 64, true);
+        auditLog.start();
+        Instant from = Instant.now();
+        for (int i = 0; i < 500; i++) {
+            auditLog.record(AuditEventType.LOGIN_SUCCESS, "user" + i);
+        }
+        auditLog.close();
+
+        List<AuditEvent> events = new ArrayList<>();
+        auditLog.scan(from, Instant.now().plusSeconds(1), events::add);
+        assertEquals(500, events.size());
+        assertEquals("user0", events.getFirst().username());
+        assertEquals("user499", events.getLast().username());
+        double dropped = registry.get("auth.audit.events").tag("outcome", "dropped").counter().count();
+        double written = registry.get("auth.audit.events").tag("outcome", "written").counter().count();
+        assertEquals(500, written + dropped);
+        assertEquals(0, dropped);
+    }
+
+    @Test
+    @DisplayName("record(type, username) - буфер пуст - поток записи спит без таймаута и просыпается от события")
+    void shouldWakeIdleWriterOnRecord() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuditLog auditLog = new AuditLog(registry, directory.toString(), 1024, 70_000, 64, true);
+        auditLog.start();
+        try {
+            Thread writer = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().equals("audit-writer"))
+                    .findFirst()
+                    .orElseThrow();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (writer.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(Thread.State.WAITING, writer.getState());
+
+            auditLog.record(AuditEventType.REGISTER, "user");
+            Counter written = registry.get("auth.audit.events").tag("outcome", "written").counter();
+            while (written.count() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(1, written.count());
+        } finally {
+            auditLog.close();
+        }
+    }
+
+    @Test
+    @DisplayName("record(type, username) - каталог не задан - журнал выключен, файлы не создаются")
+    void shouldDoNothingWhenDisabled() throws IOException {
+        AuditLog auditLog = new AuditLog(new SimpleMeterRegistry(), "", 1024, 70_000, 64, true);
+        auditLog.start();
+        auditLog.record(AuditEventType.REGISTER, "user");
+        auditLog.close();
+
+        assertFalse(auditLog.isEnabled());
+        List<AuditEvent> events = new ArrayList<>();
+        auditLog.scan(Instant.EPOCH, Instant.now().plusSeconds(1), events::add);
+        assertTrue(events.isEmpty());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
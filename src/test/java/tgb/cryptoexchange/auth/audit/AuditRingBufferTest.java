@@ -0,0 +1,89 @@
+package tgb.cryptoexchange.auth.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditRingBufferTest {
+
+    @Test
+    @DisplayName("drain(handler, limit) - события возвращаются в порядке публикации, не больше limit")
+    void shouldDrainInOrder() {
+        AuditRingBuffer buffer = new AuditRingBuffer(8);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.offer(i, AuditEventType.REGISTER, "user" + i));
+        }
+        List<String> usernames = new ArrayList<>();
+
+        assertEquals(3, buffer.drain((timestamp, type, username) -> usernames.add(username), 3));
+        assertEquals(2, buffer.size());
+        assertEquals(2, buffer.drain((timestamp, type, username) -> usernames.add(username), 10));
+        assertEquals(List.of("user0", "user1", "user2", "user3", "user4"), usernames);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    @DisplayName("offer(...) - буфер заполнен - событие отброшено, после чтения место освобождается")
+    void shouldRejectWhenFull() {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i, AuditEventType.LOGIN_SUCCESS, "user"));
+        }
+
+        assertFalse(buffer.offer(4, AuditEventType.LOGIN_SUCCESS, "user"));
+        assertEquals(1, buffer.drain((timestamp, type, username) -> {
+        }, 1));
+        assertTrue(buffer.offer(5, AuditEventType.LOGIN_SUCCESS, "user"));
+    }
+
+    @Test
+    @DisplayName("Конструктор - емкость не степень двойки - IllegalArgumentException")
+    void shouldRequirePowerOfTwoCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new AuditRingBuffer(10));
+    }
+
+    @Test
+    @DisplayName("offer(...) из нескольких потоков - читатель получает каждое событие ровно один раз")
+    void shouldDeliverEveryEventOnceUnderContention() throws InterruptedException {
+        AuditRingBuffer buffer = new AuditRingBuffer(1024);
+        int threads = 4;
+        int perThread = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    while (!buffer.offer((long) thread * perThread + i, AuditEventType.LOGIN_FAILURE, "user")) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+        Set<Long> received = new HashSet<>();
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received.size() < threads * perThread && System.nanoTime() < deadline) {
+            buffer.drain((timestamp, type, username) -> assertTrue(received.add(timestamp)), 256);
+        }
+        executor.shutdown();
+
+        assertEquals(threads * perThread, received.size());
+        assertEquals(0, buffer.size());
+    }
+}
@@ -0,0 +1,50 @@
+package tgb.cryptoexchange.auth.bloom;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentBloomFilterTest {
+
+    @Test
+    @DisplayName("put(value) из нескольких потоков - все добавленные значения найдены, остальные почти всегда нет")
+    void shouldContainValuesPutConcurrently() throws InterruptedException {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(40_000, 0.01);
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = thread; i < 40_000; i += threads) {
+                    filter.put("user" + i);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 40_000; i++) {
+            assertTrue(filter.mightContain("user" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200, "Слишком много ложноположительных ответов: " + falsePositives);
+    }
+}
@@ -0,0 +1,108 @@
+package tgb.cryptoexchange.auth.bloom;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedBloomFilterTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("mightContain(value) - добавленные значения - true, остальные почти всегда false")
+    void shouldContainWrittenValues() throws IOException {
+        Path file = directory.resolve("test.bloom");
+        try (BloomFilterWriter writer = BloomFilterWriter.create(file, 10_000, 0.001)) {
+            for (int i = 0; i < 10_000; i++) {
+                writer.put("password" + i);
+            }
+        }
+        try (MappedBloomFilter filter = MappedBloomFilter.open(file)) {
+            for (int i = 0; i < 10_000; i++) {
+                assertTrue(filter.mightContain("password" + i));
+            }
+            int falsePositives = 0;
+            for (int i = 0; i < 10_000; i++) {
+                if (filter.mightContain("other" + i)) {
+                    falsePositives++;
+                }
+            }
+            assertTrue(falsePositives < 50, "Слишком много ложноположительных ответов: " + falsePositives);
+        }
+    }
+
+    @Test
+    @DisplayName("mightContain(value) - фильтр построен по SHA-1 - значение найдено")
+    void shouldMatchSha1Entries() throws IOException, NoSuchAlgorithmException {
+        Path file = directory.resolve("sha1.bloom");
+        String sha1 = HexFormat.of().withUpperCase().formatHex(
+                MessageDigest.getInstance("SHA-1").digest("P@ssw0rd".getBytes(StandardCharsets.UTF_8))
+        );
+        try (BloomFilterWriter writer = BloomFilterWriter.create(file, 100, 0.001)) {
+            writer.put(BloomHash.ofSha1Hex(sha1 + ":12345"));
+        }
+        try (MappedBloomFilter filter = MappedBloomFilter.open(file)) {
+            assertTrue(filter.mightContain("P@ssw0rd"));
+            assertFalse(filter.mightContain("P@ssw0rd1"));
+        }
+    }
+
+    @Test
+    @DisplayName("open(path) - файл не является фильтром - IOException")
+    void shouldRejectForeignFile() throws IOException {
+        Path file = Files.writeString(directory.resolve("foreign.bloom"), "not a bloom filter file at all");
+        assertThrows(IOException.class, () -> MappedBloomFilter.open(file));
+    }
+
+    @Test
+    @DisplayName("open(path) - в заголовке нулевое количество хеш-функций - IOException")
+    void shouldRejectZeroHashCount() throws IOException {
+        Path file = writeHeader("zero-hashes.bloom", 0, 64);
+        IOException exception = assertThrows(IOException.class, () -> MappedBloomFilter.open(file));
+        assertTrue(exception.getMessage().contains("hash count"));
+    }
+
+    @Test
+    @DisplayName("open(path) - в заголовке нулевое количество бит - IOException")
+    void shouldRejectZeroNumBits() throws IOException {
+        Path file = writeHeader("zero-bits.bloom", 3, 0);
+        IOException exception = assertThrows(IOException.class, () -> MappedBloomFilter.open(file));
+        assertTrue(exception.getMessage().contains("bit count"));
+    }
+
+    @Test
+    @DisplayName("mightContain(value) - фильтр закрыт - IllegalStateException, повторное закрытие без ошибок")
+    void shouldRejectReadsAfterClose() throws IOException {
+        Path file = directory.resolve("closed.bloom");
+        try (BloomFilterWriter writer = BloomFilterWriter.create(file, 100, 0.001)) {
+            writer.put("password");
+        }
+        MappedBloomFilter filter = MappedBloomFilter.open(file);
+        filter.close();
+
+        assertThrows(IllegalStateException.class, () -> filter.mightContain("password"));
+        assertDoesNotThrow(filter::close);
+    }
+
+    private Path writeHeader(String name, int hashCount, long numBits) throws IOException {
+        ByteBuffer content = ByteBuffer.allocate(MappedBloomFilter.HEADER_SIZE + 8)
+                .putInt(MappedBloomFilter.MAGIC)
+                .putInt(MappedBloomFilter.VERSION)
+                .putInt(hashCount)
+                .putInt(0)
+                .putLong(numBits);
+        return Files.write(directory.resolve(name), content.array());
+    }
+}
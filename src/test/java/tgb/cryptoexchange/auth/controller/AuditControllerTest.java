@@ -0,0 +1,132 @@
+package tgb.cryptoexchange.auth.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tgb.cryptoexchange.auth.audit.AuditEvent;
+import tgb.cryptoexchange.auth.audit.AuditEventType;
+import tgb.cryptoexchange.auth.audit.AuditLog;
+import tgb.cryptoexchange.auth.config.SecurityConfig;
+import tgb.cryptoexchange.auth.controller.advice.GlobalExceptionHandler;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
+import tgb.cryptoexchange.auth.service.UserService;
+import tgb.cryptoexchange.auth.service.VerifiedToken;
+
+import java.time.Instant;
+import java.util.function.Predicate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = AuditController.class)
+@Import({SecurityConfig.class, GlobalExceptionHandler.class})
+@TestPropertySource(properties = "auth.admins=admin")
+class AuditControllerTest {
+
+    private static final String ADMIN_TOKEN = "Bearer admin-token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private AuditLog auditLog;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private TokenVerificationService tokenVerificationService;
+
+    @BeforeEach
+    void setUp() {
+        Instant expiration = Instant.now().plusSeconds(60);
+        when(tokenVerificationService.verify("admin-token")).thenReturn(new VerifiedToken("admin", null, expiration, 0));
+        when(tokenVerificationService.verify("user-token")).thenReturn(new VerifiedToken("user", null, expiration, 0));
+    }
+
+    @Test
+    @DisplayName("GET /auth/audit - возвращает события в формате NDJSON с фильтром по юзернейму и лимитом")
+    @SuppressWarnings("unchecked")
+    void shouldStreamEventsAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Predicate<AuditEvent> consumer = invocation.getArgument(2);
+            if (consumer.test(new AuditEvent(Instant.parse("2030-01-01T00:00:00Z"), AuditEventType.REGISTER, "alice"))
+                    && consumer.test(new AuditEvent(Instant.parse("2030-01-01T00:00:01Z"), AuditEventType.REGISTER, "bob"))
+                    && consumer.test(new AuditEvent(Instant.parse("2030-01-01T00:00:02Z"), AuditEventType.LOGIN_SUCCESS, "alice"))) {
+                consumer.test(new AuditEvent(Instant.parse("2030-01-01T00:00:03Z"), AuditEventType.DELETE, "alice"));
+            }
+            return null;
+        }).when(auditLog).scan(eq(Instant.parse("2030-01-01T00:00:00Z")), eq(Instant.parse("2030-01-02T00:00:00Z")), any());
+        MvcResult result = mockMvc.perform(get("/auth/audit")
+                        .param("from", "2030-01-01T00:00:00Z")
+                        .param("to", "2030-01-02T00:00:00Z")
+                        .param("username", "alice")
+                        .param("limit", "2")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"timestamp\":\"2030-01-01T00:00:00Z\",\"type\":\"REGISTER\",\"username\":\"alice\"}\n"
+                                + "{\"timestamp\":\"2030-01-01T00:00:02Z\",\"type\":\"LOGIN_SUCCESS\",\"username\":\"alice\"}\n"
+                ));
+    }
+
+    @Test
+    @DisplayName("GET /auth/audit - невалидный лимит - 400")
+    void shouldReturn400WhenLimitIsInvalid() throws Exception {
+        mockMvc.perform(get("/auth/audit")
+                        .param("limit", "0")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.error.message").value("Invalid limit"));
+    }
+
+    @Test
+    @DisplayName("GET /auth/audit - начало интервала не раньше конца - 400")
+    void shouldReturn400WhenIntervalIsEmpty() throws Exception {
+        mockMvc.perform(get("/auth/audit")
+                        .param("from", "2030-01-02T00:00:00Z")
+                        .param("to", "2030-01-01T00:00:00Z")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error.message").value("Invalid interval"));
+    }
+
+    @Test
+    @DisplayName("GET /auth/audit - без токена - 401, журнал не читается")
+    void shouldRejectAnonymousRequest() throws Exception {
+        mockMvc.perform(get("/auth/audit"))
+                .andExpect(status().isUnauthorized());
+        verify(auditLog, never()).scan(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /auth/audit - токен пользователя не из auth.admins - 403, журнал не читается")
+    void shouldRejectNonAdmin() throws Exception {
+        mockMvc.perform(get("/auth/audit")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer user-token"))
+                .andExpect(status().isForbidden());
+        verify(auditLog, never()).scan(any(), any(), any());
+    }
+}
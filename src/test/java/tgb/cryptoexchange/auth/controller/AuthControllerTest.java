@@ -11,25 +11,36 @@ import org.springframework.http.MediaType;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.CannotCreateTransactionException;
 import tgb.cryptoexchange.auth.config.SecurityConfig;
 import tgb.cryptoexchange.auth.controller.advice.GlobalExceptionHandler;
+import tgb.cryptoexchange.auth.exception.HashingOverloadedException;
+import tgb.cryptoexchange.auth.exception.IdempotencyKeyReusedException;
 import tgb.cryptoexchange.auth.exception.LoginException;
 import tgb.cryptoexchange.auth.exception.UsernameAlreadyTakenException;
+import tgb.cryptoexchange.auth.policy.PasswordPolicy;
 import tgb.cryptoexchange.auth.service.AuthService;
+import tgb.cryptoexchange.auth.service.PasswordHashingService;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
 import tgb.cryptoexchange.auth.service.UserService;
+import tgb.cryptoexchange.auth.service.UsernameAvailabilityService;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = AuthController.class)
-@Import({SecurityConfig.class, GlobalExceptionHandler.class})
+@Import({SecurityConfig.class, GlobalExceptionHandler.class, PasswordHashingService.class, PasswordPolicy.class})
 class AuthControllerTest {
 
     @Autowired
@@ -41,6 +52,12 @@ class AuthControllerTest {
     @MockitoBean
     private UserService userService;
 
+    @MockitoBean
+    private TokenVerificationService tokenVerificationService;
+
+    @MockitoBean
+    private UsernameAvailabilityService usernameAvailabilityService;
+
     @ParameterizedTest
     @CsvSource({
             "username1,Qwe123!@$",
@@ -50,7 +67,7 @@ class AuthControllerTest {
     @DisplayName("POST /auth/register - валидные значения - возвращает токен")
     void registerShouldReturnToken(String username, String password) throws Exception {
         String token = "token";
-        when(authService.register(username, password)).thenReturn(token);
+        when(authService.register(username, password, null)).thenReturn(token);
         mockMvc.perform(post("/auth/register")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"username\":\"" + username + "\", \"password\":\"" + password + "\"}")
@@ -60,6 +77,33 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.data").value(token));
     }
 
+    @Test
+    @DisplayName("POST /auth/register - передан Idempotency-Key - ключ передается в сервис")
+    void registerShouldPassIdempotencyKey() throws Exception {
+        when(authService.register("username", "Qwe123!@#", "key")).thenReturn("token");
+        mockMvc.perform(post("/auth/register")
+                        .header("Idempotency-Key", "key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"username\", \"password\":\"Qwe123!@#\"}")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.data").value("token"));
+    }
+
+    @Test
+    @DisplayName("POST /auth/register - Idempotency-Key уже использован с другим паролем - возвращает 422")
+    void registerShouldReturn422IfIdempotencyKeyReused() throws Exception {
+        when(authService.register("username", "Qwe123!@#", "key"))
+                .thenThrow(new IdempotencyKeyReusedException("Idempotency key was used with a different request"));
+        mockMvc.perform(post("/auth/register")
+                        .header("Idempotency-Key", "key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"username\", \"password\":\"Qwe123!@#\"}")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
     @Test
     @DisplayName("POST /auth/register - невалидное значение - возвращает 400")
     void shouldReturn400IfCredentialIsInvalid() throws Exception {
@@ -70,6 +114,27 @@ class AuthControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @ParameterizedTest
+    @CsvSource({
+            "free,true",
+            "taken,false"
+    })
+    @DisplayName("GET /auth/available/{username} - возвращает свободность юзернейма")
+    void availableShouldReturnAvailability(String username, boolean available) throws Exception {
+        when(usernameAvailabilityService.isAvailable(username)).thenReturn(available);
+        mockMvc.perform(get("/auth/available/" + username))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").value(available));
+    }
+
+    @Test
+    @DisplayName("GET /auth/available/{username} - невалидный юзернейм - возвращает 400 без проверки")
+    void availableShouldReturn400IfUsernameIsInvalid() throws Exception {
+        mockMvc.perform(get("/auth/available/ab"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(usernameAvailabilityService);
+    }
+
     @Test
     @DisplayName("POST /auth/login - проброшено LoginException - возвращает 403")
     void loginShouldReturn403IfLoginExceptionThrown() throws Exception {
@@ -92,7 +157,7 @@ class AuthControllerTest {
         String username = "username";
         String password = "Qwe123#$%";
         String exceptionMessage = "message";
-        when(authService.register(username, password)).thenThrow(new UsernameAlreadyTakenException(exceptionMessage));
+        when(authService.register(username, password, null)).thenThrow(new UsernameAlreadyTakenException(exceptionMessage));
         mockMvc.perform(post("/auth/register")
                         .contentType(MediaType.APPLICATION_JSON)
                         .accept(MediaType.APPLICATION_JSON)
@@ -102,6 +167,40 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.error.message").value(exceptionMessage));
     }
 
+    @Test
+    @DisplayName("POST /auth/login - очередь хеширования переполнена - возвращает 503 с Retry-After")
+    void loginShouldReturn503IfHashingOverloaded() throws Exception {
+        String username = "username";
+        String password = "Qwe123#$%";
+        when(authService.login(username, password))
+                .thenThrow(new HashingOverloadedException("Password hashing queue is full", 3));
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\", \"password\":\"" + password + "\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.error.message").value("Password hashing queue is full"));
+    }
+
+    @Test
+    @DisplayName("POST /auth/login - не получено соединение с БД - возвращает 503 с Retry-After")
+    void shouldReturn503IfDatabaseConnectionNotAcquired() throws Exception {
+        String username = "username";
+        String password = "Qwe123#$%";
+        when(authService.login(username, password))
+                .thenThrow(new CannotCreateTransactionException("Could not open JPA EntityManager for transaction"));
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\", \"password\":\"" + password + "\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.error.message").value("Database is unavailable"));
+    }
+
     @Test
     @DisplayName("POST /auth/login - невалидные данные для логина - возвращает 403")
     void shouldReturn400IfNotValidUsername() throws Exception {
@@ -162,6 +261,62 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.data[3]").doesNotExist());
     }
 
+    @Test
+    @DisplayName("GET /auth?after=&limit= - передан курсор - возвращается страница юзернеймов")
+    void shouldReturnUsernamesPage() throws Exception {
+        when(userService.getUsernames("username1", 2)).thenReturn(List.of("username2", "username3"));
+        mockMvc.perform(get("/auth")
+                        .param("after", "username1")
+                        .param("limit", "2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data[0]").value("username2"))
+                .andExpect(jsonPath("$.data[1]").value("username3"))
+                .andExpect(jsonPath("$.data[2]").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /auth?limit= - размер страницы больше максимального - размер ограничивается")
+    void shouldLimitPageSize() throws Exception {
+        when(userService.getUsernames(null, 1000)).thenReturn(List.of("username1"));
+        mockMvc.perform(get("/auth")
+                        .param("limit", "100000")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0]").value("username1"));
+    }
+
+    @Test
+    @DisplayName("GET /auth?limit=0 - невалидный размер страницы - возвращает 400")
+    void shouldReturn400IfLimitInvalid() throws Exception {
+        mockMvc.perform(get("/auth")
+                        .param("limit", "0")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    @DisplayName("GET /auth/stream - возвращает юзернеймы в формате NDJSON")
+    @SuppressWarnings("unchecked")
+    void shouldStreamUsernamesAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("username1");
+            consumer.accept("user\"name2");
+            return null;
+        }).when(userService).forEachUsername(any());
+        MvcResult result = mockMvc.perform(get("/auth/stream")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"username\":\"username1\"}\n{\"username\":\"user\\\"name2\"}\n"));
+    }
+
     @Test
     @DisplayName("DELETE /auth/ - пользователи отсутствуют - возвращается ответ с пустым data")
     void deleteShouldReturn400() throws Exception {
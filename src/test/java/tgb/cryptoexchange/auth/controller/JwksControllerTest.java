@@ -0,0 +1,76 @@
+package tgb.cryptoexchange.auth.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.request.ServletWebRequest;
+import tgb.cryptoexchange.auth.config.SecurityConfig;
+import tgb.cryptoexchange.auth.service.SigningKeyRing;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
+import tgb.cryptoexchange.auth.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = JwksController.class)
+@Import(SecurityConfig.class)
+class JwksControllerTest {
+
+    private static final String JWKS = "{\"keys\":[{\"kty\":\"EC\",\"kid\":\"1\"}]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private TokenVerificationService tokenVerificationService;
+
+    @MockitoBean
+    private SigningKeyRing signingKeyRing;
+
+    @Test
+    @DisplayName("GET /auth/.well-known/jwks.json - возвращает набор ключей с ETag и Cache-Control")
+    void shouldReturnJwks() throws Exception {
+        when(signingKeyRing.getJwks()).thenReturn(new SigningKeyRing.Jwks(JWKS.getBytes(StandardCharsets.UTF_8), "\"abc\""));
+
+        mockMvc.perform(get("/auth/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(header().string("Cache-Control", "max-age=300, public"))
+                .andExpect(content().json(JWKS));
+    }
+
+    @Test
+    @DisplayName("GET /auth/.well-known/jwks.json - ETag совпадает - 304 без тела")
+    void shouldReturnNotModified() throws Exception {
+        when(signingKeyRing.getJwks()).thenReturn(new SigningKeyRing.Jwks(JWKS.getBytes(StandardCharsets.UTF_8), "\"abc\""));
+
+        mockMvc.perform(get("/auth/.well-known/jwks.json").header("If-None-Match", "\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("jwks(request) - токены подписываются HMAC - 404")
+    void shouldReturnNotFoundWithoutKeyRing() {
+        JwksController controller = new JwksController(
+                new StaticListableBeanFactory().getBeanProvider(SigningKeyRing.class), 300000
+        );
+
+        assertEquals(HttpStatus.NOT_FOUND,
+                controller.jwks(new ServletWebRequest(new MockHttpServletRequest())).getStatusCode());
+    }
+}
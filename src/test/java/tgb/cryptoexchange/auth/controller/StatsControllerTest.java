@@ -0,0 +1,83 @@
+package tgb.cryptoexchange.auth.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import tgb.cryptoexchange.auth.config.SecurityConfig;
+import tgb.cryptoexchange.auth.dto.CacheStatsDTO;
+import tgb.cryptoexchange.auth.dto.HashingStatsDTO;
+import tgb.cryptoexchange.auth.service.PasswordHashingService;
+import tgb.cryptoexchange.auth.service.UserCache;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
+import tgb.cryptoexchange.auth.service.UserService;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = StatsController.class)
+@Import(SecurityConfig.class)
+class StatsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private PasswordHashingService passwordHashingService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private TokenVerificationService tokenVerificationService;
+
+    @MockitoBean
+    private UserCache userCache;
+
+    @Test
+    @DisplayName("GET /auth/stats/hashing - возвращает статистику пула хеширования")
+    void shouldReturnHashingStats() throws Exception {
+        when(passwordHashingService.getStats()).thenReturn(HashingStatsDTO.builder()
+                .poolSize(4)
+                .queueDepth(2)
+                .queueCapacity(64)
+                .rejected(5)
+                .build());
+        mockMvc.perform(get("/auth/stats/hashing")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.poolSize").value(4))
+                .andExpect(jsonPath("$.data.queueDepth").value(2))
+                .andExpect(jsonPath("$.data.queueCapacity").value(64))
+                .andExpect(jsonPath("$.data.rejected").value(5));
+    }
+
+    @Test
+    @DisplayName("GET /auth/stats/user-cache - возвращает статистику кэша пользователей")
+    void shouldReturnUserCacheStats() throws Exception {
+        when(userCache.getStats()).thenReturn(CacheStatsDTO.builder()
+                .size(10)
+                .maxSize(100)
+                .hits(30)
+                .misses(10)
+                .evictions(1)
+                .hitRate(0.75)
+                .build());
+        mockMvc.perform(get("/auth/stats/user-cache")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.size").value(10))
+                .andExpect(jsonPath("$.data.hits").value(30))
+                .andExpect(jsonPath("$.data.misses").value(10))
+                .andExpect(jsonPath("$.data.evictions").value(1))
+                .andExpect(jsonPath("$.data.hitRate").value(0.75));
+    }
+}
@@ -0,0 +1,172 @@
+package tgb.cryptoexchange.auth.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import tgb.cryptoexchange.auth.config.SecurityConfig;
+import tgb.cryptoexchange.auth.controller.advice.GlobalExceptionHandler;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
+import tgb.cryptoexchange.auth.service.TokenRevocationService;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
+import tgb.cryptoexchange.auth.service.UserService;
+import tgb.cryptoexchange.auth.service.VerifiedToken;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = TokenController.class)
+@Import({SecurityConfig.class, GlobalExceptionHandler.class})
+class TokenControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private TokenVerificationService tokenVerificationService;
+
+    @MockitoBean
+    private TokenRevocationService tokenRevocationService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @Test
+    @DisplayName("POST /auth/verify - валидный токен - возвращает юзернейм и срок действия")
+    void verifyShouldReturnSubject() throws Exception {
+        when(tokenVerificationService.verify("token"))
+                .thenReturn(new VerifiedToken("username", null, Instant.parse("2030-01-01T00:00:00Z"), 0));
+        mockMvc.perform(post("/auth/verify")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"token\":\"token\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.valid").value(true))
+                .andExpect(jsonPath("$.data.subject").value("username"))
+                .andExpect(jsonPath("$.data.expiration").value("2030-01-01T00:00:00Z"));
+    }
+
+    @Test
+    @DisplayName("POST /auth/verify - невалидный токен - возвращает 401")
+    void verifyShouldReturn401IfTokenInvalid() throws Exception {
+        when(tokenVerificationService.verify("token")).thenThrow(new InvalidTokenException("Invalid token"));
+        mockMvc.perform(post("/auth/verify")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"token\":\"token\"}"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.error.message").value("Invalid token"));
+    }
+
+    @Test
+    @DisplayName("POST /auth/verify/batch - валидные и невалидные токены - результаты в порядке токенов")
+    void verifyBatchShouldReturnResultsInInputOrder() throws Exception {
+        when(tokenVerificationService.verifyAll(List.of("first", "second", "third"))).thenReturn(List.of(
+                CompletableFuture.completedFuture(
+                        new VerifiedToken("first-user", null, Instant.parse("2030-01-01T00:00:00Z"), 0)
+                ),
+                CompletableFuture.failedFuture(new InvalidTokenException("Invalid token")),
+                CompletableFuture.supplyAsync(
+                        () -> new VerifiedToken("third-user", null, Instant.parse("2030-01-01T00:00:00Z"), 0)
+                )
+        ));
+        mockMvc.perform(post("/auth/verify/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"tokens\":[\"first\",\"second\",\"third\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data[0].subject").value("first-user"))
+                .andExpect(jsonPath("$.data[1].valid").value(false))
+                .andExpect(jsonPath("$.data[1].error").value("Invalid token"))
+                .andExpect(jsonPath("$.data[2].subject").value("third-user"))
+                .andExpect(jsonPath("$.data[3]").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("POST /auth/verify/batch - проверка токена завершилась ошибкой - ошибка в результате токена, "
+            + "остальные результаты возвращаются")
+    void verifyBatchShouldReportUnexpectedFailureAsTokenResult() throws Exception {
+        CompletableFuture<VerifiedToken> cancelled = new CompletableFuture<>();
+        cancelled.cancel(false);
+        when(tokenVerificationService.verifyAll(List.of("first", "second", "third"))).thenReturn(List.of(
+                CompletableFuture.failedFuture(new IllegalStateException("Database is unavailable")),
+                cancelled,
+                CompletableFuture.completedFuture(
+                        new VerifiedToken("third-user", null, Instant.parse("2030-01-01T00:00:00Z"), 0)
+                )
+        ));
+        mockMvc.perform(post("/auth/verify/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"tokens\":[\"first\",\"second\",\"third\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data[0].valid").value(false))
+                .andExpect(jsonPath("$.data[0].error").value("Verification failed"))
+                .andExpect(jsonPath("$.data[1].valid").value(false))
+                .andExpect(jsonPath("$.data[1].error").value("Verification failed"))
+                .andExpect(jsonPath("$.data[2].subject").value("third-user"));
+    }
+
+    @Test
+    @DisplayName("POST /auth/verify/batch - пустой список - возвращает 400")
+    void verifyBatchShouldReturn400IfEmpty() throws Exception {
+        mockMvc.perform(post("/auth/verify/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"tokens\":[]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    @DisplayName("POST /auth/verify/batch - токенов больше auth.verification.max-batch-size - возвращает 400")
+    void verifyBatchShouldReturn400IfTooLarge() throws Exception {
+        String tokens = String.join(",", Collections.nCopies(101, "\"token\""));
+        mockMvc.perform(post("/auth/verify/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content("{\"tokens\":[" + tokens + "]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error.message").value("Invalid batch size"));
+        verifyNoInteractions(tokenVerificationService);
+    }
+
+    @Test
+    @DisplayName("POST /auth/revoke - валидный токен - отзывает токен, возвращает 204")
+    void revokeShouldReturn204() throws Exception {
+        mockMvc.perform(post("/auth/revoke")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"token\":\"token\"}"))
+                .andExpect(status().isNoContent());
+        verify(tokenRevocationService).revoke("token");
+    }
+
+    @Test
+    @DisplayName("POST /auth/revoke - невалидный токен - возвращает 401")
+    void revokeShouldReturn401IfTokenInvalid() throws Exception {
+        doThrow(new InvalidTokenException("Invalid token")).when(tokenRevocationService).revoke("token");
+        mockMvc.perform(post("/auth/revoke")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"token\":\"token\"}"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error.message").value("Invalid token"));
+    }
+}
@@ -0,0 +1,163 @@
+package tgb.cryptoexchange.auth.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import tgb.cryptoexchange.auth.config.SecurityConfig;
+import tgb.cryptoexchange.auth.controller.advice.GlobalExceptionHandler;
+import tgb.cryptoexchange.auth.dto.ImportConflictDTO;
+import tgb.cryptoexchange.auth.dto.ImportReportDTO;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
+import tgb.cryptoexchange.auth.service.UserImportService;
+import tgb.cryptoexchange.auth.service.UserService;
+import tgb.cryptoexchange.auth.service.VerifiedToken;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = UserImportController.class)
+@Import({SecurityConfig.class, GlobalExceptionHandler.class})
+@TestPropertySource(properties = {"auth.admins=admin", "auth.import.max-body-size=64"})
+class UserImportControllerTest {
+
+    private static final String ADMIN_TOKEN = "Bearer admin-token";
+
+    private static final String USER_TOKEN = "Bearer user-token";
+
+    private static final String LINE = "{\"username\":\"user\",\"password\":\"Qwe123!@#\"}\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserImportService userImportService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private TokenVerificationService tokenVerificationService;
+
+    private final ImportReportDTO report = ImportReportDTO.builder()
+            .total(2)
+            .imported(1)
+            .failed(1)
+            .conflicts(List.of(new ImportConflictDTO(2, "taken", "Username is taken by another user")))
+            .usersPerSecond(10)
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        Instant expiration = Instant.now().plusSeconds(60);
+        when(tokenVerificationService.verify("admin-token")).thenReturn(new VerifiedToken("admin", null, expiration, 0));
+        when(tokenVerificationService.verify("user-token")).thenReturn(new VerifiedToken("user", null, expiration, 0));
+        when(tokenVerificationService.verify("expired-token")).thenThrow(new InvalidTokenException("Invalid token"));
+    }
+
+    @Test
+    @DisplayName("POST /auth/import - NDJSON в теле запроса - возвращает отчет импорта")
+    void shouldImportNdjsonBody() throws Exception {
+        when(userImportService.importUsers(any())).thenReturn(report);
+        mockMvc.perform(post("/auth/import")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(LINE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.imported").value(1))
+                .andExpect(jsonPath("$.data.conflicts[0].line").value(2))
+                .andExpect(jsonPath("$.data.conflicts[0].username").value("taken"));
+    }
+
+    @Test
+    @DisplayName("POST /auth/import - NDJSON-файл - возвращает отчет импорта")
+    void shouldImportFile() throws Exception {
+        when(userImportService.importUsers(any())).thenReturn(report);
+        mockMvc.perform(multipart("/auth/import")
+                        .file(new MockMultipartFile("file", "users.ndjson", MediaType.APPLICATION_NDJSON_VALUE,
+                                LINE.getBytes()))
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.total").value(2))
+                .andExpect(jsonPath("$.data.failed").value(1));
+    }
+
+    @Test
+    @DisplayName("POST /auth/import - без токена - 401, импорт не запускается")
+    void shouldRejectAnonymousImport() throws Exception {
+        mockMvc.perform(post("/auth/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(LINE))
+                .andExpect(status().isUnauthorized());
+        verify(userImportService, never()).importUsers(any());
+    }
+
+    @Test
+    @DisplayName("POST /auth/import - недействительный токен - 401, импорт не запускается")
+    void shouldRejectInvalidToken() throws Exception {
+        mockMvc.perform(post("/auth/import")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer expired-token")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(LINE))
+                .andExpect(status().isUnauthorized());
+        verify(userImportService, never()).importUsers(any());
+    }
+
+    @Test
+    @DisplayName("POST /auth/import - токен пользователя не из auth.admins - 403, импорт не запускается")
+    void shouldRejectNonAdmin() throws Exception {
+        mockMvc.perform(post("/auth/import")
+                        .header(HttpHeaders.AUTHORIZATION, USER_TOKEN)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(LINE))
+                .andExpect(status().isForbidden());
+        verify(userImportService, never()).importUsers(any());
+    }
+
+    @Test
+    @DisplayName("POST /auth/import - тело больше auth.import.max-body-size - 413, импорт не запускается")
+    void shouldRejectTooLargeBody() throws Exception {
+        mockMvc.perform(post("/auth/import")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(LINE + LINE))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.success").value(false));
+        verify(userImportService, never()).importUsers(any());
+    }
+
+    @Test
+    @DisplayName("POST /auth/import - файл больше auth.import.max-body-size - 413, импорт не запускается")
+    void shouldRejectTooLargeFile() throws Exception {
+        mockMvc.perform(multipart("/auth/import")
+                        .file(new MockMultipartFile("file", "users.ndjson", MediaType.APPLICATION_NDJSON_VALUE,
+                                (LINE + LINE).getBytes()))
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN_TOKEN)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPayloadTooLarge());
+        verify(userImportService, never()).importUsers(any());
+    }
+}
@@ -0,0 +1,112 @@
+package tgb.cryptoexchange.auth.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResharderTest {
+
+    private static final int USERS = 300;
+
+    private static final List<String> URLS = List.of(url("reshard-0"), url("reshard-1"), url("reshard-2"));
+
+    private final List<JdbcTemplate> shards = URLS.stream()
+            .map(url -> new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")))
+            .toList();
+
+    @AfterEach
+    void tearDown() {
+        shards.forEach(shard -> shard.update("delete from user"));
+    }
+
+    @Test
+    @DisplayName("run(false) - добавлен шард - на новый шард переезжают только его пользователи, остальные на месте")
+    void shouldMoveUsersToNewShard() throws Exception {
+        seed(2);
+
+        Resharder.Result result = new Resharder(URLS.subList(0, 2), URLS, "sa", "", 50).run(false);
+
+        assertEquals(USERS, result.scanned());
+        assertEquals(usernames(shards.get(2)).size(), result.moved());
+        assertTrue(result.moved() > USERS / 5 && result.moved() < USERS / 2);
+        assertPlacement(3);
+        assertEquals("hash-user-7", shards.get(ShardHash.shardOf("user-7", 3))
+                .queryForObject("select password from user where username = 'user-7'", String.class));
+    }
+
+    @Test
+    @DisplayName("run(false) - шард убран - все его пользователи переезжают на оставшиеся")
+    void shouldDrainRemovedShard() throws Exception {
+        seed(3);
+
+        Resharder.Result result = new Resharder(URLS, URLS.subList(0, 2), "sa", "", 50).run(false);
+
+        assertTrue(usernames(shards.get(2)).isEmpty());
+        assertTrue(result.moved() > 0);
+        assertPlacement(2);
+    }
+
+    @Test
+    @DisplayName("run(false) - пользователь уже скопирован прерванным запуском - не дублируется, удаляется из исходного шарда")
+    void shouldResumeInterruptedRun() throws Exception {
+        seed(2);
+        String copied = usernames(shards.get(0)).stream()
+                .filter(username -> ShardHash.shardOf(username, 3) == 2)
+                .findFirst()
+                .orElseThrow();
+        shards.get(2).update("insert into user (username, password) values (?, ?)", copied, "hash-" + copied);
+
+        new Resharder(URLS.subList(0, 2), URLS, "sa", "", 50).run(false);
+
+        assertPlacement(3);
+    }
+
+    @Test
+    @DisplayName("run(true) - пробный запуск - считает переезжающих пользователей, данные не меняются")
+    void shouldOnlyCountOnDryRun() throws Exception {
+        seed(2);
+        List<String> before = usernames(shards.get(0));
+
+        Resharder.Result result = new Resharder(URLS.subList(0, 2), URLS, "sa", "", 50).run(true);
+
+        assertTrue(result.moved() > 0);
+        assertEquals(before, usernames(shards.get(0)));
+        assertTrue(usernames(shards.get(2)).isEmpty());
+    }
+
+    private void seed(int shardCount) {
+        for (int i = 0; i < USERS; i++) {
+            String username = "user-" + i;
+            shards.get(ShardHash.shardOf(username, shardCount))
+                    .update("insert into user (username, password) values (?, ?)", username, "hash-" + username);
+        }
+    }
+
+    private void assertPlacement(int shardCount) {
+        Set<String> all = new HashSet<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            for (String username : usernames(shards.get(shard))) {
+                assertEquals(ShardHash.shardOf(username, shardCount), shard, username);
+                assertTrue(all.add(username), username);
+            }
+        }
+        assertEquals(USERS, all.size());
+    }
+
+    private static List<String> usernames(JdbcTemplate shard) {
+        return new ArrayList<>(shard.queryForList("select username from user order by username", String.class));
+    }
+
+    private static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;INIT=RUNSCRIPT FROM 'classpath:h2-schema.sql'";
+    }
+}
@@ -0,0 +1,71 @@
+package tgb.cryptoexchange.auth.datasource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardHashTest {
+
+    private static final int USERS = 100_000;
+
+    @Test
+    @DisplayName("shardOf(username, shards) - номер шарда в пределах [0, shards) и не меняется между вызовами")
+    void shouldReturnStableShardInRange() {
+        for (int i = 0; i < 1000; i++) {
+            int shard = ShardHash.shardOf("user-" + i, 7);
+            assertTrue(shard >= 0 && shard < 7);
+            assertEquals(shard, ShardHash.shardOf("user-" + i, 7));
+        }
+        assertEquals(0, ShardHash.shardOf("user", 1));
+    }
+
+    @Test
+    @DisplayName("shardOf(username, shards) - пользователи распределяются по шардам равномерно")
+    void shouldBalanceUsers() {
+        int[] counts = new int[4];
+        for (int i = 0; i < USERS; i++) {
+            counts[ShardHash.shardOf("user-" + i, counts.length)]++;
+        }
+        for (int count : counts) {
+            assertEquals(USERS / counts.length, count, USERS / counts.length * 0.05);
+        }
+    }
+
+    @Test
+    @DisplayName("shardOf(username, shards) - при добавлении шарда переезжает около 1/(N + 1) пользователей и только на новый шард")
+    void shouldMoveMinimalShareToNewShard() {
+        int moved = 0;
+        for (int i = 0; i < USERS; i++) {
+            int before = ShardHash.shardOf("user-" + i, 3);
+            int after = ShardHash.shardOf("user-" + i, 4);
+            if (before != after) {
+                assertEquals(3, after);
+                moved++;
+            }
+        }
+        assertEquals(USERS / 4, moved, USERS / 4 * 0.05);
+    }
+
+    @Test
+    @DisplayName("shardOf(username, shards) - юзернейм в другом регистре - тот же шард")
+    void shouldIgnoreCase() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ShardHash.shardOf("user-" + i, 7), ShardHash.shardOf("USER-" + i, 7));
+        }
+    }
+
+    @Test
+    @DisplayName("shardOf(username, shards) - юзернейм с диакритикой - тот же шард, что и без нее")
+    void shouldIgnoreAccents() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ShardHash.shardOf("jose-" + i, 7), ShardHash.shardOf("José-" + i, 7));
+        }
+    }
+
+    @Test
+    @DisplayName("jump(key, buckets) - неположительное число шардов - IllegalArgumentException")
+    void shouldRejectNonPositiveBuckets() {
+        assertThrows(IllegalArgumentException.class, () -> ShardHash.jump(1, 0));
+    }
+}
@@ -12,17 +12,10 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 class UserCredentialsDTOTest {
 
     @ParameterizedTest
-    @CsvSource({
-            "admin,123Qwe!@#",
-            "user,saD123^%#$",
-            "adm,qw125432^#QWE"
-    })
-    @DisplayName("isValidForRegistration() - валидные значения - true")
-    void isValidForRegistrationShouldReturnTrueIfCredentialsIsValid(String username, String password) {
-        UserCredentialsDTO userCredentialsDTO = new UserCredentialsDTO();
-        userCredentialsDTO.setUsername(username);
-        userCredentialsDTO.setPassword(password);
-        assertTrue(userCredentialsDTO.isValidForRegistration());
+    @ValueSource(strings = {"admin", "user", "adm"})
+    @DisplayName("hasValidUsername() - валидный юзернейм - true")
+    void hasValidUsernameShouldReturnTrueIfUsernameIsValid(String username) {
+        assertTrue(new UserCredentialsDTO(username, null).hasValidUsername());
     }
 
     @ParameterizedTest
@@ -40,45 +33,23 @@ class UserCredentialsDTOTest {
     }
 
     @Test
-    @DisplayName("isValidForRegistration() - null username - false")
-    void isValidForRegistrationShouldReturnFalseIfUsernameIsNull() {
-        UserCredentialsDTO userCredentialsDTO = new UserCredentialsDTO();
-        userCredentialsDTO.setUsername(null);
-        userCredentialsDTO.setPassword("qw125432^#QWE");
-        assertFalse(userCredentialsDTO.isValidForRegistration());
-    }
-
-    @Test
-    @DisplayName("isValidForRegistration() - null password - false")
-    void isValidForRegistrationShouldReturnFalseIfPasswordIsNull() {
-        UserCredentialsDTO userCredentialsDTO = new UserCredentialsDTO();
-        userCredentialsDTO.setUsername("username");
-        userCredentialsDTO.setPassword(null);
-        assertFalse(userCredentialsDTO.isValidForRegistration());
+    @DisplayName("hasValidUsername() - null username - false")
+    void hasValidUsernameShouldReturnFalseIfUsernameIsNull() {
+        assertFalse(new UserCredentialsDTO(null, "qw125432^#QWE").hasValidUsername());
     }
 
     @ParameterizedTest
     @ValueSource(strings = {"", "   ", "ab", "1q", "q1", "!q", "-3", "32"})
-    @DisplayName("isValidForRegistration() - длина юзернейма меньше 3, либо юзернейм пуст - false")
-    void isValidForRegistrationShouldReturnFalseIfUsernameIsBlankOrLengthLessThan3(String username) {
-        UserCredentialsDTO userCredentialsDTO = new UserCredentialsDTO();
-        userCredentialsDTO.setUsername(username);
-        userCredentialsDTO.setPassword("qw125432^#QWE");
-        assertFalse(userCredentialsDTO.isValidForRegistration());
+    @DisplayName("hasValidUsername() - длина юзернейма меньше 3, либо юзернейм пуст - false")
+    void hasValidUsernameShouldReturnFalseIfUsernameIsBlankOrLengthLessThan3(String username) {
+        assertFalse(new UserCredentialsDTO(username, "qw125432^#QWE").hasValidUsername());
     }
 
-    @ParameterizedTest
-    @ValueSource(strings = {"", "   ",
-            "qwerty", "qwe123", "qwerty%4", "1", "%",
-            "qwertyqwerty", "123456789", "!@#$%^&*(", "qwerty12345", "qwerty!!@@##", "123456^%$#@",
-            "Qwertyqwerty", "Qwerty12345", "!@#%QWERTY"
-    })
-    @DisplayName("isValidForRegistration() - пароль пуст, длина менее 8, не подходит под регулярное выражение - false")
-    void isValidForRegistrationShouldReturnFalseIfPasswordIsBlankOrLengthLessThan8(String password) {
-        UserCredentialsDTO userCredentialsDTO = new UserCredentialsDTO();
-        userCredentialsDTO.setUsername("username");
-        userCredentialsDTO.setPassword(password);
-        assertFalse(userCredentialsDTO.isValidForRegistration());
+    @Test
+    @DisplayName("hasValidUsername() - юзернейм длиннее столбца БД - false")
+    void hasValidUsernameShouldReturnFalseIfUsernameIsTooLong() {
+        assertTrue(new UserCredentialsDTO("a".repeat(255), null).hasValidUsername());
+        assertFalse(new UserCredentialsDTO("a".repeat(256), null).hasValidUsername());
     }
 
     @Test
@@ -0,0 +1,244 @@
+package tgb.cryptoexchange.auth.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import tgb.cryptoexchange.auth.service.AuthMetrics;
+import tgb.cryptoexchange.auth.service.LoginThrottle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleFilterTest {
+
+    private SimpleMeterRegistry registry;
+
+    private LoginThrottleFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        LoginThrottle loginThrottle = new LoginThrottle(
+                new LoginThrottle.Limit(2, Duration.ofMinutes(1)),
+                new LoginThrottle.Limit(100, Duration.ofSeconds(1)),
+                1000
+        );
+        filter = new LoginThrottleFilter(loginThrottle, new AuthMetrics(registry), new ObjectMapper(), 64, true,
+                List.of("10.0.0.0/8"));
+    }
+
+    private static MockHttpServletRequest login(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private MockHttpServletResponse doFilter(String body, int status) throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(login(body), response, (request, ignored) -> response.setStatus(status));
+        return response;
+    }
+
+    @Test
+    @DisplayName("doFilter - тело запроса целиком доходит до следующего фильтра")
+    void shouldPassWholeBody() throws ServletException, IOException {
+        String body = "{\"password\":\"" + "p".repeat(20) + "\",\"username\":\"username\"}";
+        AtomicReference<String> passed = new AtomicReference<>();
+        filter.doFilter(login(body), new MockHttpServletResponse(), (request, response) -> passed.set(
+                new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8)
+        ));
+        assertEquals(body, passed.get());
+    }
+
+    @Test
+    @DisplayName("doFilter - после исчерпания попыток юзернейма отвечает 429 без вызова контроллера")
+    void shouldRejectThrottledUsername() throws ServletException, IOException {
+        String body = "{\"username\":\"username\",\"password\":\"wrong\"}";
+        assertEquals(403, doFilter(body, 403).getStatus());
+        assertEquals(403, doFilter(body, 403).getStatus());
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(login(body), response, chain);
+        assertAll(
+                () -> assertNull(chain.getRequest()),
+                () -> assertEquals(429, response.getStatus()),
+                () -> assertEquals("60", response.getHeader(HttpHeaders.RETRY_AFTER)),
+                () -> assertTrue(response.getContentAsString().contains("Too many login attempts")),
+                () -> assertEquals(1, registry.get("auth.login.attempts").tag("outcome", "throttled").counter()
+                        .count()),
+                () -> assertEquals(201, doFilter("{\"username\":\"other\"}", 201).getStatus())
+        );
+    }
+
+    @Test
+    @DisplayName("doFilter - успешный вход не расходует попытки")
+    void shouldReleaseOnSuccess() throws ServletException, IOException {
+        String body = "{\"username\":\"username\",\"password\":\"password\"}";
+        for (int i = 0; i < 5; i++) {
+            assertEquals(201, doFilter(body, 201).getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("doFilter - тело длиннее max-body-peek - 413 без вызова контроллера")
+    void shouldRejectOversizedBody() throws ServletException, IOException {
+        String body = "{\"username\":\"username\",\"password\":\"" + "p".repeat(100) + "\"}";
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(login(body), response, chain);
+        assertNull(chain.getRequest());
+        assertEquals(413, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("doFilter - несколько полей username - 400 без вызова контроллера и без расхода попыток")
+    void shouldRejectDuplicateUsername() throws ServletException, IOException {
+        String body = "{\"username\":\"random\",\"username\":\"victim\"}";
+        for (int i = 0; i < 3; i++) {
+            MockFilterChain chain = new MockFilterChain();
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(login(body), response, chain);
+            assertNull(chain.getRequest());
+            assertEquals(400, response.getStatus());
+        }
+        assertEquals(403, doFilter("{\"username\":\"victim\"}", 403).getStatus());
+    }
+
+    @Test
+    @DisplayName("doFilter - за доверенным прокси - адрес клиента из X-Forwarded-For, иначе адрес соединения")
+    void shouldResolveClientAddressBehindTrustedProxy() throws ServletException, IOException {
+        LoginThrottle loginThrottle = new LoginThrottle(
+                new LoginThrottle.Limit(100, Duration.ofMinutes(1)),
+                new LoginThrottle.Limit(1, Duration.ofMinutes(1)),
+                1000
+        );
+        LoginThrottleFilter proxied = new LoginThrottleFilter(loginThrottle, new AuthMetrics(registry),
+                new ObjectMapper(), 64, false, List.of("10.0.0.0/8"));
+
+        assertEquals(403, throughProxy(proxied, "10.0.0.1", "203.0.113.1, 10.0.0.2").getStatus());
+        assertEquals(403, throughProxy(proxied, "10.0.0.1", "203.0.113.2").getStatus());
+        assertEquals(429, throughProxy(proxied, "10.0.0.3", "198.51.100.7, 203.0.113.1").getStatus());
+        assertEquals(403, throughProxy(proxied, "192.0.2.1", "203.0.113.1").getStatus());
+        assertEquals(429, throughProxy(proxied, "192.0.2.1", "203.0.113.3").getStatus());
+    }
+
+    private static MockHttpServletResponse throughProxy(LoginThrottleFilter filter, String remoteAddress,
+                                                        String forwardedFor) throws ServletException, IOException {
+        MockHttpServletRequest request = login("{\"username\":\"username\"}");
+        request.setRemoteAddr(remoteAddress);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (ignored, servletResponse) -> response.setStatus(403));
+        return response;
+    }
+
+    @Test
+    @DisplayName("doFilter - запросы других методов не ограничиваются")
+    void shouldSkipOtherMethods() throws ServletException, IOException {
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = login("{\"username\":\"username\"}");
+            request.setMethod("GET");
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            assertInstanceOf(HttpServletRequest.class, chain.getRequest());
+        }
+    }
+
+    @Test
+    @DisplayName("doFilter - юзернейм в другом регистре - попытки списываются с той же корзины")
+    void shouldThrottleUsernameRegardlessOfCase() throws ServletException, IOException {
+        assertEquals(403, doFilter("{\"username\":\"Alice\",\"password\":\"wrong\"}", 403).getStatus());
+        assertEquals(403, doFilter("{\"username\":\"ALICE\",\"password\":\"wrong\"}", 403).getStatus());
+        assertEquals(429, doFilter("{\"username\":\"alice\",\"password\":\"wrong\"}", 403).getStatus());
+    }
+
+    @Test
+    @DisplayName("doFilter - асинхронное чтение тела - слушатель получает тело целиком")
+    void shouldPassWholeBodyToReadListener() throws ServletException, IOException {
+        String body = "{\"username\":\"username\",\"password\":\"password\"}";
+        AtomicReference<ReadListener> containerListener = new AtomicReference<>();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login") {
+            private final ServletInputStream inputStream = new ServletInputStream() {
+                private final byte[] content = body.getBytes(StandardCharsets.UTF_8);
+
+                private int position;
+
+                @Override
+                public int read() {
+                    return position < content.length ? content[position++] & 0xFF : -1;
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return position >= content.length;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    containerListener.set(readListener);
+                }
+            };
+
+            @Override
+            public ServletInputStream getInputStream() {
+                return inputStream;
+            }
+        };
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+        filter.doFilter(request, new MockHttpServletResponse(), (filtered, response) -> {
+            ServletInputStream inputStream = filtered.getInputStream();
+            inputStream.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (inputStream.isReady() && !inputStream.isFinished()) {
+                        int b = inputStream.read();
+                        if (b >= 0) {
+                            read.write(b);
+                        }
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead.set(true);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    fail(throwable);
+                }
+            });
+        });
+
+        containerListener.get().onAllDataRead();
+        assertAll(
+                () -> assertEquals(body, read.toString(StandardCharsets.UTF_8)),
+                () -> assertTrue(allDataRead.get())
+        );
+    }
+}
@@ -0,0 +1,30 @@
+package tgb.cryptoexchange.auth.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DebugDiscardingAsyncAppenderTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "TRACE,true",
+            "DEBUG,true",
+            "INFO,false",
+            "WARN,false",
+            "ERROR,false"
+    })
+    @DisplayName("isDiscardable(event) - при заполнении очереди отбрасываются только DEBUG и TRACE")
+    void shouldDiscardOnlyDebugAndBelow(String level, boolean discardable) {
+        Logger logger = new LoggerContext().getLogger("test");
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.toLevel(level), "message", null, null);
+
+        assertEquals(discardable, new DebugDiscardingAsyncAppender().isDiscardable(event));
+    }
+}
@@ -0,0 +1,69 @@
+package tgb.cryptoexchange.auth.policy;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import tgb.cryptoexchange.auth.bloom.BloomFilterWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordPolicyTest {
+
+    @TempDir
+    private Path directory;
+
+    private static PasswordPolicy policy(Map<String, PasswordRule> rules) {
+        return new PasswordPolicy(new StaticListableBeanFactory(Map.copyOf(rules)).getBeanProvider(PasswordRule.class));
+    }
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = {"", "        ", "Aa1!", "password", "PASSWORD1!", "password1!", "Password!!", "Password12",
+            "qwerty", "qwe123", "qwerty%4", "1", "%", "qwertyqwerty", "123456789", "!@#$%^&*(", "qwerty12345",
+            "qwerty!!@@##", "123456^%$#@", "Qwertyqwerty", "Qwerty12345", "!@#%QWERTY"})
+    @DisplayName("isAcceptable(password) - пароль не проходит базовые правила - false")
+    void shouldRejectByBasicRules(String password) {
+        assertFalse(policy(Map.of()).isAcceptable(password));
+    }
+
+    @Test
+    @DisplayName("isAcceptable(password) - пароль проходит базовые правила - true")
+    void shouldAcceptValidPassword() {
+        assertTrue(policy(Map.of()).isAcceptable("Password1!"));
+    }
+
+    @Test
+    @DisplayName("isAcceptable(password) - дополнительное правило отклоняет пароль - false")
+    void shouldApplyAdditionalRules() {
+        PasswordPolicy policy = policy(Map.of("rule", password -> !password.contains("Qwerty")));
+
+        assertTrue(policy.isAcceptable("Password1!"));
+        assertFalse(policy.isAcceptable("Qwerty123!"));
+    }
+
+    @Test
+    @DisplayName("isAcceptable(password) - пароль есть в базе утекших - false")
+    void shouldRejectBreachedPassword() throws IOException {
+        Path file = directory.resolve("breached.bloom");
+        try (BloomFilterWriter writer = BloomFilterWriter.create(file, 1000, 0.001)) {
+            writer.put("Password1!");
+        }
+        BreachedPasswordRule rule = new BreachedPasswordRule(file);
+        try {
+            PasswordPolicy policy = policy(Map.of("breached", rule));
+
+            assertFalse(policy.isAcceptable("Password1!"));
+            assertTrue(policy.isAcceptable("Str0ng&Unique"));
+        } finally {
+            rule.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package tgb.cryptoexchange.auth.pool;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstancePoolTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Test
+    @DisplayName("acquire() - возвращенный объект выдается повторно без создания нового")
+    void shouldReuseReleasedInstance() {
+        InstancePool<Object> pool = new InstancePool<>(2, this::create);
+
+        Object first = pool.acquire();
+        pool.release(first);
+
+        assertSame(first, pool.acquire());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    @DisplayName("acquire() - все объекты заняты - создается новый, лишний при возврате отбрасывается")
+    void shouldCreateWhenEmptyAndDropWhenFull() {
+        InstancePool<Object> pool = new InstancePool<>(1, this::create);
+
+        Object first = pool.acquire();
+        Object second = pool.acquire();
+        assertNotSame(first, second);
+        pool.release(first);
+        pool.release(second);
+
+        assertSame(first, pool.acquire());
+        assertNotSame(second, pool.acquire());
+        assertEquals(3, created.get());
+    }
+
+    @Test
+    @DisplayName("acquire() - виртуальные потоки на каждую задачу - объекты переиспользуются, один объект не выдается дважды")
+    void shouldReuseInstancesAcrossVirtualThreads() {
+        InstancePool<Object> pool = new InstancePool<>(this::create);
+        Set<Object> inUse = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        AtomicInteger conflicts = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 10_000; i++) {
+                executor.submit(() -> {
+                    Object instance = pool.acquire();
+                    if (!inUse.add(instance)) {
+                        conflicts.incrementAndGet();
+                    }
+                    inUse.remove(instance);
+                    pool.release(instance);
+                });
+            }
+        }
+
+        assertEquals(0, conflicts.get());
+        assertTrue(created.get() < 1000, "created " + created.get());
+    }
+
+    @Test
+    @DisplayName("InstancePool(size, factory) - неположительный размер - IllegalArgumentException")
+    void shouldRejectNonPositiveSize() {
+        assertThrows(IllegalArgumentException.class, () -> new InstancePool<>(0, Object::new));
+    }
+
+    private Object create() {
+        created.incrementAndGet();
+        return new Object();
+    }
+}
@@ -0,0 +1,49 @@
+package tgb.cryptoexchange.auth.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import tgb.cryptoexchange.auth.entity.RevokedToken;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RevokedTokenRepositoryTest {
+
+    private static final Instant NOW = Instant.parse("2030-01-01T00:00:00Z");
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @BeforeEach
+    void setUp() {
+        revokedTokenRepository.saveAll(List.of(
+                new RevokedToken("old", "user", NOW.plusSeconds(60), NOW.minusSeconds(60)),
+                new RevokedToken("recent", "user", NOW.plusSeconds(60), NOW.minusSeconds(5)),
+                new RevokedToken("expired", "user", NOW.minusSeconds(1), NOW.minusSeconds(5))
+        ));
+    }
+
+    @Test
+    @DisplayName("findByRevokedAtAfterAndExpiresAtAfter(...) - только новые отзывы неистекших токенов")
+    void shouldFindRecentRevocations() {
+        List<RevokedToken> revokedTokens = revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(
+                NOW.minusSeconds(10), NOW
+        );
+        assertEquals(List.of("recent"), revokedTokens.stream().map(RevokedToken::getId).toList());
+    }
+
+    @Test
+    @DisplayName("deleteExpired(now) - удаляет записи истекших токенов")
+    void shouldDeleteExpired() {
+        assertEquals(1, revokedTokenRepository.deleteExpired(NOW));
+        assertEquals(2, revokedTokenRepository.count());
+    }
+}
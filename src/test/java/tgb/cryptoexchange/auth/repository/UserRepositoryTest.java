@@ -0,0 +1,106 @@
+package tgb.cryptoexchange.auth.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import tgb.cryptoexchange.auth.entity.User;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.saveAll(List.of(
+                new User(null, "charlie", "hash", 0),
+                new User(null, "alice", "hash", 0),
+                new User(null, "bob", "hash", 0)
+        ));
+    }
+
+    @Test
+    @DisplayName("findAllUsernames() - возвращает все юзернеймы в алфавитном порядке")
+    void shouldReturnAllUsernamesOrdered() {
+        assertEquals(List.of("alice", "bob", "charlie"), userRepository.findAllUsernames());
+    }
+
+    @Test
+    @DisplayName("findUsernamesAfter(after, limit) - возвращает страницу после курсора")
+    void shouldReturnPageAfterCursor() {
+        assertEquals(List.of("alice", "bob"), userRepository.findUsernamesAfter(User.usernameBin(""), Limit.of(2)));
+        assertEquals(List.of("charlie"), userRepository.findUsernamesAfter(User.usernameBin("bob"), Limit.of(2)));
+        assertEquals(List.of(), userRepository.findUsernamesAfter(User.usernameBin("charlie"), Limit.of(2)));
+    }
+
+    @Test
+    @DisplayName("findUsernamesAfter(after, limit) - юзернеймы в разном регистре - порядок по UTF-8 байтам")
+    void shouldPageMixedCaseUsernamesInBinaryOrder() {
+        userRepository.save(new User(null, "Dave", "hash", 0));
+
+        assertEquals(List.of("Dave", "alice", "bob", "charlie"), userRepository.findAllUsernames());
+        assertEquals(List.of("Dave", "alice"), userRepository.findUsernamesAfter(User.usernameBin(""), Limit.of(2)));
+        assertEquals(List.of("alice", "bob"), userRepository.findUsernamesAfter(User.usernameBin("Dave"), Limit.of(2)));
+    }
+
+    @Test
+    @DisplayName("existsByUsername(username) - проверяет наличие юзернейма")
+    void shouldCheckUsernameExistence() {
+        assertTrue(userRepository.existsByUsername("alice"));
+        assertFalse(userRepository.existsByUsername("dave"));
+    }
+
+    @Test
+    @DisplayName("updatePasswordIfUnchanged(username, old, new) - хеш не менялся - обновление")
+    void shouldUpdatePasswordIfUnchanged() {
+        assertEquals(1, userRepository.updatePasswordIfUnchanged("alice", "hash", "newHash"));
+        assertEquals("newHash", userRepository.findByUsername("alice").orElseThrow().getPassword());
+    }
+
+    @Test
+    @DisplayName("updatePasswordIfUnchanged(username, old, new) - хеш уже изменен - без обновления")
+    void shouldNotUpdatePasswordIfChanged() {
+        assertEquals(0, userRepository.updatePasswordIfUnchanged("alice", "otherHash", "newHash"));
+        assertEquals("hash", userRepository.findByUsername("alice").orElseThrow().getPassword());
+    }
+
+    @Test
+    @DisplayName("updatePasswordAndTokenVersion(username, password) - пароль заменен, версия токенов увеличена")
+    void shouldUpdatePasswordAndBumpTokenVersion() {
+        assertEquals(Optional.of(0L), userRepository.findTokenVersion("alice"));
+        assertEquals(1, userRepository.updatePasswordAndTokenVersion("alice", "newHash"));
+        assertEquals(1, userRepository.updatePasswordAndTokenVersion("alice", "newerHash"));
+        assertEquals(Optional.of(2L), userRepository.findTokenVersion("alice"));
+        assertEquals("newerHash", userRepository.findByUsername("alice").orElseThrow().getPassword());
+        assertEquals(Optional.of(0L), userRepository.findTokenVersion("bob"));
+    }
+
+    @Test
+    @DisplayName("updatePasswordAndTokenVersion(username, password) - пользователя нет - без обновления")
+    void shouldNotUpdatePasswordOfMissingUser() {
+        assertEquals(0, userRepository.updatePasswordAndTokenVersion("dave", "newHash"));
+        assertEquals(Optional.empty(), userRepository.findTokenVersion("dave"));
+    }
+
+    @Test
+    @DisplayName("save(user) - юзернейм занят - проброс DataIntegrityViolationException")
+    void saveShouldFailOnDuplicateUsername() {
+        assertThrows(DataIntegrityViolationException.class,
+                () -> userRepository.save(new User(null, "alice", "hash", 0)));
+    }
+}
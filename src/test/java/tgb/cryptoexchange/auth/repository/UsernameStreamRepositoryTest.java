@@ -0,0 +1,58 @@
+package tgb.cryptoexchange.auth.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import tgb.cryptoexchange.auth.datasource.UserShards;
+import tgb.cryptoexchange.auth.entity.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UsernameStreamRepository.class, UserShards.class})
+class UsernameStreamRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UsernameStreamRepository usernameStreamRepository;
+
+    @Test
+    @DisplayName("forEachUsername(consumer) - передает в consumer все юзернеймы в алфавитном порядке")
+    void shouldStreamAllUsernames() {
+        userRepository.saveAllAndFlush(List.of(
+                new User(null, "bob", "hash", 0),
+                new User(null, "alice", "hash", 0)
+        ));
+        List<String> usernames = new ArrayList<>();
+
+        usernameStreamRepository.forEachUsername(usernames::add);
+
+        assertEquals(List.of("alice", "bob"), usernames);
+    }
+
+    @Test
+    @DisplayName("forEachUsernameAfter(afterIds, consumer) - передает пользователей с id больше отметки по возрастанию id")
+    void shouldStreamUsernamesAfterId() {
+        List<User> users = userRepository.saveAllAndFlush(List.of(
+                new User(null, "bob", "hash", 0),
+                new User(null, "alice", "hash", 0),
+                new User(null, "carol", "hash", 0)
+        ));
+        long firstId = users.getFirst().getId();
+        List<String> usernames = new ArrayList<>();
+
+        usernameStreamRepository.forEachUsernameAfter(new long[]{firstId}, (shard, id, username) -> usernames.add(username));
+
+        assertEquals(List.of("alice", "carol"), usernames);
+        assertEquals(users.getLast().getId(), usernameStreamRepository.maxIds()[0]);
+    }
+}
@@ -0,0 +1,30 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdminUsernamesTest {
+
+    @Test
+    @DisplayName("contains(username) - юзернейм администратора в другом регистре или с диакритикой - true")
+    void shouldMatchByUsernameKey() {
+        AdminUsernames adminUsernames = new AdminUsernames(List.of(" Admin ", "josé"));
+
+        assertTrue(adminUsernames.contains("admin"));
+        assertTrue(adminUsernames.contains("ADMIN"));
+        assertTrue(adminUsernames.contains("Jose"));
+    }
+
+    @Test
+    @DisplayName("contains(username) - другой юзернейм, null или пустой список администраторов - false")
+    void shouldNotMatchOtherUsernames() {
+        assertFalse(new AdminUsernames(List.of("admin")).contains("admin2"));
+        assertFalse(new AdminUsernames(List.of("admin")).contains(null));
+        assertFalse(new AdminUsernames(List.of("")).contains(""));
+    }
+}
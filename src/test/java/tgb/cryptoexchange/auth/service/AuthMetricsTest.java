@@ -0,0 +1,37 @@
+package tgb.cryptoexchange.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AuthMetricsTest {
+
+    @Test
+    @DisplayName("AuthMetrics - запись этапов и исходов попадает в метры с нужными тегами")
+    void shouldRecordPhasesAndOutcomes() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuthMetrics authMetrics = new AuthMetrics(registry);
+
+        authMetrics.recordLoginPassword(TimeUnit.MILLISECONDS.toNanos(80));
+        authMetrics.recordRegisterSave(TimeUnit.MILLISECONDS.toNanos(5));
+        authMetrics.countLogin(AuthMetrics.LoginOutcome.BAD_PASSWORD);
+        authMetrics.countRegistration(AuthMetrics.RegistrationOutcome.SUCCESS);
+
+        assertAll(
+                () -> assertEquals(80, registry.get("auth.login.phase").tag("phase", "password").timer()
+                        .totalTime(TimeUnit.MILLISECONDS)),
+                () -> assertEquals(0, registry.get("auth.login.phase").tag("phase", "lookup").timer().count()),
+                () -> assertEquals(1, registry.get("auth.register.phase").tag("phase", "save").timer().count()),
+                () -> assertEquals(1, registry.get("auth.login.attempts").tag("outcome", "bad_password").counter()
+                        .count()),
+                () -> assertEquals(0, registry.get("auth.login.attempts").tag("outcome", "success").counter().count()),
+                () -> assertEquals(1, registry.get("auth.register.attempts").tag("outcome", "success").counter()
+                        .count())
+        );
+    }
+}
@@ -7,22 +7,34 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import tgb.cryptoexchange.auth.audit.AuditEventType;
+import tgb.cryptoexchange.auth.audit.AuditLog;
 import tgb.cryptoexchange.auth.entity.User;
 import tgb.cryptoexchange.auth.exception.AuthException;
+import tgb.cryptoexchange.auth.exception.HashingOverloadedException;
+import tgb.cryptoexchange.auth.exception.IdempotencyKeyReusedException;
 import tgb.cryptoexchange.auth.exception.LoginException;
+import tgb.cryptoexchange.auth.exception.UsernameAlreadyTakenException;
 import tgb.cryptoexchange.auth.repository.UserRepository;
 
+import java.sql.SQLException;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class AuthServiceTest {
     @Mock
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Mock
     private UserRepository userRepository;
@@ -30,23 +42,78 @@ class AuthServiceTest {
     @Mock
     private JwtService jwtService;
 
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @Mock
+    private AuthMetrics authMetrics;
+
+    @Mock
+    private UsernameAvailabilityService usernameAvailabilityService;
+
+    @Mock
+    private AuditLog auditLog;
+
+    @Mock
+    private TokenVersionCache tokenVersionCache;
+
+    @Mock
+    private AdminUsernames adminUsernames;
+
     @InjectMocks
     private AuthService authService;
 
+    @Test
+    @DisplayName("register(String username, String rawPassword) - юзернейм администратора - "
+            + "проброс UsernameAlreadyTakenException, пароль не хешируется, пользователь не сохраняется")
+    void registerShouldRejectAdminUsername() {
+        when(adminUsernames.contains("Admin")).thenReturn(true);
+
+        assertThrows(UsernameAlreadyTakenException.class, () -> authService.register("Admin", "password"));
+        verify(passwordHashingService, never()).encode(any());
+        verify(userRepository, never()).save(any());
+        verify(authMetrics).countRegistration(AuthMetrics.RegistrationOutcome.USERNAME_TAKEN);
+    }
+
     @Test
     @DisplayName("register(String username, String rawPassword) - уже существующий юзернейм - проброс AuthException")
     void registerShouldThrowExceptionWhenUserExists() {
         String username = "test";
-        User user = new User();
-        user.setId(1L);
-        user.setUsername(username);
-        user.setPassword("password");
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenThrow(new DuplicateKeyException("duplicate"));
         assertThrows(
                 AuthException.class,
                 () -> authService.register(username, "password"),
                 "Username is taken by another user"
         );
+        verify(authMetrics).countRegistration(AuthMetrics.RegistrationOutcome.USERNAME_TAKEN);
+    }
+
+    @Test
+    @DisplayName("register(String username, String rawPassword) - нарушение уникального индекса в SQLException - "
+            + "проброс UsernameAlreadyTakenException")
+    void registerShouldDetectUniqueViolationInCause() {
+        SQLException cause = new SQLException("Duplicate entry", "23000", 1062);
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate", cause));
+        assertThrows(UsernameAlreadyTakenException.class, () -> authService.register("test", "password"));
+    }
+
+    @Test
+    @DisplayName("register(String username, String rawPassword) - другое нарушение целостности - "
+            + "исключение пробрасывается как есть")
+    void registerShouldPropagateOtherIntegrityViolations() {
+        DataIntegrityViolationException exception = new DataIntegrityViolationException(
+                "too long", new SQLException("Data too long", "22001", 1406)
+        );
+        when(userRepository.save(any(User.class))).thenThrow(exception);
+        assertSame(exception, assertThrows(DataIntegrityViolationException.class,
+                () -> authService.register("test", "password")));
+        verify(authMetrics, never()).countRegistration(AuthMetrics.RegistrationOutcome.USERNAME_TAKEN);
     }
 
     @Test
@@ -57,33 +124,75 @@ class AuthServiceTest {
         String encodedPassword = "encodedPassword";
         String token = "token";
 
-        when(passwordEncoder.encode(password)).thenReturn(encodedPassword);
-        when(jwtService.generateToken(username)).thenReturn(token);
+        when(passwordHashingService.encode(password)).thenReturn(encodedPassword);
+        when(jwtService.generateToken(username, 0)).thenReturn(token);
         ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
 
         String actual = authService.register(username, password);
-        verify(passwordEncoder).encode(password);
+        verify(passwordHashingService).encode(password);
         verify(userRepository).save(userCaptor.capture());
+        verify(usernameAvailabilityService).add(username);
+        verify(auditLog).record(AuditEventType.REGISTER, username);
         User actualUser = userCaptor.getValue();
         assertAll(
                 () -> assertEquals(username, actualUser.getUsername()),
                 () -> assertEquals(encodedPassword, actualUser.getPassword()),
-                () -> assertEquals(token, actual)
+                () -> assertEquals(token, actual),
+                () -> verify(tokenVersionCache).invalidateAfterCommit(username)
         );
     }
 
+    @Test
+    @DisplayName("register(username, rawPassword, idempotencyKey) - передан ключ - регистрация через хранилище идемпотентности")
+    void registerWithIdempotencyKeyShouldUseStore() {
+        when(idempotencyStore.computeIfAbsent(eq("test\nkey"), eq("password"), any())).thenReturn("token");
+
+        assertEquals("token", authService.register("test", "password", "key"));
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("register(username, rawPassword, idempotencyKey) - повтор ключа с другим паролем - "
+            + "проброс IdempotencyKeyReusedException, токен первой регистрации не возвращается, BCrypt не повторяется")
+    void registerWithReusedIdempotencyKeyAndOtherPasswordShouldBeRejected() {
+        AuthService service = new AuthService(userRepository, passwordHashingService, jwtService, userCache,
+                new IdempotencyStore(100, 60000), passwordUpgradeService, authMetrics, usernameAvailabilityService,
+                auditLog, tokenVersionCache, adminUsernames);
+        when(passwordHashingService.encode("password")).thenReturn("encodedPassword");
+        when(jwtService.generateToken("test", 0)).thenReturn("token");
+
+        assertEquals("token", service.register("test", "password", "key"));
+        assertThrows(IdempotencyKeyReusedException.class, () -> service.register("test", "guess", "key"));
+        assertThrows(IdempotencyKeyReusedException.class, () -> service.register("test", null, "key"));
+        assertEquals("token", service.register("test", "password", "key"));
+        verify(userRepository, times(1)).save(any(User.class));
+        verify(passwordHashingService, times(1)).encode(any());
+        verify(passwordHashingService, never()).matches(any(), any());
+    }
+
+    @Test
+    @DisplayName("register(username, rawPassword, idempotencyKey) - ключ не передан - обычная регистрация")
+    void registerWithoutIdempotencyKeyShouldNotUseStore() {
+        when(jwtService.generateToken("test", 0)).thenReturn("token");
+
+        assertEquals("token", authService.register("test", "password", null));
+        verify(idempotencyStore, never()).computeIfAbsent(any(), any(), any());
+        verify(userRepository).save(any(User.class));
+    }
+
     @Test
     @DisplayName("Должен пробросить исключение, если пользователь по такому юзернейму не найден")
     void shouldThrowExceptionWhenUserDoesNotExist() {
         String username = "test";
         String password = "password";
 
-        when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
+        when(userCache.findByUsername(username)).thenReturn(Optional.empty());
         assertThrows(
                 LoginException.class,
                 () -> authService.login(username, password),
                 "User not found"
         );
+        verify(auditLog).record(AuditEventType.LOGIN_FAILURE, username);
     }
 
 
@@ -93,13 +202,10 @@ class AuthServiceTest {
         String username = "test";
         String password = "password";
         String encodedPassword = "encodedPassword";
-        User user = new User();
-        user.setId(1L);
-        user.setUsername(username);
-        user.setPassword(encodedPassword);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches(password, encodedPassword)).thenReturn(false);
+        when(userCache.findByUsername(username)).thenReturn(Optional.of(new CachedUser(1L, encodedPassword)));
+        when(passwordHashingService.matches(password, encodedPassword)).thenReturn(false);
         assertThrows(AuthException.class, () -> authService.login(username, password), "Invalid password");
+        verify(auditLog).record(AuditEventType.LOGIN_FAILURE, username);
     }
 
     @Test
@@ -109,14 +215,60 @@ class AuthServiceTest {
         String password = "password";
         String encodedPassword = "encodedPassword";
         String token = "token";
-        User user = new User();
-        user.setId(1L);
-        user.setUsername(username);
-        user.setPassword(encodedPassword);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches(password, encodedPassword)).thenReturn(true);
-        when(jwtService.generateToken(username)).thenReturn(token);
+        when(userCache.findByUsername(username)).thenReturn(Optional.of(new CachedUser(1L, encodedPassword)));
+        when(passwordHashingService.matches(password, encodedPassword)).thenReturn(true);
+        when(jwtService.generateToken(username, 0)).thenReturn(token);
         String actual = authService.login(username, password);
         assertEquals(token, actual);
+        verify(passwordUpgradeService, never()).upgradeAsync(any(), any(), any());
+        verify(authMetrics).countLogin(AuthMetrics.LoginOutcome.SUCCESS);
+        verify(auditLog).record(AuditEventType.LOGIN_SUCCESS, username);
+    }
+
+    @Test
+    @DisplayName("login(String username, String rawPassword) - пул хеширования переполнен - учет исхода overloaded")
+    void loginShouldCountOverloadedOutcome() {
+        when(userCache.findByUsername("test")).thenReturn(Optional.of(new CachedUser(1L, "hash")));
+        when(passwordHashingService.matches("password", "hash"))
+                .thenThrow(new HashingOverloadedException("Password hashing queue is full", 1));
+
+        assertThrows(HashingOverloadedException.class, () -> authService.login("test", "password"));
+        verify(authMetrics).countLogin(AuthMetrics.LoginOutcome.OVERLOADED);
+    }
+
+    @Test
+    @DisplayName("login(String username, String rawPassword) - устаревший хеш - постановка перехеширования в очередь")
+    void loginShouldScheduleUpgradeOfOutdatedHash() {
+        when(userCache.findByUsername("test")).thenReturn(Optional.of(new CachedUser(1L, "legacyHash")));
+        when(passwordHashingService.matches("password", "legacyHash")).thenReturn(true);
+        when(passwordHashingService.upgradeEncoding("legacyHash")).thenReturn(true);
+        when(jwtService.generateToken("test", 0)).thenReturn("token");
+
+        assertEquals("token", authService.login("test", "password"));
+        verify(passwordUpgradeService).upgradeAsync("test", "password", "legacyHash");
+    }
+
+    @Test
+    @DisplayName("login(String username, String rawPassword) - неверный пароль - хеш не обновляется")
+    void loginShouldNotUpgradeOnWrongPassword() {
+        when(userCache.findByUsername("test")).thenReturn(Optional.of(new CachedUser(1L, "legacyHash")));
+        when(passwordHashingService.matches("password", "legacyHash")).thenReturn(false);
+
+        assertThrows(LoginException.class, () -> authService.login("test", "password"));
+        verify(passwordUpgradeService, never()).upgradeAsync(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("login(String username, String rawPassword) - пользователь удален после проверки пароля - "
+            + "проброс LoginException, токен не выпускается")
+    void loginShouldFailIfUserDeletedBeforeMinting() {
+        when(userCache.findByUsername("test")).thenReturn(Optional.of(new CachedUser(1L, "hash")));
+        when(passwordHashingService.matches("password", "hash")).thenReturn(true);
+        when(tokenVersionCache.current("test")).thenReturn(TokenVersionCache.NO_USER);
+
+        assertThrows(LoginException.class, () -> authService.login("test", "password"));
+        verify(jwtService, never()).generateToken(any(), anyLong());
+        verify(authMetrics).countLogin(AuthMetrics.LoginOutcome.UNKNOWN_USER);
+        verify(auditLog).record(AuditEventType.LOGIN_FAILURE, "test");
     }
-}
\ No newline at end of file
+}
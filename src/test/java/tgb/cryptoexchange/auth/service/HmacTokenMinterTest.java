@@ -0,0 +1,71 @@
+package tgb.cryptoexchange.auth.service;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HmacTokenMinterTest {
+
+    private static final long ISSUED_AT = 1_760_000_000_123L;
+
+    private static final long EXPIRATION = ISSUED_AT + 3_600_000L;
+
+    private static final String ID = "q83vEjRWeJCrze8SNFZ4kA";
+
+    private static String jjwtToken(SecretKey key, String username, long version) {
+        return Jwts.builder()
+                .setSubject(username)
+                .setIssuedAt(new Date(ISSUED_AT))
+                .setExpiration(new Date(EXPIRATION))
+                .setId(ID)
+                .claim("ver", version)
+                .signWith(key)
+                .compact();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"a", "ab", "abc", "user", "test_user-01", "пользователь", "用户", "a/b'c<d>&"})
+    @DisplayName("mint(username, iat, exp, id, version) - совпадает с токеном jjwt побайтно")
+    void shouldMatchJjwtOutput(String username) {
+        for (String secret : new String[]{
+                "secret-secret-secret-secret-secret",
+                "secret-secret-secret-secret-secret-secret-secret-",
+                "test-secret-test-secret-test-secret-test-secret-test-secret-test-secret-"
+        }) {
+            SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+
+            assertTrue(HmacTokenMinter.canMint(username));
+            for (long version : new long[]{0, 7, 1234567890123L}) {
+                assertEquals(jjwtToken(key, username, version),
+                        new HmacTokenMinter(key).mint(username, ISSUED_AT, EXPIRATION, ID, version));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"user\"name", "user\\name", "user\nname", "user\u0001", "user😀", "user\uD83D", "\uDE00user"})
+    @DisplayName("canMint(username) - символы, требующие экранирования - false")
+    void shouldRejectEscapedUsernames(String username) {
+        assertFalse(HmacTokenMinter.canMint(username));
+    }
+
+    @Test
+    @DisplayName("mint(username, iat, exp, id, version) - отрицательная версия - проброс IllegalArgumentException")
+    void shouldRejectNegativeVersion() {
+        HmacTokenMinter minter = new HmacTokenMinter(
+                Keys.hmacShaKeyFor("secret-secret-secret-secret-secret".getBytes(StandardCharsets.UTF_8))
+        );
+
+        assertThrows(IllegalArgumentException.class,
+                () -> minter.mint("user", ISSUED_AT, EXPIRATION, ID, TokenVersionCache.NO_USER));
+    }
+}
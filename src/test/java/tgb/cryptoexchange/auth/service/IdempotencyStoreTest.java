@@ -0,0 +1,87 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tgb.cryptoexchange.auth.exception.IdempotencyKeyReusedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private final IdempotencyStore idempotencyStore = new IdempotencyStore(100, 60000);
+
+    @Test
+    @DisplayName("computeIfAbsent(key, request, operation) - повторный вызов с тем же ключом - операция выполняется один раз")
+    void shouldReturnStoredResultForSameKey() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("token-1", idempotencyStore.computeIfAbsent("key", "request", () -> "token-" + calls.incrementAndGet()));
+        assertEquals("token-1", idempotencyStore.computeIfAbsent("key", "request", () -> "token-" + calls.incrementAndGet()));
+        assertEquals("token-2", idempotencyStore.computeIfAbsent("other", "request", () -> "token-" + calls.incrementAndGet()));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("computeIfAbsent(key, request, operation) - тот же ключ с другими данными запроса - "
+            + "проброс IdempotencyKeyReusedException без выполнения операции")
+    void shouldRejectSameKeyWithDifferentRequest() {
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("token", idempotencyStore.computeIfAbsent("key", "password", () -> {
+            calls.incrementAndGet();
+            return "token";
+        }));
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotencyStore.computeIfAbsent("key", "other", () -> {
+            calls.incrementAndGet();
+            return "other-token";
+        }));
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> idempotencyStore.computeIfAbsent("key", null, () -> "other-token"));
+        assertEquals("token", idempotencyStore.computeIfAbsent("key", "password", () -> "other-token"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("computeIfAbsent(key, request, operation) - операция завершилась исключением - результат не сохраняется")
+    void shouldNotStoreFailure() {
+        assertThrows(IllegalStateException.class, () -> idempotencyStore.computeIfAbsent("key", "request", () -> {
+            throw new IllegalStateException("failure");
+        }));
+
+        assertEquals("token", idempotencyStore.computeIfAbsent("key", "request", () -> "token"));
+    }
+
+    @Test
+    @DisplayName("computeIfAbsent(key, request, operation) - одновременный вызов с тем же ключом - ожидает результат первого")
+    void concurrentCallShouldWaitForFirstResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+                idempotencyStore.computeIfAbsent("key", "request", () -> {
+                    started.countDown();
+                    await(release);
+                    return "first";
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() ->
+                idempotencyStore.computeIfAbsent("key", "request", () -> "second"));
+
+        release.countDown();
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("first", second.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
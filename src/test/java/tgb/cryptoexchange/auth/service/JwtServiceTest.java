@@ -7,9 +7,14 @@ import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.Key;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Date;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -25,6 +30,9 @@ class JwtServiceTest {
 
     private long expiration = 3600000L;
 
+    @TempDir
+    private Path keyDirectory;
+
     @BeforeEach
     void setUp() {
         jwtService = new JwtService(secret, expiration);
@@ -32,10 +40,10 @@ class JwtServiceTest {
     }
 
     @Test
-    @DisplayName("generateToken(String username) - валидный юзернейм - токен должен содержать юзернейм и валидное время жизни")
+    @DisplayName("generateToken(String username, long tokenVersion) - валидный юзернейм - токен должен содержать юзернейм и валидное время жизни")
     void generateToken_ShouldContainCorrectUsernameAndExpiration() {
         String username = "testuser";
-        String token = jwtService.generateToken(username);
+        String token = jwtService.generateToken(username, 0);
 
         Claims claims = Jwts.parserBuilder()
                 .setSigningKey(key)
@@ -50,9 +58,19 @@ class JwtServiceTest {
     }
 
     @Test
-    @DisplayName("generateToken(String username) - неверный ключ - проброс SecurityException")
+    @DisplayName("generateToken(String username, long tokenVersion) - у каждого токена свой jti, verify возвращает его")
+    void generateToken_ShouldContainUniqueId() {
+        VerifiedToken first = jwtService.verify(jwtService.generateToken("testuser", 0));
+        VerifiedToken second = jwtService.verify(jwtService.generateToken("testuser", 0));
+
+        assertNotNull(first.id());
+        assertNotEquals(first.id(), second.id());
+    }
+
+    @Test
+    @DisplayName("generateToken(String username, long tokenVersion) - неверный ключ - проброс SecurityException")
     void generateToken_WithWrongKey_ShouldFailParsing() {
-        String token = jwtService.generateToken("user");
+        String token = jwtService.generateToken("user", 0);
 
         Key wrongKey = Keys.hmacShaKeyFor("another-secret-key-another-secret".getBytes(StandardCharsets.UTF_8));
 
@@ -63,4 +81,117 @@ class JwtServiceTest {
                     .parseClaimsJws(token);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("verify(String token) - валидный токен - возвращает юзернейм и срок действия")
+    void verify_ShouldReturnSubjectAndExpiration() {
+        String token = jwtService.generateToken("testuser", 0);
+
+        VerifiedToken verifiedToken = jwtService.verify(token);
+
+        assertThat(verifiedToken.subject()).isEqualTo("testuser");
+        assertThat(verifiedToken.expiration().toEpochMilli())
+                .isCloseTo(System.currentTimeMillis() + expiration, Offset.offset(10000L));
+    }
+
+    @Test
+    @DisplayName("verify(String token) - токен подписан другим ключом - проброс InvalidTokenException")
+    void verify_WithWrongKey_ShouldThrowInvalidTokenException() {
+        String token = new JwtService("another-secret-key-another-secret", expiration).generateToken("user", 0);
+
+        assertThrows(InvalidTokenException.class, () -> jwtService.verify(token));
+    }
+
+    @Test
+    @DisplayName("verify(String token) - истекший токен - проброс InvalidTokenException")
+    void verify_ExpiredToken_ShouldThrowInvalidTokenException() {
+        String token = Jwts.builder()
+                .setSubject("user")
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(key)
+                .compact();
+
+        assertThrows(InvalidTokenException.class, () -> jwtService.verify(token));
+    }
+
+    @Test
+    @DisplayName("generateToken(String username, long tokenVersion) - юзернейм с кавычкой - токен выпускается через jjwt")
+    void generateToken_WithEscapedUsername_ShouldFallBackToJjwt() {
+        String token = jwtService.generateToken("user\"name", 0);
+
+        assertThat(jwtService.verify(token).subject()).isEqualTo("user\"name");
+    }
+
+    @Test
+    @DisplayName("generateToken(String username, long tokenVersion) - HMAC и jjwt - verify возвращает версию токенов")
+    void generateToken_ShouldContainTokenVersion() {
+        assertThat(jwtService.verify(jwtService.generateToken("user", 42)).version()).isEqualTo(42);
+        assertThat(jwtService.verify(jwtService.generateToken("user\"name", 42)).version()).isEqualTo(42);
+    }
+
+    @Test
+    @DisplayName("verify(String token) - токен без claim ver - версия 0; ver не число - проброс InvalidTokenException")
+    void verify_TokenWithoutVersion_ShouldReturnZeroVersion() {
+        Date expirationDate = new Date(System.currentTimeMillis() + expiration);
+        String legacy = Jwts.builder().setSubject("user").setExpiration(expirationDate).signWith(key).compact();
+        String malformed = Jwts.builder().setSubject("user").setExpiration(expirationDate).claim("ver", "x")
+                .signWith(key).compact();
+
+        assertThat(jwtService.verify(legacy).version()).isZero();
+        assertThrows(InvalidTokenException.class, () -> jwtService.verify(malformed));
+    }
+
+    @Test
+    @DisplayName("verify(String token) - поврежденный токен - проброс InvalidTokenException")
+    void verify_MalformedToken_ShouldThrowInvalidTokenException() {
+        assertThrows(InvalidTokenException.class, () -> jwtService.verify("not-a-token"));
+    }
+
+    private SigningKeyRing keyRing() {
+        return new SigningKeyRing(keyDirectory, Duration.ofDays(7), Duration.ofMinutes(10),
+                Duration.ofMillis(expiration), Clock.systemUTC());
+    }
+
+    @Test
+    @DisplayName("generateToken(String username, long tokenVersion) - режим ES256 - токен с kid проверяется публичным ключом")
+    void es256_ShouldSignWithKidAndVerify() {
+        SigningKeyRing keyRing = keyRing();
+        JwtService es256JwtService = new JwtService(secret, expiration, keyRing);
+
+        String token = es256JwtService.generateToken("testuser", 0);
+
+        var jws = Jwts.parserBuilder()
+                .setSigningKey(keyRing.getSigningKey().publicKey())
+                .build()
+                .parseClaimsJws(token);
+        assertThat(jws.getHeader().getKeyId()).isEqualTo(keyRing.getSigningKey().kid());
+        assertThat(jws.getHeader().getAlgorithm()).isEqualTo("ES256");
+        assertThat(es256JwtService.verify(token).subject()).isEqualTo("testuser");
+    }
+
+    @Test
+    @DisplayName("verify(String token) - режим ES256, токен подписан HMAC - проброс InvalidTokenException")
+    void es256_ShouldRejectHmacToken() {
+        JwtService es256JwtService = new JwtService(secret, expiration, keyRing());
+
+        assertThrows(InvalidTokenException.class, () -> es256JwtService.verify(jwtService.generateToken("user", 0)));
+    }
+
+    @Test
+    @DisplayName("verify(String token) - режим ES256, неизвестный kid - проброс InvalidTokenException")
+    void es256_ShouldRejectUnknownKid(@TempDir Path otherDirectory) {
+        JwtService es256JwtService = new JwtService(secret, expiration, keyRing());
+        SigningKeyRing otherKeyRing = new SigningKeyRing(otherDirectory, Duration.ofDays(7), Duration.ofMinutes(10),
+                Duration.ofMillis(expiration), Clock.systemUTC());
+        String token = new JwtService(secret, expiration, otherKeyRing).generateToken("user", 0);
+
+        assertThrows(InvalidTokenException.class, () -> es256JwtService.verify(token));
+    }
+
+    @Test
+    @DisplayName("generateToken(String username, long tokenVersion) - отрицательная версия - проброс IllegalArgumentException")
+    void generateToken_WithNegativeVersion_ShouldFail() {
+        assertThrows(IllegalArgumentException.class,
+                () -> jwtService.generateToken("testuser", TokenVersionCache.NO_USER));
+    }
+}
@@ -0,0 +1,113 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginThrottleTest {
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    private LoginThrottle loginThrottle;
+
+    @BeforeEach
+    void setUp() {
+        loginThrottle = new LoginThrottle(
+                new LoginThrottle.Limit(3, Duration.ofSeconds(10)),
+                new LoginThrottle.Limit(5, Duration.ofSeconds(1)),
+                1000,
+                nanos::get
+        );
+    }
+
+    @Test
+    @DisplayName("tryAcquire - после исчерпания корзины юзернейма попытки отклоняются до восстановления токена")
+    void shouldThrottleUsername() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, loginThrottle.tryAcquire("username", "10.0.0." + i));
+        }
+        long wait = loginThrottle.tryAcquire("username", "10.0.0.3");
+        assertEquals(TimeUnit.SECONDS.toNanos(10), wait);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertAll(
+                () -> assertEquals(0, loginThrottle.tryAcquire("username", "10.0.0.4")),
+                () -> assertTrue(loginThrottle.tryAcquire("username", "10.0.0.5") > 0),
+                () -> assertEquals(0, loginThrottle.tryAcquire("other", "10.0.0.5"))
+        );
+    }
+
+    @Test
+    @DisplayName("tryAcquire - юзернейм в другом регистре - та же корзина")
+    void shouldShareBucketAcrossUsernameCase() {
+        assertEquals(0, loginThrottle.tryAcquire("Alice", "10.0.0.1"));
+        assertEquals(0, loginThrottle.tryAcquire("ALICE", "10.0.0.2"));
+        assertEquals(0, loginThrottle.tryAcquire("alice", "10.0.0.3"));
+        assertTrue(loginThrottle.tryAcquire("aLiCe", "10.0.0.4") > 0);
+
+        loginThrottle.release("ALICE", "10.0.0.4");
+        assertEquals(0, loginThrottle.tryAcquire("alice", "10.0.0.5"));
+    }
+
+    @Test
+    @DisplayName("tryAcquire - после исчерпания корзины адреса отклоняются попытки с любым юзернеймом")
+    void shouldThrottleAddress() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, loginThrottle.tryAcquire("username" + i, "10.0.0.1"));
+        }
+        assertAll(
+                () -> assertEquals(TimeUnit.SECONDS.toNanos(1), loginThrottle.tryAcquire("username5", "10.0.0.1")),
+                () -> assertTrue(loginThrottle.tryAcquire(null, "10.0.0.1") > 0),
+                () -> assertEquals(0, loginThrottle.tryAcquire("username5", "10.0.0.2"))
+        );
+    }
+
+    @Test
+    @DisplayName("tryAcquire - отклоненная по юзернейму попытка не забирает токен адреса")
+    void shouldNotConsumeAddressWhenUsernameThrottled() {
+        LoginThrottle throttle = new LoginThrottle(
+                new LoginThrottle.Limit(1, Duration.ofSeconds(10)),
+                new LoginThrottle.Limit(2, Duration.ofSeconds(10)),
+                1000,
+                nanos::get
+        );
+        assertEquals(0, throttle.tryAcquire("username", "10.0.0.1"));
+        assertTrue(throttle.tryAcquire("username", "10.0.0.1") > 0);
+        assertTrue(throttle.tryAcquire("username", "10.0.0.1") > 0);
+        assertEquals(0, throttle.tryAcquire("other", "10.0.0.1"));
+    }
+
+    @Test
+    @DisplayName("release - возвращенные токены снова доступны")
+    void shouldReleaseTokens() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, loginThrottle.tryAcquire("username", "10.0.0.1"));
+            loginThrottle.release("username", "10.0.0.1");
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, loginThrottle.tryAcquire("username", "10.0.0.1"));
+        }
+        assertTrue(loginThrottle.tryAcquire("username", "10.0.0.1") > 0);
+    }
+
+    @Test
+    @DisplayName("tryAcquire - простаивающая корзина полностью восстанавливается")
+    void shouldRefillIdleBucket() {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.tryAcquire("username", "10.0.0." + i);
+        }
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, loginThrottle.tryAcquire("username", "10.0.1." + i));
+        }
+        assertTrue(loginThrottle.tryAcquire("username", "10.0.1.3") > 0);
+    }
+}
@@ -0,0 +1,163 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import tgb.cryptoexchange.auth.dto.HashingStatsDTO;
+import tgb.cryptoexchange.auth.exception.HashingOverloadedException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService passwordHashingService;
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    @DisplayName("encode(rawPassword), matches(rawPassword, encodedPassword) - хеш сверяется с исходным паролем")
+    void encodedPasswordShouldMatch() {
+        passwordHashingService = new PasswordHashingService(new BCryptPasswordEncoder(4), 2, 4, 5000, 1);
+        String encoded = passwordHashingService.encode("Qwe123!@#");
+        assertAll(
+                () -> assertTrue(passwordHashingService.matches("Qwe123!@#", encoded)),
+                () -> assertFalse(passwordHashingService.matches("Qwe123!@$", encoded)),
+                () -> assertEquals(3, passwordHashingService.getStats().getCompleted())
+        );
+    }
+
+    @Test
+    @DisplayName("encode(rawPassword) - очередь переполнена - проброс HashingOverloadedException")
+    void shouldRejectWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BCryptPasswordEncoder encoder = mock(BCryptPasswordEncoder.class);
+        when(encoder.encode(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "encoded";
+        });
+        passwordHashingService = new PasswordHashingService(encoder, 1, 1, 5000, 7);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordHashingService.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordHashingService.encode("second"));
+        while (passwordHashingService.getStats().getQueueDepth() == 0) {
+            Thread.onSpinWait();
+        }
+
+        HashingOverloadedException exception = assertThrows(
+                HashingOverloadedException.class, () -> passwordHashingService.encode("third")
+        );
+        release.countDown();
+        HashingStatsDTO stats = passwordHashingService.getStats();
+        assertAll(
+                () -> assertEquals(7, exception.getRetryAfterSeconds()),
+                () -> assertEquals(1, stats.getRejected()),
+                () -> assertEquals("encoded", running.get(5, TimeUnit.SECONDS)),
+                () -> assertEquals("encoded", queued.get(5, TimeUnit.SECONDS))
+        );
+    }
+
+    @Test
+    @DisplayName("encode(rawPassword) - превышено время ожидания - проброс HashingOverloadedException")
+    void shouldFailWhenMaxWaitExceeded() {
+        CountDownLatch release = new CountDownLatch(1);
+        BCryptPasswordEncoder encoder = mock(BCryptPasswordEncoder.class);
+        when(encoder.encode(anyString())).thenAnswer(invocation -> {
+            release.await();
+            return "encoded";
+        });
+        passwordHashingService = new PasswordHashingService(encoder, 1, 1, 50, 1);
+        assertThrows(HashingOverloadedException.class, () -> passwordHashingService.encode("password"));
+        release.countDown();
+        assertEquals(1, passwordHashingService.getStats().getTimedOut());
+    }
+
+    @Test
+    @DisplayName("encode(rawPassword) - время ожидания истекло в очереди - операция удаляется из очереди")
+    void shouldRemoveAbandonedTaskFromQueue() {
+        CountDownLatch release = new CountDownLatch(1);
+        BCryptPasswordEncoder encoder = mock(BCryptPasswordEncoder.class);
+        when(encoder.encode(anyString())).thenAnswer(invocation -> {
+            awaitUninterruptibly(release);
+            return "encoded";
+        });
+        passwordHashingService = new PasswordHashingService(encoder, 1, 1, 50, 1);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordHashingService.encode("first"));
+        while (passwordHashingService.getStats().getActiveThreads() == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(HashingOverloadedException.class, () -> passwordHashingService.encode("second"));
+        HashingStatsDTO afterTimeout = passwordHashingService.getStats();
+        assertThrows(HashingOverloadedException.class, () -> passwordHashingService.encode("third"));
+        release.countDown();
+        assertThrows(Exception.class, () -> running.get(5, TimeUnit.SECONDS));
+
+        assertAll(
+                () -> assertEquals(0, afterTimeout.getQueueDepth()),
+                () -> assertEquals(0, passwordHashingService.getStats().getRejected()),
+                () -> assertEquals(3, passwordHashingService.getStats().getTimedOut())
+        );
+    }
+
+    @Test
+    @DisplayName("encode(rawPassword) - операция дождалась потока пула после срока ожидания - пароль не хешируется")
+    void shouldSkipHashingAfterDeadline() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BCryptPasswordEncoder encoder = mock(BCryptPasswordEncoder.class);
+        when(encoder.encode("first")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "encoded";
+        });
+        AtomicReference<Instant> now = new AtomicReference<>(Instant.EPOCH);
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenAnswer(invocation -> now.get());
+        passwordHashingService = new PasswordHashingService(encoder, 1, 1, 5000, 1, clock);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordHashingService.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordHashingService.encode("second"));
+        while (passwordHashingService.getStats().getQueueDepth() == 0) {
+            Thread.onSpinWait();
+        }
+
+        now.set(Instant.EPOCH.plusSeconds(10));
+        release.countDown();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertAll(
+                () -> assertInstanceOf(HashingOverloadedException.class, exception.getCause()),
+                () -> assertEquals("encoded", running.get(5, TimeUnit.SECONDS)),
+                () -> verify(encoder, never()).encode("second"),
+                () -> assertEquals(1, passwordHashingService.getStats().getTimedOut()),
+                () -> assertEquals(1, passwordHashingService.getStats().getCompleted())
+        );
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException e) {
+                // как и BCrypt, не реагирует на прерывание
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import tgb.cryptoexchange.auth.config.SecurityConfig;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PasswordUpgradeServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserCache userCache;
+
+    private final PasswordEncoder passwordEncoder = new SecurityConfig(null).passwordEncoder(5, 0);
+
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @BeforeEach
+    void setUp() {
+        passwordUpgradeService = new PasswordUpgradeService(passwordEncoder, userRepository, userCache, 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordUpgradeService.shutdown();
+    }
+
+    @Test
+    @DisplayName("passwordEncoder - хеш без префикса версии - сверяется и требует обновления")
+    void encoderShouldMatchAndUpgradeLegacyHash() {
+        String legacyHash = new BCryptPasswordEncoder(4).encode("Password1!");
+        String currentHash = passwordEncoder.encode("Password1!");
+
+        assertAll(
+                () -> assertTrue(passwordEncoder.matches("Password1!", legacyHash)),
+                () -> assertTrue(passwordEncoder.upgradeEncoding(legacyHash)),
+                () -> assertTrue(currentHash.startsWith("{bcrypt}$2a$05$")),
+                () -> assertFalse(passwordEncoder.upgradeEncoding(currentHash)),
+                () -> assertTrue(passwordEncoder.upgradeEncoding("{bcrypt}" + legacyHash))
+        );
+    }
+
+    @Test
+    @DisplayName("upgradeAsync(username, raw, hash) - хеш не менялся - сохранение нового хеша и сброс кэша")
+    void shouldPersistUpgradedHash() {
+        when(userRepository.updatePasswordIfUnchanged(eq("test"), eq("oldHash"), anyString())).thenReturn(1);
+
+        passwordUpgradeService.upgradeAsync("test", "Password1!", "oldHash");
+
+        ArgumentCaptor<String> newHash = ArgumentCaptor.forClass(String.class);
+        verify(userRepository, timeout(5000)).updatePasswordIfUnchanged(eq("test"), eq("oldHash"), newHash.capture());
+        verify(userCache, timeout(5000)).invalidate("test");
+        assertTrue(passwordEncoder.matches("Password1!", newHash.getValue()));
+    }
+
+    @Test
+    @DisplayName("upgradeAsync(username, raw, hash) - пароль успели сменить - кэш не сбрасывается")
+    void shouldNotInvalidateCacheIfPasswordChanged() {
+        when(userRepository.updatePasswordIfUnchanged(eq("test"), eq("oldHash"), anyString())).thenReturn(0);
+
+        passwordUpgradeService.upgradeAsync("test", "Password1!", "oldHash");
+
+        verify(userRepository, timeout(5000)).updatePasswordIfUnchanged(eq("test"), eq("oldHash"), any());
+        verify(userCache, never()).invalidate(any());
+    }
+
+    @Test
+    @DisplayName("upgradeAsync(username, raw, hash) - после перехеширования - копия пароля затерта")
+    void shouldWipePasswordCopyAfterUpgrade() {
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(any())).thenReturn("newHash");
+        passwordUpgradeService.shutdown();
+        passwordUpgradeService = new PasswordUpgradeService(encoder, userRepository, userCache, 1, 10);
+
+        passwordUpgradeService.upgradeAsync("test", "Password1!", "oldHash");
+
+        ArgumentCaptor<CharSequence> raw = ArgumentCaptor.forClass(CharSequence.class);
+        verify(encoder, timeout(5000)).encode(raw.capture());
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (!raw.getValue().toString().equals("\0".repeat("Password1!".length()))) {
+                Thread.onSpinWait();
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevocationTableTest {
+
+    @Test
+    @DisplayName("contains(high, low) - добавленные идентификаторы найдены, остальные нет")
+    void shouldContainAddedIds() {
+        RevocationTable table = new RevocationTable();
+        for (long i = 0; i < 10_000; i++) {
+            table.add(i, ~i, 100);
+        }
+        assertEquals(10_000, table.size());
+        for (long i = 0; i < 10_000; i++) {
+            assertTrue(table.contains(i, ~i));
+            assertFalse(table.contains(i, i));
+        }
+    }
+
+    @Test
+    @DisplayName("add(high, low, expiresAt) - повторное добавление - продлевает запись без дубликата")
+    void shouldNotDuplicateIds() {
+        RevocationTable table = new RevocationTable();
+        table.add(1, 2, 100);
+        table.add(1, 2, 200);
+
+        assertEquals(1, table.size());
+        assertEquals(0, table.purge(150));
+        assertTrue(table.contains(1, 2));
+    }
+
+    @Test
+    @DisplayName("purge(now) - удаляет только истекшие записи, остальные остаются доступны для поиска")
+    void shouldPurgeExpiredEntries() {
+        RevocationTable table = new RevocationTable();
+        Map<Long, Long> expirations = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (long i = 0; i < 50_000; i++) {
+            long expiresAt = random.nextLong(1, 1000);
+            table.add(i * 31, i, expiresAt);
+            expirations.put(i, expiresAt);
+        }
+        long alive = expirations.values().stream().filter(expiresAt -> expiresAt > 500).count();
+
+        assertEquals(50_000 - alive, table.purge(500));
+        assertEquals(alive, table.size());
+        expirations.forEach((i, expiresAt) -> assertEquals(expiresAt > 500, table.contains(i * 31, i)));
+
+        assertEquals(alive, table.purge(1000));
+        assertEquals(0, table.size());
+    }
+}
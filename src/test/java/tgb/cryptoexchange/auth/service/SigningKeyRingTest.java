@@ -0,0 +1,120 @@
+package tgb.cryptoexchange.auth.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SigningKeyRingTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    private static final Duration ROTATION_PERIOD = Duration.ofDays(7);
+
+    private static final Duration PUBLISH_DELAY = Duration.ofMinutes(10);
+
+    private static final Duration TOKEN_EXPIRATION = Duration.ofHours(1);
+
+    @TempDir
+    private Path directory;
+
+    private SigningKeyRing keyRing(Instant now) {
+        return new SigningKeyRing(directory, ROTATION_PERIOD, PUBLISH_DELAY, TOKEN_EXPIRATION,
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private long keyFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".key")).count();
+        }
+    }
+
+    @Test
+    @DisplayName("SigningKeyRing - пустой каталог - создание ключа и использование его для подписи")
+    void shouldCreateFirstKey() throws IOException {
+        SigningKeyRing keyRing = keyRing(START);
+
+        SigningKeyRing.SigningKey signingKey = keyRing.getSigningKey();
+        assertAll(
+                () -> assertEquals(1, keyFiles()),
+                () -> assertEquals(signingKey.publicKey(), keyRing.getPublicKey(signingKey.kid())),
+                () -> assertEquals(signingKey.kid(), keyRing(START.plusSeconds(60)).getSigningKey().kid())
+        );
+    }
+
+    @Test
+    @DisplayName("refresh() - ключ устарел - новый ключ публикуется сразу, а подписывает только после задержки")
+    void shouldRotateAfterPublishDelay() throws IOException {
+        String firstKid = keyRing(START).getSigningKey().kid();
+
+        SigningKeyRing rotated = keyRing(START.plus(ROTATION_PERIOD));
+        String secondKid = otherKid(firstKid);
+
+        assertAll(
+                () -> assertEquals(2, keyFiles()),
+                () -> assertEquals(firstKid, rotated.getSigningKey().kid()),
+                () -> assertNotNull(rotated.getPublicKey(secondKid)),
+                () -> assertEquals(secondKid, keyRing(START.plus(ROTATION_PERIOD).plus(PUBLISH_DELAY)).getSigningKey().kid())
+        );
+    }
+
+    @Test
+    @DisplayName("refresh() - токены старого ключа истекли - старый ключ удаляется")
+    void shouldPruneRetiredKey() throws IOException {
+        String firstKid = keyRing(START).getSigningKey().kid();
+        keyRing(START.plus(ROTATION_PERIOD));
+
+        Instant lastTokenExpiration = START.plus(ROTATION_PERIOD).plus(PUBLISH_DELAY).plus(TOKEN_EXPIRATION);
+
+        assertNotNull(keyRing(lastTokenExpiration.minusSeconds(1)).getPublicKey(firstKid));
+        SigningKeyRing afterExpiration = keyRing(lastTokenExpiration);
+        assertAll(
+                () -> assertNull(afterExpiration.getPublicKey(firstKid)),
+                () -> assertEquals(1, keyFiles())
+        );
+    }
+
+    @Test
+    @DisplayName("getJwks() - содержит все публичные ключи в формате JWKS")
+    void shouldBuildJwks() throws IOException {
+        String initialEtag = keyRing(START).getJwks().etag();
+        SigningKeyRing keyRing = keyRing(START.plus(ROTATION_PERIOD));
+
+        JsonNode keys = new ObjectMapper().readTree(keyRing.getJwks().json()).get("keys");
+        assertEquals(2, keys.size());
+        for (JsonNode key : keys) {
+            assertAll(
+                    () -> assertEquals("EC", key.get("kty").asText()),
+                    () -> assertEquals("P-256", key.get("crv").asText()),
+                    () -> assertEquals("ES256", key.get("alg").asText()),
+                    () -> assertNotNull(keyRing.getPublicKey(key.get("kid").asText())),
+                    () -> assertEquals(43, key.get("x").asText().length()),
+                    () -> assertEquals(43, key.get("y").asText().length())
+            );
+        }
+        assertNotEquals(initialEtag, keyRing.getJwks().etag());
+    }
+
+    private String otherKid(String exceptKid) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".key"))
+                    .map(name -> name.substring(0, name.length() - 4))
+                    .filter(kid -> !kid.equals(exceptKid))
+                    .findFirst()
+                    .orElseThrow();
+        }
+    }
+}
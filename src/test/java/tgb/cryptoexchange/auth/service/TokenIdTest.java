@@ -0,0 +1,35 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenIdTest {
+
+    @Test
+    @DisplayName("toString() - совпадает с Base64URL 16 байт идентификатора, parse возвращает исходное значение")
+    void shouldRoundTripThroughBase64Url() {
+        for (int i = 0; i < 1000; i++) {
+            TokenId id = TokenId.random();
+            byte[] bytes = ByteBuffer.allocate(16).putLong(id.high()).putLong(id.low()).array();
+
+            assertEquals(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes), id.toString());
+            assertEquals(id, TokenId.parse(id.toString()));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "short", "q83vEjRWeJCrze8SNFZ4kA=", "q83vEjRWeJCrze8SNFZ4k+", "q83vEjRWeJCrze8SNFZ4kB"})
+    @NullSource
+    @DisplayName("parse(value) - не идентификатор в формате TokenId - null")
+    void shouldRejectForeignIds(String value) {
+        assertNull(TokenId.parse(value));
+    }
+}
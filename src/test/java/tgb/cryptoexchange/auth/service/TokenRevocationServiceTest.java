@@ -0,0 +1,98 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tgb.cryptoexchange.auth.entity.RevokedToken;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
+import tgb.cryptoexchange.auth.repository.RevokedTokenRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    private static final Instant NOW = Instant.parse("2030-01-01T00:00:00Z");
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Mock
+    private JwtService jwtService;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(
+                revokedTokenRepository, jwtService, Duration.ofSeconds(10), Clock.fixed(NOW, ZoneOffset.UTC)
+        );
+    }
+
+    @Test
+    @DisplayName("revoke(token) - токен с jti - сохраняется в БД и сразу считается отозванным")
+    void shouldRevokeToken() {
+        TokenId id = TokenId.random();
+        when(jwtService.verify("token")).thenReturn(new VerifiedToken("user", id, NOW.plusSeconds(60), 0));
+        ArgumentCaptor<RevokedToken> captor = ArgumentCaptor.forClass(RevokedToken.class);
+
+        tokenRevocationService.revoke("token");
+
+        verify(revokedTokenRepository).save(captor.capture());
+        assertAll(
+                () -> assertTrue(tokenRevocationService.isRevoked(id)),
+                () -> assertFalse(tokenRevocationService.isRevoked(TokenId.random())),
+                () -> assertFalse(tokenRevocationService.isRevoked(null)),
+                () -> assertEquals(id.toString(), captor.getValue().getId()),
+                () -> assertEquals(NOW.plusSeconds(60), captor.getValue().getExpiresAt())
+        );
+    }
+
+    @Test
+    @DisplayName("revoke(token) - токен без jti - проброс InvalidTokenException")
+    void shouldRejectTokenWithoutId() {
+        when(jwtService.verify("token")).thenReturn(new VerifiedToken("user", null, NOW.plusSeconds(60), 0));
+
+        assertThrows(InvalidTokenException.class, () -> tokenRevocationService.revoke("token"));
+        verify(revokedTokenRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("sync() - загружает отзывы из БД и удаляет истекшие")
+    void shouldLoadRevocationsAndPurgeExpired() {
+        TokenId alive = TokenId.random();
+        when(revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(Instant.EPOCH, NOW)).thenReturn(List.of(
+                new RevokedToken(alive.toString(), "user", NOW.plusSeconds(60), NOW.minusSeconds(5)),
+                new RevokedToken("foreign-id", "user", NOW.plusSeconds(60), NOW.minusSeconds(5))
+        ));
+
+        tokenRevocationService.sync();
+
+        assertTrue(tokenRevocationService.isRevoked(alive));
+        verify(revokedTokenRepository).deleteExpired(NOW);
+    }
+
+    @Test
+    @DisplayName("sync() - повторная синхронизация - догружает только отзывы за последний интервал")
+    void shouldLoadOnlyRecentRevocations() {
+        when(revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(any(), any())).thenReturn(List.of());
+
+        tokenRevocationService.sync();
+        tokenRevocationService.sync();
+
+        verify(revokedTokenRepository).findByRevokedAtAfterAndExpiresAtAfter(Instant.EPOCH, NOW);
+        verify(revokedTokenRepository).findByRevokedAtAfterAndExpiresAtAfter(NOW.minusSeconds(10), NOW);
+    }
+}
@@ -0,0 +1,206 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tgb.cryptoexchange.auth.exception.InvalidTokenException;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenVerificationServiceTest {
+
+    @Mock
+    private JwtService jwtService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private TokenVersionCache tokenVersionCache;
+
+    @Test
+    @DisplayName("verify(String token) - повторная проверка того же токена - подпись проверяется один раз")
+    void shouldVerifySignatureOnceForSameToken() {
+        TokenVerificationService tokenVerificationService =
+                new TokenVerificationService(jwtService, tokenRevocationService, tokenVersionCache, 100, 2, 100);
+        VerifiedToken verifiedToken = new VerifiedToken("user", null, Instant.now().plusSeconds(60), 0);
+        when(jwtService.verify("token")).thenReturn(verifiedToken);
+
+        assertEquals(verifiedToken, tokenVerificationService.verify("token"));
+        assertEquals(verifiedToken, tokenVerificationService.verify("token"));
+        verify(jwtService, times(1)).verify("token");
+    }
+
+    @Test
+    @DisplayName("verify(String token) - срок действия истек - токен проверяется заново")
+    void shouldNotReturnExpiredTokenFromCache() {
+        TokenVerificationService tokenVerificationService =
+                new TokenVerificationService(jwtService, tokenRevocationService, tokenVersionCache, 100, 2, 100);
+        when(jwtService.verify("token")).thenReturn(new VerifiedToken("user", null, Instant.now().minusSeconds(1), 0));
+
+        tokenVerificationService.verify("token");
+        tokenVerificationService.verify("token");
+        verify(jwtService, times(2)).verify("token");
+    }
+
+    @Test
+    @DisplayName("verify(String token) - невалидный токен - не кэшируется, проброс InvalidTokenException")
+    void shouldNotCacheInvalidToken() {
+        TokenVerificationService tokenVerificationService =
+                new TokenVerificationService(jwtService, tokenRevocationService, tokenVersionCache, 100, 2, 100);
+        when(jwtService.verify("token")).thenThrow(new InvalidTokenException("Invalid token"));
+
+        assertThrows(InvalidTokenException.class, () -> tokenVerificationService.verify("token"));
+        assertThrows(InvalidTokenException.class, () -> tokenVerificationService.verify("token"));
+        verify(jwtService, times(2)).verify("token");
+    }
+
+    @Test
+    @DisplayName("verify(String token) - токен отозван после попадания в кэш - проброс InvalidTokenException")
+    void shouldRejectRevokedCachedToken() {
+        TokenVerificationService tokenVerificationService =
+                new TokenVerificationService(jwtService, tokenRevocationService, tokenVersionCache, 100, 2, 100);
+        TokenId id = TokenId.random();
+        when(jwtService.verify("token")).thenReturn(new VerifiedToken("user", id, Instant.now().plusSeconds(60), 0));
+        when(tokenRevocationService.isRevoked(id)).thenReturn(false, true);
+
+        tokenVerificationService.verify("token");
+        assertThrows(InvalidTokenException.class, () -> tokenVerificationService.verify("token"));
+        verify(jwtService, times(1)).verify("token");
+    }
+
+    @Test
+    @DisplayName("verify(String token) - версия токенов пользователя увеличилась после попадания в кэш - "
+            + "проброс InvalidTokenException")
+    void shouldRejectCachedTokenWithOutdatedVersion() {
+        TokenVerificationService tokenVerificationService =
+                new TokenVerificationService(jwtService, tokenRevocationService, tokenVersionCache, 100, 2, 100);
+        when(jwtService.verify("token")).thenReturn(new VerifiedToken("user", null, Instant.now().plusSeconds(60), 3));
+        when(tokenVersionCache.current("user")).thenReturn(3L, 4L);
+
+        tokenVerificationService.verify("token");
+        InvalidTokenException e = assertThrows(InvalidTokenException.class, () -> tokenVerificationService.verify("token"));
+        assertEquals("Token invalidated", e.getMessage());
+        verify(jwtService, times(1)).verify("token");
+    }
+
+    @Test
+    @DisplayName("verify(String token) - пользователь удален - проброс InvalidTokenException")
+    void shouldRejectTokenOfDeletedUser() {
+        TokenVerificationService tokenVerificationService =
+                new TokenVerificationService(jwtService, tokenRevocationService, tokenVersionCache, 100, 2, 100);
+        when(jwtService.verify("token")).thenReturn(new VerifiedToken("user", null, Instant.now().plusSeconds(60), 0));
+        when(tokenVersionCache.current("user")).thenReturn(TokenVersionCache.NO_USER);
+
+        assertThrows(InvalidTokenException.class, () -> tokenVerificationService.verify("token"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   "})
+    @NullSource
+    @DisplayName("verify(String token) - пустой токен - проброс InvalidTokenException")
+    void shouldRejectBlankToken(String token) {
+        TokenVerificationService tokenVerificationService =
+                new TokenVerificationService(jwtService, tokenRevocationService, tokenVersionCache, 100, 2, 100);
+
+        assertThrows(InvalidTokenException.class, () -> tokenVerificationService.verify(token));
+        verify(jwtService, never()).verify(anyString());
+    }
+
+    @Test
+    @DisplayName("verifyAll(tokens) - валидные, невалидные и повторяющиеся токены - результаты в порядке токенов, "
+            + "одинаковые и закэшированные токены не проверяются повторно")
+    void shouldVerifyBatchInInputOrder() {
+        TokenVerificationService tokenVerificationService =
+                new TokenVerificationService(jwtService, tokenRevocationService, tokenVersionCache, 100, 2, 100);
+        VerifiedToken cached = new VerifiedToken("cached", null, Instant.now().plusSeconds(60), 0);
+        VerifiedToken fresh = new VerifiedToken("fresh", null, Instant.now().plusSeconds(60), 0);
+        when(jwtService.verify("cached")).thenReturn(cached);
+        when(jwtService.verify("fresh")).thenReturn(fresh);
+        when(jwtService.verify("invalid")).thenThrow(new InvalidTokenException("Invalid token"));
+        tokenVerificationService.verify("cached");
+
+        List<CompletableFuture<VerifiedToken>> results = tokenVerificationService.verifyAll(
+                Arrays.asList("fresh", "invalid", "cached", null, "fresh")
+        );
+
+        assertEquals(5, results.size());
+        assertEquals(fresh, results.get(0).join());
+        CompletionException invalid = assertThrows(CompletionException.class, () -> results.get(1).join());
+        assertInstanceOf(InvalidTokenException.class, invalid.getCause());
+        assertEquals(cached, results.get(2).join());
+        assertThrows(CompletionException.class, () -> results.get(3).join());
+        assertEquals(fresh, results.get(4).join());
+        verify(jwtService, times(1)).verify("cached");
+        verify(jwtService, times(1)).verify("fresh");
+        tokenVerificationService.shutdown();
+    }
+
+    @Test
+    @DisplayName("verifyAll(tokens) - токен отозван - результат с InvalidTokenException")
+    void shouldRejectRevokedTokenInBatch() {
+        TokenVerificationService tokenVerificationService =
+                new TokenVerificationService(jwtService, tokenRevocationService, tokenVersionCache, 100, 2, 100);
+        TokenId id = TokenId.random();
+        when(jwtService.verify("token")).thenReturn(new VerifiedToken("user", id, Instant.now().plusSeconds(60), 0));
+        when(tokenRevocationService.isRevoked(id)).thenReturn(true);
+
+        CompletionException revoked = assertThrows(
+                CompletionException.class, () -> tokenVerificationService.verifyAll(List.of("token")).getFirst().join()
+        );
+        assertEquals("Token revoked", revoked.getCause().getMessage());
+        tokenVerificationService.shutdown();
+    }
+
+    @Test
+    @DisplayName("verifyAll(tokens) - очередь пула заполнена - токен проверяется в потоке вызывающего")
+    void shouldVerifyInCallerThreadWhenQueueIsFull() throws Exception {
+        TokenVerificationService tokenVerificationService =
+                new TokenVerificationService(jwtService, tokenRevocationService, tokenVersionCache, 100, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> callerVerifiedIn = new AtomicReference<>();
+        VerifiedToken slow = new VerifiedToken("slow", null, Instant.now().plusSeconds(60), 0);
+        VerifiedToken queued = new VerifiedToken("queued", null, Instant.now().plusSeconds(60), 0);
+        VerifiedToken caller = new VerifiedToken("caller", null, Instant.now().plusSeconds(60), 0);
+        when(jwtService.verify("slow")).thenAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return slow;
+        });
+        when(jwtService.verify("queued")).thenReturn(queued);
+        when(jwtService.verify("caller")).thenAnswer(invocation -> {
+            callerVerifiedIn.set(Thread.currentThread());
+            return caller;
+        });
+
+        List<CompletableFuture<VerifiedToken>> first = tokenVerificationService.verifyAll(List.of("slow"));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        List<CompletableFuture<VerifiedToken>> results = tokenVerificationService.verifyAll(List.of("queued", "caller"));
+
+        assertTrue(results.get(1).isDone());
+        assertEquals(Thread.currentThread(), callerVerifiedIn.get());
+        release.countDown();
+        assertEquals(slow, first.getFirst().join());
+        assertEquals(queued, results.get(0).join());
+        assertEquals(caller, results.get(1).join());
+        tokenVerificationService.shutdown();
+    }
+}
@@ -0,0 +1,162 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class TokenVersionCacheTest {
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("current(username) - повторный запрос - обращение к БД один раз, после invalidate - заново")
+    void shouldLoadVersionOnceUntilInvalidated() {
+        TokenVersionCache cache = new TokenVersionCache(this::load, 100, 60000);
+
+        assertEquals(0, cache.current("user"));
+        version.set(1);
+        assertEquals(0, cache.current("user"));
+        assertEquals(1, loads.get());
+
+        cache.invalidate("user");
+        assertEquals(1, cache.current("user"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("invalidate(username) - юзернейм в другом регистре - версия загружается заново")
+    void shouldInvalidateVersionCachedUnderAnotherCase() {
+        TokenVersionCache cache = new TokenVersionCache(this::load, 100, 60000);
+
+        assertEquals(0, cache.current("USER"));
+        version.set(1);
+        cache.invalidate("user");
+
+        assertEquals(1, cache.current("User"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("current(username) - пользователя нет в БД - NO_USER кэшируется до инвалидации")
+    void shouldCacheMissingUserUntilInvalidated() {
+        AtomicBoolean exists = new AtomicBoolean();
+        TokenVersionCache cache = new TokenVersionCache(username -> {
+            loads.incrementAndGet();
+            return exists.get() ? Optional.of(0L) : Optional.empty();
+        }, 100, 60000);
+
+        assertEquals(TokenVersionCache.NO_USER, cache.current("user"));
+        assertEquals(TokenVersionCache.NO_USER, cache.current("user"));
+        assertEquals(1, loads.get());
+
+        exists.set(true);
+        cache.invalidate("user");
+        assertEquals(0, cache.current("user"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("current(username) - инвалидация во время загрузки - загруженная версия не кэшируется")
+    void shouldNotCacheVersionLoadedDuringInvalidation() {
+        TokenVersionCache[] cache = new TokenVersionCache[1];
+        cache[0] = new TokenVersionCache(username -> {
+            Optional<Long> loaded = load(username);
+            if (loads.get() == 1) {
+                version.set(1);
+                cache[0].invalidate(username);
+            }
+            return loaded;
+        }, 100, 60000);
+
+        assertEquals(0, cache[0].current("user"));
+        assertEquals(1, cache[0].current("user"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("invalidateAfterCommit(username) - активная транзакция - версия удаляется только после ее завершения")
+    void shouldInvalidateAfterTransactionCompletion() {
+        TokenVersionCache cache = new TokenVersionCache(this::load, 100, 60000);
+        cache.current("user");
+        version.set(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidateAfterCommit("user");
+            assertEquals(0, cache.current("user"));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, cache.current("user"));
+    }
+
+    @Test
+    @DisplayName("current(username) - инвалидация другого пользователя во время загрузки - загруженная версия кэшируется")
+    void shouldCacheVersionWhenOtherUserIsInvalidatedDuringLoad() {
+        TokenVersionCache[] cache = new TokenVersionCache[1];
+        cache[0] = new TokenVersionCache(username -> {
+            Optional<Long> loaded = load(username);
+            cache[0].invalidate("other");
+            return loaded;
+        }, 100, 60000);
+
+        assertEquals(0, cache[0].current("user"));
+        assertEquals(0, cache[0].current("user"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("current(username) - ошибка загрузки - проброс исключения, следующий вызов загружает заново")
+    void shouldNotCacheFailedLoad() {
+        TokenVersionCache cache = new TokenVersionCache(username -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("Database is unavailable");
+            }
+            return Optional.of(version.get());
+        }, 100, 60000);
+
+        assertThrows(IllegalStateException.class, () -> cache.current("user"));
+        assertEquals(0, cache.current("user"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("currentAsync(username, executor) - промах - загрузка в executor, затем версия из кэша без него")
+    void shouldLoadVersionAsynchronouslyOnMiss() {
+        TokenVersionCache cache = new TokenVersionCache(this::load, 100, 60000);
+        List<Runnable> tasks = new ArrayList<>();
+
+        CompletableFuture<Long> loading = cache.currentAsync("user", tasks::add);
+        assertFalse(loading.isDone());
+        assertEquals(0, loads.get());
+        tasks.forEach(Runnable::run);
+
+        assertEquals(0, loading.join());
+        assertEquals(0, cache.currentAsync("user", task -> fail("Version is cached")).join());
+        assertEquals(1, loads.get());
+    }
+
+    private Optional<Long> load(String username) {
+        loads.incrementAndGet();
+        return Optional.of(version.get());
+    }
+}
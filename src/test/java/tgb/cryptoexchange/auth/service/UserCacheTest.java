@@ -0,0 +1,142 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tgb.cryptoexchange.auth.dto.CacheStatsDTO;
+import tgb.cryptoexchange.auth.entity.User;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        userCache = new UserCache(userRepository, 100, 60000, 60000);
+    }
+
+    @Test
+    @DisplayName("findByUsername(username) - повторный запрос - обращение к БД один раз")
+    void shouldLoadUserOnce() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(new User(1L, "test", "hash", 0)));
+
+        assertEquals(Optional.of(new CachedUser(1L, "hash")), userCache.findByUsername("test"));
+        assertEquals(Optional.of(new CachedUser(1L, "hash")), userCache.findByUsername("test"));
+        verify(userRepository, times(1)).findByUsername("test");
+        CacheStatsDTO stats = userCache.getStats();
+        assertAll(
+                () -> assertEquals(1, stats.getHits()),
+                () -> assertEquals(1, stats.getMisses()),
+                () -> assertEquals(1, stats.getSize())
+        );
+    }
+
+    @Test
+    @DisplayName("findByUsername(username) - пользователя нет в БД - отсутствие не кэшируется")
+    void shouldNotCacheMissingUser() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new User(1L, "test", "hash", 0)));
+
+        assertTrue(userCache.findByUsername("test").isEmpty());
+        assertEquals(Optional.of(new CachedUser(1L, "hash")), userCache.findByUsername("test"));
+    }
+
+    @Test
+    @DisplayName("invalidate(username) - после инвалидации пользователь загружается заново из основной БД")
+    void shouldReloadUserFromPrimaryAfterInvalidation() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(new User(1L, "test", "old", 0)));
+        when(userRepository.findByUsernameOnPrimary("test")).thenReturn(Optional.of(new User(1L, "test", "new", 0)));
+
+        userCache.findByUsername("test");
+        userCache.invalidate("test");
+
+        assertEquals(Optional.of(new CachedUser(1L, "new")), userCache.findByUsername("test"));
+        verify(userRepository, times(1)).findByUsername("test");
+        verify(userRepository, times(1)).findByUsernameOnPrimary("test");
+    }
+
+    @Test
+    @DisplayName("invalidate(username) - юзернейм в другом регистре - запись удаляется и загружается из основной БД")
+    void shouldInvalidateUserCachedUnderAnotherCase() {
+        when(userRepository.findByUsername("TEST")).thenReturn(Optional.of(new User(1L, "test", "old", 0)));
+        when(userRepository.findByUsernameOnPrimary("TEST")).thenReturn(Optional.of(new User(1L, "test", "new", 0)));
+
+        assertEquals(Optional.of(new CachedUser(1L, "old")), userCache.findByUsername("TEST"));
+        userCache.invalidate("test");
+
+        assertEquals(Optional.of(new CachedUser(1L, "new")), userCache.findByUsername("TEST"));
+        verify(userRepository, times(1)).findByUsername("TEST");
+        verify(userRepository, times(1)).findByUsernameOnPrimary("TEST");
+    }
+
+    @Test
+    @DisplayName("invalidate(username) - окно чтения своих записей истекло - пользователь загружается с реплики")
+    void shouldReloadUserFromReplicaOutsideReadYourWritesWindow() {
+        userCache = new UserCache(userRepository, 100, 60000, 0);
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(new User(1L, "test", "old", 0)))
+                .thenReturn(Optional.of(new User(1L, "test", "new", 0)));
+
+        userCache.findByUsername("test");
+        userCache.invalidate("test");
+
+        assertEquals(Optional.of(new CachedUser(1L, "new")), userCache.findByUsername("test"));
+        verify(userRepository, times(2)).findByUsername("test");
+        verify(userRepository, never()).findByUsernameOnPrimary("test");
+    }
+
+    @Test
+    @DisplayName("findByUsername(username) - одновременные запросы в виртуальных потоках - обращение к БД один раз")
+    void shouldLoadUserOnceForConcurrentLookups() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findByUsername("test")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(new User(1L, "test", "hash", 0));
+        });
+
+        List<Future<Optional<CachedUser>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            results.add(executor.submit(() -> userCache.findByUsername("test")));
+            loading.await();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> userCache.findByUsername("test")));
+            }
+            release.countDown();
+        }
+
+        for (Future<Optional<CachedUser>> result : results) {
+            assertEquals(Optional.of(new CachedUser(1L, "hash")), result.get());
+        }
+        verify(userRepository, times(1)).findByUsername("test");
+    }
+
+    @Test
+    @DisplayName("findByUsername(username) - ошибка БД - исключение пробрасывается, ошибка не кэшируется")
+    void shouldNotCacheLoadFailure() {
+        when(userRepository.findByUsername("test")).thenThrow(new IllegalStateException("db"))
+                .thenReturn(Optional.of(new User(1L, "test", "hash", 0)));
+
+        assertThrows(IllegalStateException.class, () -> userCache.findByUsername("test"));
+        assertEquals(Optional.of(new CachedUser(1L, "hash")), userCache.findByUsername("test"));
+    }
+}
@@ -0,0 +1,283 @@
+package tgb.cryptoexchange.auth.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tgb.cryptoexchange.auth.datasource.UserShards;
+import tgb.cryptoexchange.auth.dto.ImportConflictDTO;
+import tgb.cryptoexchange.auth.dto.ImportReportDTO;
+import tgb.cryptoexchange.auth.entity.User;
+import tgb.cryptoexchange.auth.policy.PasswordPolicy;
+import tgb.cryptoexchange.auth.policy.PasswordRule;
+import tgb.cryptoexchange.auth.repository.UserBatchRepository;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserBatchRepository.class, UserShards.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserImportServiceTest {
+
+    private static final String HASH = "$2a$04$T3f8b4YFQ.j2wnyG3CmuBOeCmrZbmWJQJ7x3HcGSA2pb9oR02eW.2";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserBatchRepository userBatchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+
+    private final UsernameAvailabilityService usernameAvailabilityService = mock(UsernameAvailabilityService.class);
+
+    private final TokenVersionCache tokenVersionCache = mock(TokenVersionCache.class);
+
+    private final PasswordPolicy passwordPolicy =
+            new PasswordPolicy(new StaticListableBeanFactory().getBeanProvider(PasswordRule.class));
+
+    private final PasswordHashingService passwordHashingService =
+            new PasswordHashingService(passwordEncoder, 2, 64, 5000, 1);
+
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() {
+        userImportService = new UserImportService(
+                userBatchRepository, usernameAvailabilityService, tokenVersionCache, passwordHashingService,
+                passwordPolicy, transactionManager, new UserShards(List.of()), new ObjectMapper(), 2, 2, 10, 10
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    @DisplayName("importUsers(inputStream) - валидные строки - пользователи загружены, пароли захешированы")
+    void shouldImportValidUsers() throws Exception {
+        ImportReportDTO report = userImportService.importUsers(ndjson(
+                "{\"username\":\"alice\",\"password\":\"Qwe123!@#\"}",
+                "",
+                "{\"username\":\"bob\",\"passwordHash\":\"" + HASH + "\"}",
+                "{\"username\":\"carol\",\"password\":\"Asd456$%^\"}"
+        ));
+
+        assertAll(
+                () -> assertEquals(3, report.getTotal()),
+                () -> assertEquals(3, report.getImported()),
+                () -> assertEquals(0, report.getFailed()),
+                () -> assertTrue(report.getConflicts().isEmpty()),
+                () -> assertTrue(passwordEncoder.matches("Qwe123!@#",
+                        userRepository.findByUsername("alice").orElseThrow().getPassword())),
+                () -> assertEquals(HASH, userRepository.findByUsername("bob").orElseThrow().getPassword()),
+                () -> assertEquals(0, userRepository.findByUsername("bob").orElseThrow().getTokenVersion()),
+                () -> verify(usernameAvailabilityService).add("alice"),
+                () -> verify(usernameAvailabilityService).add("bob"),
+                () -> verify(usernameAvailabilityService).add("carol"),
+                () -> verify(tokenVersionCache).invalidate("alice"),
+                () -> verify(tokenVersionCache).invalidate("bob"),
+                () -> verify(tokenVersionCache).invalidate("carol")
+        );
+    }
+
+    @Test
+    @DisplayName("importUsers(inputStream) - невалидные и занятые юзернеймы - попадают в отчет, остальные загружены")
+    void shouldReportConflictsWithoutAbortingImport() throws Exception {
+        userRepository.save(new User(null, "taken", HASH, 0));
+
+        ImportReportDTO report = userImportService.importUsers(ndjson(
+                "{\"username\":\"taken\",\"password\":\"Qwe123!@#\"}",
+                "{\"username\":\"alice\",\"password\":\"Qwe123!@#\"}",
+                "not json",
+                "{\"username\":\"alice\",\"password\":\"Qwe123!@#\"}",
+                "{\"username\":\"bob\",\"passwordHash\":\"plain\"}",
+                "{\"username\":\"carol\"}",
+                "{\"username\":\"dave\",\"password\":\"Qwe123!@#\"}"
+        ));
+
+        assertAll(
+                () -> assertEquals(7, report.getTotal()),
+                () -> assertEquals(2, report.getImported()),
+                () -> assertEquals(5, report.getFailed()),
+                () -> assertEquals(new ImportConflictDTO(1, "taken", "Username is taken by another user"),
+                        report.getConflicts().get(0)),
+                () -> assertEquals(new ImportConflictDTO(3, null, "Malformed line"), report.getConflicts().get(1)),
+                () -> assertEquals(new ImportConflictDTO(5, "bob", "Invalid password hash"),
+                        report.getConflicts().get(2)),
+                () -> assertEquals(6, report.getConflicts().get(3).getLine()),
+                () -> assertEquals(new ImportConflictDTO(4, "alice", "Username is taken by another user"),
+                        report.getConflicts().get(4)),
+                () -> assertTrue(userRepository.findByUsername("alice").isPresent()),
+                () -> assertTrue(userRepository.findByUsername("dave").isPresent())
+        );
+    }
+
+    @Test
+    @DisplayName("importUsers(inputStream) - юзернеймы отличаются регистром и диакритикой - загружен только первый")
+    void shouldTreatCaseAndAccentVariantsAsDuplicates() throws Exception {
+        ImportReportDTO report = userImportService.importUsers(ndjson(
+                "{\"username\":\"Erin\",\"passwordHash\":\"" + HASH + "\"}",
+                "{\"username\":\"erin\",\"passwordHash\":\"" + HASH + "\"}",
+                "{\"username\":\"Érin\",\"passwordHash\":\"" + HASH + "\"}"
+        ));
+
+        assertAll(
+                () -> assertEquals(1, report.getImported()),
+                () -> assertEquals(2, report.getFailed()),
+                () -> assertEquals(new ImportConflictDTO(2, "erin", "Username is taken by another user"),
+                        report.getConflicts().get(0)),
+                () -> assertEquals(new ImportConflictDTO(3, "Érin", "Username is taken by another user"),
+                        report.getConflicts().get(1)),
+                () -> assertTrue(userRepository.findByUsername("Erin").isPresent()),
+                () -> assertEquals(1, userRepository.count())
+        );
+    }
+
+    @Test
+    @DisplayName("importUsers(inputStream) - стоимость хеша вне 04-31 - строка отклонена")
+    void shouldRejectHashCostOutOfRange() throws Exception {
+        String suffix = HASH.substring(7);
+
+        ImportReportDTO report = userImportService.importUsers(ndjson(
+                "{\"username\":\"low\",\"passwordHash\":\"$2a$03$" + suffix + "\"}",
+                "{\"username\":\"high\",\"passwordHash\":\"$2a$32$" + suffix + "\"}",
+                "{\"username\":\"huge\",\"passwordHash\":\"{bcrypt}$2b$99$" + suffix + "\"}",
+                "{\"username\":\"max\",\"passwordHash\":\"$2b$31$" + suffix + "\"}"
+        ));
+
+        assertAll(
+                () -> assertEquals(1, report.getImported()),
+                () -> assertEquals(3, report.getFailed()),
+                () -> assertTrue(report.getConflicts().stream()
+                        .allMatch(conflict -> conflict.getReason().equals("Invalid password hash"))),
+                () -> assertTrue(userRepository.findByUsername("max").isPresent())
+        );
+    }
+
+    @Test
+    @DisplayName("importUsers(inputStream) - пул хеширования переполнен - импорт ждет и загружает все строки")
+    void shouldRetryWhenHashingIsOverloaded() throws Exception {
+        PasswordHashingService overloaded = new PasswordHashingService(passwordEncoder, 1, 1, 5000, 0);
+        userImportService = new UserImportService(
+                userBatchRepository, usernameAvailabilityService, tokenVersionCache, overloaded,
+                passwordPolicy, transactionManager, new UserShards(List.of()), new ObjectMapper(), 4, 4, 10, 10
+        );
+
+        try {
+            ImportReportDTO report = userImportService.importUsers(ndjson(
+                    "{\"username\":\"alice\",\"password\":\"Qwe123!@#\"}",
+                    "{\"username\":\"bob\",\"password\":\"Qwe123!@#\"}",
+                    "{\"username\":\"carol\",\"password\":\"Qwe123!@#\"}",
+                    "{\"username\":\"dave\",\"password\":\"Qwe123!@#\"}"
+            ));
+
+            assertAll(
+                    () -> assertEquals(4, report.getImported()),
+                    () -> assertEquals(0, report.getFailed()),
+                    () -> assertEquals(4, overloaded.getStats().getCompleted())
+            );
+        } finally {
+            overloaded.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("importUsers(inputStream) - строк больше auth.import.max-rows - лишние не читаются, отчет неполный")
+    void shouldStopAtMaxRows() throws Exception {
+        userImportService = new UserImportService(
+                userBatchRepository, usernameAvailabilityService, tokenVersionCache, passwordHashingService,
+                passwordPolicy, transactionManager, new UserShards(List.of()), new ObjectMapper(), 2, 2, 10, 2
+        );
+
+        ImportReportDTO report = userImportService.importUsers(ndjson(
+                "{\"username\":\"alice\",\"passwordHash\":\"" + HASH + "\"}",
+                "",
+                "{\"username\":\"bob\",\"passwordHash\":\"" + HASH + "\"}",
+                "{\"username\":\"carol\",\"passwordHash\":\"" + HASH + "\"}"
+        ));
+
+        assertAll(
+                () -> assertEquals(2, report.getTotal()),
+                () -> assertEquals(2, report.getImported()),
+                () -> assertTrue(report.isTruncated()),
+                () -> assertTrue(userRepository.findByUsername("carol").isEmpty())
+        );
+    }
+
+    @Test
+    @DisplayName("importUsers(inputStream) - пароль не проходит парольную политику - строка отклонена")
+    void shouldRejectPasswordViolatingPolicy() throws Exception {
+        ImportReportDTO report = userImportService.importUsers(ndjson(
+                "{\"username\":\"alice\",\"password\":\"password\"}",
+                "{\"username\":\"ab\",\"password\":\"Qwe123!@#\"}",
+                "{\"username\":\"bob\",\"password\":\"Qwe123!@#\"}"
+        ));
+
+        assertAll(
+                () -> assertEquals(1, report.getImported()),
+                () -> assertEquals(new ImportConflictDTO(1, "alice", "Invalid password"), report.getConflicts().get(0)),
+                () -> assertEquals(new ImportConflictDTO(2, "ab", "Invalid username"), report.getConflicts().get(1)),
+                () -> assertTrue(userRepository.findByUsername("alice").isEmpty()),
+                () -> assertTrue(userRepository.findByUsername("bob").isPresent())
+        );
+    }
+
+    @Test
+    @DisplayName("importUsers(inputStream) - БД отклонила строку не из-за дубликата - строка в отчете, остальные загружены")
+    void shouldReportRowsRejectedByDatabase() throws Exception {
+        String longUsername = "a".repeat(300);
+        jdbcTemplate.execute("alter table user add constraint chk_user_rejected check (username <> 'rejected')");
+        ImportReportDTO report;
+        try {
+            report = userImportService.importUsers(ndjson(
+                    "{\"username\":\"" + longUsername + "\",\"passwordHash\":\"" + HASH + "\"}",
+                    "{\"username\":\"rejected\",\"passwordHash\":\"" + HASH + "\"}",
+                    "{\"username\":\"bob\",\"passwordHash\":\"" + HASH + "\"}"
+            ));
+        } finally {
+            jdbcTemplate.execute("alter table user drop constraint chk_user_rejected");
+        }
+
+        assertAll(
+                () -> assertEquals(1, report.getImported()),
+                () -> assertEquals(2, report.getFailed()),
+                () -> assertEquals(new ImportConflictDTO(1, longUsername, "Invalid username"),
+                        report.getConflicts().get(0)),
+                () -> assertEquals(new ImportConflictDTO(2, "rejected", "Rejected by the database"),
+                        report.getConflicts().get(1)),
+                () -> assertTrue(userRepository.findByUsername("bob").isPresent())
+        );
+    }
+
+    private ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
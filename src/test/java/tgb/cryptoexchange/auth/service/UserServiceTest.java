@@ -6,13 +6,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullSource;
 import org.junit.jupiter.params.provider.ValueSource;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import tgb.cryptoexchange.auth.audit.AuditEventType;
+import tgb.cryptoexchange.auth.audit.AuditLog;
+import tgb.cryptoexchange.auth.datasource.UserShards;
 import tgb.cryptoexchange.auth.entity.User;
 import tgb.cryptoexchange.auth.repository.UserRepository;
 
@@ -21,7 +25,11 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -37,11 +45,26 @@ class UserServiceTest {
     @Mock
     private BCryptPasswordEncoder bCryptPasswordEncoder;
 
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private UsernameAvailabilityService usernameAvailabilityService;
+
+    @Mock
+    private AuditLog auditLog;
+
+    @Mock
+    private TokenVersionCache tokenVersionCache;
+
+    @Spy
+    private UserShards userShards = new UserShards(List.of());
+
     @Test
     @DisplayName("loadUserByUsername(username) - пользователя нет в БД - проброс UsernameNotFoundException")
     void shouldThrowExceptionWhenUsernameNotFound() {
         String username = "test";
-        when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
+        when(userCache.findByUsername(username)).thenReturn(Optional.empty());
         assertThrows(UsernameNotFoundException.class, () -> userService.loadUserByUsername(username), "User not found");
     }
 
@@ -50,15 +73,11 @@ class UserServiceTest {
     void shouldReturnUser() {
         String username = "test";
         String password = "password";
-        User user = new User();
-        user.setId(1L);
-        user.setUsername(username);
-        user.setPassword(password);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(userCache.findByUsername(username)).thenReturn(Optional.of(new CachedUser(1L, password)));
         UserDetails actual = userService.loadUserByUsername(username);
         assertAll(
-                () -> assertEquals(user.getUsername(), actual.getUsername()),
-                () -> assertEquals(user.getPassword(), actual.getPassword()),
+                () -> assertEquals(username, actual.getUsername()),
+                () -> assertEquals(password, actual.getPassword()),
                 () -> assertEquals(0, actual.getAuthorities().size())
         );
     }
@@ -66,7 +85,7 @@ class UserServiceTest {
     @Test
     @DisplayName("getUsernames() - в БД нет пользователей - возвращает пустой список")
     void shouldReturnEmptyListWhenNoUsers() {
-        when(userRepository.findAll()).thenReturn(new ArrayList<>());
+        when(userRepository.findAllUsernames()).thenReturn(new ArrayList<>());
         List<String> actual = userService.getUsernames();
         assertNotNull(actual);
         assertTrue(actual.isEmpty());
@@ -75,11 +94,7 @@ class UserServiceTest {
     @Test
     @DisplayName("getUsernames() - в БД есть пользователи - возвращает список юзернеймов")
     void shouldReturnUsernames() {
-        List<User> users = new ArrayList<>();
-        users.add(new User(1L, "test1", "password1"));
-        users.add(new User(2L, "test2", "password2"));
-        users.add(new User(3L, "test3", "password3"));
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findAllUsernames()).thenReturn(List.of("test1", "test2", "test3"));
         List<String> actual = userService.getUsernames();
         assertAll(
                 () -> assertNotNull(actual),
@@ -90,6 +105,20 @@ class UserServiceTest {
         );
     }
 
+    @Test
+    @DisplayName("getUsernames(after, limit) - передан курсор - возвращает страницу после курсора")
+    void shouldReturnUsernamesPageAfterCursor() {
+        when(userRepository.findUsernamesAfter(aryEq(User.usernameBin("test1")), eq(Limit.of(2)))).thenReturn(List.of("test2", "test3"));
+        assertEquals(List.of("test2", "test3"), userService.getUsernames("test1", 2));
+    }
+
+    @Test
+    @DisplayName("getUsernames(after, limit) - курсор не передан - возвращает первую страницу")
+    void shouldReturnFirstUsernamesPage() {
+        when(userRepository.findUsernamesAfter(aryEq(new byte[0]), eq(Limit.of(2)))).thenReturn(List.of("test1", "test2"));
+        assertEquals(List.of("test1", "test2"), userService.getUsernames(null, 2));
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"", "   "})
     @NullSource
@@ -108,6 +137,10 @@ class UserServiceTest {
         when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
         userService.delete(username);
         verify(userRepository).delete(user);
+        verify(userCache).invalidateAfterCommit(username);
+        verify(tokenVersionCache).invalidateAfterCommit(username);
+        verify(usernameAvailabilityService).remove(username);
+        verify(auditLog).record(AuditEventType.DELETE, username);
     }
 
     @ParameterizedTest
@@ -116,21 +149,23 @@ class UserServiceTest {
             "Jofng@#$123qwe",
             "as!doF9%H8FO@N8F!ej76#4f%n"
     })
-    @DisplayName("updatePassword(username, password) - пользователь существует - пароль пользователя обновлен")
+    @DisplayName("updatePassword(username, password) - пользователь существует - пароль и версия токенов обновлены "
+            + "одним запросом")
     void updatePasswordShouldUpdateUserPassword(String password) {
-        User user = new User();
-        user.setPassword("qwerty123!@#");
-        when(userRepository.findByUsername(anyString())).thenReturn(Optional.of(user));
+        when(userRepository.updatePasswordAndTokenVersion("username", password)).thenReturn(1);
         userService.updatePassword("username", password);
-        ArgumentCaptor<User> userArgumentCaptor = ArgumentCaptor.forClass(User.class);
-        verify(userRepository).save(userArgumentCaptor.capture());
-        assertEquals(password, userArgumentCaptor.getValue().getPassword());
+        verify(userRepository, never()).findByUsername(anyString());
+        verify(userRepository, never()).save(any());
+        verify(userCache).invalidateAfterCommit("username");
+        verify(tokenVersionCache).invalidateAfterCommit("username");
+        verify(auditLog).record(AuditEventType.PASSWORD_CHANGE, "username");
     }
 
     @Test
     @DisplayName("updatePassword(username, password) - пользователя нет в БД - проброшен UsernameNotFoundException")
     void updatePasswordShouldThrowUsernameNotFoundException() {
-        when(userRepository.findByUsername(anyString())).thenReturn(Optional.empty());
+        when(userRepository.updatePasswordAndTokenVersion(anyString(), anyString())).thenReturn(0);
         assertThrows(UsernameNotFoundException.class, () -> userService.updatePassword("username", "password"));
+        verify(tokenVersionCache, never()).invalidateAfterCommit(anyString());
     }
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import tgb.cryptoexchange.auth.repository.UserRepository;
+import tgb.cryptoexchange.auth.repository.UsernameStreamRepository;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UsernameAvailabilityServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UsernameStreamRepository usernameStreamRepository;
+
+    private UsernameAvailabilityService usernameAvailabilityService;
+
+    @BeforeEach
+    void setUp() {
+        usernameAvailabilityService = new UsernameAvailabilityService(
+                userRepository, usernameStreamRepository, 1000, 0.01
+        );
+        lenient().when(usernameStreamRepository.maxIds()).thenReturn(new long[]{2});
+    }
+
+    private void syncRows(Object... idsAndUsernames) {
+        doAnswer(invocation -> {
+            UsernameStreamRepository.UsernameRowConsumer consumer = invocation.getArgument(1);
+            for (int i = 0; i < idsAndUsernames.length; i += 2) {
+                consumer.accept(0, (Long) idsAndUsernames[i], (String) idsAndUsernames[i + 1]);
+            }
+            return null;
+        }).when(usernameStreamRepository).forEachUsernameAfter(any(), any());
+    }
+
+    private void streamUsernames(String... usernames) {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            List.of(usernames).forEach(consumer);
+            return null;
+        }).when(usernameStreamRepository).forEachUsername(any());
+    }
+
+    @Test
+    @DisplayName("isAvailable(username) - фильтр не построен - проверка в БД")
+    void shouldQueryDatabaseBeforeFilterIsBuilt() {
+        when(userRepository.existsByUsername("username")).thenReturn(false);
+        assertTrue(usernameAvailabilityService.isAvailable("username"));
+        verify(userRepository).existsByUsername("username");
+    }
+
+    @Test
+    @DisplayName("isAvailable(username) - юзернейма нет в фильтре - свободен без обращения к БД")
+    void shouldAnswerFreeFromFilter() {
+        streamUsernames("alice", "bob");
+        usernameAvailabilityService.rebuild();
+
+        assertTrue(usernameAvailabilityService.isAvailable("charlie"));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("isAvailable(username) - юзернейм занят в другом регистре - подтверждение в БД")
+    void shouldCheckUsernameInAnotherCaseInDatabase() {
+        streamUsernames("Alice");
+        usernameAvailabilityService.rebuild();
+        usernameAvailabilityService.add("Bob");
+        when(userRepository.existsByUsername(any())).thenReturn(true);
+
+        assertFalse(usernameAvailabilityService.isAvailable("ALICE"));
+        assertFalse(usernameAvailabilityService.isAvailable("bob"));
+        verify(userRepository).existsByUsername("ALICE");
+        verify(userRepository).existsByUsername("bob");
+    }
+
+    @Test
+    @DisplayName("isAvailable(username) - юзернейм в фильтре - подтверждение в БД")
+    void shouldConfirmPossiblePositiveInDatabase() {
+        streamUsernames("alice");
+        usernameAvailabilityService.rebuild();
+        usernameAvailabilityService.add("bob");
+        when(userRepository.existsByUsername(any())).thenReturn(true);
+
+        assertFalse(usernameAvailabilityService.isAvailable("alice"));
+        assertFalse(usernameAvailabilityService.isAvailable("bob"));
+        verify(userRepository).existsByUsername("alice");
+        verify(userRepository).existsByUsername("bob");
+    }
+
+    @Test
+    @DisplayName("rebuildIfStale() - после удаления фильтр перестраивается без удаленного юзернейма")
+    void shouldRebuildAfterDeletion() {
+        streamUsernames("alice", "bob");
+        usernameAvailabilityService.rebuild();
+        usernameAvailabilityService.rebuildIfStale();
+        verify(usernameStreamRepository, times(1)).forEachUsername(any());
+
+        usernameAvailabilityService.remove("bob");
+        streamUsernames("alice");
+        usernameAvailabilityService.rebuildIfStale();
+
+        assertTrue(usernameAvailabilityService.isAvailable("bob"));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("rebuild() - ошибка чтения таблицы - остается прежний фильтр")
+    void shouldKeepPreviousFilterOnFailure() {
+        streamUsernames("alice");
+        usernameAvailabilityService.rebuild();
+        doThrow(new DataAccessResourceFailureException("down")).when(usernameStreamRepository).forEachUsername(any());
+
+        usernameAvailabilityService.rebuild();
+
+        assertTrue(usernameAvailabilityService.isAvailable("charlie"));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("sync() - юзернейм сохранен другим экземпляром - попадает в фильтр и проверяется в БД")
+    void shouldLoadUsernamesSavedByOtherInstances() {
+        streamUsernames("alice", "bob");
+        usernameAvailabilityService.rebuild();
+        syncRows(3L, "charlie");
+        when(userRepository.existsByUsername("charlie")).thenReturn(true);
+
+        usernameAvailabilityService.sync();
+
+        assertFalse(usernameAvailabilityService.isAvailable("charlie"));
+        verify(usernameStreamRepository).forEachUsernameAfter(aryEq(new long[]{2}), any());
+    }
+
+    @Test
+    @DisplayName("sync() - следующая догрузка - читает с отметки предыдущей догрузки")
+    void shouldLookBackOneSync() {
+        streamUsernames("alice", "bob");
+        usernameAvailabilityService.rebuild();
+        syncRows(3L, "charlie", 5L, "eve");
+        usernameAvailabilityService.sync();
+
+        syncRows(4L, "dave", 5L, "eve");
+        usernameAvailabilityService.sync();
+        usernameAvailabilityService.sync();
+
+        InOrder inOrder = inOrder(usernameStreamRepository);
+        inOrder.verify(usernameStreamRepository, times(2)).forEachUsernameAfter(aryEq(new long[]{2}), any());
+        inOrder.verify(usernameStreamRepository).forEachUsernameAfter(aryEq(new long[]{5}), any());
+        when(userRepository.existsByUsername("dave")).thenReturn(true);
+        assertFalse(usernameAvailabilityService.isAvailable("dave"));
+    }
+
+    @Test
+    @DisplayName("sync() - фильтр не построен - БД не читается")
+    void shouldSkipSyncBeforeFilterIsBuilt() {
+        usernameAvailabilityService.sync();
+        verify(usernameStreamRepository, never()).forEachUsernameAfter(any(), any());
+    }
+
+    @Test
+    @DisplayName("rebuild() - юзернейм сохранен во время чтения таблицы - учитывается в размере фильтра")
+    void shouldKeepEntriesAddedDuringRebuild() {
+        UsernameAvailabilityService small = new UsernameAvailabilityService(
+                userRepository, usernameStreamRepository, 2, 0.01
+        );
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("alice");
+            small.add("carol");
+            consumer.accept("bob");
+            return null;
+        }).when(usernameStreamRepository).forEachUsername(any());
+        small.rebuild();
+
+        small.rebuildIfStale();
+
+        verify(usernameStreamRepository, times(2)).forEachUsername(any());
+    }
+}
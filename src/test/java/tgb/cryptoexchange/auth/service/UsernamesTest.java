@@ -0,0 +1,32 @@
+package tgb.cryptoexchange.auth.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class UsernamesTest {
+
+    @Test
+    @DisplayName("key(username) - юзернейм в другом регистре - тот же ключ")
+    void shouldIgnoreCase() {
+        assertEquals("alice", Usernames.key("Alice"));
+        assertEquals(Usernames.key("ALICE-1"), Usernames.key("alice-1"));
+    }
+
+    @Test
+    @DisplayName("key(username) - юзернейм с диакритикой, в том числе в декомпозированной форме - ключ без диакритики")
+    void shouldIgnoreAccents() {
+        assertEquals("jose", Usernames.key("José"));
+        assertEquals("jose", Usernames.key("JOSÉ"));
+        assertEquals("ежик", Usernames.key("Ёжик"));
+    }
+
+    @Test
+    @DisplayName("key(username) - разные буквы без общей декомпозиции - разные ключи")
+    void shouldKeepDistinctLetters() {
+        assertNotEquals(Usernames.key("ıvan"), Usernames.key("ivan"));
+        assertNotEquals(Usernames.key("øle"), Usernames.key("ole"));
+    }
+}
@@ -0,0 +1,238 @@
+package tgb.cryptoexchange.auth.sidecar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tgb.cryptoexchange.auth.dto.TokenVerificationDTO;
+import tgb.cryptoexchange.auth.service.JwtService;
+import tgb.cryptoexchange.auth.service.TokenRevocationService;
+import tgb.cryptoexchange.auth.service.TokenVerificationService;
+import tgb.cryptoexchange.auth.service.TokenVersionCache;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SidecarServerTest {
+
+    private final JwtService jwtService = new JwtService("sidecar-secret-sidecar-secret-sidecar-secret-sidecar-", 60000);
+
+    private final CountDownLatch slowLoading = new CountDownLatch(1);
+
+    private final CountDownLatch slowLoaded = new CountDownLatch(1);
+
+    private final TokenVersionCache tokenVersionCache = new TokenVersionCache(username -> {
+        if (username.equals("slow")) {
+            slowLoading.countDown();
+            await(slowLoaded);
+        }
+        return username.equals("unknown") ? Optional.empty() : Optional.of(0L);
+    }, 100, 60000);
+
+    private final TokenVerificationService tokenVerificationService = new TokenVerificationService(
+            jwtService, new TokenRevocationService(null, jwtService, 1000), tokenVersionCache, 100, 1, 100
+    );
+
+    @TempDir
+    private Path directory;
+
+    private SidecarServer server;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        slowLoaded.countDown();
+        server.stop();
+        tokenVerificationService.shutdown();
+    }
+
+    @Test
+    @DisplayName("verify(token) - валидный и невалидный токены - юзернейм со сроком действия и причина отказа")
+    void shouldVerifyTokens() throws IOException {
+        Path socket = start(1, false);
+        String token = jwtService.generateToken("sidecar-user", 0);
+
+        try (SidecarClient client = SidecarClient.connect(socket)) {
+            TokenVerificationDTO valid = client.verify(token);
+            assertTrue(valid.isValid());
+            assertEquals("sidecar-user", valid.getSubject());
+            assertEquals(jwtService.verify(token).expiration(), valid.getExpiration());
+
+            TokenVerificationDTO invalid = client.verify("not-a-token");
+            assertFalse(invalid.isValid());
+            assertEquals("Invalid token", invalid.getError());
+        }
+        assertTrue(Files.exists(socket));
+        server.stop();
+        assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    @DisplayName("start() - сокет на итоговом пути с правами rw-rw----, временная директория удалена")
+    void shouldExposeSocketOnlyToOwnerAndGroup() throws IOException {
+        Path socket = start(1, false);
+
+        assertEquals("rw-rw----", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(socket), files.toList());
+        }
+        try (SidecarClient client = SidecarClient.connect(socket)) {
+            assertTrue(client.verify(jwtService.generateToken("sidecar-user", 0)).isValid());
+        }
+    }
+
+    @Test
+    @DisplayName("mint(username) - выпуск выключен - отказ; включен - токен проходит проверку JwtService, неизвестному пользователю - отказ")
+    void shouldMintOnlyWhenEnabled() throws IOException {
+        Path socket = start(1, false);
+        try (SidecarClient client = SidecarClient.connect(socket)) {
+            IOException e = assertThrows(IOException.class, () -> client.mint("sidecar-user"));
+            assertTrue(e.getMessage().contains("Minting is disabled"));
+        }
+        server.stop();
+
+        socket = start(1, true);
+        try (SidecarClient client = SidecarClient.connect(socket)) {
+            assertEquals("пользователь", jwtService.verify(client.mint("пользователь")).subject());
+            IOException e = assertThrows(IOException.class, () -> client.mint("unknown"));
+            assertTrue(e.getMessage().contains("Unknown user"));
+        }
+    }
+
+    @Test
+    @DisplayName("Несколько запросов одной записью - ответы в порядке запросов")
+    void shouldAnswerPipelinedRequestsInOrder() throws IOException {
+        Path socket = start(1, false);
+        byte[] first = jwtService.generateToken("first", 0).getBytes(StandardCharsets.US_ASCII);
+        byte[] second = jwtService.generateToken("second", 0).getBytes(StandardCharsets.US_ASCII);
+
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            ByteBuffer requests = ByteBuffer.allocate(64 + first.length + second.length)
+                    .putInt(1 + first.length).put(SidecarProtocol.VERIFY).put(first)
+                    .putInt(2).put((byte) 42).put((byte) 0)
+                    .putInt(1 + second.length).put(SidecarProtocol.VERIFY).put(second)
+                    .flip();
+            channel.write(requests);
+
+            assertEquals("first", subject(read(channel)));
+            ByteBuffer unknown = read(channel);
+            assertEquals(SidecarProtocol.BAD_REQUEST, unknown.get());
+            assertEquals("second", subject(read(channel)));
+        }
+    }
+
+    @Test
+    @DisplayName("Загрузка версии токенов из БД - другие соединения потока селектора не ждут ее, ответы соединения идут по порядку")
+    void shouldNotBlockSelectorWhileLoadingVersion() throws Exception {
+        Path socket = start(1, false);
+        byte[] slow = jwtService.generateToken("slow", 0).getBytes(StandardCharsets.US_ASCII);
+        byte[] fast = jwtService.generateToken("fast", 0).getBytes(StandardCharsets.US_ASCII);
+
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+             SidecarClient client = SidecarClient.connect(socket)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            channel.write(ByteBuffer.allocate(16 + slow.length + fast.length)
+                    .putInt(1 + slow.length).put(SidecarProtocol.VERIFY).put(slow)
+                    .putInt(1 + fast.length).put(SidecarProtocol.VERIFY).put(fast)
+                    .flip());
+            assertTrue(slowLoading.await(5, TimeUnit.SECONDS));
+
+            assertEquals("fast", client.verify(new String(fast, StandardCharsets.US_ASCII)).getSubject());
+            slowLoaded.countDown();
+            assertEquals("slow", subject(read(channel)));
+            assertEquals("fast", subject(read(channel)));
+        }
+    }
+
+    @Test
+    @DisplayName("Длина кадра больше auth.sidecar.max-frame-size - BAD_REQUEST и закрытие соединения")
+    void shouldCloseConnectionOnOversizedFrame() throws IOException {
+        Path socket = start(1, false);
+
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            channel.write(ByteBuffer.allocate(8).putInt(1 << 20).putInt(0).flip());
+
+            assertEquals(SidecarProtocol.BAD_REQUEST, read(channel).get());
+            assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        }
+    }
+
+    @Test
+    @DisplayName("Одновременные клиенты на нескольких потоках селекторов - каждый получает свои ответы")
+    void shouldServeConcurrentClients() throws Exception {
+        Path socket = start(2, false);
+        List<Future<?>> clients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                String username = "client-" + i;
+                String token = jwtService.generateToken(username, 0);
+                clients.add(executor.submit(() -> {
+                    try (SidecarClient client = SidecarClient.connect(socket)) {
+                        for (int request = 0; request < 200; request++) {
+                            assertEquals(username, client.verify(token).getSubject());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        }
+    }
+
+    private Path start(int threads, boolean mintEnabled) throws IOException {
+        Path socket = directory.resolve("auth.sock");
+        server = new SidecarServer(tokenVerificationService, jwtService, tokenVersionCache, socket.toString(), threads,
+                2, 1024, mintEnabled);
+        server.start();
+        return socket;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ByteBuffer read(SocketChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SidecarProtocol.HEADER_SIZE);
+        readFully(channel, header);
+        ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+        readFully(channel, body);
+        return body.flip();
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            assertTrue(channel.read(buffer) >= 0);
+        }
+    }
+
+    private static String subject(ByteBuffer response) {
+        assertEquals(SidecarProtocol.OK, response.get());
+        response.getLong();
+        return StandardCharsets.UTF_8.decode(response).toString();
+    }
+}
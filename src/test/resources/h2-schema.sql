@@ -0,0 +1,14 @@
+create table if not exists user (
+    id bigint generated by default as identity primary key,
+    username varchar(255) unique,
+    password varchar(255),
+    token_version bigint default 0 not null,
+    username_bin varbinary(1020)
+);
+create index if not exists idx_user_username_bin on user (username_bin);
+create table if not exists revoked_token (
+    id varchar(22) primary key,
+    username varchar(255),
+    expires_at timestamp(6) with time zone,
+    revoked_at timestamp(6) with time zone
+);